@@ -0,0 +1,52 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * The superclass of the mapper implementations generated when the <code>mapperGenerationEnabled</code> setting
+ * is on. Each generated method calls {@link #execute(int, Object[])} with its own index, so a call costs an array
+ * lookup instead of a proxy dispatch and a method cache lookup. Not meant to be extended by hand.
+ *
+ * Like {@link MapperProxy} it is serializable; it is written as the equivalent dynamic proxy, since the generated
+ * class does not exist in the JVM that reads it.
+ *
+ * @see MapperProxyFactory
+ */
+public abstract class GeneratedMapper implements Serializable {
+
+  private static final long serialVersionUID = 5307383911466498316L;
+  private final SqlSession sqlSession;
+  private final MapperProxyFactory<?> mapperProxyFactory;
+
+  protected GeneratedMapper(SqlSession sqlSession, MapperProxyFactory<?> mapperProxyFactory) {
+    this.sqlSession = sqlSession;
+    this.mapperProxyFactory = mapperProxyFactory;
+  }
+
+  protected final Object execute(int index, Object[] args) {
+    return mapperProxyFactory.getMapperMethod(index, sqlSession.getConfiguration()).execute(sqlSession, args);
+  }
+
+  protected final Object writeReplace() throws ObjectStreamException {
+    return mapperProxyFactory.newProxyInstance(sqlSession);
+  }
+
+}
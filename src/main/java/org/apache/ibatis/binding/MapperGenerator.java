@@ -0,0 +1,203 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import javassist.ClassPool;
+import javassist.CtClass;
+import javassist.CtConstructor;
+import javassist.CtMethod;
+import javassist.LoaderClassPath;
+
+import org.apache.ibatis.lang.UsesJava7;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.Jdk;
+import org.apache.ibatis.session.SqlSession;
+
+/**
+ * Generates with Javassist a class implementing a mapper interface, once per interface.
+ *
+ * The class extends {@link GeneratedMapper} and implements each abstract method of the interface by calling
+ * <code>execute</code> with the index of the method. Default methods are inherited as they are. On Java 9 and later
+ * the class is defined through a private lookup in the interface, otherwise through Javassist.
+ */
+final class MapperGenerator {
+
+  private static final Log log = LogFactory.getLog(MapperGenerator.class);
+
+  private static final String SUFFIX = "$$MapperImpl";
+  // 生成失败的接口，不再重试
+  private static final Template FAILED = new Template(null, null);
+  // 模板引用生成的类，生成的类又引用接口，所以值也是弱引用，以免接口的ClassLoader无法被回收
+  private static final Map<Class<?>, Reference<Template>> templates = new WeakHashMap<Class<?>, Reference<Template>>();
+
+  private MapperGenerator() {
+    // Prevent Instantiation of Static Class
+  }
+
+  /*
+   * @return the generated class of the interface, or null if it cannot be generated
+   */
+  static Template getTemplate(Class<?> mapperInterface) {
+    synchronized (templates) {
+      Reference<Template> reference = templates.get(mapperInterface);
+      Template template = reference == null ? null : reference.get();
+      if (template == null) {
+        try {
+          template = generate(mapperInterface);
+        } catch (Throwable t) {
+          // Javassist不在classpath中、接口不可访问等情况，退回到JDK动态代理
+          log.warn("Could not generate an implementation of " + mapperInterface.getName()
+              + ", using a dynamic proxy instead. Cause: " + t);
+          template = FAILED;
+        }
+        templates.put(mapperInterface, new WeakReference<Template>(template));
+      }
+      return template == FAILED ? null : template;
+    }
+  }
+
+  private static Template generate(Class<?> mapperInterface) throws Exception {
+    Method[] methods = getAbstractMethods(mapperInterface);
+    Class<?> type = findGenerated(mapperInterface);
+    if (type == null) {
+      type = defineClass(mapperInterface, methods);
+    }
+    return new Template(type.getConstructor(SqlSession.class, MapperProxyFactory.class), methods);
+  }
+
+  /*
+   * The class generated earlier for the interface, if its template was garbage collected since
+   */
+  private static Class<?> findGenerated(Class<?> mapperInterface) {
+    try {
+      Class<?> type = Class.forName(mapperInterface.getName() + SUFFIX, false, mapperInterface.getClassLoader());
+      return GeneratedMapper.class.isAssignableFrom(type) ? type : null;
+    } catch (ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static Class<?> defineClass(Class<?> mapperInterface, Method[] methods) throws Exception {
+    ClassPool pool = new ClassPool(null);
+    pool.appendClassPath(new LoaderClassPath(GeneratedMapper.class.getClassLoader()));
+    pool.insertClassPath(new LoaderClassPath(mapperInterface.getClassLoader()));
+
+    CtClass implementation = pool.makeClass(mapperInterface.getName() + SUFFIX, pool.get(GeneratedMapper.class.getName()));
+    implementation.addInterface(pool.get(mapperInterface.getName()));
+    CtConstructor constructor = new CtConstructor(new CtClass[] {
+        pool.get(SqlSession.class.getName()), pool.get(MapperProxyFactory.class.getName()) }, implementation);
+    constructor.setBody("{ super($1, $2); }");
+    implementation.addConstructor(constructor);
+    for (int i = 0; i < methods.length; i++) {
+      Method method = methods[i];
+      Class<?>[] parameterTypes = method.getParameterTypes();
+      CtClass[] parameters = new CtClass[parameterTypes.length];
+      for (int j = 0; j < parameterTypes.length; j++) {
+        parameters[j] = pool.get(nameOf(parameterTypes[j]));
+      }
+      CtMethod ctMethod = new CtMethod(pool.get(nameOf(method.getReturnType())), method.getName(), parameters, implementation);
+      ctMethod.setModifiers(Modifier.PUBLIC);
+      // $args把参数装箱成Object[]，($r)把结果转换或拆箱成返回类型
+      if (void.class.equals(method.getReturnType())) {
+        ctMethod.setBody("{ execute(" + i + ", $args); }");
+      } else {
+        ctMethod.setBody("{ return ($r) execute(" + i + ", $args); }");
+      }
+      implementation.addMethod(ctMethod);
+    }
+    try {
+      if (Jdk.privateLookupInExists) {
+        return defineClass(mapperInterface, implementation.toBytecode());
+      }
+      // Java 8及以前，JDK 16起ClassLoader.defineClass不再能通过反射调用
+      return implementation.toClass(mapperInterface.getClassLoader(), mapperInterface.getProtectionDomain());
+    } finally {
+      implementation.detach();
+    }
+  }
+
+  /*
+   * Defines the class in the package of the interface with MethodHandles.privateLookupIn(mapperInterface, lookup())
+   * .defineClass(bytecode), called reflectively since they only exist on Java 9 and later
+   */
+  @UsesJava7
+  private static Class<?> defineClass(Class<?> mapperInterface, byte[] bytecode) throws Exception {
+    Method privateLookupIn = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    Object lookup = privateLookupIn.invoke(null, mapperInterface, MethodHandles.lookup());
+    return (Class<?>) MethodHandles.Lookup.class.getMethod("defineClass", byte[].class).invoke(lookup, bytecode);
+  }
+
+  /*
+   * The abstract methods of the interface and its superinterfaces, each signature once, sorted by signature so that
+   * a class generated earlier has the same method indexes
+   */
+  private static Method[] getAbstractMethods(Class<?> mapperInterface) {
+    Map<String, Method> methods = new TreeMap<String, Method>();
+    for (Method method : mapperInterface.getMethods()) {
+      if (!Modifier.isAbstract(method.getModifiers())) {
+        // default和static方法
+        continue;
+      }
+      StringBuilder signature = new StringBuilder(method.getName()).append('(');
+      for (Class<?> parameterType : method.getParameterTypes()) {
+        signature.append(parameterType.getName()).append(',');
+      }
+      signature.append(')').append(method.getReturnType().getName());
+      if (!methods.containsKey(signature.toString())) {
+        methods.put(signature.toString(), method);
+      }
+    }
+    List<Method> list = new ArrayList<Method>(methods.values());
+    return list.toArray(new Method[list.size()]);
+  }
+
+  private static String nameOf(Class<?> type) {
+    return type.isArray() ? nameOf(type.getComponentType()) + "[]" : type.getName();
+  }
+
+  static final class Template {
+
+    private final Constructor<?> constructor;
+    private final Method[] methods;
+
+    Template(Constructor<?> constructor, Method[] methods) {
+      this.constructor = constructor;
+      this.methods = methods;
+    }
+
+    Constructor<?> getConstructor() {
+      return constructor;
+    }
+
+    Method[] getMethods() {
+      return methods;
+    }
+  }
+
+}
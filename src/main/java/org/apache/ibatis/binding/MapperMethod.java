@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -21,6 +21,7 @@ import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
+import org.apache.ibatis.reflection.ArgumentMap;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.ParamNameResolver;
 import org.apache.ibatis.reflection.TypeParameterResolver;
@@ -211,10 +212,21 @@ public class MapperMethod {
     return result;
   }
 
-  public static class ParamMap<V> extends HashMap<String, V> {
+  public static class ParamMap<V> extends ArgumentMap<V> {
 
     private static final long serialVersionUID = -2212268410512043556L;
 
+    public ParamMap() {
+      super();
+    }
+
+    /*
+     * A map reading the arguments through the name to index table of their method
+     */
+    public ParamMap(Map<String, Integer> indexes, Object[] args) {
+      super(indexes, args);
+    }
+
     @Override
     public V get(Object key) {
       if (!super.containsKey(key)) {
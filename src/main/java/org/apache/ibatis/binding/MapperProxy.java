@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,12 +16,14 @@
 package org.apache.ibatis.binding;
 
 import java.io.Serializable;
+import java.lang.invoke.MethodHandle;
 import java.lang.invoke.MethodHandles;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.ibatis.lang.UsesJava7;
 import org.apache.ibatis.reflection.ExceptionUtil;
@@ -35,6 +37,8 @@ import org.apache.ibatis.session.SqlSession;
 public class MapperProxy<T> implements InvocationHandler, Serializable {
 
   private static final long serialVersionUID = -6424540398559729838L;
+  // default方法的MethodHandle，值为MethodHandle，以免Java 6加载该类时失败
+  private static final Map<Method, Object> defaultMethodHandles = new ConcurrentHashMap<Method, Object>();
   private final SqlSession sqlSession;
   private final Class<T> mapperInterface;
   private final Map<Method, MapperMethod> methodCache;
@@ -85,17 +89,23 @@ public class MapperProxy<T> implements InvocationHandler, Serializable {
   @UsesJava7
   private Object invokeDefaultMethod(Object proxy, Method method, Object[] args)
       throws Throwable {
-    final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
-        .getDeclaredConstructor(Class.class, int.class);
-    if (!constructor.isAccessible()) {
-      constructor.setAccessible(true);
+    MethodHandle methodHandle = (MethodHandle) defaultMethodHandles.get(method);
+    if (methodHandle == null) {
+      // 反射创建Lookup的开销较大，每个方法只做一次
+      final Constructor<MethodHandles.Lookup> constructor = MethodHandles.Lookup.class
+          .getDeclaredConstructor(Class.class, int.class);
+      if (!constructor.isAccessible()) {
+        constructor.setAccessible(true);
+      }
+      final Class<?> declaringClass = method.getDeclaringClass();
+      methodHandle = constructor
+          .newInstance(declaringClass,
+              MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+                  | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC)
+          .unreflectSpecial(method, declaringClass);
+      defaultMethodHandles.put(method, methodHandle);
     }
-    final Class<?> declaringClass = method.getDeclaringClass();
-    return constructor
-        .newInstance(declaringClass,
-            MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
-                | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC)
-        .unreflectSpecial(method, declaringClass).bindTo(proxy).invokeWithArguments(args);
+    return methodHandle.bindTo(proxy).invokeWithArguments(args);
   }
 
   /**
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,17 +19,24 @@ import java.lang.reflect.Method;
 import java.lang.reflect.Proxy;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+import org.apache.ibatis.reflection.ExceptionUtil;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 
 /**
  * mapper接口代理工厂
+ * 开启mapperGenerationEnabled时返回生成的实现类的实例，否则返回JDK动态代理
  * @author Lasse Voss
  */
 public class MapperProxyFactory<T> {
 
   private final Class<T> mapperInterface;
   private final Map<Method, MapperMethod> methodCache = new ConcurrentHashMap<Method, MapperMethod>();
+  // 生成的实现类，及按其方法下标排列的MapperMethod，第一次使用时初始化
+  private volatile MapperGenerator.Template template;
+  private volatile AtomicReferenceArray<MapperMethod> mapperMethods;
 
   public MapperProxyFactory(Class<T> mapperInterface) {
     this.mapperInterface = mapperInterface;
@@ -59,9 +66,64 @@ public class MapperProxyFactory<T> {
    * @return
    */
   public T newInstance(SqlSession sqlSession) {
+    if (sqlSession.getConfiguration().isMapperGenerationEnabled()) {
+      T mapper = newGeneratedInstance(sqlSession);
+      if (mapper != null) {
+        return mapper;
+      }
+    }
+    return newProxyInstance(sqlSession);
+  }
+
+  /*
+   * @return a dynamic proxy of the interface, whatever the mapperGenerationEnabled setting
+   */
+  T newProxyInstance(SqlSession sqlSession) {
     // mapper代理的handler
     final MapperProxy<T> mapperProxy = new MapperProxy<T>(sqlSession, mapperInterface, methodCache);
     return newInstance(mapperProxy);
   }
 
+  /*
+   * @return an instance of the generated implementation, or null if the interface cannot be implemented
+   */
+  @SuppressWarnings("unchecked")
+  private T newGeneratedInstance(SqlSession sqlSession) {
+    if (template == null) {
+      synchronized (this) {
+        if (template == null) {
+          MapperGenerator.Template generated = MapperGenerator.getTemplate(mapperInterface);
+          if (generated == null) {
+            return null;
+          }
+          mapperMethods = new AtomicReferenceArray<MapperMethod>(generated.getMethods().length);
+          template = generated;
+        }
+      }
+    }
+    try {
+      return (T) template.getConstructor().newInstance(sqlSession, this);
+    } catch (Exception e) {
+      throw new BindingException("Error creating an instance of the generated implementation of " + mapperInterface.getName()
+          + ". Cause: " + ExceptionUtil.unwrapThrowable(e), e);
+    }
+  }
+
+  /*
+   * The MapperMethod of the method at the given index of the generated implementation, shared with the proxies
+   */
+  MapperMethod getMapperMethod(int index, Configuration configuration) {
+    MapperMethod mapperMethod = mapperMethods.get(index);
+    if (mapperMethod == null) {
+      Method method = template.getMethods()[index];
+      mapperMethod = methodCache.get(method);
+      if (mapperMethod == null) {
+        mapperMethod = new MapperMethod(mapperInterface, method, configuration);
+        methodCache.put(method, mapperMethod);
+      }
+      mapperMethods.set(index, mapperMethod);
+    }
+    return mapperMethod;
+  }
+
 }
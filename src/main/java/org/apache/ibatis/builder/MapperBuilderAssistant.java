@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -170,6 +170,9 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .readWrite(readWrite)
         .blocking(blocking)
         .properties(props)
+        .refresher(configuration.getCacheRefresher())
+        .statistics(configuration.getCacheStatistics(currentNamespace))
+        .snapshot(configuration.getCacheSnapshot())
         .build();
     // 添加构建出的缓存对象
     configuration.addCache(cache);
@@ -314,6 +317,17 @@ public class MapperBuilderAssistant extends BaseBuilder {
       Integer timeout, String parameterMap, Class<?> parameterType, String resultMap, Class<?> resultType,
       ResultSetType resultSetType, boolean flushCache, boolean useCache, boolean resultOrdered, KeyGenerator keyGenerator,
       String keyProperty, String keyColumn, String databaseId, LanguageDriver lang, String resultSets) {
+    return addMappedStatement(id, sqlSource, statementType, sqlCommandType, fetchSize, timeout, parameterMap,
+        parameterType, resultMap, resultType, resultSetType, flushCache, useCache, resultOrdered, keyGenerator,
+        keyProperty, keyColumn, databaseId, lang, resultSets, null, null);
+  }
+
+  public MappedStatement addMappedStatement(
+      String id, SqlSource sqlSource, StatementType statementType, SqlCommandType sqlCommandType, Integer fetchSize,
+      Integer timeout, String parameterMap, Class<?> parameterType, String resultMap, Class<?> resultType,
+      ResultSetType resultSetType, boolean flushCache, boolean useCache, boolean resultOrdered, KeyGenerator keyGenerator,
+      String keyProperty, String keyColumn, String databaseId, LanguageDriver lang, String resultSets,
+      String shardKey, String shardOrderBy) {
 
     // 存在未解析完成的cache-ref，抛异常
     if (unresolvedCacheRef) {
@@ -338,6 +352,8 @@ public class MapperBuilderAssistant extends BaseBuilder {
         .lang(lang)
         .resultOrdered(resultOrdered)
         .resultSets(resultSets)
+        .shardKey(shardKey)
+        .shardOrderBy(shardOrderBy)
         .resultMaps(getStatementResultMaps(resultMap, resultType, id))
         .resultSetType(resultSetType)
         .flushCacheRequired(valueOrDefault(flushCache, !isSelect))
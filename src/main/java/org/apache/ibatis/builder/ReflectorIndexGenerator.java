@@ -0,0 +1,185 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.builder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import org.apache.ibatis.builder.xml.XMLConfigBuilder;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMap;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.ResultMapping;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorIndex;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.type.TypeHandlerRegistry;
+
+/**
+ * Writes the {@link ReflectorIndex} of the result and parameter types of MyBatis configurations at build time.
+ *
+ * The arguments are the file to write, then configuration files and class names. The result map, parameter map and
+ * parameter types of each configuration are indexed, as well as the given classes and the bean types of their
+ * properties. With Maven it can run after the classes are compiled:
+ *
+ * <pre>
+ * &lt;plugin&gt;
+ *   &lt;groupId&gt;org.codehaus.mojo&lt;/groupId&gt;
+ *   &lt;artifactId&gt;exec-maven-plugin&lt;/artifactId&gt;
+ *   &lt;executions&gt;
+ *     &lt;execution&gt;
+ *       &lt;phase&gt;process-classes&lt;/phase&gt;
+ *       &lt;goals&gt;&lt;goal&gt;java&lt;/goal&gt;&lt;/goals&gt;
+ *       &lt;configuration&gt;
+ *         &lt;mainClass&gt;org.apache.ibatis.builder.ReflectorIndexGenerator&lt;/mainClass&gt;
+ *         &lt;classpathScope&gt;compile&lt;/classpathScope&gt;
+ *         &lt;arguments&gt;
+ *           &lt;argument&gt;${project.build.outputDirectory}/META-INF/mybatis/reflector.index&lt;/argument&gt;
+ *           &lt;argument&gt;src/main/resources/mybatis-config.xml&lt;/argument&gt;
+ *         &lt;/arguments&gt;
+ *       &lt;/configuration&gt;
+ *     &lt;/execution&gt;
+ *   &lt;/executions&gt;
+ * &lt;/plugin&gt;
+ * </pre>
+ */
+public class ReflectorIndexGenerator {
+
+  private final TypeHandlerRegistry typeHandlerRegistry = new TypeHandlerRegistry();
+  // 按类名排序，使生成的文件稳定
+  private final Set<Class<?>> types = new TreeSet<Class<?>>(new Comparator<Class<?>>() {
+    @Override
+    public int compare(Class<?> o1, Class<?> o2) {
+      return o1.getName().compareTo(o2.getName());
+    }
+  });
+
+  public static void main(String[] args) throws Exception {
+    if (args.length < 2) {
+      System.err.println("Usage: ReflectorIndexGenerator <index file> <mybatis-config.xml or class name>...");
+      System.exit(1);
+    }
+    ReflectorIndexGenerator generator = new ReflectorIndexGenerator();
+    for (int i = 1; i < args.length; i++) {
+      if (args[i].endsWith(".xml")) {
+        generator.addConfiguration(parse(args[i]));
+      } else {
+        generator.addType(Resources.classForName(args[i]));
+      }
+    }
+    File file = new File(args[0]);
+    if (file.getParentFile() != null) {
+      file.getParentFile().mkdirs();
+    }
+    Writer writer = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+    try {
+      generator.write(writer);
+    } finally {
+      writer.close();
+    }
+  }
+
+  /**
+   * Adds the result map, parameter map and parameter types of the configuration.
+   */
+  public void addConfiguration(Configuration configuration) {
+    // 短名称冲突时值为Ambiguity，所以按Object遍历
+    for (Object resultMap : new ArrayList<Object>(configuration.getResultMaps())) {
+      if (resultMap instanceof ResultMap) {
+        addType(((ResultMap) resultMap).getType());
+        for (ResultMapping resultMapping : ((ResultMap) resultMap).getResultMappings()) {
+          addType(resultMapping.getJavaType());
+        }
+      }
+    }
+    for (Object parameterMap : new ArrayList<Object>(configuration.getParameterMaps())) {
+      if (parameterMap instanceof ParameterMap) {
+        addType(((ParameterMap) parameterMap).getType());
+      }
+    }
+    for (Object mappedStatement : new ArrayList<Object>(configuration.getMappedStatements())) {
+      if (mappedStatement instanceof MappedStatement) {
+        addType(((MappedStatement) mappedStatement).getParameterMap().getType());
+      }
+    }
+  }
+
+  /**
+   * Adds the class and the bean types of its properties.
+   */
+  public void addType(Class<?> type) {
+    List<Class<?>> queue = new LinkedList<Class<?>>();
+    queue.add(type);
+    while (!queue.isEmpty()) {
+      Class<?> current = queue.remove(0);
+      if (isBean(current) && types.add(current)) {
+        Reflector reflector = new Reflector(current);
+        for (String name : reflector.getGetablePropertyNames()) {
+          queue.add(reflector.getGetterType(name));
+        }
+        for (String name : reflector.getSetablePropertyNames()) {
+          queue.add(reflector.getSetterType(name));
+        }
+      }
+    }
+  }
+
+  public Collection<Class<?>> getTypes() {
+    return types;
+  }
+
+  public void write(Writer writer) {
+    ReflectorIndex.write(writer, types);
+  }
+
+  /*
+   * 类型处理器能处理的类型、集合、JDK的类都不通过Reflector访问属性
+   */
+  private boolean isBean(Class<?> type) {
+    if (type == null || type.isPrimitive() || type.isArray() || type.isInterface() || type.isEnum()
+        || type.getClassLoader() == null || type.getName().startsWith("java.")
+        || type.getName().startsWith("javax.") || Map.class.isAssignableFrom(type)
+        || Collection.class.isAssignableFrom(type)) {
+      return false;
+    }
+    return !typeHandlerRegistry.hasTypeHandler(type);
+  }
+
+  private static Configuration parse(String path) throws IOException {
+    File file = new File(path);
+    InputStream inputStream = file.exists() ? new FileInputStream(file) : Resources.getResourceAsStream(path);
+    try {
+      return new XMLConfigBuilder(inputStream).parse();
+    } finally {
+      inputStream.close();
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,8 @@ package org.apache.ibatis.builder.xml;
 
 import java.io.InputStream;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Properties;
 import javax.sql.DataSource;
 
@@ -25,6 +27,7 @@ import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.datasource.DataSourceFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.loader.ProxyFactory;
+import org.apache.ibatis.executor.sharding.ShardResolver;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
@@ -426,6 +429,8 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setMapUnderscoreToCamelCase(booleanValueOf(props.getProperty("mapUnderscoreToCamelCase"), false));
     configuration.setSafeRowBoundsEnabled(booleanValueOf(props.getProperty("safeRowBoundsEnabled"), false));
     configuration.setLocalCacheScope(LocalCacheScope.valueOf(props.getProperty("localCacheScope", "SESSION")));
+    configuration.setLocalCacheMaxEntries(integerValueOf(props.getProperty("localCacheMaxEntries"), 0));
+    configuration.setLocalCacheMaxWeight(longValueOf(props.getProperty("localCacheMaxWeight"), 0L));
     configuration.setJdbcTypeForNull(JdbcType.valueOf(props.getProperty("jdbcTypeForNull", "OTHER")));
     configuration.setLazyLoadTriggerMethods(stringSetValueOf(props.getProperty("lazyLoadTriggerMethods"), "equals,clone,hashCode,toString"));
     configuration.setSafeResultHandlerEnabled(booleanValueOf(props.getProperty("safeResultHandlerEnabled"), true));
@@ -436,6 +441,12 @@ public class XMLConfigBuilder extends BaseBuilder {
     configuration.setCallSettersOnNulls(booleanValueOf(props.getProperty("callSettersOnNulls"), false));
     configuration.setUseActualParamName(booleanValueOf(props.getProperty("useActualParamName"), true));
     configuration.setReturnInstanceForEmptyRow(booleanValueOf(props.getProperty("returnInstanceForEmptyRow"), false));
+    configuration.setJmxEnabled(booleanValueOf(props.getProperty("jmxEnabled"), false));
+    configuration.setMapperGenerationEnabled(booleanValueOf(props.getProperty("mapperGenerationEnabled"), false));
+    configuration.setCompactMapRowsEnabled(booleanValueOf(props.getProperty("compactMapRowsEnabled"), false));
+    configuration.setCacheSnapshotFile(props.getProperty("cacheSnapshotFile"));
+    configuration.setCacheSnapshotMaxAge(longValueOf(props.getProperty("cacheSnapshotMaxAge"), 0L));
+    configuration.setShardResolver((ShardResolver) createInstance(props.getProperty("shardResolver")));
     configuration.setLogPrefix(props.getProperty("logPrefix"));
     @SuppressWarnings("unchecked")
     Class<? extends Log> logImpl = (Class<? extends Log>)resolveClass(props.getProperty("logImpl"));
@@ -456,10 +467,22 @@ public class XMLConfigBuilder extends BaseBuilder {
       if (environment == null) {
         environment = context.getStringAttribute("default");
       }
+      // shards属性列出的环境依次作为分片
+      List<String> shards = new ArrayList<String>();
+      String shardsAttribute = context.getStringAttribute("shards");
+      if (shardsAttribute != null) {
+        for (String shard : shardsAttribute.split(",")) {
+          if (shard.trim().length() > 0) {
+            shards.add(shard.trim());
+          }
+        }
+      }
+      Environment[] shardEnvironments = new Environment[shards.size()];
       for (XNode child : context.getChildren()) {
         String id = child.getStringAttribute("id");
+        boolean shard = shards.contains(id);
         // 判断指定的default和当前environment标签的id是否一样
-        if (isSpecifiedEnvironment(id)) {
+        if (isSpecifiedEnvironment(id) || shard) {
           // 事务管理器工厂
           TransactionFactory txFactory = transactionManagerElement(child.evalNode("transactionManager"));
           // 数据源工厂
@@ -470,11 +493,23 @@ public class XMLConfigBuilder extends BaseBuilder {
           Environment.Builder environmentBuilder = new Environment.Builder(id)
               .transactionFactory(txFactory)
               .dataSource(dataSource);
-          // 构建Environment对象存入configuration中
-          configuration.setEnvironment(environmentBuilder.build());
+          Environment built = environmentBuilder.build();
+          if (isSpecifiedEnvironment(id)) {
+            // 构建Environment对象存入configuration中
+            configuration.setEnvironment(built);
+          }
+          if (shard) {
+            shardEnvironments[shards.indexOf(id)] = built;
+          }
         }
         // 否则，配置其他的数据源在这里不做初始化
       }
+      for (int i = 0; i < shardEnvironments.length; i++) {
+        if (shardEnvironments[i] == null) {
+          throw new BuilderException("Shard environment '" + shards.get(i) + "' is not defined.");
+        }
+        configuration.addShardEnvironment(shardEnvironments[i]);
+      }
     }
   }
 
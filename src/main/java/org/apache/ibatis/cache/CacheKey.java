@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,57 +15,86 @@
  */
 package org.apache.ibatis.cache;
 
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
-import java.util.ArrayList;
-import java.util.List;
+import java.util.Arrays;
 
 import org.apache.ibatis.reflection.ArrayUtil;
 
 /**
+ * Key made of the values passed to {@link #update(Object)}, in order.
+ *
+ * Values are kept in an array that producers can size up front with {@link #CacheKey(int)}. Besides the hash code,
+ * a 64-bit checksum mixing every value hash with its position is maintained, so that keys with different values
+ * are almost always told apart without comparing the values themselves.
+ *
  * @author Clinton Begin
  */
 public class CacheKey implements Cloneable, Serializable {
 
-  private static final long serialVersionUID = 1146682552656046210L;
+  private static final long serialVersionUID = 3597235766426213536L;
 
   public static final CacheKey NULL_CACHE_KEY = new NullCacheKey();
 
   private static final int DEFAULT_MULTIPLYER = 37;
   private static final int DEFAULT_HASHCODE = 17;
+  private static final int DEFAULT_CAPACITY = 8;
+  private static final Object[] EMPTY_UPDATES = new Object[0];
 
   private final int multiplier;
   private int hashcode;
   private long checksum;
   private int count;
-  // 8/21/2017 - Sonarlint flags this as needing to be marked transient.  While true if content is not serializable, this is not always true and thus should not be marked transient.
-  private List<Object> updateList;
+  // 只序列化前count个值，见writeObject
+  private transient Object[] updates;
 
   public CacheKey() {
+    this(DEFAULT_CAPACITY);
+  }
+
+  /**
+   * @param expectedUpdateCount the number of values the key is expected to hold
+   */
+  public CacheKey(int expectedUpdateCount) {
     this.hashcode = DEFAULT_HASHCODE;
     this.multiplier = DEFAULT_MULTIPLYER;
     this.count = 0;
-    this.updateList = new ArrayList<Object>();
+    this.updates = expectedUpdateCount > 0 ? new Object[expectedUpdateCount] : EMPTY_UPDATES;
   }
 
   public CacheKey(Object[] objects) {
-    this();
+    this(objects.length);
     updateAll(objects);
   }
 
   public int getUpdateCount() {
-    return updateList.size();
+    return count;
+  }
+
+  /**
+   * @param index the position of the value in the key
+   * @return the value added by the index-th update
+   */
+  public Object getUpdate(int index) {
+    if (index < 0 || index >= count) {
+      throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + count);
+    }
+    return updates[index];
   }
 
   public void update(Object object) {
     int baseHashCode = object == null ? 1 : ArrayUtil.hashCode(object); 
 
-    count++;
-    checksum += baseHashCode;
+    if (count == updates.length) {
+      updates = Arrays.copyOf(updates, Math.max(DEFAULT_CAPACITY, count << 1));
+    }
+    updates[count++] = object;
+    checksum = mix(checksum, baseHashCode);
     baseHashCode *= count;
 
     hashcode = multiplier * hashcode + baseHashCode;
-
-    updateList.add(object);
   }
 
   public void updateAll(Object[] objects) {
@@ -95,10 +124,10 @@ public class CacheKey implements Cloneable, Serializable {
       return false;
     }
 
-    for (int i = 0; i < updateList.size(); i++) {
-      Object thisObject = updateList.get(i);
-      Object thatObject = cacheKey.updateList.get(i);
-      if (!ArrayUtil.equals(thisObject, thatObject)) {
+    for (int i = 0; i < count; i++) {
+      Object thisObject = updates[i];
+      Object thatObject = cacheKey.updates[i];
+      if (thisObject != thatObject && !ArrayUtil.equals(thisObject, thatObject)) {
         return false;
       }
     }
@@ -113,8 +142,8 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public String toString() {
     StringBuilder returnValue = new StringBuilder().append(hashcode).append(':').append(checksum);
-    for (Object object : updateList) {
-      returnValue.append(':').append(ArrayUtil.toString(object));
+    for (int i = 0; i < count; i++) {
+      returnValue.append(':').append(ArrayUtil.toString(updates[i]));
     }
     return returnValue.toString();
   }
@@ -122,8 +151,33 @@ public class CacheKey implements Cloneable, Serializable {
   @Override
   public CacheKey clone() throws CloneNotSupportedException {
     CacheKey clonedCacheKey = (CacheKey) super.clone();
-    clonedCacheKey.updateList = new ArrayList<Object>(updateList);
+    // 预留一个位置，克隆的键通常还会再追加父行的键
+    clonedCacheKey.updates = Arrays.copyOf(updates, count + 1);
     return clonedCacheKey;
   }
 
+  /**
+   * FNV-1a style step with an extra shift, so the checksum depends on the order of the values.
+   */
+  private static long mix(long checksum, int hash) {
+    long h = (checksum ^ (hash & 0xffffffffL)) * 0x100000001b3L;
+    h ^= h >>> 29;
+    return h;
+  }
+
+  private void writeObject(ObjectOutputStream out) throws IOException {
+    out.defaultWriteObject();
+    for (int i = 0; i < count; i++) {
+      out.writeObject(updates[i]);
+    }
+  }
+
+  private void readObject(ObjectInputStream in) throws IOException, ClassNotFoundException {
+    in.defaultReadObject();
+    updates = count > 0 ? new Object[count] : EMPTY_UPDATES;
+    for (int i = 0; i < count; i++) {
+      updates[i] = in.readObject();
+    }
+  }
+
 }
@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Reloads second level cache entries in the background (refresh-ahead).
+ *
+ * A cache that supports refresh-ahead registers itself with {@link #register(String)} and calls
+ * {@link #refresh(String, Object, RefreshToken)} when an entry gets close to its expiration. Implementations must
+ * not block the caller; the reloaded value is put back into the cache once it is available, between
+ * {@link RefreshToken#begin()} and {@link RefreshToken#end()} of the given token.
+ */
+public interface CacheRefresher {
+
+  /**
+   * @param cacheId The id of a cache whose entries may be refreshed
+   */
+  void register(String cacheId);
+
+  /**
+   * @param cacheId The id of the cache that holds the entry
+   * @param key The key of the entry to reload
+   * @param token The token to put the reloaded value with
+   * @return true if a reload has been scheduled, false if the entry cannot be reloaded
+   */
+  boolean refresh(String cacheId, Object key, RefreshToken token);
+
+}
@@ -0,0 +1,297 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ResultMap;
+import org.apache.ibatis.mapping.SqlSource;
+import org.apache.ibatis.scripting.defaults.RawSqlSource;
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Saves the second level caches of a configuration to a file and loads them back, so that an application
+ * restarts with warm caches.
+ *
+ * Only the caches built on a {@link PerpetualCache} can be saved, and only their serializable entries. When loading,
+ * the file is ignored if it is older than the <code>cacheSnapshotMaxAge</code> setting, and an entry is ignored if the
+ * statement that produced it no longer exists, uses another cache, or changed since the snapshot was taken. A change
+ * is detected from the statement type, the result maps and, for statements without dynamic elements, the SQL.
+ */
+public class CacheSnapshot {
+
+  private static final Log log = LogFactory.getLog(CacheSnapshot.class);
+
+  private static final int MAGIC = 0x4d424353;
+  private static final int VERSION = 2;
+
+  private final Configuration configuration;
+  private final ConcurrentMap<String, Registration> caches = new ConcurrentHashMap<String, Registration>();
+
+  public CacheSnapshot(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  /**
+   * @param cache the cache as used by statements
+   * @param store the base cache holding the entries of the cache
+   */
+  public void register(Cache cache, PerpetualCache store) {
+    caches.put(cache.getId(), new Registration(cache, store));
+  }
+
+  /**
+   * Saves the registered caches to the file of the <code>cacheSnapshotFile</code> setting.
+   *
+   * @return the number of saved entries
+   */
+  public int save() {
+    return save(new File(configuration.getCacheSnapshotFile()));
+  }
+
+  public int save(File file) {
+    Map<String, String> signatures = new HashMap<String, String>();
+    File tempFile = new File(file.getPath() + ".tmp");
+    int count = 0;
+    DataOutputStream out = null;
+    try {
+      out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+      out.writeInt(MAGIC);
+      out.writeInt(VERSION);
+      out.writeLong(System.currentTimeMillis());
+      for (Registration registration : caches.values()) {
+        for (Object key : registration.store.keySet()) {
+          String statementId = statementIdOf(key);
+          if (statementId == null || !configuration.hasStatement(statementId, false)) {
+            continue;
+          }
+          Object value = read(registration.cache, key);
+          if (value == null) {
+            continue;
+          }
+          byte[] entry = serialize(key, value);
+          if (entry == null) {
+            continue;
+          }
+          String signature = signatures.get(statementId);
+          if (signature == null) {
+            signature = signatureOf(configuration.getMappedStatement(statementId, false));
+            signatures.put(statementId, signature);
+          }
+          out.writeBoolean(true);
+          out.writeUTF(registration.cache.getId());
+          out.writeUTF(signature);
+          out.writeInt(entry.length);
+          out.write(entry);
+          count++;
+        }
+      }
+      out.writeBoolean(false);
+      out.close();
+      out = null;
+      if (file.exists() && !file.delete()) {
+        throw new IOException("Could not replace " + file);
+      }
+      if (!tempFile.renameTo(file)) {
+        throw new IOException("Could not rename " + tempFile + " to " + file);
+      }
+    } catch (IOException e) {
+      throw new CacheException("Error saving cache snapshot to " + file + ".  Cause: " + e, e);
+    } finally {
+      closeQuietly(out);
+      if (tempFile.exists()) {
+        tempFile.delete();
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Saved " + count + " cache entries to " + file);
+    }
+    return count;
+  }
+
+  /**
+   * Loads the file of the <code>cacheSnapshotFile</code> setting into the registered caches.
+   *
+   * @return the number of loaded entries
+   */
+  public int load() {
+    return load(new File(configuration.getCacheSnapshotFile()));
+  }
+
+  public int load(File file) {
+    if (!file.isFile()) {
+      return 0;
+    }
+    Map<String, String> signatures = new HashMap<String, String>();
+    int count = 0;
+    DataInputStream in = null;
+    try {
+      in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+      if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+        log.warn("Ignoring cache snapshot " + file + " written in an unknown format.");
+        return 0;
+      }
+      long age = System.currentTimeMillis() - in.readLong();
+      long maxAge = configuration.getCacheSnapshotMaxAge();
+      if (maxAge > 0 && age > maxAge) {
+        log.debug("Ignoring cache snapshot " + file + " taken " + age + "ms ago.");
+        return 0;
+      }
+      while (in.readBoolean()) {
+        String cacheId = in.readUTF();
+        String signature = in.readUTF();
+        byte[] entry = new byte[in.readInt()];
+        in.readFully(entry);
+        Registration registration = caches.get(cacheId);
+        if (registration == null) {
+          continue;
+        }
+        Object[] keyAndValue = deserialize(entry);
+        if (keyAndValue == null) {
+          continue;
+        }
+        String statementId = statementIdOf(keyAndValue[0]);
+        if (statementId == null || !configuration.hasStatement(statementId)) {
+          continue;
+        }
+        String current = signatures.get(statementId);
+        if (current == null) {
+          MappedStatement ms = configuration.getMappedStatement(statementId);
+          // 语句改用了其他缓存时同样视为失效
+          current = ms.getCache() == null ? "" : ms.getCache().getId() + '|' + signatureOf(ms);
+          signatures.put(statementId, current);
+        }
+        if (current.equals(cacheId + '|' + signature)) {
+          registration.cache.putObject(keyAndValue[0], keyAndValue[1]);
+          count++;
+        }
+      }
+    } catch (IOException e) {
+      // 快照损坏不影响启动，已加载的缓存项保留
+      log.warn("Error loading cache snapshot " + file + ".  Cause: " + e);
+    } finally {
+      closeQuietly(in);
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Loaded " + count + " cache entries from " + file);
+    }
+    return count;
+  }
+
+  private Object read(Cache cache, Object key) {
+    Object value = cache.getObject(key);
+    if (value == null) {
+      // BlockingCache在未命中时会保持锁，需要释放
+      cache.removeObject(key);
+    }
+    return value;
+  }
+
+  private static String statementIdOf(Object key) {
+    if (key instanceof CacheKey && ((CacheKey) key).getUpdateCount() > 0) {
+      Object id = ((CacheKey) key).getUpdate(0);
+      if (id instanceof String) {
+        return (String) id;
+      }
+    }
+    return null;
+  }
+
+  private static String signatureOf(MappedStatement ms) {
+    StringBuilder signature = new StringBuilder();
+    signature.append(ms.getStatementType()).append('|').append(ms.getResultSetType());
+    for (ResultMap resultMap : ms.getResultMaps()) {
+      signature.append('|').append(resultMap.getId()).append(':').append(resultMap.getType().getName());
+    }
+    SqlSource sqlSource = ms.getSqlSource();
+    signature.append('|').append(sqlSource.getClass().getName());
+    if (sqlSource instanceof RawSqlSource || sqlSource instanceof StaticSqlSource) {
+      signature.append('|').append(sqlSource.getBoundSql(null).getSql());
+    }
+    return signature.toString();
+  }
+
+  private static byte[] serialize(Object key, Object value) {
+    try {
+      ByteArrayOutputStream bos = new ByteArrayOutputStream();
+      ObjectOutputStream oos = new ObjectOutputStream(bos);
+      oos.writeObject(key);
+      oos.writeObject(value);
+      oos.close();
+      return bos.toByteArray();
+    } catch (IOException e) {
+      // 无法序列化的缓存项不保存
+      log.debug("Skipping cache entry that cannot be serialized.  Cause: " + e);
+      return null;
+    }
+  }
+
+  private static Object[] deserialize(byte[] entry) {
+    try {
+      ObjectInputStream ois = new SerializedCache.CustomObjectInputStream(new ByteArrayInputStream(entry));
+      Object[] keyAndValue = new Object[] { ois.readObject(), ois.readObject() };
+      ois.close();
+      return keyAndValue;
+    } catch (Exception e) {
+      // 类结构变化等原因无法还原时忽略该缓存项
+      log.debug("Skipping cache entry that cannot be deserialized.  Cause: " + e);
+      return null;
+    }
+  }
+
+  private static void closeQuietly(Closeable closeable) {
+    if (closeable != null) {
+      try {
+        closeable.close();
+      } catch (IOException e) {
+        // ignore
+      }
+    }
+  }
+
+  private static class Registration {
+    private final Cache cache;
+    private final PerpetualCache store;
+
+    Registration(Cache cache, PerpetualCache store) {
+      this.cache = cache;
+      this.store = store;
+    }
+  }
+
+}
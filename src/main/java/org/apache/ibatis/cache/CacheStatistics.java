@@ -0,0 +1,191 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Statistics of a second level cache.
+ *
+ * One instance is shared by all the decorators of a namespace cache. Counters are striped by thread
+ * so that recording stays cheap under contention and statistics can be kept enabled in production.
+ */
+public class CacheStatistics {
+
+  private final String id;
+  private final Counter hits = new Counter();
+  private final Counter misses = new Counter();
+  private final Counter puts = new Counter();
+  private final Counter evictions = new Counter();
+  private final Counter loads = new Counter();
+  private final Counter loadTime = new Counter();
+  private final Counter commits = new Counter();
+  private final Counter rollbacks = new Counter();
+  private volatile Cache cache;
+
+  public CacheStatistics(String id) {
+    this.id = id;
+  }
+
+  public void setCache(Cache cache) {
+    this.cache = cache;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  /**
+   * @return The number of entries of the cache, or -1 if the cache is not known yet
+   */
+  public int getSize() {
+    Cache current = cache;
+    return current == null ? -1 : current.getSize();
+  }
+
+  public long getHits() {
+    return hits.sum();
+  }
+
+  public long getMisses() {
+    return misses.sum();
+  }
+
+  public double getHitRatio() {
+    long hitCount = hits.sum();
+    long requests = hitCount + misses.sum();
+    return requests == 0 ? 0 : (double) hitCount / (double) requests;
+  }
+
+  public long getPuts() {
+    return puts.sum();
+  }
+
+  public long getEvictions() {
+    return evictions.sum();
+  }
+
+  public long getLoads() {
+    return loads.sum();
+  }
+
+  /**
+   * @return The time spent querying the database on cache misses, in milliseconds
+   */
+  public long getLoadTime() {
+    return loadTime.sum() / 1000000L;
+  }
+
+  public long getCommits() {
+    return commits.sum();
+  }
+
+  public long getRollbacks() {
+    return rollbacks.sum();
+  }
+
+  public void recordHit() {
+    hits.increment();
+  }
+
+  public void recordMiss() {
+    misses.increment();
+  }
+
+  public void recordPut() {
+    puts.increment();
+  }
+
+  public void recordEviction() {
+    evictions.increment();
+  }
+
+  public void recordLoad(long nanos) {
+    loads.increment();
+    loadTime.add(nanos);
+  }
+
+  public void recordCommit() {
+    commits.increment();
+  }
+
+  public void recordRollback() {
+    rollbacks.increment();
+  }
+
+  public void reset() {
+    hits.reset();
+    misses.reset();
+    puts.reset();
+    evictions.reset();
+    loads.reset();
+    loadTime.reset();
+    commits.reset();
+    rollbacks.reset();
+  }
+
+  @Override
+  public String toString() {
+    return "CacheStatistics[" + id + "] hits=" + getHits() + ", misses=" + getMisses() + ", puts=" + getPuts()
+        + ", evictions=" + getEvictions() + ", loads=" + getLoads() + ", loadTime=" + getLoadTime()
+        + "ms, commits=" + getCommits() + ", rollbacks=" + getRollbacks();
+  }
+
+  /**
+   * Counter spread over cache line padded cells picked by thread id.
+   */
+  private static class Counter {
+    private static final int STRIPES = stripes();
+    private static final int PADDING = 8;
+    private final AtomicLongArray cells = new AtomicLongArray(STRIPES * PADDING);
+
+    void increment() {
+      add(1);
+    }
+
+    void add(long value) {
+      cells.getAndAdd(index(), value);
+    }
+
+    long sum() {
+      long sum = 0;
+      for (int i = 0; i < STRIPES; i++) {
+        sum += cells.get(i * PADDING);
+      }
+      return sum;
+    }
+
+    void reset() {
+      for (int i = 0; i < STRIPES; i++) {
+        cells.set(i * PADDING, 0);
+      }
+    }
+
+    private int index() {
+      long id = Thread.currentThread().getId();
+      return (int) ((id ^ (id >>> 16)) & (STRIPES - 1)) * PADDING;
+    }
+
+    private static int stripes() {
+      int stripes = 1;
+      while (stripes < Runtime.getRuntime().availableProcessors() && stripes < 64) {
+        stripes <<= 1;
+      }
+      return stripes;
+    }
+  }
+
+}
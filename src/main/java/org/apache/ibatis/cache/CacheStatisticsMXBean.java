@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.util.List;
+
+/**
+ * Management interface of the second level caches of a configuration.
+ */
+public interface CacheStatisticsMXBean {
+
+  List<String> getCacheIds();
+
+  List<CacheStatistics> getStatistics();
+
+  CacheStatistics getStatistics(String cacheId);
+
+  void clear(String cacheId);
+
+  void clearAll();
+
+  void resetStatistics();
+
+}
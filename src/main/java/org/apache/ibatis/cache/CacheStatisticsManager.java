@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.session.Configuration;
+
+/**
+ * Exposes the second level cache statistics of a configuration, typically as an MBean registered
+ * by the SqlSessionFactory when the <code>jmxEnabled</code> setting is on.
+ */
+public class CacheStatisticsManager implements CacheStatisticsMXBean {
+
+  private final Configuration configuration;
+  private ObjectName objectName;
+
+  public CacheStatisticsManager(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  @Override
+  public List<String> getCacheIds() {
+    // caches集合中同时保存了全名与短名，这里按缓存id去重
+    Set<String> ids = new TreeSet<String>();
+    for (Cache cache : configuration.getCaches()) {
+      ids.add(cache.getId());
+    }
+    return new ArrayList<String>(ids);
+  }
+
+  @Override
+  public List<CacheStatistics> getStatistics() {
+    List<CacheStatistics> statistics = new ArrayList<CacheStatistics>();
+    for (String id : getCacheIds()) {
+      statistics.add(configuration.getCacheStatistics(id));
+    }
+    return statistics;
+  }
+
+  @Override
+  public CacheStatistics getStatistics(String cacheId) {
+    return configuration.hasCache(cacheId) ? configuration.getCacheStatistics(cacheId) : null;
+  }
+
+  @Override
+  public void clear(String cacheId) {
+    if (!configuration.hasCache(cacheId)) {
+      throw new CacheException("No cache named '" + cacheId + "' is available.");
+    }
+    configuration.getCache(cacheId).clear();
+  }
+
+  @Override
+  public void clearAll() {
+    for (String id : getCacheIds()) {
+      configuration.getCache(id).clear();
+    }
+  }
+
+  @Override
+  public void resetStatistics() {
+    for (CacheStatistics statistics : configuration.getCacheStatistics()) {
+      statistics.reset();
+    }
+  }
+
+  public synchronized ObjectName getObjectName() {
+    return objectName;
+  }
+
+  public synchronized void register() {
+    if (objectName != null) {
+      return;
+    }
+    try {
+      ObjectName name = new ObjectName("org.apache.ibatis:type=CacheStatistics,name="
+          + ObjectName.quote(configuration.getEnvironment() == null ? "default" : configuration.getEnvironment().getId())
+          + ",identity=" + Integer.toHexString(System.identityHashCode(configuration)));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+      objectName = name;
+    } catch (Exception e) {
+      throw new CacheException("Error registering cache statistics MBean.  Cause: " + e, e);
+    }
+  }
+
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      objectName = null;
+    } catch (Exception e) {
+      throw new CacheException("Error unregistering cache statistics MBean.  Cause: " + e, e);
+    }
+  }
+
+}
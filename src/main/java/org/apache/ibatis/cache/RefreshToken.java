@@ -0,0 +1,41 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+/**
+ * Identifies one background reload of a cache entry.
+ *
+ * The refresher puts the reloaded value while its token is current on the thread, so that the cache can tell it
+ * from the values loaded by sessions. The cache drops it when the entry was put, removed or cleared after the reload
+ * was scheduled.
+ */
+public final class RefreshToken {
+
+  private static final ThreadLocal<RefreshToken> CURRENT = new ThreadLocal<RefreshToken>();
+
+  public static RefreshToken current() {
+    return CURRENT.get();
+  }
+
+  public void begin() {
+    CURRENT.set(this);
+  }
+
+  public void end() {
+    CURRENT.remove();
+  }
+
+}
@@ -0,0 +1,37 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+/**
+ * SPI used by {@link org.apache.ibatis.cache.decorators.SerializedCache} to copy cached values.
+ *
+ * Implementations must be thread safe and must have a public no-args constructor.
+ */
+public interface CacheCodec {
+
+  /**
+   * @param value A serializable value, never null
+   * @return The encoded value
+   */
+  byte[] encode(Object value);
+
+  /**
+   * @param data Data returned by {@link #encode(Object)}
+   * @return A copy of the encoded value
+   */
+  Object decode(byte[] data);
+
+}
@@ -0,0 +1,482 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.codec;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.io.Resources;
+import org.apache.ibatis.reflection.DefaultReflectorFactory;
+import org.apache.ibatis.reflection.Reflector;
+import org.apache.ibatis.reflection.ReflectorFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
+
+/**
+ * Compact codec for result objects.
+ *
+ * Result beans are written property by property using the {@link Reflector} metadata, along with common value types,
+ * enums and the usual collection and map implementations. Shared and circular references are preserved.
+ * A bean qualifies when it is serializable, has a default constructor, does not customize its serialization
+ * and every non transient field can be read and written through the reflector.
+ * Values holding anything else are written with Java serialization instead.
+ */
+public class CompactCodec implements CacheCodec {
+
+  private static final Charset UTF8 = Charset.forName("UTF-8");
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
+  private static final byte SERIALIZED = 0;
+  private static final byte COMPACT = 1;
+
+  private static final byte NULL = 0;
+  private static final byte REFERENCE = 1;
+  private static final byte STRING = 2;
+  private static final byte INTEGER = 3;
+  private static final byte LONG = 4;
+  private static final byte SHORT = 5;
+  private static final byte BYTE = 6;
+  private static final byte BOOLEAN = 7;
+  private static final byte DOUBLE = 8;
+  private static final byte FLOAT = 9;
+  private static final byte CHARACTER = 10;
+  private static final byte BIG_DECIMAL = 11;
+  private static final byte BIG_INTEGER = 12;
+  private static final byte DATE = 13;
+  private static final byte SQL_DATE = 14;
+  private static final byte SQL_TIME = 15;
+  private static final byte SQL_TIMESTAMP = 16;
+  private static final byte BYTES = 17;
+  private static final byte ENUM = 18;
+  private static final byte COLLECTION = 19;
+  private static final byte MAP = 20;
+  private static final byte BEAN = 21;
+
+  private static final Set<Class<?>> COLLECTION_TYPES = new HashSet<Class<?>>();
+  private static final Set<Class<?>> MAP_TYPES = new HashSet<Class<?>>();
+
+  static {
+    COLLECTION_TYPES.add(ArrayList.class);
+    COLLECTION_TYPES.add(LinkedList.class);
+    COLLECTION_TYPES.add(HashSet.class);
+    COLLECTION_TYPES.add(LinkedHashSet.class);
+    MAP_TYPES.add(HashMap.class);
+    MAP_TYPES.add(LinkedHashMap.class);
+  }
+
+  private final ReflectorFactory reflectorFactory;
+  private final ConcurrentMap<Class<?>, BeanInfo> beanInfos = new ConcurrentHashMap<Class<?>, BeanInfo>();
+  private final ConcurrentMap<String, Class<?>> classes = new ConcurrentHashMap<String, Class<?>>();
+  private final CacheCodec fallback = new JavaSerializationCodec();
+
+  public CompactCodec() {
+    this(new DefaultReflectorFactory());
+  }
+
+  public CompactCodec(ReflectorFactory reflectorFactory) {
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  @Override
+  public byte[] encode(Object value) {
+    ByteArrayOutputStream bos = new ByteArrayOutputStream(256);
+    try {
+      DataOutputStream out = new DataOutputStream(bos);
+      out.writeByte(COMPACT);
+      new Encoder(out).write(value);
+      out.flush();
+      return bos.toByteArray();
+    } catch (UnsupportedValueException e) {
+      byte[] serialized = fallback.encode(value);
+      byte[] data = new byte[serialized.length + 1];
+      data[0] = SERIALIZED;
+      System.arraycopy(serialized, 0, data, 1, serialized.length);
+      return data;
+    } catch (Exception e) {
+      throw new CacheException("Error encoding object.  Cause: " + e, e);
+    }
+  }
+
+  @Override
+  public Object decode(byte[] data) {
+    if (data[0] == SERIALIZED) {
+      byte[] serialized = new byte[data.length - 1];
+      System.arraycopy(data, 1, serialized, 0, serialized.length);
+      return fallback.decode(serialized);
+    }
+    try {
+      DataInputStream in = new DataInputStream(new ByteArrayInputStream(data, 1, data.length - 1));
+      return new Decoder(in).read();
+    } catch (Exception e) {
+      throw new CacheException("Error decoding object.  Cause: " + e, e);
+    }
+  }
+
+  private BeanInfo getBeanInfo(Class<?> type) {
+    BeanInfo beanInfo = beanInfos.get(type);
+    if (beanInfo == null) {
+      beanInfo = new BeanInfo(type);
+      beanInfos.putIfAbsent(type, beanInfo);
+    }
+    return beanInfo;
+  }
+
+  private Class<?> classForName(String name) throws ClassNotFoundException {
+    Class<?> type = classes.get(name);
+    if (type == null) {
+      type = Resources.classForName(name);
+      classes.putIfAbsent(name, type);
+    }
+    return type;
+  }
+
+  private class Encoder {
+    private final DataOutputStream out;
+    private final Map<Object, Integer> references = new IdentityHashMap<Object, Integer>();
+    private final Map<Class<?>, Integer> classHandles = new HashMap<Class<?>, Integer>();
+
+    Encoder(DataOutputStream out) {
+      this.out = out;
+    }
+
+    void write(Object value) throws Exception {
+      if (value == null) {
+        out.writeByte(NULL);
+        return;
+      }
+      Class<?> type = value.getClass();
+      if (type == String.class) {
+        out.writeByte(STRING);
+        writeString((String) value);
+      } else if (type == Integer.class) {
+        out.writeByte(INTEGER);
+        out.writeInt((Integer) value);
+      } else if (type == Long.class) {
+        out.writeByte(LONG);
+        out.writeLong((Long) value);
+      } else if (type == Short.class) {
+        out.writeByte(SHORT);
+        out.writeShort((Short) value);
+      } else if (type == Byte.class) {
+        out.writeByte(BYTE);
+        out.writeByte((Byte) value);
+      } else if (type == Boolean.class) {
+        out.writeByte(BOOLEAN);
+        out.writeBoolean((Boolean) value);
+      } else if (type == Double.class) {
+        out.writeByte(DOUBLE);
+        out.writeDouble((Double) value);
+      } else if (type == Float.class) {
+        out.writeByte(FLOAT);
+        out.writeFloat((Float) value);
+      } else if (type == Character.class) {
+        out.writeByte(CHARACTER);
+        out.writeChar((Character) value);
+      } else if (type == BigDecimal.class) {
+        BigDecimal decimal = (BigDecimal) value;
+        out.writeByte(BIG_DECIMAL);
+        out.writeInt(decimal.scale());
+        writeBytes(decimal.unscaledValue().toByteArray());
+      } else if (type == BigInteger.class) {
+        out.writeByte(BIG_INTEGER);
+        writeBytes(((BigInteger) value).toByteArray());
+      } else if (type == java.util.Date.class) {
+        out.writeByte(DATE);
+        out.writeLong(((java.util.Date) value).getTime());
+      } else if (type == java.sql.Date.class) {
+        out.writeByte(SQL_DATE);
+        out.writeLong(((java.sql.Date) value).getTime());
+      } else if (type == java.sql.Time.class) {
+        out.writeByte(SQL_TIME);
+        out.writeLong(((java.sql.Time) value).getTime());
+      } else if (type == java.sql.Timestamp.class) {
+        java.sql.Timestamp timestamp = (java.sql.Timestamp) value;
+        out.writeByte(SQL_TIMESTAMP);
+        out.writeLong(timestamp.getTime());
+        out.writeInt(timestamp.getNanos());
+      } else if (type == byte[].class) {
+        out.writeByte(BYTES);
+        writeBytes((byte[]) value);
+      } else if (value instanceof Enum) {
+        out.writeByte(ENUM);
+        writeClass(((Enum<?>) value).getDeclaringClass());
+        writeString(((Enum<?>) value).name());
+      } else if (writeReference(value)) {
+        return;
+      } else if (COLLECTION_TYPES.contains(type)) {
+        Collection<?> collection = (Collection<?>) value;
+        out.writeByte(COLLECTION);
+        writeClass(type);
+        out.writeInt(collection.size());
+        for (Object element : collection) {
+          write(element);
+        }
+      } else if (MAP_TYPES.contains(type)) {
+        Map<?, ?> map = (Map<?, ?>) value;
+        out.writeByte(MAP);
+        writeClass(type);
+        out.writeInt(map.size());
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+          write(entry.getKey());
+          write(entry.getValue());
+        }
+      } else {
+        BeanInfo beanInfo = getBeanInfo(type);
+        if (!beanInfo.compact) {
+          throw new UnsupportedValueException();
+        }
+        out.writeByte(BEAN);
+        writeClass(type);
+        for (Invoker getter : beanInfo.getters) {
+          write(getter.invoke(value, NO_ARGUMENTS));
+        }
+      }
+    }
+
+    private boolean writeReference(Object value) throws IOException {
+      Integer handle = references.get(value);
+      if (handle != null) {
+        out.writeByte(REFERENCE);
+        out.writeInt(handle);
+        return true;
+      }
+      references.put(value, references.size());
+      return false;
+    }
+
+    private void writeClass(Class<?> type) throws IOException {
+      Integer handle = classHandles.get(type);
+      if (handle != null) {
+        out.writeInt(handle);
+      } else {
+        classHandles.put(type, classHandles.size());
+        out.writeInt(-1);
+        writeString(type.getName());
+      }
+    }
+
+    private void writeString(String value) throws IOException {
+      writeBytes(value.getBytes(UTF8));
+    }
+
+    private void writeBytes(byte[] value) throws IOException {
+      out.writeInt(value.length);
+      out.write(value);
+    }
+  }
+
+  private class Decoder {
+    private final DataInputStream in;
+    private final List<Object> references = new ArrayList<Object>();
+    private final List<Class<?>> classHandles = new ArrayList<Class<?>>();
+
+    Decoder(DataInputStream in) {
+      this.in = in;
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Object read() throws Exception {
+      byte tag = in.readByte();
+      switch (tag) {
+        case NULL:
+          return null;
+        case REFERENCE:
+          return references.get(in.readInt());
+        case STRING:
+          return readString();
+        case INTEGER:
+          return in.readInt();
+        case LONG:
+          return in.readLong();
+        case SHORT:
+          return in.readShort();
+        case BYTE:
+          return in.readByte();
+        case BOOLEAN:
+          return in.readBoolean();
+        case DOUBLE:
+          return in.readDouble();
+        case FLOAT:
+          return in.readFloat();
+        case CHARACTER:
+          return in.readChar();
+        case BIG_DECIMAL:
+          int scale = in.readInt();
+          return new BigDecimal(new BigInteger(readBytes()), scale);
+        case BIG_INTEGER:
+          return new BigInteger(readBytes());
+        case DATE:
+          return new java.util.Date(in.readLong());
+        case SQL_DATE:
+          return new java.sql.Date(in.readLong());
+        case SQL_TIME:
+          return new java.sql.Time(in.readLong());
+        case SQL_TIMESTAMP:
+          java.sql.Timestamp timestamp = new java.sql.Timestamp(in.readLong());
+          timestamp.setNanos(in.readInt());
+          return timestamp;
+        case BYTES:
+          return readBytes();
+        case ENUM:
+          Class enumType = readClass();
+          return Enum.valueOf(enumType, readString());
+        case COLLECTION:
+          Collection<Object> collection = (Collection<Object>) readClass().newInstance();
+          references.add(collection);
+          for (int i = in.readInt(); i > 0; i--) {
+            collection.add(read());
+          }
+          return collection;
+        case MAP:
+          Map<Object, Object> map = (Map<Object, Object>) readClass().newInstance();
+          references.add(map);
+          for (int i = in.readInt(); i > 0; i--) {
+            map.put(read(), read());
+          }
+          return map;
+        case BEAN:
+          BeanInfo beanInfo = getBeanInfo(readClass());
+          Object bean = beanInfo.reflector.getDefaultConstructor().newInstance();
+          references.add(bean);
+          for (Invoker setter : beanInfo.setters) {
+            setter.invoke(bean, new Object[] { read() });
+          }
+          return bean;
+        default:
+          throw new CacheException("Unknown tag " + tag + " in encoded object.");
+      }
+    }
+
+    private Class<?> readClass() throws IOException, ClassNotFoundException {
+      int handle = in.readInt();
+      if (handle >= 0) {
+        return classHandles.get(handle);
+      }
+      Class<?> type = classForName(readString());
+      classHandles.add(type);
+      return type;
+    }
+
+    private String readString() throws IOException {
+      return new String(readBytes(), UTF8);
+    }
+
+    private byte[] readBytes() throws IOException {
+      byte[] value = new byte[in.readInt()];
+      in.readFully(value);
+      return value;
+    }
+  }
+
+  private class BeanInfo {
+    private final Reflector reflector;
+    private final boolean compact;
+    private final Invoker[] getters;
+    private final Invoker[] setters;
+
+    BeanInfo(Class<?> type) {
+      this.reflector = reflectorFactory.findForClass(type);
+      List<String> properties = findProperties(type);
+      this.compact = properties != null;
+      int size = properties == null ? 0 : properties.size();
+      this.getters = new Invoker[size];
+      this.setters = new Invoker[size];
+      for (int i = 0; i < size; i++) {
+        getters[i] = reflector.getGetInvoker(properties.get(i));
+        setters[i] = reflector.getSetInvoker(properties.get(i));
+      }
+    }
+
+    private List<String> findProperties(Class<?> type) {
+      if (!Serializable.class.isAssignableFrom(type) || Externalizable.class.isAssignableFrom(type)
+          || type.isArray() || !reflector.hasDefaultConstructor()) {
+        return null;
+      }
+      List<String> properties = new ArrayList<String>();
+      for (Class<?> current = type; current != null && current != Object.class; current = current.getSuperclass()) {
+        if (hasSerializationMethods(current)) {
+          return null;
+        }
+        for (Field field : current.getDeclaredFields()) {
+          int modifiers = field.getModifiers();
+          if (Modifier.isStatic(modifiers) || Modifier.isTransient(modifiers)) {
+            continue;
+          }
+          String name = field.getName();
+          if (Modifier.isFinal(modifiers) || properties.contains(name)
+              || !reflector.hasGetter(name) || !reflector.hasSetter(name)) {
+            return null;
+          }
+          properties.add(name);
+        }
+      }
+      return properties;
+    }
+
+    private boolean hasSerializationMethods(Class<?> type) {
+      return hasMethod(type, "writeObject", ObjectOutputStream.class)
+          || hasMethod(type, "readObject", ObjectInputStream.class)
+          || hasMethod(type, "readObjectNoData")
+          || hasMethod(type, "writeReplace")
+          || hasMethod(type, "readResolve");
+    }
+
+    private boolean hasMethod(Class<?> type, String name, Class<?>... parameterTypes) {
+      try {
+        type.getDeclaredMethod(name, parameterTypes);
+        return true;
+      } catch (NoSuchMethodException e) {
+        return false;
+      }
+    }
+  }
+
+  private static class UnsupportedValueException extends RuntimeException {
+    private static final long serialVersionUID = 1L;
+
+    @Override
+    public synchronized Throwable fillInStackTrace() {
+      // used for flow control only
+      return this;
+    }
+  }
+
+}
@@ -0,0 +1,321 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.decorators;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheRefresher;
+import org.apache.ibatis.cache.CacheStatistics;
+import org.apache.ibatis.cache.RefreshToken;
+
+/**
+ * Per entry expiration. Unlike {@link ScheduledCache}, which drops the whole cache when the interval
+ * passes, every entry expires on its own once its time to live has elapsed.
+ *
+ * Expirations are tracked in a hashed timing wheel that is advanced on each access, so no timer thread is needed.
+ * When a {@link CacheRefresher} is set and refreshAhead is greater than zero, an entry that is read after
+ * refreshAhead * timeToLive milliseconds is reloaded in the background while the current value is still served.
+ */
+public class ExpiringCache implements Cache {
+
+  private final Cache delegate;
+  private final Map<Object, Timeout> timeouts;
+  // 正在后台重新加载的缓存项
+  private final Map<Object, RefreshToken> refreshes;
+  private long timeToLive;
+  private double refreshAhead;
+  private long tickDuration;
+  private int wheelSize;
+  private CacheRefresher refresher;
+  private CacheStatistics statistics;
+
+  private Bucket[] wheel;
+  private long startTime;
+  private long currentTick;
+
+  public ExpiringCache(Cache delegate) {
+    this.delegate = delegate;
+    this.timeouts = new HashMap<Object, Timeout>();
+    this.refreshes = new HashMap<Object, RefreshToken>();
+    this.timeToLive = 60 * 60 * 1000; // 1 hour
+    this.tickDuration = 1000;
+    this.wheelSize = 512;
+  }
+
+  public void setTimeToLive(long timeToLive) {
+    if (timeToLive <= 0) {
+      throw new CacheException("Cache timeToLive must be greater than zero but was " + timeToLive);
+    }
+    this.timeToLive = timeToLive;
+  }
+
+  public long getTimeToLive() {
+    return timeToLive;
+  }
+
+  public void setRefreshAhead(double refreshAhead) {
+    if (refreshAhead < 0 || refreshAhead >= 1) {
+      throw new CacheException("Cache refreshAhead must be between 0 (disabled) and 1 but was " + refreshAhead);
+    }
+    this.refreshAhead = refreshAhead;
+  }
+
+  public double getRefreshAhead() {
+    return refreshAhead;
+  }
+
+  public void setTickDuration(long tickDuration) {
+    if (tickDuration <= 0) {
+      throw new CacheException("Cache tickDuration must be greater than zero but was " + tickDuration);
+    }
+    this.tickDuration = tickDuration;
+    this.wheel = null;
+  }
+
+  public void setWheelSize(int wheelSize) {
+    if (wheelSize <= 0) {
+      throw new CacheException("Cache wheelSize must be greater than zero but was " + wheelSize);
+    }
+    this.wheelSize = wheelSize;
+    this.wheel = null;
+  }
+
+  public void setRefresher(CacheRefresher refresher) {
+    this.refresher = refresher;
+    if (refresher != null) {
+      refresher.register(getId());
+    }
+  }
+
+  public void setStatistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+  }
+
+  @Override
+  public String getId() {
+    return delegate.getId();
+  }
+
+  @Override
+  public int getSize() {
+    expireEntries(currentTimeMillis());
+    return delegate.getSize();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    long now = currentTimeMillis();
+    expireEntries(now);
+    RefreshToken token = RefreshToken.current();
+    if (token != null && refreshes.get(key) != token) {
+      // the entry has been put, removed or flushed since this reload was scheduled
+      return;
+    }
+    refreshes.remove(key);
+    delegate.putObject(key, value);
+    if (wheel == null) {
+      createWheel(now);
+    }
+    Timeout timeout = timeouts.get(key);
+    if (timeout != null) {
+      timeout.unlink();
+    } else {
+      timeout = new Timeout(key);
+      timeouts.put(key, timeout);
+    }
+    timeout.deadline = now + timeToLive;
+    timeout.refreshAt = refreshAhead > 0 ? now + (long) (timeToLive * refreshAhead) : Long.MAX_VALUE;
+    schedule(timeout);
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    long now = currentTimeMillis();
+    expireEntries(now);
+    Timeout timeout = timeouts.get(key);
+    if (timeout == null) {
+      return delegate.getObject(key);
+    }
+    if (timeout.deadline <= now) {
+      expire(timeout);
+      return null;
+    }
+    Object value = delegate.getObject(key);
+    if (value == null) {
+      // evicted by the delegate
+      timeout.unlink();
+      timeouts.remove(key);
+      refreshes.remove(key);
+    } else if (timeout.refreshAt <= now && refresher != null && !refreshes.containsKey(key)) {
+      RefreshToken refresh = new RefreshToken();
+      refreshes.put(key, refresh);
+      if (!refresher.refresh(getId(), key, refresh)) {
+        refreshes.remove(key);
+      }
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Timeout timeout = timeouts.remove(key);
+    if (timeout != null) {
+      timeout.unlink();
+    }
+    refreshes.remove(key);
+    return delegate.removeObject(key);
+  }
+
+  @Override
+  public void clear() {
+    timeouts.clear();
+    refreshes.clear();
+    wheel = null;
+    delegate.clear();
+  }
+
+  @Override
+  public ReadWriteLock getReadWriteLock() {
+    return null;
+  }
+
+  @Override
+  public int hashCode() {
+    return delegate.hashCode();
+  }
+
+  @Override
+  public boolean equals(Object obj) {
+    return delegate.equals(obj);
+  }
+
+  protected long currentTimeMillis() {
+    return System.currentTimeMillis();
+  }
+
+  private void schedule(Timeout timeout) {
+    Bucket[] buckets = wheel;
+    long expirationTick = (timeout.deadline - startTime + tickDuration - 1) / tickDuration;
+    long ticks = Math.max(expirationTick, currentTick + 1);
+    timeout.rounds = (ticks - currentTick - 1) / buckets.length;
+    buckets[(int) (ticks % buckets.length)].add(timeout);
+  }
+
+  private void expireEntries(long now) {
+    if (wheel == null) {
+      return;
+    }
+    long targetTick = (now - startTime) / tickDuration;
+    long ticks = Math.min(targetTick - currentTick, wheel.length);
+    for (long i = 0; i < ticks; i++) {
+      currentTick++;
+      Bucket bucket = wheel[(int) (currentTick % wheel.length)];
+      Timeout timeout = bucket.head;
+      while (timeout != null) {
+        Timeout next = timeout.next;
+        if (timeout.deadline <= now) {
+          expire(timeout);
+        } else if (timeout.rounds > 0) {
+          timeout.rounds--;
+        }
+        timeout = next;
+      }
+    }
+    if (currentTick < targetTick) {
+      // fell behind by more than a full turn, every bucket has been swept once
+      currentTick = targetTick;
+      for (Timeout timeout : timeouts.values()) {
+        timeout.unlink();
+      }
+      for (Timeout timeout : timeouts.values()) {
+        schedule(timeout);
+      }
+    }
+  }
+
+  private void expire(Timeout timeout) {
+    timeout.unlink();
+    timeouts.remove(timeout.key);
+    refreshes.remove(timeout.key);
+    delegate.removeObject(timeout.key);
+    if (statistics != null) {
+      statistics.recordEviction();
+    }
+  }
+
+  private void createWheel(long now) {
+    wheel = new Bucket[wheelSize];
+    for (int i = 0; i < wheelSize; i++) {
+      wheel[i] = new Bucket();
+    }
+    startTime = now;
+    currentTick = 0;
+    for (Timeout timeout : timeouts.values()) {
+      timeout.unlink();
+      schedule(timeout);
+    }
+  }
+
+  private static class Bucket {
+    private Timeout head;
+
+    void add(Timeout timeout) {
+      timeout.bucket = this;
+      timeout.prev = null;
+      timeout.next = head;
+      if (head != null) {
+        head.prev = timeout;
+      }
+      head = timeout;
+    }
+  }
+
+  private static class Timeout {
+    private final Object key;
+    private long deadline;
+    private long refreshAt;
+    private long rounds;
+    private Bucket bucket;
+    private Timeout prev;
+    private Timeout next;
+
+    Timeout(Object key) {
+      this.key = key;
+    }
+
+    void unlink() {
+      if (bucket == null) {
+        return;
+      }
+      if (prev != null) {
+        prev.next = next;
+      } else {
+        bucket.head = next;
+      }
+      if (next != null) {
+        next.prev = prev;
+      }
+      bucket = null;
+      prev = null;
+      next = null;
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,6 +18,7 @@ package org.apache.ibatis.cache.decorators;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -30,12 +31,17 @@ public class LoggingCache implements Cache {
   private final Cache delegate;
   protected int requests = 0;
   protected int hits = 0;
+  private CacheStatistics statistics;
 
   public LoggingCache(Cache delegate) {
     this.delegate = delegate;
     this.log = LogFactory.getLog(getId());
   }
 
+  public void setStatistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -49,6 +55,9 @@ public class LoggingCache implements Cache {
   @Override
   public void putObject(Object key, Object object) {
     delegate.putObject(key, object);
+    if (statistics != null) {
+      statistics.recordPut();
+    }
   }
 
   @Override
@@ -58,6 +67,13 @@ public class LoggingCache implements Cache {
     if (value != null) {
       hits++;
     }
+    if (statistics != null) {
+      if (value != null) {
+        statistics.recordHit();
+      } else {
+        statistics.recordMiss();
+      }
+    }
     if (log.isDebugEnabled()) {
       log.debug("Cache Hit Ratio [" + getId() + "]: " + getHitRatio());
     }
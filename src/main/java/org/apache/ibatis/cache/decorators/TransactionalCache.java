@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -22,6 +22,7 @@ import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
 
@@ -44,6 +45,7 @@ public class TransactionalCache implements Cache {
   private boolean clearOnCommit;
   private final Map<Object, Object> entriesToAddOnCommit;
   private final Set<Object> entriesMissedInCache;
+  private CacheStatistics statistics;
 
   public TransactionalCache(Cache delegate) {
     this.delegate = delegate;
@@ -52,6 +54,10 @@ public class TransactionalCache implements Cache {
     this.entriesMissedInCache = new HashSet<Object>();
   }
 
+  public void setStatistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+  }
+
   @Override
   public String getId() {
     return delegate.getId();
@@ -104,11 +110,17 @@ public class TransactionalCache implements Cache {
     }
     flushPendingEntries();
     reset();
+    if (statistics != null) {
+      statistics.recordCommit();
+    }
   }
 
   public void rollback() {
     unlockMissedEntries();
     reset();
+    if (statistics != null) {
+      statistics.recordRollback();
+    }
   }
 
   private void reset() {
@@ -0,0 +1,166 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache.impl;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Session scoped cache used by executors.
+ *
+ * Entries are kept in least recently used order. When a limit on the number of entries or on their
+ * estimated weight is set, {@link #trim()} evicts the least recently used entries until both limits are met.
+ * Eviction never happens implicitly on put, so the executor decides when evicting is safe, that is
+ * once no query is in progress and every deferred load has been resolved.
+ * The weight of a collection is its number of elements, any other value weighs one.
+ */
+public class LocalCache extends PerpetualCache {
+
+  private final Map<Object, Object> cache = new LinkedHashMap<Object, Object>(16, .75F, true);
+  private final int maxEntries;
+  private final long maxWeight;
+  private long weight;
+
+  private long hits;
+  private long misses;
+  private long puts;
+  private long evictions;
+
+  public LocalCache(String id) {
+    this(id, 0, 0);
+  }
+
+  /**
+   * @param maxEntries Maximum number of entries, 0 for no limit
+   * @param maxWeight Maximum estimated weight, 0 for no limit
+   */
+  public LocalCache(String id, int maxEntries, long maxWeight) {
+    super(id);
+    this.maxEntries = maxEntries;
+    this.maxWeight = maxWeight;
+  }
+
+  @Override
+  public int getSize() {
+    return cache.size();
+  }
+
+  @Override
+  public void putObject(Object key, Object value) {
+    weight += weigh(value) - weigh(cache.put(key, value));
+    puts++;
+  }
+
+  @Override
+  public Object getObject(Object key) {
+    Object value = cache.get(key);
+    if (value == null) {
+      misses++;
+    } else {
+      hits++;
+    }
+    return value;
+  }
+
+  @Override
+  public Object removeObject(Object key) {
+    Object value = cache.remove(key);
+    weight -= weigh(value);
+    return value;
+  }
+
+  @Override
+  public void clear() {
+    cache.clear();
+    weight = 0;
+  }
+
+  @Override
+  public Set<Object> keySet() {
+    return new HashSet<Object>(cache.keySet());
+  }
+
+  /**
+   * Evicts least recently used entries until the cache fits its limits.
+   *
+   * @return the keys of the evicted entries, so that entries kept elsewhere under the same keys can be evicted too
+   */
+  public List<Object> trim() {
+    if (!isOverLimit()) {
+      return Collections.emptyList();
+    }
+    List<Object> evicted = new ArrayList<Object>();
+    Iterator<Map.Entry<Object, Object>> entries = cache.entrySet().iterator();
+    while (entries.hasNext() && isOverLimit()) {
+      Map.Entry<Object, Object> entry = entries.next();
+      weight -= weigh(entry.getValue());
+      evicted.add(entry.getKey());
+      entries.remove();
+      evictions++;
+    }
+    return evicted;
+  }
+
+  public int getMaxEntries() {
+    return maxEntries;
+  }
+
+  public long getMaxWeight() {
+    return maxWeight;
+  }
+
+  public long getWeight() {
+    return weight;
+  }
+
+  public long getHits() {
+    return hits;
+  }
+
+  public long getMisses() {
+    return misses;
+  }
+
+  public long getPuts() {
+    return puts;
+  }
+
+  public long getEvictions() {
+    return evictions;
+  }
+
+  protected long weigh(Object value) {
+    if (value == null) {
+      return 0;
+    }
+    if (value instanceof Collection) {
+      return Math.max(1, ((Collection<?>) value).size());
+    }
+    return 1;
+  }
+
+  private boolean isOverLimit() {
+    return (maxEntries > 0 && cache.size() > maxEntries) || (maxWeight > 0 && weight > maxWeight);
+  }
+
+}
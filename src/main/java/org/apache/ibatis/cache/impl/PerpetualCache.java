@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,7 +16,9 @@
 package org.apache.ibatis.cache.impl;
 
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.locks.ReadWriteLock;
 
 import org.apache.ibatis.cache.Cache;
@@ -71,6 +73,13 @@ public class PerpetualCache implements Cache {
     cache.clear();
   }
 
+  /**
+   * @return a copy of the keys currently held by the cache
+   */
+  public Set<Object> keySet() {
+    return new HashSet<Object>(cache.keySet());
+  }
+
   @Override
   public ReadWriteLock getReadWriteLock() {
     return null;
@@ -0,0 +1,99 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Statistics of a {@link ConcurrentPooledDataSource}, kept in atomic counters so that they can be updated without
+ * holding a lock.
+ */
+public class ConcurrentPoolState extends PoolState {
+
+  protected final AtomicLong requestCounter = new AtomicLong();
+  protected final AtomicLong accumulatedRequestTimeCounter = new AtomicLong();
+  protected final AtomicLong accumulatedCheckoutTimeCounter = new AtomicLong();
+  protected final AtomicLong claimedOverdueConnectionCounter = new AtomicLong();
+  protected final AtomicLong accumulatedCheckoutTimeOfOverdueConnectionsCounter = new AtomicLong();
+  protected final AtomicLong accumulatedWaitTimeCounter = new AtomicLong();
+  protected final AtomicLong hadToWaitCounter = new AtomicLong();
+  protected final AtomicLong badConnectionCounter = new AtomicLong();
+  protected final AtomicLong deadlineExceededCounter = new AtomicLong();
+
+  public ConcurrentPoolState(ConcurrentPooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  @Override
+  public long getRequestCount() {
+    return requestCounter.get();
+  }
+
+  @Override
+  public long getAverageRequestTime() {
+    long requests = requestCounter.get();
+    return requests == 0 ? 0 : accumulatedRequestTimeCounter.get() / requests;
+  }
+
+  @Override
+  public long getAverageWaitTime() {
+    long waits = hadToWaitCounter.get();
+    return waits == 0 ? 0 : accumulatedWaitTimeCounter.get() / waits;
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return hadToWaitCounter.get();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return badConnectionCounter.get();
+  }
+
+  @Override
+  public long getDeadlineExceededCount() {
+    return deadlineExceededCounter.get();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return claimedOverdueConnectionCounter.get();
+  }
+
+  @Override
+  public long getAverageOverdueCheckoutTime() {
+    long claimed = claimedOverdueConnectionCounter.get();
+    return claimed == 0 ? 0 : accumulatedCheckoutTimeOfOverdueConnectionsCounter.get() / claimed;
+  }
+
+  @Override
+  public long getAverageCheckoutTime() {
+    long requests = requestCounter.get();
+    return requests == 0 ? 0 : accumulatedCheckoutTimeCounter.get() / requests;
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return ((ConcurrentPooledDataSource) dataSource).getIdleCount();
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return ((ConcurrentPooledDataSource) dataSource).getActiveCount();
+  }
+
+}
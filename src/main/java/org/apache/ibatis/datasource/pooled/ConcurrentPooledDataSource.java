@@ -0,0 +1,582 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.ref.WeakReference;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+
+/**
+ * A connection pool that hands out connections without taking a lock.
+ *
+ * Connections are kept in a bag whose entries are claimed with a compare-and-set. A thread first looks at the
+ * connections it returned last, then scans the bag, then opens a new connection if the pool is not full. Threads
+ * that still find nothing wait on a handoff queue, and a returned connection goes straight to a waiting thread that
+ * is ready to take it, or back to the bag where waiting threads look again from time to time.
+ * It is configured with the same properties as {@link PooledDataSource}, and connections behave the same: closing
+ * one returns it to the pool and overdue connections are claimed back. Deadlines of a {@link ConnectionRequest}
+ * are honored, but waiting threads are served in arrival order whatever their priority, and tenants share the
+ * pool without partitions.
+ */
+public class ConcurrentPooledDataSource extends PooledDataSource {
+
+  private static final Log log = LogFactory.getLog(ConcurrentPooledDataSource.class);
+
+  static final int STATE_REMOVED = -1;
+  static final int STATE_NOT_IN_USE = 0;
+  static final int STATE_IN_USE = 1;
+  // 正在被获取或校验，不会被当作超时连接回收
+  static final int STATE_RESERVED = 2;
+
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
+  // 归还连接时尝试交给等待线程的次数，等待线程可能正在创建连接而不会很快poll
+  private static final int MAX_HANDOFF_ATTEMPTS = 64;
+  // 等待线程每隔这段时间重新扫描一次空闲连接
+  private static final long HANDOFF_RECHECK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final ConcurrentPoolState concurrentState = new ConcurrentPoolState(this);
+  private final Set<PoolEntry> entries = Collections.newSetFromMap(new ConcurrentHashMap<PoolEntry, Boolean>());
+  // 与状态为STATE_NOT_IN_USE的连接同步增减，避免每次归还时遍历
+  private final AtomicInteger idleConnections = new AtomicInteger();
+  // 公平模式，等待最久的线程先拿到归还的连接
+  private final SynchronousQueue<PoolEntry> handoffQueue = new SynchronousQueue<PoolEntry>(true);
+  // 包括正在创建中的连接
+  private final AtomicInteger totalConnections = new AtomicInteger();
+  private final AtomicInteger waiters = new AtomicInteger();
+  // 已预留但尚未打开的空闲连接
+  private final AtomicInteger pendingIdleConnections = new AtomicInteger();
+  // 当前线程最近归还的连接，优先复用
+  private final ThreadLocal<List<WeakReference<PoolEntry>>> threadEntries = new ThreadLocal<List<WeakReference<PoolEntry>>>() {
+    @Override
+    protected List<WeakReference<PoolEntry>> initialValue() {
+      return new ArrayList<WeakReference<PoolEntry>>(MAX_THREAD_LOCAL_ENTRIES);
+    }
+  };
+
+  public ConcurrentPooledDataSource() {
+    super();
+  }
+
+  public ConcurrentPooledDataSource(UnpooledDataSource dataSource) {
+    super(dataSource);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, String username, String password) {
+    super(driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(String driver, String url, Properties driverProperties) {
+    super(driver, url, driverProperties);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, String username, String password) {
+    super(driverClassLoader, driver, url, username, password);
+  }
+
+  public ConcurrentPooledDataSource(ClassLoader driverClassLoader, String driver, String url, Properties driverProperties) {
+    super(driverClassLoader, driver, url, driverProperties);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return borrowConnection(dataSource.getUsername(), dataSource.getPassword()).getProxyConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return borrowConnection(username, password).getProxyConnection();
+  }
+
+  @Override
+  public PoolState getPoolState() {
+    return concurrentState;
+  }
+
+  @Override
+  public void forceCloseAll() {
+    stopHousekeeping();
+    expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
+    for (PoolEntry entry : entries) {
+      if (!remove(entry)) {
+        continue;
+      }
+      // 使用中的连接归还时会被视为无效连接
+      PooledConnection conn = entry.connection.getAndSet(null);
+      if (conn != null) {
+        conn.invalidate();
+        closeQuietly(conn.getRealConnection());
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("ConcurrentPooledDataSource forcefully closed/removed all connections.");
+    }
+  }
+
+  @Override
+  protected void pushConnection(PooledConnection conn) throws SQLException {
+    PoolEntry entry = conn.getPoolEntry();
+    if (entry == null || entry.connection.get() != conn || !conn.isValid()) {
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + conn.getRealHashCode() + ") attempted to return to the pool, discarding connection.");
+      }
+      concurrentState.badConnectionCounter.incrementAndGet();
+      if (entry != null && entry.connection.get() == conn) {
+        discard(entry);
+      }
+      return;
+    }
+    concurrentState.accumulatedCheckoutTimeCounter.addAndGet(conn.getCheckoutTime());
+    concurrentState.checkoutTimeHistogram.record(conn.getCheckoutTime());
+    if (getIdleCount() >= poolMaximumIdleConnections || conn.getConnectionTypeCode() != expectedConnectionTypeCode
+        || isExpired(conn)) {
+      // 空闲连接已满，关闭该连接
+      if (!entry.connection.compareAndSet(conn, null)) {
+        concurrentState.badConnectionCounter.incrementAndGet();
+        return;
+      }
+      conn.invalidate();
+      remove(entry);
+      try {
+        conn.rollbackIfDirty();
+      } finally {
+        conn.getRealConnection().close();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Closed connection " + conn.getRealHashCode() + ".");
+      }
+      return;
+    }
+    // 利用回收旧的连接创建新连接，checkoutTimestamp设为当前时间以免在归还过程中被当作超时连接回收
+    PooledConnection newConn = newPooledConnection(entry, conn);
+    newConn.copyConnectionState(conn);
+    if (!entry.connection.compareAndSet(conn, newConn)) {
+      // 已被其他线程作为超时连接回收
+      concurrentState.badConnectionCounter.incrementAndGet();
+      return;
+    }
+    conn.invalidate();
+    newConn.rollbackIfDirty();
+    requite(entry);
+    if (log.isDebugEnabled()) {
+      log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
+    }
+  }
+
+  private PooledConnection borrowConnection(String username, String password) throws SQLException {
+    startHousekeeping();
+    long t = System.currentTimeMillis();
+    boolean countedWait = false;
+    int localBadConnectionCount = 0;
+    long deadline = ConnectionRequest.currentDeadline(t, poolMaximumWaitTime);
+    while (true) {
+      PoolEntry entry = takeIdle();
+      if (entry == null) {
+        entry = createEntry();
+      }
+      if (entry == null) {
+        entry = claimOverdue();
+      }
+      if (entry == null) {
+        if (!countedWait) {
+          concurrentState.hadToWaitCounter.incrementAndGet();
+          countedWait = true;
+        }
+        if (deadline > 0 && System.currentTimeMillis() >= deadline) {
+          concurrentState.deadlineExceededCounter.incrementAndGet();
+          concurrentState.recordWaitTime(ConnectionRequest.currentPriority(), System.currentTimeMillis() - t);
+          if (log.isDebugEnabled()) {
+            log.debug("ConcurrentPooledDataSource: Could not get a connection before the deadline.");
+          }
+          throw new SQLException("ConcurrentPooledDataSource: Could not get a connection before the deadline ("
+              + (System.currentTimeMillis() - t) + " ms waited, " + waiters.get() + " waiting).");
+        }
+        entry = await(deadline);
+        if (entry == null) {
+          continue;
+        }
+      }
+      PooledConnection conn = entry.connection.get();
+      if (conn != null && conn.isValid()) {
+        conn.rollbackIfDirty();
+        long now = System.currentTimeMillis();
+        conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+        conn.setCheckoutTimestamp(now);
+        conn.setLastUsedTimestamp(now);
+        concurrentState.requestCounter.incrementAndGet();
+        concurrentState.accumulatedRequestTimeCounter.addAndGet(now - t);
+        concurrentState.requestTimeHistogram.record(now - t);
+        concurrentState.recordWaitTime(ConnectionRequest.currentPriority(), countedWait ? now - t : 0);
+        trackCheckout(conn);
+        entry.state.set(STATE_IN_USE);
+        return conn;
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("A bad connection (" + (conn == null ? 0 : conn.getRealHashCode()) + ") was returned from the pool, getting another connection.");
+      }
+      concurrentState.badConnectionCounter.incrementAndGet();
+      localBadConnectionCount++;
+      discard(entry);
+      if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
+        if (log.isDebugEnabled()) {
+          log.debug("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+        }
+        throw new SQLException("ConcurrentPooledDataSource: Could not get a good connection to the database.");
+      }
+    }
+  }
+
+  /**
+   * Claims each idle entry in turn to evict or validate it, then opens connections up to
+   * <code>poolMinimumIdleConnections</code>.
+   */
+  @Override
+  protected void housekeep() {
+    for (PoolEntry entry : entries) {
+      if (!claim(entry)) {
+        continue;
+      }
+      PooledConnection conn = entry.connection.get();
+      if (conn == null || isExpired(conn) || poolMaximumIdleTime > 0
+          && conn.getTimeElapsedSinceLastUse() > poolMaximumIdleTime && getIdleCount() >= poolMinimumIdleConnections) {
+        if (log.isDebugEnabled()) {
+          log.debug("Evicted connection " + entry.getRealHashCode() + ".");
+        }
+        discard(entry);
+      } else if (conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor && !validateConnection(conn)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Discarded bad connection " + entry.getRealHashCode() + ".");
+        }
+        concurrentState.badConnectionCounter.incrementAndGet();
+        discard(entry);
+      } else {
+        requite(entry);
+      }
+    }
+    int missing = reserveIdleConnections(poolMinimumIdleConnections);
+    for (int i = 0; i < missing; i++) {
+      try {
+        openIdleConnection();
+      } catch (SQLException e) {
+        log.warn("Could not open an idle connection.  Cause: " + e);
+      }
+    }
+  }
+
+  @Override
+  protected List<PooledConnection> getCheckedOutConnections() {
+    List<PooledConnection> connections = new ArrayList<PooledConnection>();
+    for (PoolEntry entry : entries) {
+      PooledConnection conn = entry.connection.get();
+      if (conn != null && entry.state.get() == STATE_IN_USE) {
+        connections.add(conn);
+      }
+    }
+    return connections;
+  }
+
+  @Override
+  protected int reserveIdleConnections(int target) {
+    int reserved = 0;
+    while (getIdleCount() + pendingIdleConnections.get() < target && reserveSlot()) {
+      pendingIdleConnections.incrementAndGet();
+      reserved++;
+    }
+    return reserved;
+  }
+
+  @Override
+  protected void openIdleConnection() throws SQLException {
+    try {
+      requite(openEntry());
+    } finally {
+      pendingIdleConnections.decrementAndGet();
+    }
+  }
+
+  private PoolEntry takeIdle() {
+    List<WeakReference<PoolEntry>> recent = threadEntries.get();
+    for (int i = recent.size() - 1; i >= 0; i--) {
+      PoolEntry entry = recent.remove(i).get();
+      if (entry != null && claim(entry)) {
+        return entry;
+      }
+    }
+    for (PoolEntry entry : entries) {
+      if (claim(entry)) {
+        if (log.isDebugEnabled()) {
+          log.debug("Checked out connection " + entry.getRealHashCode() + " from pool.");
+        }
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Opens a new connection if the pool is not full.
+   *
+   * @return the entry of the new connection, reserved, or null if the pool is full
+   */
+  private PoolEntry createEntry() throws SQLException {
+    return reserveSlot() ? openEntry() : null;
+  }
+
+  private boolean reserveSlot() {
+    while (true) {
+      int total = totalConnections.get();
+      if (total >= poolMaximumActiveConnections) {
+        return false;
+      }
+      if (totalConnections.compareAndSet(total, total + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /**
+   * Opens a connection in a slot reserved with {@link #reserveSlot()}, releasing the slot if it fails.
+   */
+  private PoolEntry openEntry() throws SQLException {
+    boolean created = false;
+    try {
+      PoolEntry entry = new PoolEntry();
+      PooledConnection conn = new PooledConnection(dataSource.getConnection(), this);
+      conn.setPoolEntry(entry);
+      entry.connection.set(conn);
+      entries.add(entry);
+      created = true;
+      if (log.isDebugEnabled()) {
+        log.debug("Created connection " + conn.getRealHashCode() + ".");
+      }
+      return entry;
+    } finally {
+      if (!created) {
+        totalConnections.decrementAndGet();
+      }
+    }
+  }
+
+  private PoolEntry claimOverdue() {
+    for (PoolEntry entry : entries) {
+      if (entry.state.get() != STATE_IN_USE) {
+        continue;
+      }
+      PooledConnection oldConn = entry.connection.get();
+      if (oldConn == null) {
+        continue;
+      }
+      long longestCheckoutTime = oldConn.getCheckoutTime();
+      if (longestCheckoutTime > poolMaximumCheckoutTime) {
+        PooledConnection conn = newPooledConnection(entry, oldConn);
+        if (!entry.connection.compareAndSet(oldConn, conn)) {
+          continue;
+        }
+        concurrentState.claimedOverdueConnectionCounter.incrementAndGet();
+        concurrentState.accumulatedCheckoutTimeOfOverdueConnectionsCounter.addAndGet(longestCheckoutTime);
+        concurrentState.accumulatedCheckoutTimeCounter.addAndGet(longestCheckoutTime);
+        concurrentState.checkoutTimeHistogram.record(longestCheckoutTime);
+        oldConn.invalidate();
+        try {
+          if (!conn.getRealConnection().getAutoCommit()) {
+            conn.getRealConnection().rollback();
+          }
+        } catch (SQLException e) {
+          // 与PooledDataSource相同，回滚失败时由后续的有效性检查丢弃该连接
+          log.debug("Bad connection. Could not roll back");
+        }
+        if (log.isDebugEnabled()) {
+          log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+        }
+        return entry;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Waits up to <code>poolTimeToWait</code> for a connection to be returned.
+   *
+   * @return the entry of a connection, reserved, or null if none was returned in time
+   */
+  private PoolEntry await(long requestDeadline) throws SQLException {
+    long wt = System.currentTimeMillis();
+    waiters.incrementAndGet();
+    try {
+      // 登记为等待线程后再检查一次，避免错过登记前归还的连接
+      PoolEntry entry = takeIdle();
+      if (entry == null) {
+        entry = createEntry();
+      }
+      if (entry != null) {
+        return entry;
+      }
+      long timeToWait = poolTimeToWait > 0 ? poolTimeToWait : Integer.MAX_VALUE;
+      if (requestDeadline > 0) {
+        timeToWait = Math.min(timeToWait, Math.max(requestDeadline - System.currentTimeMillis(), 0));
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Waiting as long as " + timeToWait + " milliseconds for connection.");
+      }
+      long timeout = TimeUnit.MILLISECONDS.toNanos(timeToWait);
+      long deadline = System.nanoTime() + timeout;
+      while (timeout > 0) {
+        entry = handoffQueue.poll(Math.min(timeout, HANDOFF_RECHECK_NANOS), TimeUnit.NANOSECONDS);
+        if (entry == null) {
+          // 归还的线程放弃交接时连接留在池中
+          entry = takeIdle();
+          if (entry != null) {
+            return entry;
+          }
+        } else if (claim(entry)) {
+          return entry;
+        }
+        timeout = deadline - System.nanoTime();
+      }
+      return null;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new SQLException("ConcurrentPooledDataSource: Interrupted while waiting for a connection.", e);
+    } finally {
+      waiters.decrementAndGet();
+      concurrentState.accumulatedWaitTimeCounter.addAndGet(System.currentTimeMillis() - wt);
+    }
+  }
+
+  /**
+   * Makes an entry available again, handing it to a waiting thread if one is polling.
+   */
+  private void requite(PoolEntry entry) {
+    idleConnections.incrementAndGet();
+    entry.state.set(STATE_NOT_IN_USE);
+    for (int i = 0; i < MAX_HANDOFF_ATTEMPTS && waiters.get() > 0; i++) {
+      if (entry.state.get() != STATE_NOT_IN_USE || handoffQueue.offer(entry)) {
+        return;
+      }
+      // 等待线程可能还没开始poll，稍后重试
+      Thread.yield();
+    }
+    List<WeakReference<PoolEntry>> recent = threadEntries.get();
+    if (recent.size() < MAX_THREAD_LOCAL_ENTRIES) {
+      recent.add(new WeakReference<PoolEntry>(entry));
+    }
+  }
+
+  /**
+   * Removes an entry from the pool and closes its connection.
+   */
+  private void discard(PoolEntry entry) {
+    if (!remove(entry)) {
+      return;
+    }
+    PooledConnection conn = entry.connection.getAndSet(null);
+    if (conn != null) {
+      conn.invalidate();
+      closeQuietly(conn.getRealConnection());
+    }
+    // 有线程在等待时补充一个连接，否则它们要等到超时才会自行创建
+    if (waiters.get() > 0) {
+      try {
+        PoolEntry replacement = createEntry();
+        if (replacement != null) {
+          requite(replacement);
+        }
+      } catch (SQLException e) {
+        log.debug("Could not open a replacement connection.  Cause: " + e);
+      }
+    }
+  }
+
+  /**
+   * Reserves an idle entry.
+   */
+  private boolean claim(PoolEntry entry) {
+    if (entry.state.compareAndSet(STATE_NOT_IN_USE, STATE_RESERVED)) {
+      idleConnections.decrementAndGet();
+      return true;
+    }
+    return false;
+  }
+
+  /**
+   * Marks an entry as removed and takes it out of the pool.
+   *
+   * @return false if it had already been removed
+   */
+  private boolean remove(PoolEntry entry) {
+    int state = entry.state.getAndSet(STATE_REMOVED);
+    if (state == STATE_REMOVED) {
+      return false;
+    }
+    if (state == STATE_NOT_IN_USE) {
+      idleConnections.decrementAndGet();
+    }
+    entries.remove(entry);
+    totalConnections.decrementAndGet();
+    return true;
+  }
+
+  private PooledConnection newPooledConnection(PoolEntry entry, PooledConnection conn) {
+    PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+    newConn.setPoolEntry(entry);
+    newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
+    newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
+    newConn.setCheckoutTimestamp(System.currentTimeMillis());
+    return newConn;
+  }
+
+  int getIdleCount() {
+    return idleConnections.get();
+  }
+
+  int getActiveCount() {
+    int count = 0;
+    for (PoolEntry entry : entries) {
+      if (entry.state.get() == STATE_IN_USE) {
+        count++;
+      }
+    }
+    return count;
+  }
+
+  /**
+   * A connection of the pool. The pooled connection is replaced each time the connection returns to the pool, so
+   * that the proxy handed out before becomes invalid.
+   */
+  static final class PoolEntry {
+    final AtomicInteger state = new AtomicInteger(STATE_RESERVED);
+    final AtomicReference<PooledConnection> connection = new AtomicReference<PooledConnection>();
+
+    int getRealHashCode() {
+      PooledConnection conn = connection.get();
+      return conn == null ? 0 : conn.getRealHashCode();
+    }
+  }
+
+}
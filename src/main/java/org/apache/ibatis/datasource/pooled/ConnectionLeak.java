@@ -0,0 +1,74 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * A connection that has been checked out for longer than the leak detection threshold of its pool.
+ */
+public class ConnectionLeak {
+
+  private static final String LINE_SEPARATOR = System.getProperty("line.separator", "\n");
+
+  private final int realHashCode;
+  private final long checkoutTime;
+  // 未被抽样的连接没有调用栈
+  private final StackTraceElement[] stackTrace;
+
+  public ConnectionLeak(int realHashCode, long checkoutTime, StackTraceElement[] stackTrace) {
+    this.realHashCode = realHashCode;
+    this.checkoutTime = checkoutTime;
+    this.stackTrace = stackTrace;
+  }
+
+  static ConnectionLeak of(PooledConnection conn, long checkoutTime) {
+    Throwable trace = conn.getAcquisitionTrace();
+    return new ConnectionLeak(conn.getRealHashCode(), checkoutTime, trace == null ? null : trace.getStackTrace());
+  }
+
+  public int getRealHashCode() {
+    return realHashCode;
+  }
+
+  /*
+   * @return how long the connection has been checked out, in milliseconds
+   */
+  public long getCheckoutTime() {
+    return checkoutTime;
+  }
+
+  /*
+   * @return where the connection was acquired, or null if the checkout was not sampled
+   */
+  public StackTraceElement[] getStackTrace() {
+    return stackTrace == null ? null : stackTrace.clone();
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder builder = new StringBuilder();
+    builder.append("Connection ").append(realHashCode).append(" checked out for ").append(checkoutTime).append(" ms");
+    if (stackTrace == null) {
+      builder.append(" (acquisition not sampled)");
+    } else {
+      builder.append(", acquired at:");
+      for (StackTraceElement element : stackTrace) {
+        builder.append(LINE_SEPARATOR).append("\tat ").append(element);
+      }
+    }
+    return builder.toString();
+  }
+
+}
@@ -0,0 +1,135 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * The priority, deadline and tenant of the connections the current thread requests from a pooled data source.
+ *
+ * <pre>
+ * ConnectionRequest.instance().priority(Priority.HIGH).timeout(500).tenant("acme");
+ * try {
+ *   ...
+ * } finally {
+ *   ConnectionRequest.instance().reset();
+ * }
+ * </pre>
+ */
+public class ConnectionRequest {
+
+  public enum Priority {
+    HIGH, NORMAL, LOW
+  }
+
+  // 与ErrorContext相同，每个线程一个实例
+  private static final ThreadLocal<ConnectionRequest> LOCAL = new ThreadLocal<ConnectionRequest>();
+
+  private Priority priority = Priority.NORMAL;
+  // 截止时间，System.currentTimeMillis()的值，0表示没有截止时间
+  private long deadline;
+  // 连接计入的租户分区，null表示不属于任何分区
+  private String tenant;
+
+  private ConnectionRequest() {
+  }
+
+  public static ConnectionRequest instance() {
+    ConnectionRequest request = LOCAL.get();
+    if (request == null) {
+      request = new ConnectionRequest();
+      LOCAL.set(request);
+    }
+    return request;
+  }
+
+  public ConnectionRequest priority(Priority priority) {
+    this.priority = priority == null ? Priority.NORMAL : priority;
+    return this;
+  }
+
+  /*
+   * Connections must be handed out within the given time from now
+   *
+   * @param milliseconds the time allowed to wait, 0 for no deadline
+   */
+  public ConnectionRequest timeout(long milliseconds) {
+    return deadline(milliseconds > 0 ? System.currentTimeMillis() + milliseconds : 0);
+  }
+
+  /*
+   * Connections must be handed out before the given time
+   *
+   * @param deadline a value of System.currentTimeMillis(), 0 for no deadline
+   */
+  public ConnectionRequest deadline(long deadline) {
+    this.deadline = deadline;
+    return this;
+  }
+
+  /*
+   * Connections are counted against the partition of the given tenant
+   *
+   * @param tenant the tenant id, null for none
+   */
+  public ConnectionRequest tenant(String tenant) {
+    this.tenant = tenant;
+    return this;
+  }
+
+  public Priority getPriority() {
+    return priority;
+  }
+
+  public long getDeadline() {
+    return deadline;
+  }
+
+  public String getTenant() {
+    return tenant;
+  }
+
+  public void reset() {
+    LOCAL.remove();
+  }
+
+  /*
+   * The priority of the current thread without creating its request
+   */
+  static Priority currentPriority() {
+    ConnectionRequest request = LOCAL.get();
+    return request == null ? Priority.NORMAL : request.priority;
+  }
+
+  /*
+   * The tenant of the current thread without creating its request
+   */
+  static String currentTenant() {
+    ConnectionRequest request = LOCAL.get();
+    return request == null ? null : request.tenant;
+  }
+
+  /*
+   * The deadline of the current thread, or the one given by the pool when it has none or a later one
+   */
+  static long currentDeadline(long start, int maximumWaitTime) {
+    ConnectionRequest request = LOCAL.get();
+    long deadline = request == null ? 0 : request.deadline;
+    if (maximumWaitTime > 0 && (deadline == 0 || deadline > start + maximumWaitTime)) {
+      deadline = start + maximumWaitTime;
+    }
+    return deadline;
+  }
+
+}
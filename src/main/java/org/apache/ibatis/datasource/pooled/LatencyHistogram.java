@@ -0,0 +1,122 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A histogram of durations in milliseconds with fixed, roughly exponential buckets.
+ *
+ * It can be recorded from several threads without a lock. Bucket <code>i</code> counts the durations up to
+ * <code>getBucketBounds()[i]</code>, and the last bucket counts the longer ones.
+ */
+public class LatencyHistogram {
+
+  private static final long[] BUCKET_BOUNDS = { 0, 1, 2, 5, 10, 20, 50, 100, 200, 500, 1000, 2000, 5000, 10000, 20000, 60000 };
+
+  // 最后一个桶统计超过所有上界的耗时
+  private final AtomicLongArray counts = new AtomicLongArray(BUCKET_BOUNDS.length + 1);
+  private final AtomicLong total = new AtomicLong();
+  private final AtomicLong max = new AtomicLong();
+
+  public void record(long millis) {
+    if (millis < 0) {
+      millis = 0;
+    }
+    counts.incrementAndGet(bucketOf(millis));
+    total.addAndGet(millis);
+    long current = max.get();
+    while (millis > current && !max.compareAndSet(current, millis)) {
+      current = max.get();
+    }
+  }
+
+  /**
+   * @return the inclusive upper bound of each bucket but the last one, in milliseconds
+   */
+  public long[] getBucketBounds() {
+    return BUCKET_BOUNDS.clone();
+  }
+
+  /**
+   * @return the number of durations in each bucket, one more than the number of bounds
+   */
+  public long[] getCounts() {
+    long[] result = new long[counts.length()];
+    for (int i = 0; i < result.length; i++) {
+      result[i] = counts.get(i);
+    }
+    return result;
+  }
+
+  public long getCount() {
+    long count = 0;
+    for (int i = 0; i < counts.length(); i++) {
+      count += counts.get(i);
+    }
+    return count;
+  }
+
+  public long getTotal() {
+    return total.get();
+  }
+
+  public long getMax() {
+    return max.get();
+  }
+
+  /**
+   * Estimates a percentile as the upper bound of the bucket it falls in.
+   *
+   * @param percentile a value between 0 and 100
+   * @return the estimate in milliseconds, or 0 if nothing was recorded
+   */
+  public long getPercentile(double percentile) {
+    long[] snapshot = getCounts();
+    long count = 0;
+    for (long c : snapshot) {
+      count += c;
+    }
+    if (count == 0) {
+      return 0;
+    }
+    long rank = (long) Math.ceil(count * percentile / 100);
+    long seen = 0;
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      seen += snapshot[i];
+      if (seen >= rank) {
+        return Math.min(BUCKET_BOUNDS[i], getMax());
+      }
+    }
+    return getMax();
+  }
+
+  @Override
+  public String toString() {
+    return "count=" + getCount() + " p50=" + getPercentile(50) + " p99=" + getPercentile(99) + " max=" + getMax();
+  }
+
+  private static int bucketOf(long millis) {
+    for (int i = 0; i < BUCKET_BOUNDS.length; i++) {
+      if (millis <= BUCKET_BOUNDS[i]) {
+        return i;
+      }
+    }
+    return BUCKET_BOUNDS.length;
+  }
+
+}
@@ -0,0 +1,139 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import org.apache.ibatis.datasource.DataSourceException;
+
+/**
+ * Exposes the metrics of a pooled data source, typically as an MBean registered by the SqlSessionFactory
+ * when the <code>jmxEnabled</code> setting is on.
+ */
+public class PoolMetricsManager implements PoolMetricsMXBean {
+
+  private final PooledDataSource dataSource;
+  private final String name;
+  private ObjectName objectName;
+
+  public PoolMetricsManager(PooledDataSource dataSource, String name) {
+    this.dataSource = dataSource;
+    this.name = name;
+  }
+
+  @Override
+  public int getActiveConnectionCount() {
+    return dataSource.getPoolState().getActiveConnectionCount();
+  }
+
+  @Override
+  public int getIdleConnectionCount() {
+    return dataSource.getPoolState().getIdleConnectionCount();
+  }
+
+  @Override
+  public long getRequestCount() {
+    return dataSource.getPoolState().getRequestCount();
+  }
+
+  @Override
+  public long getHadToWaitCount() {
+    return dataSource.getPoolState().getHadToWaitCount();
+  }
+
+  @Override
+  public long getBadConnectionCount() {
+    return dataSource.getPoolState().getBadConnectionCount();
+  }
+
+  @Override
+  public long getClaimedOverdueConnectionCount() {
+    return dataSource.getPoolState().getClaimedOverdueConnectionCount();
+  }
+
+  @Override
+  public long getDeadlineExceededCount() {
+    return dataSource.getPoolState().getDeadlineExceededCount();
+  }
+
+  @Override
+  public long getLeakSuspectCount() {
+    return dataSource.getPoolState().getLeakSuspectCount();
+  }
+
+  @Override
+  public LatencyHistogram getRequestTimeHistogram() {
+    return dataSource.getPoolState().getRequestTimeHistogram();
+  }
+
+  @Override
+  public LatencyHistogram getWaitTimeHistogram() {
+    return dataSource.getPoolState().getWaitTimeHistogram();
+  }
+
+  @Override
+  public LatencyHistogram getCheckoutTimeHistogram() {
+    return dataSource.getPoolState().getCheckoutTimeHistogram();
+  }
+
+  @Override
+  public List<String> getLeakSuspects() {
+    List<String> leaks = new ArrayList<String>();
+    for (ConnectionLeak leak : dataSource.getPoolState().getLeakSuspects()) {
+      leaks.add(leak.toString());
+    }
+    return leaks;
+  }
+
+  public synchronized ObjectName getObjectName() {
+    return objectName;
+  }
+
+  public synchronized void register() {
+    if (objectName != null) {
+      return;
+    }
+    try {
+      ObjectName mbeanName = new ObjectName("org.apache.ibatis:type=PoolMetrics,name=" + ObjectName.quote(name)
+          + ",identity=" + Integer.toHexString(System.identityHashCode(dataSource)));
+      ManagementFactory.getPlatformMBeanServer().registerMBean(this, mbeanName);
+      objectName = mbeanName;
+    } catch (Exception e) {
+      throw new DataSourceException("Error registering pool metrics MBean.  Cause: " + e, e);
+    }
+  }
+
+  public synchronized void unregister() {
+    if (objectName == null) {
+      return;
+    }
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      if (server.isRegistered(objectName)) {
+        server.unregisterMBean(objectName);
+      }
+      objectName = null;
+    } catch (Exception e) {
+      throw new DataSourceException("Error unregistering pool metrics MBean.  Cause: " + e, e);
+    }
+  }
+
+}
@@ -0,0 +1,112 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.pooled;
+
+/**
+ * The share of a {@link PooledDataSource} given to the connections requested for one tenant.
+ *
+ * A partition is guaranteed its reserved connections: the other tenants cannot check out the connections the
+ * pool needs to keep for the partitions below their reservation. Past it, a partition borrows from the rest
+ * of the pool up to its maximum. Only the partitions configured with
+ * {@link PooledDataSource#setPartitionLimits(String, int, int)} reserve connections; the others are created on the
+ * first request of their tenant and removed when they become idle.
+ *
+ * @see ConnectionRequest#tenant(String)
+ */
+public class PoolPartition {
+
+  private final String tenant;
+  // 由setPartitionLimits配置的分区，空闲时也保留
+  private volatile boolean configured;
+  // 以下字段由PoolState锁保护，volatile只为统计读取
+  private volatile int reservedConnections;
+  // 0表示只受连接池最大连接数限制
+  private volatile int maximumActiveConnections;
+  private volatile int activeConnectionCount;
+  // 因达到分区上限而等待的请求数
+  private volatile long limitedCount;
+
+  PoolPartition(String tenant, int reservedConnections, int maximumActiveConnections, boolean configured) {
+    this.tenant = tenant;
+    this.reservedConnections = reservedConnections;
+    this.maximumActiveConnections = maximumActiveConnections;
+    this.configured = configured;
+  }
+
+  public String getTenant() {
+    return tenant;
+  }
+
+  public int getReservedConnections() {
+    return reservedConnections;
+  }
+
+  public int getMaximumActiveConnections() {
+    return maximumActiveConnections;
+  }
+
+  public int getActiveConnectionCount() {
+    return activeConnectionCount;
+  }
+
+  public long getLimitedCount() {
+    return limitedCount;
+  }
+
+  public boolean isConfigured() {
+    return configured;
+  }
+
+  void setLimits(int reservedConnections, int maximumActiveConnections) {
+    this.reservedConnections = reservedConnections;
+    this.maximumActiveConnections = maximumActiveConnections;
+    this.configured = true;
+  }
+
+  /*
+   * @return the number of reserved connections not checked out
+   */
+  int getUnusedReservation() {
+    return Math.max(0, reservedConnections - activeConnectionCount);
+  }
+
+  boolean isFull() {
+    return maximumActiveConnections > 0 && activeConnectionCount >= maximumActiveConnections;
+  }
+
+  boolean isWithinReservation() {
+    return activeConnectionCount < reservedConnections;
+  }
+
+  void checkedOut() {
+    activeConnectionCount++;
+  }
+
+  void returned() {
+    activeConnectionCount--;
+  }
+
+  void limited() {
+    limitedCount++;
+  }
+
+  @Override
+  public String toString() {
+    return tenant + " active=" + activeConnectionCount + " reserved=" + reservedConnections
+        + " max=" + maximumActiveConnections + " limited=" + limitedCount;
+  }
+
+}
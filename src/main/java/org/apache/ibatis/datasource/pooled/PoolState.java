@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.apache.ibatis.datasource.pooled;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * @author Clinton Begin
@@ -45,9 +46,29 @@ public class PoolState {
   protected long hadToWaitCount = 0;
   // 无效连接数
   protected long badConnectionCount = 0;
+  // 因无法在截止时间前拿到连接而失败的请求数
+  protected long deadlineExceededCount = 0;
+  // 疑似泄漏的连接数，由后台维护线程累加
+  protected final AtomicLong leakSuspectCount = new AtomicLong();
+  // 获取连接的总耗时分布
+  protected final LatencyHistogram requestTimeHistogram = new LatencyHistogram();
+  // 连接被使用的时长分布
+  protected final LatencyHistogram checkoutTimeHistogram = new LatencyHistogram();
+  // 每次请求的等待时间分布，不需要等待的请求记为0
+  protected final LatencyHistogram waitTimeHistogram = new LatencyHistogram();
+  // 按优先级划分的等待时间分布
+  protected final LatencyHistogram[] priorityWaitTimeHistograms = new LatencyHistogram[ConnectionRequest.Priority.values().length];
 
   public PoolState(PooledDataSource dataSource) {
     this.dataSource = dataSource;
+    for (int i = 0; i < priorityWaitTimeHistograms.length; i++) {
+      priorityWaitTimeHistograms[i] = new LatencyHistogram();
+    }
+  }
+
+  protected void recordWaitTime(ConnectionRequest.Priority priority, long waitTime) {
+    waitTimeHistogram.record(waitTime);
+    priorityWaitTimeHistograms[priority.ordinal()].record(waitTime);
   }
 
   public synchronized long getRequestCount() {
@@ -71,6 +92,49 @@ public class PoolState {
     return badConnectionCount;
   }
 
+  public synchronized long getDeadlineExceededCount() {
+    return deadlineExceededCount;
+  }
+
+  public long getLeakSuspectCount() {
+    return leakSuspectCount.get();
+  }
+
+  /*
+   * The connections checked out for longer than poolLeakDetectionThreshold, with the stack trace of their
+   * acquisition if it was sampled
+   */
+  public List<ConnectionLeak> getLeakSuspects() {
+    List<ConnectionLeak> leaks = new ArrayList<ConnectionLeak>();
+    int threshold = dataSource.poolLeakDetectionThreshold;
+    if (threshold <= 0) {
+      return leaks;
+    }
+    for (PooledConnection conn : dataSource.getCheckedOutConnections()) {
+      long checkoutTime = conn.getCheckoutTime();
+      if (checkoutTime > threshold) {
+        leaks.add(ConnectionLeak.of(conn, checkoutTime));
+      }
+    }
+    return leaks;
+  }
+
+  public LatencyHistogram getRequestTimeHistogram() {
+    return requestTimeHistogram;
+  }
+
+  public LatencyHistogram getCheckoutTimeHistogram() {
+    return checkoutTimeHistogram;
+  }
+
+  public LatencyHistogram getWaitTimeHistogram() {
+    return waitTimeHistogram;
+  }
+
+  public LatencyHistogram getWaitTimeHistogram(ConnectionRequest.Priority priority) {
+    return priorityWaitTimeHistograms[priority.ordinal()];
+  }
+
   public synchronized long getClaimedOverdueConnectionCount() {
     return claimedOverdueConnectionCount;
   }
@@ -104,9 +168,18 @@ public class PoolState {
     builder.append("\n poolMaxIdleConnections         ").append(dataSource.poolMaximumIdleConnections);
     builder.append("\n poolMaxCheckoutTime            ").append(dataSource.poolMaximumCheckoutTime);
     builder.append("\n poolTimeToWait                 ").append(dataSource.poolTimeToWait);
+    builder.append("\n poolMaxWaitTime                ").append(dataSource.poolMaximumWaitTime);
     builder.append("\n poolPingEnabled                ").append(dataSource.poolPingEnabled);
     builder.append("\n poolPingQuery                  ").append(dataSource.poolPingQuery);
     builder.append("\n poolPingConnectionsNotUsedFor  ").append(dataSource.poolPingConnectionsNotUsedFor);
+    builder.append("\n poolHousekeepingInterval       ").append(dataSource.poolHousekeepingInterval);
+    builder.append("\n poolMaxConnectionLifetime      ").append(dataSource.poolMaximumConnectionLifetime);
+    builder.append("\n poolMaxIdleTime                ").append(dataSource.poolMaximumIdleTime);
+    builder.append("\n poolMinIdleConnections         ").append(dataSource.poolMinimumIdleConnections);
+    builder.append("\n poolInitialConnections         ").append(dataSource.poolInitialConnections);
+    builder.append("\n poolLeakDetectionThreshold     ").append(dataSource.poolLeakDetectionThreshold);
+    builder.append("\n poolLeakDetectionSamplePct     ").append(dataSource.poolLeakDetectionSamplePercentage);
+    builder.append("\n poolPartitionMaxActive         ").append(dataSource.poolPartitionMaximumActiveConnections);
     builder.append("\n ---STATUS-----------------------------------------------------");
     builder.append("\n activeConnections              ").append(getActiveConnectionCount());
     builder.append("\n idleConnections                ").append(getIdleConnectionCount());
@@ -117,7 +190,15 @@ public class PoolState {
     builder.append("\n averageOverdueCheckoutTime     ").append(getAverageOverdueCheckoutTime());
     builder.append("\n hadToWait                      ").append(getHadToWaitCount());
     builder.append("\n averageWaitTime                ").append(getAverageWaitTime());
+    builder.append("\n requestTime                    ").append(getRequestTimeHistogram());
+    builder.append("\n checkoutTime                   ").append(getCheckoutTimeHistogram());
+    builder.append("\n waitTime                       ").append(getWaitTimeHistogram());
+    builder.append("\n deadlineExceeded               ").append(getDeadlineExceededCount());
     builder.append("\n badConnectionCount             ").append(getBadConnectionCount());
+    builder.append("\n leakSuspectCount               ").append(getLeakSuspectCount());
+    for (PoolPartition partition : dataSource.getPartitions()) {
+      builder.append("\n partition                      ").append(partition);
+    }
     builder.append("\n===============================================================");
     return builder.toString();
   }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -30,7 +30,16 @@ import org.apache.ibatis.reflection.ExceptionUtil;
 class PooledConnection implements InvocationHandler {
 
   private static final String CLOSE = "close";
+  private static final String GET_AUTO_COMMIT = "getAutoCommit";
+  private static final String SET_AUTO_COMMIT = "setAutoCommit";
+  private static final String COMMIT = "commit";
+  private static final String ROLLBACK = "rollback";
+  private static final String GET_TRANSACTION_ISOLATION = "getTransactionIsolation";
+  private static final String SET_TRANSACTION_ISOLATION = "setTransactionIsolation";
+  private static final String IS_READ_ONLY = "isReadOnly";
+  private static final String SET_READ_ONLY = "setReadOnly";
   private static final Class<?>[] IFACES = new Class<?>[] { Connection.class };
+  private static final Object NOT_TRACKED = new Object();
 
   private final int hashCode;
   private final PooledDataSource dataSource;
@@ -46,7 +55,25 @@ class PooledConnection implements InvocationHandler {
   private long lastUsedTimestamp;
   private int connectionTypeCode;
   // 连接是否有效
-  private boolean valid;
+  private volatile boolean valid;
+  // ConcurrentPooledDataSource中该连接所在的条目
+  private ConcurrentPooledDataSource.PoolEntry poolEntry;
+
+  // 以下为realConnection的状态，连接归还后重新包装时会复制给新的PooledConnection，null表示未知
+  // realConnection实际的autoCommit
+  private Boolean realAutoCommit;
+  // 使用者设置的autoCommit，连接干净时延迟到创建语句前才设置到realConnection
+  private Boolean autoCommit;
+  private Integer transactionIsolation;
+  private Boolean readOnly;
+  // 上次回滚后是否创建过语句，没有创建过语句的连接不可能有未结束的事务
+  private boolean dirty;
+  // 抽样记录的获取连接时的调用栈，用于泄漏检测
+  private volatile Throwable acquisitionTrace;
+  // 是否已被报告为疑似泄漏
+  private volatile boolean leakReported;
+  // 该连接计入的租户分区，归还后置为null
+  private PoolPartition partition;
 
   /*
    * Constructor for SimplePooledConnection that uses the Connection and PooledDataSource passed in
@@ -80,6 +107,67 @@ class PooledConnection implements InvocationHandler {
     return valid && realConnection != null && dataSource.pingConnection(this);
   }
 
+  /*
+   * Takes over the known state of the real connection from the pooled connection that wrapped it before
+   *
+   * @param conn - the previous pooled connection of the real connection
+   */
+  void copyConnectionState(PooledConnection conn) {
+    this.realAutoCommit = conn.realAutoCommit;
+    this.autoCommit = conn.autoCommit;
+    this.transactionIsolation = conn.transactionIsolation;
+    this.readOnly = conn.readOnly;
+    this.dirty = conn.dirty;
+  }
+
+  /*
+   * Rolls back the real connection if a statement may have started a transaction since it was last rolled back
+   */
+  void rollbackIfDirty() throws SQLException {
+    if (dirty) {
+      if (!isRealAutoCommit()) {
+        realConnection.rollback();
+      }
+      dirty = false;
+    }
+  }
+
+  boolean isDirty() {
+    return dirty;
+  }
+
+  Throwable getAcquisitionTrace() {
+    return acquisitionTrace;
+  }
+
+  void setAcquisitionTrace(Throwable acquisitionTrace) {
+    this.acquisitionTrace = acquisitionTrace;
+  }
+
+  boolean isLeakReported() {
+    return leakReported;
+  }
+
+  void setLeakReported(boolean leakReported) {
+    this.leakReported = leakReported;
+  }
+
+  PoolPartition getPartition() {
+    return partition;
+  }
+
+  void setPartition(PoolPartition partition) {
+    this.partition = partition;
+  }
+
+  ConcurrentPooledDataSource.PoolEntry getPoolEntry() {
+    return poolEntry;
+  }
+
+  void setPoolEntry(ConcurrentPooledDataSource.PoolEntry poolEntry) {
+    this.poolEntry = poolEntry;
+  }
+
   /*
    * Getter for the *real* connection that this wraps
    *
@@ -89,6 +177,23 @@ class PooledConnection implements InvocationHandler {
     return realConnection;
   }
 
+  /*
+   * Hands the real connection out of the pool. What is done with it is not seen by the proxy, so the connection is
+   * considered dirty from then on, and the autoCommit set through the proxy is applied first
+   *
+   * @return The connection
+   */
+  Connection handOutRealConnection() {
+    dirty = true;
+    try {
+      applyAutoCommit();
+    } catch (SQLException e) {
+      // 状态未知，归还时重新查询
+      realAutoCommit = null;
+    }
+    return realConnection;
+  }
+
   /*
    * Getter for the proxy for the connection
    *
@@ -251,6 +356,10 @@ class PooledConnection implements InvocationHandler {
           // throw an SQLException instead of a Runtime
           checkConnection();
         }
+        Object result = invokeTracked(methodName, args);
+        if (result != NOT_TRACKED) {
+          return result;
+        }
         // invoke Connection对象的其他方法
         return method.invoke(realConnection, args);
       } catch (Throwable t) {
@@ -259,6 +368,83 @@ class PooledConnection implements InvocationHandler {
     }
   }
 
+  /*
+   * Handles the methods whose round trip can be skipped by tracking the state of the real connection
+   *
+   * @return the result of the method, or NOT_TRACKED if the real connection must be called
+   */
+  private Object invokeTracked(String methodName, Object[] args) throws SQLException {
+    if (args == null) {
+      if (GET_AUTO_COMMIT.equals(methodName)) {
+        if (autoCommit == null) {
+          autoCommit = isRealAutoCommit();
+        }
+        return autoCommit;
+      } else if (COMMIT.equals(methodName) || ROLLBACK.equals(methodName)) {
+        if (!dirty && Boolean.FALSE.equals(autoCommit)) {
+          // 没有创建过语句，不存在需要提交或回滚的事务
+          return null;
+        }
+        applyAutoCommit();
+      } else if (GET_TRANSACTION_ISOLATION.equals(methodName)) {
+        if (transactionIsolation == null) {
+          transactionIsolation = realConnection.getTransactionIsolation();
+        }
+        return transactionIsolation;
+      } else if (IS_READ_ONLY.equals(methodName)) {
+        if (readOnly == null) {
+          readOnly = realConnection.isReadOnly();
+        }
+        return readOnly;
+      } else if ("createStatement".equals(methodName) || "setSavepoint".equals(methodName)) {
+        applyAutoCommit();
+        dirty = true;
+      }
+      return NOT_TRACKED;
+    }
+    if (SET_AUTO_COMMIT.equals(methodName)) {
+      autoCommit = (Boolean) args[0];
+      // 连接干净时不会有未结束的事务，可以延迟到创建语句前再设置
+      if (dirty) {
+        applyAutoCommit();
+      }
+      return null;
+    } else if (SET_TRANSACTION_ISOLATION.equals(methodName)) {
+      Integer level = (Integer) args[0];
+      if (!level.equals(transactionIsolation)) {
+        realConnection.setTransactionIsolation(level);
+        transactionIsolation = level;
+      }
+      return null;
+    } else if (SET_READ_ONLY.equals(methodName)) {
+      Boolean value = (Boolean) args[0];
+      if (!value.equals(readOnly)) {
+        realConnection.setReadOnly(value);
+        readOnly = value;
+      }
+      return null;
+    } else if (methodName.startsWith("prepare") || "createStatement".equals(methodName)
+        || "setSavepoint".equals(methodName) || "unwrap".equals(methodName)) {
+      applyAutoCommit();
+      dirty = true;
+    }
+    return NOT_TRACKED;
+  }
+
+  private void applyAutoCommit() throws SQLException {
+    if (autoCommit != null && autoCommit != isRealAutoCommit()) {
+      realConnection.setAutoCommit(autoCommit);
+      realAutoCommit = autoCommit;
+    }
+  }
+
+  private boolean isRealAutoCommit() throws SQLException {
+    if (realAutoCommit == null) {
+      realAutoCommit = realConnection.getAutoCommit();
+    }
+    return realAutoCommit;
+  }
+
   private void checkConnection() throws SQLException {
     if (!valid) {
       throw new SQLException("Error accessing PooledConnection. Connection is invalid.");
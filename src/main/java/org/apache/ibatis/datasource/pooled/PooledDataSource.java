@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -16,6 +16,7 @@
 package org.apache.ibatis.datasource.pooled;
 
 import java.io.PrintWriter;
+import java.lang.ref.WeakReference;
 import java.lang.reflect.InvocationHandler;
 import java.lang.reflect.Proxy;
 import java.sql.Connection;
@@ -23,11 +24,24 @@ import java.sql.DriverManager;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.Logger;
 
 import javax.sql.DataSource;
 
+import org.apache.ibatis.datasource.DataSourceException;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -41,9 +55,11 @@ public class PooledDataSource implements DataSource {
 
   private static final Log log = LogFactory.getLog(PooledDataSource.class);
 
+  private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+
   private final PoolState state = new PoolState(this);
 
-  private final UnpooledDataSource dataSource;
+  protected final UnpooledDataSource dataSource;
 
   // OPTIONAL CONFIGURATION FIELDS
   // 活跃连接最大个数
@@ -52,14 +68,46 @@ public class PooledDataSource implements DataSource {
   // 连接运行的最大时长，毫秒
   protected int poolMaximumCheckoutTime = 20000;
   protected int poolTimeToWait = 20000;
+  // 获取连接的最长等待时间，毫秒，0表示一直等待
+  protected int poolMaximumWaitTime;
   protected int poolMaximumLocalBadConnectionTolerance = 3;
   // 发送到数据库的侦测查询，用来验证连接是否正常工作。
   protected String poolPingQuery = "NO PING QUERY SET";
   protected boolean poolPingEnabled;
   protected int poolPingConnectionsNotUsedFor;
+  // 后台维护任务的执行间隔，毫秒，0表示不启用
+  protected int poolHousekeepingInterval;
+  // 连接的最长存活时间，毫秒，0表示不限制
+  protected int poolMaximumConnectionLifetime;
+  // 连接的最长空闲时间，毫秒，0表示不限制
+  protected int poolMaximumIdleTime;
+  // 后台维护任务保持的最少空闲连接数
+  protected int poolMinimumIdleConnections;
+  // 预热时打开的连接数
+  protected int poolInitialConnections;
+  // 预热时并行打开连接的线程数
+  protected int poolWarmUpThreads = 4;
+  // 连接被使用超过该时长视为疑似泄漏，毫秒，0表示不检测
+  protected int poolLeakDetectionThreshold;
+  // 记录获取连接调用栈的抽样比例，百分比
+  protected int poolLeakDetectionSamplePercentage = 100;
+  // 每个租户分区默认的最大活跃连接数，0表示只受poolMaximumActiveConnections限制
+  protected int poolPartitionMaximumActiveConnections;
   // 连接池属性集合的hashCode，("" + url + username + password).hashCode();
   // 同一个数据源并且同一个账户密码只有一个对应的code，用于区别不同数据源
-  private int expectedConnectionTypeCode;
+  protected int expectedConnectionTypeCode;
+  // 后台维护任务正在校验或创建的连接数，也计入最大连接数
+  private int reservedConnectionCount;
+  private volatile ScheduledExecutorService housekeeper;
+  private volatile CountDownLatch warmUpLatch = new CountDownLatch(0);
+  private final AtomicInteger warmUpFailures = new AtomicInteger();
+  // 等待连接的线程，按优先级和到达顺序排列，由state锁保护
+  private final List<Waiter> waiters = new ArrayList<Waiter>();
+  private final AtomicLong checkoutSequence = new AtomicLong();
+  // 租户分区，配置过的一直保留，其余的在第一次请求时创建、空闲时移除，由state锁保护
+  private final Map<String, PoolPartition> partitions = new LinkedHashMap<String, PoolPartition>();
+  // 各分区保留但未被使用的连接数之和，其他租户不能占用
+  private int unusedReservations;
 
   public PooledDataSource() {
     dataSource = new UnpooledDataSource();
@@ -166,6 +214,9 @@ public class PooledDataSource implements DataSource {
    * @param poolMaximumActiveConnections The maximum number of active connections
    */
   public void setPoolMaximumActiveConnections(int poolMaximumActiveConnections) {
+    synchronized (state) {
+      checkReservations(null, 0, poolMaximumActiveConnections);
+    }
     this.poolMaximumActiveConnections = poolMaximumActiveConnections;
     forceCloseAll();
   }
@@ -246,6 +297,129 @@ public class PooledDataSource implements DataSource {
     forceCloseAll();
   }
 
+  /*
+   * Enables the housekeeping thread, which validates idle connections, evicts the connections that are too old or
+   * idle for too long and opens connections to keep the minimum number of idle connections. When it is enabled,
+   * checked out connections are no longer pinged.
+   *
+   * @param milliseconds the delay between two housekeeping runs, 0 to disable housekeeping
+   */
+  public void setPoolHousekeepingInterval(int milliseconds) {
+    this.poolHousekeepingInterval = milliseconds;
+    forceCloseAll();
+  }
+
+  /*
+   * The maximum time a connection is kept open. Older connections are closed when returned to the pool
+   * or by the housekeeping thread.
+   *
+   * @param milliseconds the maximum lifetime, 0 for no limit
+   */
+  public void setPoolMaximumConnectionLifetime(int milliseconds) {
+    this.poolMaximumConnectionLifetime = milliseconds;
+  }
+
+  /*
+   * The maximum time a connection stays idle before the housekeeping thread closes it, as long as
+   * more than poolMinimumIdleConnections are idle.
+   *
+   * @param milliseconds the maximum idle time, 0 for no limit
+   */
+  public void setPoolMaximumIdleTime(int milliseconds) {
+    this.poolMaximumIdleTime = milliseconds;
+  }
+
+  /*
+   * The number of idle connections the housekeeping thread keeps open.
+   *
+   * @param poolMinimumIdleConnections the minimum number of idle connections
+   */
+  public void setPoolMinimumIdleConnections(int poolMinimumIdleConnections) {
+    this.poolMinimumIdleConnections = poolMinimumIdleConnections;
+  }
+
+  /*
+   * The longest time a request waits for a connection before failing, unless its ConnectionRequest
+   * has an earlier deadline
+   *
+   * @param milliseconds the maximum wait time, 0 to wait until a connection is available
+   */
+  public void setPoolMaximumWaitTime(int milliseconds) {
+    this.poolMaximumWaitTime = milliseconds;
+  }
+
+  /*
+   * Connections checked out for longer than this are reported as leak suspects by the housekeeping thread
+   * and by PoolState.getLeakSuspects
+   *
+   * @param milliseconds the leak detection threshold, 0 to disable leak detection
+   */
+  public void setPoolLeakDetectionThreshold(int milliseconds) {
+    this.poolLeakDetectionThreshold = milliseconds;
+  }
+
+  /*
+   * The percentage of checkouts whose stack trace is captured for leak reports, since capturing it is not free
+   *
+   * @param poolLeakDetectionSamplePercentage a value between 0 and 100
+   */
+  public void setPoolLeakDetectionSamplePercentage(int poolLeakDetectionSamplePercentage) {
+    this.poolLeakDetectionSamplePercentage = poolLeakDetectionSamplePercentage;
+  }
+
+  /*
+   * The maximum number of active connections of each tenant partition
+   *
+   * @param poolPartitionMaximumActiveConnections the maximum per tenant, 0 for poolMaximumActiveConnections
+   */
+  public void setPoolPartitionMaximumActiveConnections(int poolPartitionMaximumActiveConnections) {
+    this.poolPartitionMaximumActiveConnections = poolPartitionMaximumActiveConnections;
+  }
+
+  /*
+   * Sets the limits of one tenant partition instead of the pool defaults. Only such partitions may reserve
+   * connections, and they are kept while idle.
+   *
+   * @param tenant the tenant id
+   * @param reservedConnections the number of connections kept for the tenant: other requests wait rather than use them
+   * @param maximumActiveConnections the maximum number of active connections of the tenant, 0 for no limit
+   * @throws DataSourceException if the reservations of all partitions would not leave a connection to the others
+   */
+  public void setPartitionLimits(String tenant, int reservedConnections, int maximumActiveConnections) {
+    synchronized (state) {
+      checkReservations(tenant, reservedConnections, poolMaximumActiveConnections);
+      PoolPartition partition = partitions.get(tenant);
+      if (partition == null) {
+        partitions.put(tenant, new PoolPartition(tenant, reservedConnections, maximumActiveConnections, true));
+      } else {
+        partition.setLimits(reservedConnections, maximumActiveConnections);
+      }
+      unusedReservations = 0;
+      for (PoolPartition p : partitions.values()) {
+        unusedReservations += p.getUnusedReservation();
+      }
+      signalNextWaiter();
+    }
+  }
+
+  /*
+   * The number of connections opened by warmUp, which runs when the SqlSessionFactory is built
+   *
+   * @param poolInitialConnections the number of connections to open
+   */
+  public void setPoolInitialConnections(int poolInitialConnections) {
+    this.poolInitialConnections = poolInitialConnections;
+  }
+
+  /*
+   * The number of threads opening connections during warmUp
+   *
+   * @param poolWarmUpThreads the number of threads
+   */
+  public void setPoolWarmUpThreads(int poolWarmUpThreads) {
+    this.poolWarmUpThreads = poolWarmUpThreads;
+  }
+
   public String getDriver() {
     return dataSource.getDriver();
   }
@@ -306,16 +480,74 @@ public class PooledDataSource implements DataSource {
     return poolPingConnectionsNotUsedFor;
   }
 
+  public int getPoolHousekeepingInterval() {
+    return poolHousekeepingInterval;
+  }
+
+  public int getPoolMaximumConnectionLifetime() {
+    return poolMaximumConnectionLifetime;
+  }
+
+  public int getPoolMaximumIdleTime() {
+    return poolMaximumIdleTime;
+  }
+
+  public int getPoolMinimumIdleConnections() {
+    return poolMinimumIdleConnections;
+  }
+
+  public int getPoolMaximumWaitTime() {
+    return poolMaximumWaitTime;
+  }
+
+  public int getPoolLeakDetectionThreshold() {
+    return poolLeakDetectionThreshold;
+  }
+
+  public int getPoolLeakDetectionSamplePercentage() {
+    return poolLeakDetectionSamplePercentage;
+  }
+
+  public int getPoolInitialConnections() {
+    return poolInitialConnections;
+  }
+
+  public int getPoolPartitionMaximumActiveConnections() {
+    return poolPartitionMaximumActiveConnections;
+  }
+
+  /*
+   * @return the partition of the tenant, or null if it has no limits set and no connection is checked out or
+   *         awaited for it
+   */
+  public PoolPartition getPartition(String tenant) {
+    synchronized (state) {
+      return partitions.get(tenant);
+    }
+  }
+
+  public List<PoolPartition> getPartitions() {
+    synchronized (state) {
+      return new ArrayList<PoolPartition>(partitions.values());
+    }
+  }
+
+  public int getPoolWarmUpThreads() {
+    return poolWarmUpThreads;
+  }
+
   /*
    * Closes all active and idle connections in the pool
    * 关闭所有活跃连接集合和空闲连接集合
    */
   public void forceCloseAll() {
+    stopHousekeeping();
     synchronized (state) {
       expectedConnectionTypeCode = assembleConnectionTypeCode(dataSource.getUrl(), dataSource.getUsername(), dataSource.getPassword());
       for (int i = state.activeConnections.size(); i > 0; i--) {
         try {
           PooledConnection conn = state.activeConnections.remove(i - 1);
+          releasePartition(conn);
           conn.invalidate();
 
           Connection realConn = conn.getRealConnection();
@@ -351,7 +583,7 @@ public class PooledDataSource implements DataSource {
     return state;
   }
 
-  private int assembleConnectionTypeCode(String url, String username, String password) {
+  protected int assembleConnectionTypeCode(String url, String username, String password) {
     return ("" + url + username + password).hashCode();
   }
 
@@ -362,18 +594,21 @@ public class PooledDataSource implements DataSource {
 
     synchronized (state) {
       state.activeConnections.remove(conn);
+      releasePartition(conn);
       if (conn.isValid()) {
 
         /**
          * 空闲集合还未满
          */
-        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode) {
+        if (state.idleConnections.size() < poolMaximumIdleConnections && conn.getConnectionTypeCode() == expectedConnectionTypeCode
+            && !isExpired(conn)) {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
-          // 利用回收旧的连接创建新连接
+          state.checkoutTimeHistogram.record(conn.getCheckoutTime());
+          // 只有使用过的连接才需要回滚
+          conn.rollbackIfDirty();
+          // 利用回收旧的连接创建新连接，并沿用realConnection已知的状态
           PooledConnection newConn = new PooledConnection(conn.getRealConnection(), this);
+          newConn.copyConnectionState(conn);
           state.idleConnections.add(newConn);
           newConn.setCreatedTimestamp(conn.getCreatedTimestamp());
           newConn.setLastUsedTimestamp(conn.getLastUsedTimestamp());
@@ -382,17 +617,16 @@ public class PooledDataSource implements DataSource {
           if (log.isDebugEnabled()) {
             log.debug("Returned connection " + newConn.getRealHashCode() + " to pool.");
           }
-          // 通知等待获取连接的线程
-          state.notifyAll();
+          // 通知排在最前面的可以获取连接的线程
+          signalNextWaiter();
         }
         /**
          * 空闲集合已满
          */
         else {
           state.accumulatedCheckoutTime += conn.getCheckoutTime();
-          if (!conn.getRealConnection().getAutoCommit()) {
-            conn.getRealConnection().rollback();
-          }
+          state.checkoutTimeHistogram.record(conn.getCheckoutTime());
+          conn.rollbackIfDirty();
           // 将该连接的realConnection关闭
           conn.getRealConnection().close();
           if (log.isDebugEnabled()) {
@@ -400,6 +634,7 @@ public class PooledDataSource implements DataSource {
           }
           // 将该连接置为无效
           conn.invalidate();
+          signalNextWaiter();
         }
       } else {
         if (log.isDebugEnabled()) {
@@ -414,143 +649,205 @@ public class PooledDataSource implements DataSource {
    * 弹出的第一个可用connection，用ArrayList模拟栈结构
    */
   private PooledConnection popConnection(String username, String password) throws SQLException {
+    startHousekeeping();
     boolean countedWait = false;
     PooledConnection conn = null;
     long t = System.currentTimeMillis();
     int localBadConnectionCount = 0;
-    // 注意这个循环条件，conn == null
-    while (conn == null) {
-      synchronized (state) {
+    long deadline = ConnectionRequest.currentDeadline(t, poolMaximumWaitTime);
+    String tenant = ConnectionRequest.currentTenant();
+    PoolPartition partition = null;
+    boolean countedLimit = false;
+    Waiter waiter = null;
+    try {
+      // 注意这个循环条件，conn == null
+      while (conn == null) {
+        // 大于等于0时释放锁后等待
+        long timeToWait = -1;
+        synchronized (state) {
+          if (tenant != null) {
+            // 每次都重新取，分区可能在释放锁期间空闲而被移除
+            partition = partitionOf(tenant);
+          }
 
-        /**
-         * 有可用的空闲连接
-         */
-        if (!state.idleConnections.isEmpty()) {
-          // Pool has available connection
-          // 从空闲连接集合中取出第一个，并将集合中的改连接删除掉
-          conn = state.idleConnections.remove(0);
-          if (log.isDebugEnabled()) {
-            log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
+          /**
+           * 前面有能拿连接的线程在排队，或者当前租户已达到分区上限，不能插队，直接去排队
+           */
+          if (hasEligibleWaiterAhead(waiter) || !mayCheckOut(partition)) {
+            if (waiter == null) {
+              waiter = enqueueWaiter(ConnectionRequest.currentPriority(), partition);
+              state.hadToWaitCount++;
+              countedWait = true;
+            }
+            if (!countedLimit && partition != null && !mayCheckOut(partition)) {
+              partition.limited();
+              countedLimit = true;
+            }
+            // 可能是被唤醒后发现前面有更优先的线程，把信号传给它
+            signalNextWaiter();
+            timeToWait = getTimeToWait(waiter, deadline);
           }
-        }
-        /**
-         * 没有可用的空闲连接
-         */
-        else {
-          // Pool does not have available connection
-          // 如果活跃连接个数小于设置的最大活跃连接个数，创建新的
-          if (state.activeConnections.size() < poolMaximumActiveConnections) {
-            // Can create new connection
-            conn = new PooledConnection(dataSource.getConnection(), this);
+          /**
+           * 有可用的空闲连接
+           */
+          else if (!state.idleConnections.isEmpty()) {
+            // Pool has available connection
+            // 从空闲连接集合中取出第一个，并将集合中的改连接删除掉
+            conn = state.idleConnections.remove(0);
             if (log.isDebugEnabled()) {
-              log.debug("Created connection " + conn.getRealHashCode() + ".");
+              log.debug("Checked out connection " + conn.getRealHashCode() + " from pool.");
             }
-          } else {
-            /*
-             * 不能再创建新连接的情况
-             */
-            // Cannot create new connection
-            // 获取第一个活跃中的连接，活跃中的第一个连接说明是运行时间最长的连接
-            PooledConnection oldestActiveConnection = state.activeConnections.get(0);
-            // 该连接的运行时长
-            long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
-            // 是否超过设置的运行时长
-            if (longestCheckoutTime > poolMaximumCheckoutTime) {
-              /*
-               * 活跃连接中运行时长最长的连接超过了设置的最大运行时长
-               */
-              // Can claim overdue connection
-              // 涉及到超时相关统计字段的累加
-              state.claimedOverdueConnectionCount++;
-              state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
-              state.accumulatedCheckoutTime += longestCheckoutTime;
-              // 从活跃连接中移除该超时连接
-              state.activeConnections.remove(oldestActiveConnection);
-              // 该连接是否设置到自动提交
-              if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
-                try {
-                  // 如果没设置自动提交，回滚还未提交的事务
-                  oldestActiveConnection.getRealConnection().rollback();
-                } catch (SQLException e) {
-                  /*
-                     Just log a message for debug and continue to execute the following
-                     statement like nothing happend.
-                     Wrap the bad connection with a new PooledConnection, this will help
-                     to not intterupt current executing thread and give current thread a
-                     chance to join the next competion for another valid/good database
-                     connection. At the end of this loop, bad {@link @conn} will be set as null.
-                   */
-                  log.debug("Bad connection. Could not roll back");
-                }  
-              }
-              // 新建一个PooledConnection，注意第一个参数，复用了oldestActiveConnection的RealConnection
-              conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
-              // 设置新连接的创建时的时间戳和上一次使用的时间戳设置为超时连接对应的时间戳
-              conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
-              conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
-              // 把超时的连接设置为无效连接
-              oldestActiveConnection.invalidate();
+          }
+          /**
+           * 没有可用的空闲连接
+           */
+          else {
+            // Pool does not have available connection
+            // 如果活跃连接个数小于设置的最大活跃连接个数，创建新的
+            if (state.activeConnections.size() + reservedConnectionCount < poolMaximumActiveConnections) {
+              // Can create new connection
+              conn = new PooledConnection(dataSource.getConnection(), this);
               if (log.isDebugEnabled()) {
-                log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+                log.debug("Created connection " + conn.getRealHashCode() + ".");
               }
             } else {
-              // 没超时，则必须等待
-              // Must wait
-              try {
+              /*
+               * 不能再创建新连接的情况
+               */
+              // Cannot create new connection
+              // 获取第一个活跃中的连接，活跃中的第一个连接说明是运行时间最长的连接
+              PooledConnection oldestActiveConnection = state.activeConnections.get(0);
+              // 该连接的运行时长
+              long longestCheckoutTime = oldestActiveConnection.getCheckoutTime();
+              // 是否超过设置的运行时长
+              if (longestCheckoutTime > poolMaximumCheckoutTime) {
+                /*
+                 * 活跃连接中运行时长最长的连接超过了设置的最大运行时长
+                 */
+                // Can claim overdue connection
+                // 涉及到超时相关统计字段的累加
+                state.claimedOverdueConnectionCount++;
+                state.accumulatedCheckoutTimeOfOverdueConnections += longestCheckoutTime;
+                state.accumulatedCheckoutTime += longestCheckoutTime;
+                state.checkoutTimeHistogram.record(longestCheckoutTime);
+                // 从活跃连接中移除该超时连接
+                state.activeConnections.remove(oldestActiveConnection);
+                releasePartition(oldestActiveConnection);
+                // 该连接是否设置到自动提交
+                if (!oldestActiveConnection.getRealConnection().getAutoCommit()) {
+                  try {
+                    // 如果没设置自动提交，回滚还未提交的事务
+                    oldestActiveConnection.getRealConnection().rollback();
+                  } catch (SQLException e) {
+                    /*
+                       Just log a message for debug and continue to execute the following
+                       statement like nothing happend.
+                       Wrap the bad connection with a new PooledConnection, this will help
+                       to not intterupt current executing thread and give current thread a
+                       chance to join the next competion for another valid/good database
+                       connection. At the end of this loop, bad {@link @conn} will be set as null.
+                     */
+                    log.debug("Bad connection. Could not roll back");
+                  }  
+                }
+                // 新建一个PooledConnection，注意第一个参数，复用了oldestActiveConnection的RealConnection
+                conn = new PooledConnection(oldestActiveConnection.getRealConnection(), this);
+                // 设置新连接的创建时的时间戳和上一次使用的时间戳设置为超时连接对应的时间戳
+                conn.setCreatedTimestamp(oldestActiveConnection.getCreatedTimestamp());
+                conn.setLastUsedTimestamp(oldestActiveConnection.getLastUsedTimestamp());
+                // 把超时的连接设置为无效连接
+                oldestActiveConnection.invalidate();
+                if (log.isDebugEnabled()) {
+                  log.debug("Claimed overdue connection " + conn.getRealHashCode() + ".");
+                }
+              } else {
+                // 没超时，则必须等待
+                // Must wait
+                if (waiter == null) {
+                  waiter = enqueueWaiter(ConnectionRequest.currentPriority(), partition);
+                }
                 if (!countedWait) {
                   state.hadToWaitCount++;
                   countedWait = true;
                 }
+                timeToWait = getTimeToWait(waiter, deadline);
+              }
+            }
+          }
+          if (conn != null) {
+            // ping to server and check the connection is valid or not
+            if (conn.isValid()) {
+
+              /*
+               * 该连接是有效连接，如果使用过且不是自动提交，先rollback一下
+               */
+              conn.rollbackIfDirty();
+              // 设置connectionTypeCode
+              conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
+              conn.setCheckoutTimestamp(System.currentTimeMillis());
+              conn.setLastUsedTimestamp(System.currentTimeMillis());
+              state.activeConnections.add(conn);
+              if (partition != null) {
+                if (partition.isWithinReservation()) {
+                  unusedReservations--;
+                }
+                partition.checkedOut();
+                conn.setPartition(partition);
+              }
+              state.requestCount++;
+              state.accumulatedRequestTime += System.currentTimeMillis() - t;
+              state.requestTimeHistogram.record(System.currentTimeMillis() - t);
+              trackCheckout(conn);
+              state.recordWaitTime(waiter == null ? ConnectionRequest.currentPriority() : waiter.priority,
+                  waiter == null ? 0 : System.currentTimeMillis() - waiter.enqueuedTimestamp);
+              if (waiter != null) {
+                dequeueWaiter(waiter);
+              }
+            } else {
+              /*
+               * 无效连接
+               */
+              if (log.isDebugEnabled()) {
+                log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
+              }
+              state.badConnectionCount++;
+              localBadConnectionCount++;
+              conn = null;
+              if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
                 if (log.isDebugEnabled()) {
-                  log.debug("Waiting as long as " + poolTimeToWait + " milliseconds for connection.");
+                  log.debug("PooledDataSource: Could not get a good connection to the database.");
                 }
-                long wt = System.currentTimeMillis();
-                // 让当前线程停止等待
-                state.wait(poolTimeToWait);
-                state.accumulatedWaitTime += System.currentTimeMillis() - wt;
-              } catch (InterruptedException e) {
-                break;
+                throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
               }
             }
           }
         }
-        if (conn != null) {
-          // ping to server and check the connection is valid or not
-          if (conn.isValid()) {
-
-            /*
-             * 该连接是有效连接，如果不是自动提交，先rollback一下
-             */
-            if (!conn.getRealConnection().getAutoCommit()) {
-              conn.getRealConnection().rollback();
-            }
-            // 设置connectionTypeCode
-            conn.setConnectionTypeCode(assembleConnectionTypeCode(dataSource.getUrl(), username, password));
-            conn.setCheckoutTimestamp(System.currentTimeMillis());
-            conn.setLastUsedTimestamp(System.currentTimeMillis());
-            state.activeConnections.add(conn);
-            state.requestCount++;
-            state.accumulatedRequestTime += System.currentTimeMillis() - t;
-          } else {
-            /*
-             * 无效连接
-             */
-            if (log.isDebugEnabled()) {
-              log.debug("A bad connection (" + conn.getRealHashCode() + ") was returned from the pool, getting another connection.");
-            }
-            state.badConnectionCount++;
-            localBadConnectionCount++;
-            conn = null;
-            if (localBadConnectionCount > (poolMaximumIdleConnections + poolMaximumLocalBadConnectionTolerance)) {
-              if (log.isDebugEnabled()) {
-                log.debug("PooledDataSource: Could not get a good connection to the database.");
-              }
-              throw new SQLException("PooledDataSource: Could not get a good connection to the database.");
+        if (timeToWait >= 0) {
+          long wt = System.currentTimeMillis();
+          try {
+            // 在自己的锁上等待，只有被选中的线程会被唤醒
+            waiter.await(timeToWait);
+          } catch (InterruptedException e) {
+            break;
+          } finally {
+            synchronized (state) {
+              state.accumulatedWaitTime += System.currentTimeMillis() - wt;
             }
           }
         }
       }
-
+    } finally {
+      if (waiter != null) {
+        // 失败或被中断时也要离开等待队列，以免阻塞后面的线程
+        synchronized (state) {
+          dequeueWaiter(waiter);
+        }
+      } else if (conn == null && partition != null) {
+        // 没有拿到连接时为该请求创建的分区可能是空闲的
+        synchronized (state) {
+          evictIfIdle(partition);
+        }
+      }
     }
 
     if (conn == null) {
@@ -563,6 +860,190 @@ public class PooledDataSource implements DataSource {
     return conn;
   }
 
+  /*
+   * Queues the current thread behind the waiters of the same or a higher priority. Must hold the state lock.
+   */
+  private Waiter enqueueWaiter(ConnectionRequest.Priority priority, PoolPartition partition) {
+    Waiter waiter = new Waiter(priority, partition, System.currentTimeMillis());
+    int i = waiters.size();
+    while (i > 0 && waiters.get(i - 1).priority.compareTo(priority) > 0) {
+      i--;
+    }
+    waiters.add(i, waiter);
+    return waiter;
+  }
+
+  /*
+   * Tells whether a waiter ahead of the given one, or any waiter if it is null, may take a connection now.
+   * Waiters whose partition is full are passed over so that they do not hold back the other tenants.
+   * Must hold the state lock.
+   */
+  private boolean hasEligibleWaiterAhead(Waiter waiter) {
+    for (Waiter other : waiters) {
+      if (other == waiter) {
+        return false;
+      }
+      if (mayCheckOut(other.partition)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /*
+   * Tells whether a connection may be checked out for the partition, or without one if it is null: the partition
+   * must be under its maximum, and past its reservation the connections reserved for the other partitions
+   * must remain available. Must hold the state lock.
+   */
+  private boolean mayCheckOut(PoolPartition partition) {
+    if (partitions.isEmpty()) {
+      return true;
+    }
+    if (partition != null) {
+      if (partition.isFull()) {
+        return false;
+      }
+      if (partition.isWithinReservation()) {
+        return true;
+      }
+    }
+    return state.activeConnections.size() + unusedReservations < poolMaximumActiveConnections;
+  }
+
+  /*
+   * Creates the partition of a tenant with the pool default maximum and no reservation on its first request.
+   * Must hold the state lock.
+   */
+  private PoolPartition partitionOf(String tenant) {
+    PoolPartition partition = partitions.get(tenant);
+    if (partition == null) {
+      partition = new PoolPartition(tenant, 0, poolPartitionMaximumActiveConnections, false);
+      partitions.put(tenant, partition);
+    }
+    return partition;
+  }
+
+  /*
+   * Removes a partition that was not configured once it has no connection checked out and no waiter, so that
+   * the partitions do not grow with every tenant id ever seen. Must hold the state lock.
+   */
+  private void evictIfIdle(PoolPartition partition) {
+    if (partition.isConfigured() || partition.getActiveConnectionCount() > 0) {
+      return;
+    }
+    for (Waiter waiter : waiters) {
+      if (waiter.partition == partition) {
+        return;
+      }
+    }
+    partitions.remove(partition.getTenant());
+  }
+
+  /*
+   * Checks that the reservations leave at least one connection to the other requests. Must hold the state lock.
+   *
+   * @param tenant the tenant whose reservation is changed, or null
+   * @param reservedConnections the new reservation of the tenant
+   * @param maximumActiveConnections the pool maximum to check against
+   */
+  private void checkReservations(String tenant, int reservedConnections, int maximumActiveConnections) {
+    int total = reservedConnections;
+    for (PoolPartition partition : partitions.values()) {
+      if (!partition.getTenant().equals(tenant)) {
+        total += partition.getReservedConnections();
+      }
+    }
+    if (total > 0 && total >= maximumActiveConnections) {
+      throw new DataSourceException("The partitions reserve " + total + " connections, which leaves none of the "
+          + maximumActiveConnections + " active connections of the pool to the other requests.");
+    }
+  }
+
+  /*
+   * Stops counting a connection against its partition, waking the waiters it may have held back.
+   * Must hold the state lock.
+   */
+  private void releasePartition(PooledConnection conn) {
+    PoolPartition partition = conn.getPartition();
+    if (partition != null) {
+      conn.setPartition(null);
+      partition.returned();
+      if (partition.isWithinReservation()) {
+        unusedReservations++;
+      }
+      evictIfIdle(partition);
+      signalNextWaiter();
+    }
+  }
+
+  /*
+   * Removes a waiter from the queue, waking the next one if a connection is left for it. Must hold the state lock.
+   */
+  private void dequeueWaiter(Waiter waiter) {
+    if (waiters.remove(waiter)) {
+      if (waiter.partition != null) {
+        evictIfIdle(waiter.partition);
+      }
+      signalNextWaiter();
+    }
+  }
+
+  /*
+   * Wakes the first waiter that may take a connection, if a connection is left for it. Must hold the state lock.
+   */
+  private void signalNextWaiter() {
+    if (waiters.isEmpty() || state.idleConnections.isEmpty()
+        && state.activeConnections.size() + reservedConnectionCount >= poolMaximumActiveConnections) {
+      return;
+    }
+    for (Waiter waiter : waiters) {
+      if (mayCheckOut(waiter.partition)) {
+        waiter.signal();
+        return;
+      }
+    }
+  }
+
+  /*
+   * How long to wait until a connection may be available, at most until the deadline. Must hold the state lock.
+   *
+   * @return the time to wait in milliseconds, 0 to wait until signaled
+   * @throws SQLException if the deadline passed or cannot be met
+   */
+  private long getTimeToWait(Waiter waiter, long deadline) throws SQLException {
+    long timeToWait = poolTimeToWait;
+    if (deadline > 0) {
+      long remaining = deadline - System.currentTimeMillis();
+      if (remaining <= 0 || !canMeetDeadline(waiters.indexOf(waiter), remaining)) {
+        state.deadlineExceededCount++;
+        state.recordWaitTime(waiter.priority, System.currentTimeMillis() - waiter.enqueuedTimestamp);
+        if (log.isDebugEnabled()) {
+          log.debug("PooledDataSource: Could not get a connection before the deadline.");
+        }
+        throw new SQLException("PooledDataSource: Could not get a connection before the deadline ("
+            + (System.currentTimeMillis() - waiter.enqueuedTimestamp) + " ms waited, " + waiters.size() + " waiting).");
+      }
+      timeToWait = timeToWait > 0 ? Math.min(timeToWait, remaining) : remaining;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Waiting as long as " + timeToWait + " milliseconds for connection.");
+    }
+    return timeToWait;
+  }
+
+  /*
+   * Each waiter ahead of the given position holds back a returned connection, so a request that has to wait for
+   * more connections than the pool has is expected to wait at least the average checkout time per round.
+   */
+  private boolean canMeetDeadline(int position, long remaining) {
+    if (state.requestCount < poolMaximumActiveConnections) {
+      // 样本太少，不做估算
+      return true;
+    }
+    long rounds = position / poolMaximumActiveConnections;
+    return rounds * state.getAverageCheckoutTime() <= remaining;
+  }
+
   /*
    * Method to check to see if a connection is still usable
    * 检查当前connection连接是否是可用状态
@@ -582,40 +1063,296 @@ public class PooledDataSource implements DataSource {
     }
 
     if (result) {
-      if (poolPingEnabled) {
+      // 启用后台维护时由维护线程校验空闲连接，获取连接时不再ping
+      if (poolPingEnabled && poolHousekeepingInterval <= 0) {
         if (poolPingConnectionsNotUsedFor >= 0 && conn.getTimeElapsedSinceLastUse() > poolPingConnectionsNotUsedFor) {
+          result = executePingQuery(conn);
+        }
+      }
+    }
+    return result;
+  }
+
+  private boolean executePingQuery(PooledConnection conn) {
+    try {
+      if (log.isDebugEnabled()) {
+        log.debug("Testing connection " + conn.getRealHashCode() + " ...");
+      }
+      Connection realConn = conn.getRealConnection();
+      Statement statement = realConn.createStatement();
+      ResultSet rs = statement.executeQuery(poolPingQuery);
+      rs.close();
+      statement.close();
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
+      }
+      return true;
+    } catch (Exception e) {
+      log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
+      try {
+        conn.getRealConnection().close();
+      } catch (Exception e2) {
+        //ignore
+      }
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    }
+  }
+
+  /*
+   * Checks an idle connection from the housekeeping thread, with the ping query when
+   * it is enabled or else with Connection.isValid
+   *
+   * @param conn - the connection to check
+   * @return True if the connection is still usable
+   */
+  protected boolean validateConnection(PooledConnection conn) {
+    Connection realConn = conn.getRealConnection();
+    try {
+      if (realConn.isClosed()) {
+        return false;
+      }
+      if (poolPingEnabled) {
+        return executePingQuery(conn);
+      }
+      return realConn.isValid(VALIDATION_TIMEOUT_SECONDS);
+    } catch (SQLException e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
+      }
+      return false;
+    } catch (AbstractMethodError e) {
+      // JDBC 4以前的驱动没有实现isValid
+      return true;
+    }
+  }
+
+  /*
+   * Tells whether a connection is older than poolMaximumConnectionLifetime
+   */
+  protected boolean isExpired(PooledConnection conn) {
+    return poolMaximumConnectionLifetime > 0 && conn.getAge() > poolMaximumConnectionLifetime;
+  }
+
+  /*
+   * Captures the stack trace of a sampled checkout for leak detection
+   */
+  protected void trackCheckout(PooledConnection conn) {
+    if (poolLeakDetectionThreshold <= 0) {
+      return;
+    }
+    // 按比例均匀抽样：序号n乘以比例后跨过整数边界时记录
+    long n = checkoutSequence.getAndIncrement();
+    if ((n + 1) * poolLeakDetectionSamplePercentage / 100 > n * poolLeakDetectionSamplePercentage / 100) {
+      conn.setAcquisitionTrace(new Throwable("Connection " + conn.getRealHashCode() + " acquired here"));
+    }
+  }
+
+  /*
+   * A snapshot of the connections currently checked out
+   */
+  protected List<PooledConnection> getCheckedOutConnections() {
+    synchronized (state) {
+      return new ArrayList<PooledConnection>(state.activeConnections);
+    }
+  }
+
+  /*
+   * Logs a warning, once per checkout, for each connection checked out for longer than poolLeakDetectionThreshold
+   */
+  protected void reportLeaks() {
+    if (poolLeakDetectionThreshold <= 0) {
+      return;
+    }
+    for (PooledConnection conn : getCheckedOutConnections()) {
+      long checkoutTime = conn.getCheckoutTime();
+      if (checkoutTime > poolLeakDetectionThreshold && !conn.isLeakReported()) {
+        conn.setLeakReported(true);
+        getPoolState().leakSuspectCount.incrementAndGet();
+        log.warn("Possible connection leak. " + ConnectionLeak.of(conn, checkoutTime));
+      }
+    }
+  }
+
+  /*
+   * Starts the housekeeping thread if it is enabled and not running yet
+   */
+  protected void startHousekeeping() {
+    if (poolHousekeepingInterval <= 0 || housekeeper != null) {
+      return;
+    }
+    synchronized (this) {
+      if (housekeeper == null && poolHousekeepingInterval > 0) {
+        ScheduledExecutorService service = Executors.newSingleThreadScheduledExecutor(new PoolThreadFactory("mybatis-pool-housekeeper-"));
+        // 任务只弱引用数据源，数据源被回收后线程随之结束
+        service.scheduleWithFixedDelay(new Housekeeping(this, service), poolHousekeepingInterval, poolHousekeepingInterval,
+            TimeUnit.MILLISECONDS);
+        housekeeper = service;
+      }
+    }
+  }
+
+  protected void stopHousekeeping() {
+    synchronized (this) {
+      if (housekeeper != null) {
+        housekeeper.shutdownNow();
+        housekeeper = null;
+      }
+    }
+  }
+
+  /*
+   * One run of the housekeeping thread: evicts expired and long idle connections, validates the other idle
+   * connections one at a time, then opens connections up to poolMinimumIdleConnections.
+   */
+  protected void housekeep() {
+    List<PooledConnection> idleConnections;
+    synchronized (state) {
+      idleConnections = new ArrayList<PooledConnection>(state.idleConnections);
+    }
+    for (PooledConnection conn : idleConnections) {
+      boolean evict;
+      synchronized (state) {
+        // 校验期间从空闲集合中取出，避免被其他线程获取
+        if (!state.idleConnections.remove(conn)) {
+          continue;
+        }
+        evict = isExpired(conn) || poolMaximumIdleTime > 0 && conn.getTimeElapsedSinceLastUse() > poolMaximumIdleTime
+            && state.idleConnections.size() >= poolMinimumIdleConnections;
+        reservedConnectionCount++;
+      }
+      boolean valid = !evict && (conn.getTimeElapsedSinceLastUse() <= poolPingConnectionsNotUsedFor || validateConnection(conn));
+      synchronized (state) {
+        reservedConnectionCount--;
+        if (valid) {
+          state.idleConnections.add(conn);
+        } else if (!evict) {
+          state.badConnectionCount++;
+        }
+        signalNextWaiter();
+      }
+      if (!valid) {
+        conn.invalidate();
+        closeQuietly(conn.getRealConnection());
+        if (log.isDebugEnabled()) {
+          log.debug((evict ? "Evicted connection " : "Discarded bad connection ") + conn.getRealHashCode() + ".");
+        }
+      }
+    }
+    int missing = reserveIdleConnections(poolMinimumIdleConnections);
+    for (int i = 0; i < missing; i++) {
+      try {
+        openIdleConnection();
+      } catch (SQLException e) {
+        log.warn("Could not open an idle connection.  Cause: " + e);
+      }
+    }
+  }
+
+  /*
+   * Opens poolInitialConnections connections, or poolMinimumIdleConnections if higher, on up to
+   * poolWarmUpThreads threads. It returns at once, see isWarmedUp and awaitWarmUp.
+   */
+  public void warmUp() {
+    int count = reserveIdleConnections(Math.max(poolInitialConnections, poolMinimumIdleConnections));
+    final CountDownLatch latch = new CountDownLatch(count);
+    warmUpFailures.set(0);
+    warmUpLatch = latch;
+    if (count == 0) {
+      return;
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("Warming up pool with " + count + " connections.");
+    }
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(count, poolWarmUpThreads)),
+        new PoolThreadFactory("mybatis-pool-warm-up-"));
+    for (int i = 0; i < count; i++) {
+      executor.execute(new Runnable() {
+        @Override
+        public void run() {
           try {
-            if (log.isDebugEnabled()) {
-              log.debug("Testing connection " + conn.getRealHashCode() + " ...");
-            }
-            Connection realConn = conn.getRealConnection();
-            Statement statement = realConn.createStatement();
-            ResultSet rs = statement.executeQuery(poolPingQuery);
-            rs.close();
-            statement.close();
-            if (!realConn.getAutoCommit()) {
-              realConn.rollback();
-            }
-            result = true;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is GOOD!");
-            }
-          } catch (Exception e) {
-            log.warn("Execution of ping query '" + poolPingQuery + "' failed: " + e.getMessage());
-            try {
-              conn.getRealConnection().close();
-            } catch (Exception e2) {
-              //ignore
-            }
-            result = false;
-            if (log.isDebugEnabled()) {
-              log.debug("Connection " + conn.getRealHashCode() + " is BAD: " + e.getMessage());
-            }
+            openIdleConnection();
+          } catch (SQLException e) {
+            warmUpFailures.incrementAndGet();
+            log.warn("Could not open a connection while warming up the pool.  Cause: " + e);
+          } finally {
+            latch.countDown();
           }
         }
+      });
+    }
+    executor.shutdown();
+  }
+
+  /*
+   * @return True if the last warm up opened all its connections, or if no warm up was requested
+   */
+  public boolean isWarmedUp() {
+    return warmUpLatch.getCount() == 0 && warmUpFailures.get() == 0;
+  }
+
+  /*
+   * Waits for the last warm up to complete
+   *
+   * @return True if it opened all its connections in time
+   */
+  public boolean awaitWarmUp(long timeout, TimeUnit unit) throws InterruptedException {
+    return warmUpLatch.await(timeout, unit) && warmUpFailures.get() == 0;
+  }
+
+  /*
+   * Reserves room for the connections to open to have the given number of idle connections,
+   * within poolMaximumActiveConnections. Each reserved connection must be opened with openIdleConnection.
+   *
+   * @return the number of connections to open
+   */
+  protected int reserveIdleConnections(int target) {
+    synchronized (state) {
+      int missing = Math.min(target - state.idleConnections.size() - reservedConnectionCount,
+          poolMaximumActiveConnections - state.activeConnections.size() - state.idleConnections.size() - reservedConnectionCount);
+      if (missing <= 0) {
+        return 0;
+      }
+      reservedConnectionCount += missing;
+      return missing;
+    }
+  }
+
+  /*
+   * Opens a connection reserved with reserveIdleConnections and adds it to the idle connections
+   */
+  protected void openIdleConnection() throws SQLException {
+    PooledConnection conn = null;
+    try {
+      conn = new PooledConnection(dataSource.getConnection(), this);
+      if (log.isDebugEnabled()) {
+        log.debug("Created idle connection " + conn.getRealHashCode() + ".");
+      }
+    } finally {
+      synchronized (state) {
+        reservedConnectionCount--;
+        if (conn != null) {
+          state.idleConnections.add(conn);
+          signalNextWaiter();
+        }
       }
     }
-    return result;
+  }
+
+  protected static void closeQuietly(Connection realConn) {
+    try {
+      if (!realConn.getAutoCommit()) {
+        realConn.rollback();
+      }
+      realConn.close();
+    } catch (Exception e) {
+      // ignore
+    }
   }
 
   /*
@@ -628,7 +1365,7 @@ public class PooledDataSource implements DataSource {
     if (Proxy.isProxyClass(conn.getClass())) {
       InvocationHandler handler = Proxy.getInvocationHandler(conn);
       if (handler instanceof PooledConnection) {
-        return ((PooledConnection) handler).getRealConnection();
+        return ((PooledConnection) handler).handOutRealConnection();
       }
     }
     return conn;
@@ -651,4 +1388,77 @@ public class PooledDataSource implements DataSource {
     return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME); // requires JDK version 1.6
   }
 
+  private static class Waiter {
+
+    private final ConnectionRequest.Priority priority;
+    private final PoolPartition partition;
+    private final long enqueuedTimestamp;
+    // 在开始等待之前被唤醒时不会错过信号
+    private boolean signaled;
+
+    Waiter(ConnectionRequest.Priority priority, PoolPartition partition, long enqueuedTimestamp) {
+      this.priority = priority;
+      this.partition = partition;
+      this.enqueuedTimestamp = enqueuedTimestamp;
+    }
+
+    synchronized void signal() {
+      signaled = true;
+      notify();
+    }
+
+    /*
+     * Waits until signaled or the time has elapsed. Must not hold the state lock.
+     *
+     * @param timeToWait the time to wait in milliseconds, 0 to wait until signaled
+     */
+    synchronized void await(long timeToWait) throws InterruptedException {
+      if (!signaled) {
+        wait(timeToWait);
+      }
+      signaled = false;
+    }
+  }
+
+  private static class Housekeeping implements Runnable {
+    private final WeakReference<PooledDataSource> dataSource;
+    private final ScheduledExecutorService service;
+
+    Housekeeping(PooledDataSource dataSource, ScheduledExecutorService service) {
+      this.dataSource = new WeakReference<PooledDataSource>(dataSource);
+      this.service = service;
+    }
+
+    @Override
+    public void run() {
+      PooledDataSource ds = dataSource.get();
+      if (ds == null) {
+        service.shutdown();
+        return;
+      }
+      try {
+        ds.housekeep();
+        ds.reportLeaks();
+      } catch (Exception e) {
+        log.warn("Error during pool housekeeping.  Cause: " + e);
+      }
+    }
+  }
+
+  private static class PoolThreadFactory implements ThreadFactory {
+    private static final AtomicInteger counter = new AtomicInteger();
+    private final String prefix;
+
+    PoolThreadFactory(String prefix) {
+      this.prefix = prefix;
+    }
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, prefix + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
 }
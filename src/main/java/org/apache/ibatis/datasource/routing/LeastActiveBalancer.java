@@ -0,0 +1,51 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+
+/**
+ * Takes the replica with the fewest checked out connections, as reported by the {@link PooledDataSource#getPoolState()
+ * pool state}. Ties are broken in turn so that an idle cluster still spreads the load. Replicas that are not pooled
+ * count as having no active connection.
+ */
+public class LeastActiveBalancer implements ReplicaBalancer {
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Override
+  public DataSource select(List<DataSource> replicas) {
+    int size = replicas.size();
+    int start = (counter.getAndIncrement() & Integer.MAX_VALUE) % size;
+    DataSource selected = null;
+    int leastActive = Integer.MAX_VALUE;
+    for (int i = 0; i < size; i++) {
+      DataSource replica = replicas.get((start + i) % size);
+      int active = replica instanceof PooledDataSource ? ((PooledDataSource) replica).getPoolState().getActiveConnectionCount() : 0;
+      if (active < leastActive) {
+        selected = replica;
+        leastActive = active;
+      }
+    }
+    return selected;
+  }
+
+}
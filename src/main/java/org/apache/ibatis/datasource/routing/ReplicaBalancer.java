@@ -0,0 +1,33 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.List;
+
+import javax.sql.DataSource;
+
+/**
+ * Chooses the replica a {@link RoutingDataSource} reads from.
+ */
+public interface ReplicaBalancer {
+
+  /**
+   * @param replicas the replicas that are not ejected, never empty
+   * @return one of the given replicas
+   */
+  DataSource select(List<DataSource> replicas);
+
+}
@@ -0,0 +1,36 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+/**
+ * Takes the replicas in turn.
+ */
+public class RoundRobinBalancer implements ReplicaBalancer {
+
+  private final AtomicInteger counter = new AtomicInteger();
+
+  @Override
+  public DataSource select(List<DataSource> replicas) {
+    // 计数器溢出后仍保持非负
+    return replicas.get((counter.getAndIncrement() & Integer.MAX_VALUE) % replicas.size());
+  }
+
+}
@@ -0,0 +1,242 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.ExceptionUtil;
+
+/**
+ * The handler of a connection handed out by {@link RoutingDataSource}, holding up to one primary and one replica
+ * connection.
+ */
+class RoutingConnection implements InvocationHandler {
+
+  private static final Log log = LogFactory.getLog(RoutingConnection.class);
+
+  private final RoutingDataSource dataSource;
+  private final String username;
+  private final String password;
+
+  private Connection primaryConnection;
+  private Connection replicaConnection;
+  private DataSource replica;
+  // 最近一次使用的连接，非语句方法转发给它
+  private Connection currentConnection;
+  // 写过主库之后都走主库，保证读到自己的写入
+  private boolean wrote;
+  private boolean closed;
+
+  // 使用者设置的连接状态，打开真正的连接时再设置上去
+  private boolean autoCommit = true;
+  private Boolean readOnly;
+  private Integer transactionIsolation;
+
+  RoutingConnection(RoutingDataSource dataSource, String username, String password) {
+    this.dataSource = dataSource;
+    this.username = username;
+    this.password = password;
+  }
+
+  @Override
+  public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    String methodName = method.getName();
+    if (Object.class.equals(method.getDeclaringClass())) {
+      if ("equals".equals(methodName)) {
+        return proxy == args[0];
+      } else if ("hashCode".equals(methodName)) {
+        return System.identityHashCode(proxy);
+      }
+      return "RoutingConnection@" + Integer.toHexString(System.identityHashCode(proxy));
+    }
+    if ("close".equals(methodName)) {
+      close();
+      return null;
+    } else if ("isClosed".equals(methodName)) {
+      return closed;
+    }
+    if (closed) {
+      throw new SQLException("Error accessing RoutingConnection. Connection is closed.");
+    }
+    if (args == null) {
+      if ("getAutoCommit".equals(methodName)) {
+        return autoCommit;
+      } else if ("isReadOnly".equals(methodName)) {
+        return readOnly != null && readOnly;
+      } else if ("getTransactionIsolation".equals(methodName) && transactionIsolation != null) {
+        return transactionIsolation;
+      } else if ("commit".equals(methodName) || "rollback".equals(methodName)) {
+        // 只提交或回滚已经打开的连接
+        invokeOnOpenConnections(method, null);
+        return null;
+      }
+    } else if ("setAutoCommit".equals(methodName)) {
+      autoCommit = (Boolean) args[0];
+      invokeOnOpenConnections(method, args);
+      return null;
+    } else if ("setReadOnly".equals(methodName)) {
+      readOnly = (Boolean) args[0];
+      invokeOnOpenConnections(method, args);
+      return null;
+    } else if ("setTransactionIsolation".equals(methodName)) {
+      transactionIsolation = (Integer) args[0];
+      invokeOnOpenConnections(method, args);
+      return null;
+    }
+    Connection target;
+    if ("createStatement".equals(methodName) || "prepareStatement".equals(methodName) || "prepareCall".equals(methodName)) {
+      target = route();
+    } else {
+      target = currentConnection != null ? currentConnection : getPrimaryConnection();
+    }
+    return invoke(target, method, args);
+  }
+
+  /*
+   * Chooses the connection a new statement runs on
+   */
+  private Connection route() throws SQLException {
+    // 读写事务中的查询（如SELECT ... FOR UPDATE）必须和事务的其他语句在同一个连接上
+    boolean replicaRead = readOnly != null && readOnly
+        || autoCommit && RoutingDataSource.currentCommandType() == SqlCommandType.SELECT;
+    if (!wrote && replicaRead) {
+      Connection connection = getReplicaConnection();
+      if (connection != null) {
+        currentConnection = connection;
+        return connection;
+      }
+    } else {
+      wrote = true;
+    }
+    currentConnection = getPrimaryConnection();
+    return currentConnection;
+  }
+
+  private Connection getPrimaryConnection() throws SQLException {
+    if (primaryConnection == null) {
+      primaryConnection = prepare(open(dataSource.getPrimary()));
+    }
+    return primaryConnection;
+  }
+
+  /*
+   * @return a connection to a replica, or null if none is available
+   */
+  private Connection getReplicaConnection() throws SQLException {
+    if (replicaConnection != null) {
+      return replicaConnection;
+    }
+    List<DataSource> candidates = dataSource.getHealthyReplicas();
+    while (!candidates.isEmpty()) {
+      DataSource candidate = dataSource.getBalancer().select(candidates);
+      Connection connection = null;
+      try {
+        connection = open(candidate);
+        replicaConnection = prepare(connection);
+        replica = candidate;
+        return replicaConnection;
+      } catch (SQLException e) {
+        if (connection != null) {
+          closeQuietly(connection);
+        }
+        dataSource.eject(candidate, e);
+        candidates.remove(candidate);
+      }
+    }
+    if (log.isDebugEnabled()) {
+      log.debug("No replica available, reading from the primary.");
+    }
+    return null;
+  }
+
+  private Connection open(DataSource target) throws SQLException {
+    return username == null ? target.getConnection() : target.getConnection(username, password);
+  }
+
+  private Connection prepare(Connection connection) throws SQLException {
+    if (connection.getAutoCommit() != autoCommit) {
+      connection.setAutoCommit(autoCommit);
+    }
+    if (readOnly != null) {
+      connection.setReadOnly(readOnly);
+    }
+    if (transactionIsolation != null) {
+      connection.setTransactionIsolation(transactionIsolation);
+    }
+    return connection;
+  }
+
+  private Object invoke(Connection target, Method method, Object[] args) throws Throwable {
+    try {
+      return method.invoke(target, args);
+    } catch (Throwable t) {
+      Throwable cause = ExceptionUtil.unwrapThrowable(t);
+      if (target == replicaConnection && isConnectionError(cause)) {
+        dataSource.eject(replica, (SQLException) cause);
+      }
+      throw cause;
+    }
+  }
+
+  private void invokeOnOpenConnections(Method method, Object[] args) throws Throwable {
+    if (replicaConnection != null) {
+      invoke(replicaConnection, method, args);
+    }
+    if (primaryConnection != null) {
+      invoke(primaryConnection, method, args);
+    }
+  }
+
+  private void close() throws SQLException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      if (replicaConnection != null) {
+        replicaConnection.close();
+      }
+    } finally {
+      if (primaryConnection != null) {
+        primaryConnection.close();
+      }
+    }
+  }
+
+  private static boolean isConnectionError(Throwable t) {
+    // SQLState以08开头表示连接异常
+    return t instanceof SQLException && ((SQLException) t).getSQLState() != null
+        && ((SQLException) t).getSQLState().startsWith("08");
+  }
+
+  private static void closeQuietly(Connection connection) {
+    try {
+      connection.close();
+    } catch (SQLException e) {
+      // ignore
+    }
+  }
+
+}
@@ -0,0 +1,234 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.io.PrintWriter;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.logging.Logger;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * A data source that sends reads to replicas and everything else to a primary.
+ *
+ * Connections are opened lazily, when the first statement is created. A statement goes to a replica if the
+ * connection is read-only, or if it is created for a SELECT mapped statement while the connection is in auto-commit
+ * mode, as long as nothing was written through the connection yet; after a write, the connection sticks to the primary
+ * so that it reads its own writes. Selects in a read-write transaction run on the primary, with the rest of the
+ * transaction.
+ * Commits and rollbacks apply to both connections. Like plain JDBC connections, routing connections start in
+ * auto-commit mode.
+ *
+ * A replica that fails to hand out a connection, or whose connection fails with a connection error, is ejected for
+ * <code>replicaEjectionTime</code> milliseconds. Reads go to the primary when every replica is ejected.
+ */
+public class RoutingDataSource implements DataSource {
+
+  private static final Log log = LogFactory.getLog(RoutingDataSource.class);
+
+  // 当前线程正在执行的mapped statement的类型，由Executor设置
+  private static final ThreadLocal<SqlCommandType> COMMAND_TYPE = new ThreadLocal<SqlCommandType>();
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new ArrayList<Replica>();
+  private volatile ReplicaBalancer balancer = new RoundRobinBalancer();
+  // 被剔除的副本多久之后重新参与负载均衡，毫秒
+  private volatile int replicaEjectionTime = 30000;
+
+  public RoutingDataSource(DataSource primary, List<? extends DataSource> replicas) {
+    this.primary = primary;
+    for (DataSource replica : replicas) {
+      this.replicas.add(new Replica(replica));
+    }
+  }
+
+  /*
+   * Sets the type of the mapped statement the current thread is executing. A statement run from within a write,
+   * such as a selectKey, is treated as a write too.
+   *
+   * @return the previous type, to be restored once the statement has run
+   */
+  public static SqlCommandType route(SqlCommandType commandType) {
+    SqlCommandType previous = COMMAND_TYPE.get();
+    if (previous != null && previous != SqlCommandType.SELECT && commandType != null) {
+      return previous;
+    }
+    if (commandType == null) {
+      COMMAND_TYPE.remove();
+    } else {
+      COMMAND_TYPE.set(commandType);
+    }
+    return previous;
+  }
+
+  static SqlCommandType currentCommandType() {
+    return COMMAND_TYPE.get();
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return newRoutingConnection(null, null);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return newRoutingConnection(username, password);
+  }
+
+  private Connection newRoutingConnection(String username, String password) {
+    return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(), new Class<?>[] { Connection.class },
+        new RoutingConnection(this, username, password));
+  }
+
+  public DataSource getPrimary() {
+    return primary;
+  }
+
+  public List<DataSource> getReplicas() {
+    List<DataSource> result = new ArrayList<DataSource>(replicas.size());
+    for (Replica replica : replicas) {
+      result.add(replica.dataSource);
+    }
+    return Collections.unmodifiableList(result);
+  }
+
+  public ReplicaBalancer getBalancer() {
+    return balancer;
+  }
+
+  public void setBalancer(ReplicaBalancer balancer) {
+    this.balancer = balancer;
+  }
+
+  public int getReplicaEjectionTime() {
+    return replicaEjectionTime;
+  }
+
+  /*
+   * How long a failed replica is left out of the balancing
+   *
+   * @param milliseconds the ejection time
+   */
+  public void setReplicaEjectionTime(int milliseconds) {
+    this.replicaEjectionTime = milliseconds;
+  }
+
+  public boolean isEjected(DataSource replica) {
+    Replica r = findReplica(replica);
+    return r != null && r.ejectedUntil > System.currentTimeMillis();
+  }
+
+  /*
+   * Closes the connections of the pooled nodes
+   */
+  public void forceCloseAll() {
+    if (primary instanceof PooledDataSource) {
+      ((PooledDataSource) primary).forceCloseAll();
+    }
+    for (Replica replica : replicas) {
+      if (replica.dataSource instanceof PooledDataSource) {
+        ((PooledDataSource) replica.dataSource).forceCloseAll();
+      }
+    }
+  }
+
+  List<DataSource> getHealthyReplicas() {
+    long now = System.currentTimeMillis();
+    List<DataSource> healthy = new ArrayList<DataSource>(replicas.size());
+    for (Replica replica : replicas) {
+      if (replica.ejectedUntil <= now) {
+        healthy.add(replica.dataSource);
+      }
+    }
+    return healthy;
+  }
+
+  void eject(DataSource replica, SQLException cause) {
+    Replica r = findReplica(replica);
+    if (r != null) {
+      r.ejectedUntil = System.currentTimeMillis() + replicaEjectionTime;
+      log.warn("Ejected replica " + replica + " for " + replicaEjectionTime + " ms.  Cause: " + cause);
+    }
+  }
+
+  private Replica findReplica(DataSource dataSource) {
+    for (Replica replica : replicas) {
+      if (replica.dataSource == dataSource) {
+        return replica;
+      }
+    }
+    return null;
+  }
+
+  @Override
+  public PrintWriter getLogWriter() throws SQLException {
+    return primary.getLogWriter();
+  }
+
+  @Override
+  public void setLogWriter(PrintWriter out) throws SQLException {
+    primary.setLogWriter(out);
+    for (Replica replica : replicas) {
+      replica.dataSource.setLogWriter(out);
+    }
+  }
+
+  @Override
+  public void setLoginTimeout(int seconds) throws SQLException {
+    primary.setLoginTimeout(seconds);
+    for (Replica replica : replicas) {
+      replica.dataSource.setLoginTimeout(seconds);
+    }
+  }
+
+  @Override
+  public int getLoginTimeout() throws SQLException {
+    return primary.getLoginTimeout();
+  }
+
+  public <T> T unwrap(Class<T> iface) throws SQLException {
+    throw new SQLException(getClass().getName() + " is not a wrapper.");
+  }
+
+  public boolean isWrapperFor(Class<?> iface) throws SQLException {
+    return false;
+  }
+
+  public Logger getParentLogger() {
+    return Logger.getLogger(Logger.GLOBAL_LOGGER_NAME);
+  }
+
+  private static class Replica {
+
+    private final DataSource dataSource;
+    private volatile long ejectedUntil;
+
+    Replica(DataSource dataSource) {
+      this.dataSource = dataSource;
+    }
+  }
+
+}
@@ -0,0 +1,150 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.DataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
+import org.apache.ibatis.io.Resources;
+
+/**
+ * Factory of {@link RoutingDataSource}, registered under the <code>ROUTING</code> alias.
+ *
+ * Each node is a pooled data source configured with the properties prefixed by its name, <code>primary.</code> for
+ * the primary and the names listed in <code>replicas</code> for the replicas. Properties without a node prefix apply
+ * to every node.
+ *
+ * <pre>
+ * &lt;dataSource type="ROUTING"&gt;
+ *   &lt;property name="driver" value="org.hsqldb.jdbcDriver"/&gt;
+ *   &lt;property name="primary.url" value="jdbc:hsqldb:hsql://primary/db"/&gt;
+ *   &lt;property name="replicas" value="replica1,replica2"/&gt;
+ *   &lt;property name="replica1.url" value="jdbc:hsqldb:hsql://replica1/db"/&gt;
+ *   &lt;property name="replica2.url" value="jdbc:hsqldb:hsql://replica2/db"/&gt;
+ *   &lt;property name="balancer" value="LEAST_ACTIVE"/&gt;
+ * &lt;/dataSource&gt;
+ * </pre>
+ */
+public class RoutingDataSourceFactory implements DataSourceFactory {
+
+  private static final String PRIMARY = "primary";
+  private static final String REPLICAS = "replicas";
+  private static final String BALANCER = "balancer";
+  private static final String REPLICA_EJECTION_TIME = "replicaEjectionTime";
+  // 节点使用的连接池类型，POOLED或CONCURRENT_POOLED
+  private static final String POOL_TYPE = "poolType";
+
+  private RoutingDataSource dataSource;
+
+  @Override
+  public void setProperties(Properties properties) {
+    List<String> replicaNames = new ArrayList<String>();
+    String replicas = properties.getProperty(REPLICAS);
+    if (replicas != null) {
+      for (String name : replicas.split(",")) {
+        if (name.trim().length() > 0) {
+          replicaNames.add(name.trim());
+        }
+      }
+    }
+    List<String> nodeNames = new ArrayList<String>(replicaNames);
+    nodeNames.add(PRIMARY);
+    String poolType = properties.getProperty(POOL_TYPE, "POOLED");
+
+    DataSource primary = createNode(PRIMARY, nodeNames, poolType, properties);
+    List<DataSource> replicaDataSources = new ArrayList<DataSource>();
+    for (String name : replicaNames) {
+      replicaDataSources.add(createNode(name, nodeNames, poolType, properties));
+    }
+    dataSource = new RoutingDataSource(primary, replicaDataSources);
+    String balancer = properties.getProperty(BALANCER);
+    if (balancer != null) {
+      dataSource.setBalancer(createBalancer(balancer));
+    }
+    String ejectionTime = properties.getProperty(REPLICA_EJECTION_TIME);
+    if (ejectionTime != null) {
+      dataSource.setReplicaEjectionTime(Integer.parseInt(ejectionTime));
+    }
+  }
+
+  @Override
+  public DataSource getDataSource() {
+    return dataSource;
+  }
+
+  private DataSource createNode(String name, List<String> nodeNames, String poolType, Properties properties) {
+    Properties nodeProperties = new Properties();
+    String prefix = name + ".";
+    // 先取公共属性，再用节点自己的属性覆盖
+    for (String key : properties.stringPropertyNames()) {
+      if (!isRoutingProperty(key) && !hasNodePrefix(key, nodeNames)) {
+        nodeProperties.setProperty(key, properties.getProperty(key));
+      }
+    }
+    for (String key : properties.stringPropertyNames()) {
+      if (key.startsWith(prefix)) {
+        nodeProperties.setProperty(key.substring(prefix.length()), properties.getProperty(key));
+      }
+    }
+    UnpooledDataSourceFactory factory;
+    if ("POOLED".equals(poolType)) {
+      factory = new PooledDataSourceFactory();
+    } else if ("CONCURRENT_POOLED".equals(poolType)) {
+      factory = new ConcurrentPooledDataSourceFactory();
+    } else if ("UNPOOLED".equals(poolType)) {
+      factory = new UnpooledDataSourceFactory();
+    } else {
+      throw new DataSourceException("Unknown pool type '" + poolType + "' for the nodes of a ROUTING data source.");
+    }
+    factory.setProperties(nodeProperties);
+    return factory.getDataSource();
+  }
+
+  private boolean isRoutingProperty(String key) {
+    return REPLICAS.equals(key) || BALANCER.equals(key) || REPLICA_EJECTION_TIME.equals(key) || POOL_TYPE.equals(key);
+  }
+
+  private boolean hasNodePrefix(String key, List<String> nodeNames) {
+    for (String name : nodeNames) {
+      if (key.startsWith(name + ".")) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  private ReplicaBalancer createBalancer(String balancer) {
+    if ("ROUND_ROBIN".equals(balancer)) {
+      return new RoundRobinBalancer();
+    } else if ("LEAST_ACTIVE".equals(balancer)) {
+      return new LeastActiveBalancer();
+    }
+    try {
+      return (ReplicaBalancer) Resources.classForName(balancer).newInstance();
+    } catch (Exception e) {
+      throw new DataSourceException("Error creating replica balancer '" + balancer + "'.  Cause: " + e, e);
+    }
+  }
+
+}
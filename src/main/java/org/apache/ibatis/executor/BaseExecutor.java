@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -24,8 +24,10 @@ import java.util.List;
 import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.impl.LocalCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.datasource.routing.RoutingDataSource;
 import org.apache.ibatis.executor.statement.StatementUtil;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
@@ -34,6 +36,7 @@ import org.apache.ibatis.mapping.BoundSql;
 import org.apache.ibatis.mapping.MappedStatement;
 import org.apache.ibatis.mapping.ParameterMapping;
 import org.apache.ibatis.mapping.ParameterMode;
+import org.apache.ibatis.mapping.SqlCommandType;
 import org.apache.ibatis.mapping.StatementType;
 import org.apache.ibatis.reflection.MetaObject;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
@@ -61,15 +64,23 @@ public abstract class BaseExecutor implements Executor {
 
   protected int queryStack;
   private boolean closed;
+  // 环境的数据源是RoutingDataSource时，把语句类型告诉它以便读写分离
+  private final boolean routing;
 
   protected BaseExecutor(Configuration configuration, Transaction transaction) {
     this.transaction = transaction;
     this.deferredLoads = new ConcurrentLinkedQueue<DeferredLoad>();
-    this.localCache = new PerpetualCache("LocalCache");
+    // ResultLoaderMap.ClosedExecutor没有configuration
+    int maxEntries = configuration == null ? 0 : configuration.getLocalCacheMaxEntries();
+    long maxWeight = configuration == null ? 0 : configuration.getLocalCacheMaxWeight();
+    this.localCache = new LocalCache("LocalCache", maxEntries, maxWeight);
+    // 不单独限制，随localCache的淘汰一起移除
     this.localOutputParameterCache = new PerpetualCache("LocalOutputParameterCache");
     this.closed = false;
     this.configuration = configuration;
     this.wrapper = this;
+    this.routing = configuration != null && configuration.getEnvironment() != null
+        && configuration.getEnvironment().getDataSource() instanceof RoutingDataSource;
   }
 
   @Override
@@ -114,7 +125,15 @@ public abstract class BaseExecutor implements Executor {
       throw new ExecutorException("Executor was closed.");
     }
     clearLocalCache();
-    return doUpdate(ms, parameter);
+    if (!routing) {
+      return doUpdate(ms, parameter);
+    }
+    SqlCommandType previous = RoutingDataSource.route(ms.getSqlCommandType());
+    try {
+      return doUpdate(ms, parameter);
+    } finally {
+      RoutingDataSource.route(previous);
+    }
   }
 
   @Override
@@ -158,7 +177,14 @@ public abstract class BaseExecutor implements Executor {
         handleLocallyCachedOutputParameters(ms, key, parameter, boundSql);
       } else {
         // 从数据库获取数据
-        list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
+        SqlCommandType previous = routing ? RoutingDataSource.route(ms.getSqlCommandType()) : null;
+        try {
+          list = queryFromDatabase(ms, parameter, rowBounds, resultHandler, key, boundSql);
+        } finally {
+          if (routing) {
+            RoutingDataSource.route(previous);
+          }
+        }
       }
     } finally {
       queryStack--;
@@ -172,6 +198,9 @@ public abstract class BaseExecutor implements Executor {
       if (configuration.getLocalCacheScope() == LocalCacheScope.STATEMENT) {
         // issue #482
         clearLocalCache();
+      } else {
+        // 没有进行中的查询和延迟加载时才能淘汰，避免破坏占位符和循环引用
+        trimLocalCache();
       }
     }
     return list;
@@ -180,7 +209,15 @@ public abstract class BaseExecutor implements Executor {
   @Override
   public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
     BoundSql boundSql = ms.getBoundSql(parameter);
-    return doQueryCursor(ms, parameter, rowBounds, boundSql);
+    if (!routing) {
+      return doQueryCursor(ms, parameter, rowBounds, boundSql);
+    }
+    SqlCommandType previous = RoutingDataSource.route(ms.getSqlCommandType());
+    try {
+      return doQueryCursor(ms, parameter, rowBounds, boundSql);
+    } finally {
+      RoutingDataSource.route(previous);
+    }
   }
 
   @Override
@@ -201,12 +238,13 @@ public abstract class BaseExecutor implements Executor {
     if (closed) {
       throw new ExecutorException("Executor was closed.");
     }
-    CacheKey cacheKey = new CacheKey();
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    // id、offset、limit、sql、参数值以及环境id
+    CacheKey cacheKey = new CacheKey(5 + parameterMappings.size());
     cacheKey.update(ms.getId());
     cacheKey.update(rowBounds.getOffset());
     cacheKey.update(rowBounds.getLimit());
     cacheKey.update(boundSql.getSql());
-    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
     TypeHandlerRegistry typeHandlerRegistry = ms.getConfiguration().getTypeHandlerRegistry();
     // mimic DefaultParameterHandler logic
     for (ParameterMapping parameterMapping : parameterMappings) {
@@ -272,6 +310,15 @@ public abstract class BaseExecutor implements Executor {
     }
   }
 
+  // 输出参数与结果一起淘汰，否则命中localCache时会找不到输出参数
+  private void trimLocalCache() {
+    if (localCache instanceof LocalCache) {
+      for (Object key : ((LocalCache) localCache).trim()) {
+        localOutputParameterCache.removeObject(key);
+      }
+    }
+  }
+
   protected abstract int doUpdate(MappedStatement ms, Object parameter)
       throws SQLException;
 
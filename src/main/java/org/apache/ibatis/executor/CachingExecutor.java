@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.cache.TransactionalCacheManager;
 import org.apache.ibatis.cursor.Cursor;
 import org.apache.ibatis.mapping.BoundSql;
@@ -103,11 +104,20 @@ public class CachingExecutor implements Executor {
       flushCacheIfRequired(ms);
       if (ms.isUseCache() && resultHandler == null) {
         ensureNoOutParams(ms, boundSql);
+        CacheStatistics statistics = ms.getCacheStatistics();
+        if (statistics != null) {
+          tcm.setStatistics(cache, statistics);
+        }
         @SuppressWarnings("unchecked")
         List<E> list = (List<E>) tcm.getObject(cache, key);
         if (list == null) {
+          long start = statistics == null ? 0 : System.nanoTime();
           list = delegate.<E> query(ms, parameterObject, rowBounds, resultHandler, key, boundSql);
+          if (statistics != null) {
+            statistics.recordLoad(System.nanoTime() - start);
+          }
           tcm.putObject(cache, key, list); // issue #578 and #116
+          ms.getConfiguration().getCacheRefresher().remember(ms, parameterObject, rowBounds, boundSql, key);
         }
         return list;
       }
@@ -170,6 +180,9 @@ public class CachingExecutor implements Executor {
   private void flushCacheIfRequired(MappedStatement ms) {
     Cache cache = ms.getCache();
     if (cache != null && ms.isFlushCacheRequired()) {      
+      if (ms.getCacheStatistics() != null) {
+        tcm.setStatistics(cache, ms.getCacheStatistics());
+      }
       tcm.clear(cache);
     }
   }
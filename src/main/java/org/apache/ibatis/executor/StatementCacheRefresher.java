@@ -0,0 +1,224 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheRefresher;
+import org.apache.ibatis.cache.RefreshToken;
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.ParameterMapping;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Refreshes second level cache entries by running again the statement that loaded them.
+ *
+ * The {@link CachingExecutor} remembers the statement, SQL and row bounds of every result it puts in a cache that has
+ * been registered for refresh-ahead, with a copy of the parameter values bound to the SQL, so that changes made to the
+ * parameter object afterwards do not leak into the reload. Those are held weakly by the cache key, so they are
+ * forgotten as soon as the cache drops the entry. Reloads run on daemon threads with a fresh transaction and do not go
+ * through plugins.
+ */
+public class StatementCacheRefresher implements CacheRefresher {
+
+  private static final Log log = LogFactory.getLog(StatementCacheRefresher.class);
+
+  private final Configuration configuration;
+  private final Map<String, Map<Object, Loader>> loaders = new ConcurrentHashMap<String, Map<Object, Loader>>();
+  private int threads = 2;
+  private int queueSize = 1024;
+  private volatile ThreadPoolExecutor executorService;
+
+  public StatementCacheRefresher(Configuration configuration) {
+    this.configuration = configuration;
+  }
+
+  public void setThreads(int threads) {
+    this.threads = threads;
+  }
+
+  public void setQueueSize(int queueSize) {
+    this.queueSize = queueSize;
+  }
+
+  @Override
+  public void register(String cacheId) {
+    if (!loaders.containsKey(cacheId)) {
+      loaders.put(cacheId, Collections.synchronizedMap(new WeakHashMap<Object, Loader>()));
+    }
+  }
+
+  /**
+   * Remembers how to reload the result cached under the given key.
+   */
+  public void remember(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql, Object key) {
+    Cache cache = ms.getCache();
+    Map<Object, Loader> cacheLoaders = loaders.get(cache.getId());
+    if (cacheLoaders != null) {
+      cacheLoaders.put(key, new Loader(ms, copyOf(boundSql, parameterObject), rowBounds));
+    }
+  }
+
+  @Override
+  public boolean refresh(String cacheId, Object key, final RefreshToken token) {
+    Map<Object, Loader> cacheLoaders = loaders.get(cacheId);
+    final Loader loader = cacheLoaders == null ? null : cacheLoaders.get(key);
+    if (loader == null) {
+      return false;
+    }
+    final Object cacheKey = key;
+    try {
+      getExecutorService().execute(new Runnable() {
+        @Override
+        public void run() {
+          reload(loader, cacheKey, token);
+        }
+      });
+      return true;
+    } catch (RejectedExecutionException e) {
+      log.debug("Refresh queue is full, entry of cache " + cacheId + " will expire instead.");
+      return false;
+    }
+  }
+
+  public synchronized void shutdown() {
+    ThreadPoolExecutor service = executorService;
+    if (service != null) {
+      // 置空后再次刷新时会重新创建线程池
+      executorService = null;
+      service.shutdownNow();
+    }
+  }
+
+  private void reload(Loader loader, Object key, RefreshToken token) {
+    MappedStatement ms = loader.mappedStatement;
+    Environment environment = configuration.getEnvironment();
+    Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), null, false);
+    Executor executor = new SimpleExecutor(configuration, tx);
+    try {
+      BoundSql boundSql = loader.boundSql;
+      List<Object> list = executor.query(ms, null, loader.rowBounds, Executor.NO_RESULT_HANDLER,
+          executor.createCacheKey(ms, null, loader.rowBounds, boundSql), boundSql);
+      token.begin();
+      try {
+        ms.getCache().putObject(key, list);
+      } finally {
+        token.end();
+      }
+    } catch (Exception e) {
+      log.warn("Error refreshing cache entry of statement " + ms.getId() + ".  Cause: " + e);
+    } finally {
+      executor.close(false);
+    }
+  }
+
+  /*
+   * The SQL with the values it was run with, bound as additional parameters in the same way as
+   * DefaultParameterHandler resolves them
+   */
+  private BoundSql copyOf(BoundSql boundSql, Object parameterObject) {
+    List<ParameterMapping> parameterMappings = boundSql.getParameterMappings();
+    List<ParameterMapping> copies = new ArrayList<ParameterMapping>(parameterMappings.size());
+    Object[] values = new Object[parameterMappings.size()];
+    MetaObject metaObject = null;
+    for (int i = 0; i < parameterMappings.size(); i++) {
+      ParameterMapping parameterMapping = parameterMappings.get(i);
+      String propertyName = parameterMapping.getProperty();
+      if (boundSql.hasAdditionalParameter(propertyName)) {
+        values[i] = boundSql.getAdditionalParameter(propertyName);
+      } else if (parameterObject == null) {
+        values[i] = null;
+      } else if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameterObject.getClass())) {
+        values[i] = parameterObject;
+      } else {
+        if (metaObject == null) {
+          metaObject = configuration.newMetaObject(parameterObject);
+        }
+        values[i] = metaObject.getValue(parameterMapping.getPropertyPath());
+      }
+      copies.add(new ParameterMapping.Builder(configuration, "_refresh_" + i, parameterMapping.getTypeHandler())
+          .javaType(parameterMapping.getJavaType())
+          .jdbcType(parameterMapping.getJdbcType())
+          .jdbcTypeName(parameterMapping.getJdbcTypeName())
+          .numericScale(parameterMapping.getNumericScale())
+          .build());
+    }
+    BoundSql copy = new BoundSql(configuration, boundSql.getSql(), copies, null);
+    for (int i = 0; i < values.length; i++) {
+      copy.setAdditionalParameter("_refresh_" + i, values[i]);
+    }
+    return copy;
+  }
+
+  private ThreadPoolExecutor getExecutorService() {
+    ThreadPoolExecutor service = executorService;
+    if (service == null) {
+      synchronized (this) {
+        service = executorService;
+        if (service == null) {
+          service = new ThreadPoolExecutor(threads, threads, 60L, TimeUnit.SECONDS,
+              new ArrayBlockingQueue<Runnable>(queueSize), new RefreshThreadFactory());
+          service.allowCoreThreadTimeOut(true);
+          executorService = service;
+        }
+      }
+    }
+    return service;
+  }
+
+  private static class Loader {
+    private final MappedStatement mappedStatement;
+    private final BoundSql boundSql;
+    private final RowBounds rowBounds;
+
+    Loader(MappedStatement mappedStatement, BoundSql boundSql, RowBounds rowBounds) {
+      this.mappedStatement = mappedStatement;
+      this.boundSql = boundSql;
+      this.rowBounds = rowBounds;
+    }
+  }
+
+  private static class RefreshThreadFactory implements ThreadFactory {
+    private final AtomicInteger counter = new AtomicInteger();
+
+    @Override
+    public Thread newThread(Runnable runnable) {
+      Thread thread = new Thread(runnable, "mybatis-cache-refresh-" + counter.incrementAndGet());
+      thread.setDaemon(true);
+      return thread;
+    }
+  }
+
+}
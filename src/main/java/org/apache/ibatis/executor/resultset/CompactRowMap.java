@@ -0,0 +1,303 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import java.io.Serializable;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
+
+/**
+ * A row of a result set mapped to <code>java.util.Map</code>, which keeps its values in an array indexed by a column
+ * name table shared by all the rows of the result set.
+ *
+ * It behaves as a <code>HashMap</code>: the keys are case sensitive, a key is only present once it was put, even with
+ * a <code>null</code> value, and any other key can be put too. It iterates the columns in the order of the result set
+ * and is serialized as a <code>HashMap</code>.
+ */
+public class CompactRowMap extends AbstractMap<String, Object> implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  // 未put的列
+  private static final Object ABSENT = new Object();
+
+  private final transient Columns columns;
+  private final transient Object[] values;
+  private transient int size;
+  // 结构修改的次数，用于迭代时快速失败
+  private transient int modCount;
+  // 不在列名表中的键
+  private transient Map<String, Object> others;
+
+  public CompactRowMap(Columns columns) {
+    this.columns = columns;
+    this.values = new Object[columns.names.length];
+    Arrays.fill(values, ABSENT);
+  }
+
+  @Override
+  public int size() {
+    return others == null ? size : size + others.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    int index = columns.indexOf(key);
+    if (index >= 0) {
+      return values[index] != ABSENT;
+    }
+    return others != null && others.containsKey(key);
+  }
+
+  @Override
+  public Object get(Object key) {
+    int index = columns.indexOf(key);
+    if (index >= 0) {
+      Object value = values[index];
+      return value == ABSENT ? null : value;
+    }
+    return others == null ? null : others.get(key);
+  }
+
+  @Override
+  public Object put(String key, Object value) {
+    int index = columns.indexOf(key);
+    if (index >= 0) {
+      Object previous = values[index];
+      values[index] = value;
+      if (previous == ABSENT) {
+        size++;
+        modCount++;
+        return null;
+      }
+      return previous;
+    }
+    if (others == null) {
+      others = new HashMap<String, Object>();
+    }
+    if (!others.containsKey(key)) {
+      modCount++;
+    }
+    return others.put(key, value);
+  }
+
+  @Override
+  public Object remove(Object key) {
+    int index = columns.indexOf(key);
+    if (index >= 0) {
+      Object previous = values[index];
+      if (previous == ABSENT) {
+        return null;
+      }
+      values[index] = ABSENT;
+      size--;
+      modCount++;
+      return previous;
+    }
+    if (others == null || !others.containsKey(key)) {
+      return null;
+    }
+    modCount++;
+    return others.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    Arrays.fill(values, ABSENT);
+    size = 0;
+    others = null;
+    modCount++;
+  }
+
+  @Override
+  public Set<Entry<String, Object>> entrySet() {
+    return new AbstractSet<Entry<String, Object>>() {
+      @Override
+      public Iterator<Entry<String, Object>> iterator() {
+        return new EntryIterator();
+      }
+
+      @Override
+      public int size() {
+        return CompactRowMap.this.size();
+      }
+
+      @Override
+      public void clear() {
+        CompactRowMap.this.clear();
+      }
+    };
+  }
+
+  private Object writeReplace() {
+    return new HashMap<String, Object>(this);
+  }
+
+  /**
+   * The column names of a result set and their index.
+   */
+  public static final class Columns {
+    private final String[] names;
+    private final Map<String, Integer> indexes;
+
+    public Columns(List<String> columnNames) {
+      this.names = columnNames.toArray(new String[columnNames.size()]);
+      this.indexes = new HashMap<String, Integer>();
+      for (int i = 0; i < names.length; i++) {
+        // 重名的列与HashMap相同，共用一个键
+        if (!indexes.containsKey(names[i])) {
+          indexes.put(names[i], i);
+        }
+      }
+    }
+
+    int indexOf(Object key) {
+      Integer index = indexes.get(key);
+      return index == null ? -1 : index;
+    }
+  }
+
+  private final class ColumnEntry implements Entry<String, Object> {
+    private final int index;
+
+    ColumnEntry(int index) {
+      this.index = index;
+    }
+
+    @Override
+    public String getKey() {
+      return columns.names[index];
+    }
+
+    @Override
+    public Object getValue() {
+      Object value = values[index];
+      return value == ABSENT ? null : value;
+    }
+
+    @Override
+    public Object setValue(Object value) {
+      Object previous = getValue();
+      values[index] = value;
+      return previous;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof Entry)) {
+        return false;
+      }
+      Entry<?, ?> e = (Entry<?, ?>) o;
+      Object value = getValue();
+      return getKey().equals(e.getKey()) && (value == null ? e.getValue() == null : value.equals(e.getValue()));
+    }
+
+    @Override
+    public int hashCode() {
+      Object value = getValue();
+      return getKey().hashCode() ^ (value == null ? 0 : value.hashCode());
+    }
+
+    @Override
+    public String toString() {
+      return getKey() + "=" + getValue();
+    }
+  }
+
+  private final class EntryIterator implements Iterator<Entry<String, Object>> {
+    private int next = advance(0);
+    // 上一个返回的列，-1表示没有
+    private int current = -1;
+    // 上一个返回的是否为othersIterator的条目
+    private boolean currentInOthers;
+    private Iterator<Entry<String, Object>> othersIterator;
+    private int expectedModCount = modCount;
+
+    private int advance(int from) {
+      int i = from;
+      while (i < values.length && values[i] == ABSENT) {
+        i++;
+      }
+      return i;
+    }
+
+    @Override
+    public boolean hasNext() {
+      if (next < values.length) {
+        return true;
+      }
+      if (othersIterator == null && others != null) {
+        othersIterator = others.entrySet().iterator();
+      }
+      return othersIterator != null && othersIterator.hasNext();
+    }
+
+    @Override
+    public Entry<String, Object> next() {
+      checkForComodification();
+      if (next < values.length) {
+        current = next;
+        currentInOthers = false;
+        next = advance(next + 1);
+        return new ColumnEntry(current);
+      }
+      if (!hasNext()) {
+        throw new NoSuchElementException();
+      }
+      Entry<String, Object> entry = othersIterator.next();
+      current = -1;
+      currentInOthers = true;
+      return entry;
+    }
+
+    @Override
+    public void remove() {
+      if (current < 0 && !currentInOthers) {
+        throw new IllegalStateException();
+      }
+      checkForComodification();
+      if (currentInOthers) {
+        othersIterator.remove();
+        currentInOthers = false;
+      } else {
+        values[current] = ABSENT;
+        size--;
+        current = -1;
+      }
+      expectedModCount = ++modCount;
+    }
+
+    private void checkForComodification() {
+      if (modCount != expectedModCount) {
+        throw new ConcurrentModificationException();
+      }
+    }
+  }
+
+}
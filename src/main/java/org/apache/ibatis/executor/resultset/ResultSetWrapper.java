@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.executor.resultset;
 
+import java.lang.reflect.Constructor;
 import java.sql.ResultSet;
 import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
@@ -48,6 +49,10 @@ public class ResultSetWrapper {
   private final Map<String, Map<Class<?>, TypeHandler<?>>> typeHandlerMap = new HashMap<String, Map<Class<?>, TypeHandler<?>>>();
   private final Map<String, List<String>> mappedColumnNamesMap = new HashMap<String, List<String>>();
   private final Map<String, List<String>> unMappedColumnNamesMap = new HashMap<String, List<String>>();
+  // 按列类型为结果类型选中的构造方法
+  private final Map<Class<?>, Constructor<?>> autoConstructors = new HashMap<Class<?>, Constructor<?>>();
+  // 结果集所有Map行共用的列名表
+  private CompactRowMap.Columns compactRowColumns;
 
   public ResultSetWrapper(ResultSet rs, Configuration configuration) throws SQLException {
     super();
@@ -74,6 +79,21 @@ public class ResultSetWrapper {
     return Collections.unmodifiableList(classNames);
   }
 
+  Constructor<?> getAutoConstructor(Class<?> resultType) {
+    return autoConstructors.get(resultType);
+  }
+
+  void putAutoConstructor(Class<?> resultType, Constructor<?> constructor) {
+    autoConstructors.put(resultType, constructor);
+  }
+
+  CompactRowMap.Columns getCompactRowColumns() {
+    if (compactRowColumns == null) {
+      compactRowColumns = new CompactRowMap.Columns(columnNames);
+    }
+    return compactRowColumns;
+  }
+
   public JdbcType getJdbcType(String columnName) {
     for (int i = 0 ; i < columnNames.size(); i++) {
       if (columnNames.get(i).equalsIgnoreCase(columnName)) {
@@ -0,0 +1,35 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.sharding;
+
+/**
+ * Takes integral shard keys modulo the number of shards, and the hash code of other keys.
+ */
+public class DefaultShardResolver implements ShardResolver {
+
+  @Override
+  public int getShard(Object shardKey, int shardCount) {
+    long value;
+    if (shardKey instanceof Long || shardKey instanceof Integer || shardKey instanceof Short || shardKey instanceof Byte) {
+      value = ((Number) shardKey).longValue();
+    } else {
+      value = shardKey.hashCode();
+    }
+    // 负数取模后仍落在[0, shardCount)
+    return (int) (((value % shardCount) + shardCount) % shardCount);
+  }
+
+}
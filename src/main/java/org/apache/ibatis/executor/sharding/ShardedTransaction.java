@@ -0,0 +1,75 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.sharding;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.transaction.Transaction;
+import org.apache.ibatis.transaction.TransactionException;
+
+/**
+ * The transaction of a {@link ShardingExecutor}, made of the transactions of the shards it has used so far.
+ * It has no connection of its own.
+ */
+class ShardedTransaction implements Transaction {
+
+  private final List<Executor> executors;
+
+  ShardedTransaction(List<Executor> executors) {
+    this.executors = executors;
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    throw new TransactionException("A sharded session has one connection per shard.");
+  }
+
+  @Override
+  public void commit() throws SQLException {
+    for (Executor executor : executors) {
+      if (executor != null) {
+        executor.getTransaction().commit();
+      }
+    }
+  }
+
+  @Override
+  public void rollback() throws SQLException {
+    for (Executor executor : executors) {
+      if (executor != null) {
+        executor.getTransaction().rollback();
+      }
+    }
+  }
+
+  @Override
+  public void close() throws SQLException {
+    for (Executor executor : executors) {
+      if (executor != null) {
+        executor.getTransaction().close();
+      }
+    }
+  }
+
+  @Override
+  public Integer getTimeout() throws SQLException {
+    return null;
+  }
+
+}
@@ -0,0 +1,489 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.sharding;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.ibatis.cache.CacheKey;
+import org.apache.ibatis.cursor.Cursor;
+import org.apache.ibatis.executor.BatchExecutor;
+import org.apache.ibatis.executor.BatchResult;
+import org.apache.ibatis.executor.ErrorContext;
+import org.apache.ibatis.executor.Executor;
+import org.apache.ibatis.executor.ExecutorException;
+import org.apache.ibatis.executor.ReuseExecutor;
+import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.executor.result.DefaultResultContext;
+import org.apache.ibatis.mapping.BoundSql;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.ExecutorType;
+import org.apache.ibatis.session.ResultHandler;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.TransactionIsolationLevel;
+import org.apache.ibatis.transaction.Transaction;
+
+/**
+ * Spreads the statements of a session over the shard environments of the configuration.
+ *
+ * Statements whose parameter holds a value for the shard key of the mapped statement run on the shard
+ * the {@link ShardResolver} picks. Updates and deletes that declare no shard key run on every shard, and so do
+ * selects without a value for it, which are sent to all shards at once and merged. Inserts and cursors need a shard
+ * key, and so do updates and deletes that declare one.
+ *
+ * Each shard has its own executor and transaction, opened on first use. Commits and rollbacks are applied to
+ * the shards one after another and are not atomic across them.
+ *
+ * @see MappedStatement#getShardKey()
+ * @see MappedStatement#getShardOrderBy()
+ */
+public class ShardingExecutor implements Executor {
+
+  private final Configuration configuration;
+  private final List<Environment> environments;
+  private final ExecutorType executorType;
+  private final TransactionIsolationLevel level;
+  private final boolean autoCommit;
+  // 下标即分片号，未使用过的分片为null
+  private final List<Executor> executors;
+  private final Transaction transaction;
+  private boolean closed;
+
+  public ShardingExecutor(Configuration configuration, ExecutorType executorType, TransactionIsolationLevel level, boolean autoCommit) {
+    this.configuration = configuration;
+    this.environments = configuration.getShardEnvironments();
+    this.executorType = executorType == null ? ExecutorType.SIMPLE : executorType;
+    this.level = level;
+    this.autoCommit = autoCommit;
+    this.executors = new ArrayList<Executor>(Collections.<Executor>nCopies(environments.size(), null));
+    this.transaction = new ShardedTransaction(executors);
+  }
+
+  public int getShardCount() {
+    return environments.size();
+  }
+
+  @Override
+  public int update(MappedStatement ms, Object parameter) throws SQLException {
+    Object shardKey = getShardKey(ms, parameter);
+    if (shardKey != null) {
+      return shard(shardIndex(shardKey)).update(ms, parameter);
+    }
+    // 声明了分片键却没有值时不能发给所有分片，很可能是参数写错了
+    if (ms.getSqlCommandType() == SqlCommandType.INSERT || ms.getShardKey() != null) {
+      throw new ExecutorException("Cannot " + ms.getSqlCommandType().name().toLowerCase(Locale.ENGLISH) + " with '"
+          + ms.getId() + "' on a sharded session: no value for its shard key "
+          + (ms.getShardKey() == null ? "(none declared)" : "'" + ms.getShardKey() + "'") + " in the parameter.");
+    }
+    // 没有分片键的更新和删除发给所有分片
+    int count = 0;
+    for (int i = 0; i < environments.size(); i++) {
+      count += shard(i).update(ms, parameter);
+    }
+    return count;
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler) throws SQLException {
+    BoundSql boundSql = ms.getBoundSql(parameter);
+    CacheKey key = createCacheKey(ms, parameter, rowBounds, boundSql);
+    return query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+  }
+
+  @Override
+  public <E> List<E> query(MappedStatement ms, Object parameter, RowBounds rowBounds, ResultHandler resultHandler, CacheKey key, BoundSql boundSql) throws SQLException {
+    Object shardKey = getShardKey(ms, parameter);
+    if (shardKey != null) {
+      return shard(shardIndex(shardKey)).query(ms, parameter, rowBounds, resultHandler, key, boundSql);
+    }
+    List<E> list = scatter(ms, parameter, rowBounds, boundSql);
+    if (resultHandler == null) {
+      return list;
+    }
+    // 各分片的结果合并后才能交给ResultHandler
+    DefaultResultContext<E> context = new DefaultResultContext<E>();
+    for (E row : list) {
+      context.nextResultObject(row);
+      resultHandler.handleResult(context);
+      if (context.isStopped()) {
+        break;
+      }
+    }
+    return new ArrayList<E>();
+  }
+
+  @Override
+  public <E> Cursor<E> queryCursor(MappedStatement ms, Object parameter, RowBounds rowBounds) throws SQLException {
+    Object shardKey = getShardKey(ms, parameter);
+    if (shardKey == null) {
+      throw new ExecutorException("Cannot open a cursor with '" + ms.getId() + "' on a sharded session: no value for its shard key in the parameter.");
+    }
+    return shard(shardIndex(shardKey)).queryCursor(ms, parameter, rowBounds);
+  }
+
+  @Override
+  public List<BatchResult> flushStatements() throws SQLException {
+    List<BatchResult> results = new ArrayList<BatchResult>();
+    for (Executor executor : executors) {
+      if (executor != null) {
+        results.addAll(executor.flushStatements());
+      }
+    }
+    return results;
+  }
+
+  @Override
+  public void commit(boolean required) throws SQLException {
+    if (closed) {
+      throw new ExecutorException("Cannot commit, transaction is already closed");
+    }
+    for (Executor executor : executors) {
+      if (executor != null) {
+        executor.commit(required);
+      }
+    }
+  }
+
+  @Override
+  public void rollback(boolean required) throws SQLException {
+    if (closed) {
+      return;
+    }
+    SQLException failure = null;
+    // 一个分片回滚失败时其它分片仍要回滚
+    for (Executor executor : executors) {
+      if (executor != null) {
+        try {
+          executor.rollback(required);
+        } catch (SQLException e) {
+          if (failure == null) {
+            failure = e;
+          }
+        }
+      }
+    }
+    if (failure != null) {
+      throw failure;
+    }
+  }
+
+  @Override
+  public CacheKey createCacheKey(MappedStatement ms, Object parameterObject, RowBounds rowBounds, BoundSql boundSql) {
+    return shard(0).createCacheKey(ms, parameterObject, rowBounds, boundSql);
+  }
+
+  @Override
+  public boolean isCached(MappedStatement ms, CacheKey key) {
+    return shard(0).isCached(ms, key);
+  }
+
+  @Override
+  public void clearLocalCache() {
+    for (Executor executor : executors) {
+      if (executor != null) {
+        executor.clearLocalCache();
+      }
+    }
+  }
+
+  @Override
+  public void deferLoad(MappedStatement ms, MetaObject resultObject, String property, CacheKey key, Class<?> targetType) {
+    shard(0).deferLoad(ms, resultObject, property, key, targetType);
+  }
+
+  @Override
+  public Transaction getTransaction() {
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    return transaction;
+  }
+
+  @Override
+  public void close(boolean forceRollback) {
+    for (Executor executor : executors) {
+      if (executor != null) {
+        executor.close(forceRollback);
+      }
+    }
+    Collections.fill(executors, null);
+    closed = true;
+  }
+
+  @Override
+  public boolean isClosed() {
+    return closed;
+  }
+
+  @Override
+  public void setExecutorWrapper(Executor executor) {
+    // 嵌套查询留在各分片自己的执行器中，不需要外层的包装
+  }
+
+  protected Executor shard(int index) {
+    if (closed) {
+      throw new ExecutorException("Executor was closed.");
+    }
+    Executor executor = executors.get(index);
+    if (executor == null) {
+      Environment environment = environments.get(index);
+      Transaction tx = environment.getTransactionFactory().newTransaction(environment.getDataSource(), level, autoCommit);
+      if (ExecutorType.BATCH == executorType) {
+        executor = new BatchExecutor(configuration, tx);
+      } else if (ExecutorType.REUSE == executorType) {
+        executor = new ReuseExecutor(configuration, tx);
+      } else {
+        executor = new SimpleExecutor(configuration, tx);
+      }
+      executors.set(index, executor);
+    }
+    return executor;
+  }
+
+  private int shardIndex(Object shardKey) {
+    int index = configuration.getShardResolver().getShard(shardKey, environments.size());
+    if (index < 0 || index >= environments.size()) {
+      throw new ExecutorException("Shard resolver returned " + index + " for key '" + shardKey + "' but there are "
+          + environments.size() + " shards.");
+    }
+    return index;
+  }
+
+  private Object getShardKey(MappedStatement ms, Object parameter) {
+    String path = ms.getShardKey();
+    if (path == null || parameter == null) {
+      return null;
+    }
+    // 简单类型的参数本身就是分片键
+    if (configuration.getTypeHandlerRegistry().hasTypeHandler(parameter.getClass())) {
+      return parameter;
+    }
+    MetaObject metaObject = configuration.newMetaObject(parameter);
+    if (!metaObject.hasGetter(path)) {
+      throw new ExecutorException("The shard key '" + path + "' of '" + ms.getId() + "' is not a property of the parameter of type "
+          + parameter.getClass().getName() + ".");
+    }
+    return metaObject.getValue(path);
+  }
+
+  private <E> List<E> scatter(final MappedStatement ms, final Object parameter, RowBounds rowBounds, final BoundSql boundSql) throws SQLException {
+    // 每个分片都要返回offset+limit行，合并后再跳过offset行
+    final RowBounds shardBounds = rowBounds.getOffset() == RowBounds.NO_ROW_OFFSET
+        ? rowBounds
+        : new RowBounds(RowBounds.NO_ROW_OFFSET, (int) Math.min((long) rowBounds.getOffset() + rowBounds.getLimit(), RowBounds.NO_ROW_LIMIT));
+    int shardCount = environments.size();
+    List<List<E>> results = new ArrayList<List<E>>(shardCount);
+    List<Future<List<E>>> futures = new ArrayList<Future<List<E>>>(shardCount - 1);
+    ExecutorService executorService = configuration.getShardExecutorService();
+    // 出错时还没开始的分片不再查询
+    final AtomicBoolean cancelled = new AtomicBoolean();
+    // 先创建各分片的执行器，它们不是线程安全的
+    for (int i = 0; i < shardCount; i++) {
+      shard(i);
+    }
+    try {
+      for (int i = 1; i < shardCount; i++) {
+        final Executor executor = executors.get(i);
+        futures.add(executorService.submit(new Callable<List<E>>() {
+          @Override
+          public List<E> call() throws Exception {
+            if (cancelled.get()) {
+              return null;
+            }
+            try {
+              return queryShard(executor, ms, parameter, shardBounds, boundSql);
+            } finally {
+              ErrorContext.instance().reset();
+            }
+          }
+        }));
+      }
+      // 第一个分片在当前线程中查询
+      results.add(this.<E>queryShard(executors.get(0), ms, parameter, shardBounds, boundSql));
+      for (Future<List<E>> future : futures) {
+        results.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new ExecutorException("Interrupted while querying the shards with '" + ms.getId() + "'.", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof SQLException) {
+        throw (SQLException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      }
+      throw new ExecutorException("Error querying the shards with '" + ms.getId() + "'.", cause);
+    } finally {
+      // 不中断正在查询的分片，等它们结束后再返回，之后回滚或关闭时执行器不能还在被使用
+      cancelled.set(true);
+      awaitAll(futures);
+    }
+    List<E> merged = ms.getShardOrderBy() == null ? concat(results) : mergeSorted(results, new RowComparator(ms.getShardOrderBy()));
+    return page(merged, rowBounds);
+  }
+
+  private static void awaitAll(List<? extends Future<?>> futures) {
+    boolean interrupted = false;
+    for (Future<?> future : futures) {
+      while (true) {
+        try {
+          future.get();
+          break;
+        } catch (InterruptedException e) {
+          interrupted = true;
+        } catch (ExecutionException e) {
+          // 只报告第一个失败
+          break;
+        }
+      }
+    }
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private <E> List<E> queryShard(Executor executor, MappedStatement ms, Object parameter, RowBounds rowBounds, BoundSql boundSql) throws SQLException {
+    CacheKey key = executor.createCacheKey(ms, parameter, rowBounds, boundSql);
+    return executor.<E>query(ms, parameter, rowBounds, Executor.NO_RESULT_HANDLER, key, boundSql);
+  }
+
+  private static <E> List<E> concat(List<List<E>> results) {
+    int size = 0;
+    for (List<E> result : results) {
+      size += result.size();
+    }
+    List<E> merged = new ArrayList<E>(size);
+    for (List<E> result : results) {
+      merged.addAll(result);
+    }
+    return merged;
+  }
+
+  /*
+   * 各分片的结果已经按相同的顺序排好，k路归并
+   */
+  private static <E> List<E> mergeSorted(final List<List<E>> results, final Comparator<Object> comparator) {
+    int size = 0;
+    for (List<E> result : results) {
+      size += result.size();
+    }
+    List<E> merged = new ArrayList<E>(size);
+    // 元素是{分片号, 下一行的下标}
+    PriorityQueue<int[]> heads = new PriorityQueue<int[]>(Math.max(1, results.size()), new Comparator<int[]>() {
+      @Override
+      public int compare(int[] a, int[] b) {
+        int result = comparator.compare(results.get(a[0]).get(a[1]), results.get(b[0]).get(b[1]));
+        // 相等时保持分片的顺序
+        return result != 0 ? result : a[0] - b[0];
+      }
+    });
+    for (int i = 0; i < results.size(); i++) {
+      if (!results.get(i).isEmpty()) {
+        heads.add(new int[] { i, 0 });
+      }
+    }
+    while (!heads.isEmpty()) {
+      int[] head = heads.poll();
+      List<E> result = results.get(head[0]);
+      merged.add(result.get(head[1]));
+      if (++head[1] < result.size()) {
+        heads.add(head);
+      }
+    }
+    return merged;
+  }
+
+  private static <E> List<E> page(List<E> list, RowBounds rowBounds) {
+    int offset = rowBounds.getOffset();
+    int limit = rowBounds.getLimit();
+    if (offset == RowBounds.NO_ROW_OFFSET && limit >= list.size()) {
+      return list;
+    }
+    if (offset >= list.size()) {
+      return new ArrayList<E>();
+    }
+    int end = (int) Math.min((long) offset + limit, list.size());
+    return new ArrayList<E>(list.subList(offset, end));
+  }
+
+  /*
+   * 按"property [asc|desc], ..."比较结果对象，null排在最前
+   */
+  private class RowComparator implements Comparator<Object> {
+
+    private final String[] properties;
+    private final boolean[] descending;
+
+    RowComparator(String orderBy) {
+      String[] parts = orderBy.split(",");
+      properties = new String[parts.length];
+      descending = new boolean[parts.length];
+      for (int i = 0; i < parts.length; i++) {
+        String[] words = parts[i].trim().split("\\s+");
+        properties[i] = words[0];
+        if (words.length > 1) {
+          if ("desc".equalsIgnoreCase(words[1])) {
+            descending[i] = true;
+          } else if (!"asc".equalsIgnoreCase(words[1])) {
+            throw new ExecutorException("Invalid shard order '" + parts[i].trim() + "'. Expected 'property [asc|desc]'.");
+          }
+        }
+      }
+    }
+
+    @Override
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public int compare(Object a, Object b) {
+      MetaObject metaA = configuration.newMetaObject(a);
+      MetaObject metaB = configuration.newMetaObject(b);
+      for (int i = 0; i < properties.length; i++) {
+        Object valueA = metaA.getValue(properties[i]);
+        Object valueB = metaB.getValue(properties[i]);
+        int result;
+        if (valueA == null || valueB == null) {
+          result = valueA == null ? (valueB == null ? 0 : -1) : 1;
+        } else if (valueA instanceof Comparable) {
+          result = ((Comparable) valueA).compareTo(valueB);
+        } else {
+          throw new ExecutorException("Cannot order shard results by '" + properties[i] + "': "
+              + valueA.getClass().getName() + " is not Comparable.");
+        }
+        if (result != 0) {
+          return descending[i] ? -result : result;
+        }
+      }
+      return 0;
+    }
+  }
+
+}
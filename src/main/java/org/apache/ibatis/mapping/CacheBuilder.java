@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -23,8 +23,12 @@ import java.util.Properties;
 
 import org.apache.ibatis.cache.Cache;
 import org.apache.ibatis.cache.CacheException;
+import org.apache.ibatis.cache.CacheRefresher;
+import org.apache.ibatis.cache.CacheSnapshot;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.builder.InitializingObject;
 import org.apache.ibatis.cache.decorators.BlockingCache;
+import org.apache.ibatis.cache.decorators.ExpiringCache;
 import org.apache.ibatis.cache.decorators.LoggingCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.ScheduledCache;
@@ -47,6 +51,9 @@ public class CacheBuilder {
   private boolean readWrite;
   private Properties properties;
   private boolean blocking;
+  private CacheRefresher refresher;
+  private CacheStatistics statistics;
+  private CacheSnapshot snapshot;
 
   public CacheBuilder(String id) {
     this.id = id;
@@ -90,6 +97,21 @@ public class CacheBuilder {
     return this;
   }
 
+  public CacheBuilder refresher(CacheRefresher refresher) {
+    this.refresher = refresher;
+    return this;
+  }
+
+  public CacheBuilder statistics(CacheStatistics statistics) {
+    this.statistics = statistics;
+    return this;
+  }
+
+  public CacheBuilder snapshot(CacheSnapshot snapshot) {
+    this.snapshot = snapshot;
+    return this;
+  }
+
   /**
    * 建造缓存对象
    * @return
@@ -99,17 +121,27 @@ public class CacheBuilder {
     setDefaultImplementations();
     Cache cache = newBaseCacheInstance(implementation, id);
     setCacheProperties(cache);
+    setCacheStatistics(cache);
     // issue #352, do not apply decorators to custom caches
     if (PerpetualCache.class.equals(cache.getClass())) {
+      PerpetualCache store = (PerpetualCache) cache;
       // 对PerpetualCache多层自定义装饰
       for (Class<? extends Cache> decorator : decorators) {
         cache = newCacheDecoratorInstance(decorator, cache);
         setCacheProperties(cache);
+        setCacheStatistics(cache);
       }
       // 设置mybatis内置的标准装饰
       cache = setStandardDecorators(cache);
+      if (snapshot != null) {
+        snapshot.register(cache, store);
+      }
     } else if (!LoggingCache.class.isAssignableFrom(cache.getClass())) {
       cache = new LoggingCache(cache);
+      setCacheStatistics(cache);
+    }
+    if (statistics != null) {
+      statistics.setCache(cache);
     }
     return cache;
   }
@@ -130,14 +162,29 @@ public class CacheBuilder {
         metaCache.setValue("size", size);
       }
       if (clearInterval != null) {
-        cache = new ScheduledCache(cache);
-        ((ScheduledCache) cache).setClearInterval(clearInterval);
+        // expiration=entry时每个缓存项单独过期，而不是到期清空整个缓存
+        if (properties != null && "entry".equalsIgnoreCase(properties.getProperty("expiration"))) {
+          ExpiringCache expiringCache = new ExpiringCache(cache);
+          expiringCache.setTimeToLive(clearInterval);
+          setCacheProperties(expiringCache);
+          expiringCache.setStatistics(statistics);
+          if (expiringCache.getRefreshAhead() > 0) {
+            expiringCache.setRefresher(refresher);
+          }
+          cache = expiringCache;
+        } else {
+          cache = new ScheduledCache(cache);
+          ((ScheduledCache) cache).setClearInterval(clearInterval);
+        }
       }
       if (readWrite) {
         cache = new SerializedCache(cache);
+        // 可通过codec属性选择序列化方式
+        setCacheProperties(cache);
       }
-      cache = new LoggingCache(cache);
-      cache = new SynchronizedCache(cache);
+      LoggingCache loggingCache = new LoggingCache(cache);
+      loggingCache.setStatistics(statistics);
+      cache = new SynchronizedCache(loggingCache);
       if (blocking) {
         cache = new BlockingCache(cache);
       }
@@ -200,6 +247,19 @@ public class CacheBuilder {
     }
   }
 
+  /**
+   * 将统计对象注入到支持统计的缓存对象中（如淘汰策略装饰器）
+   * @param cache
+   */
+  private void setCacheStatistics(Cache cache) {
+    if (statistics != null) {
+      MetaObject metaCache = SystemMetaObject.forObject(cache);
+      if (metaCache.hasSetter("statistics") && metaCache.getSetterType("statistics") == CacheStatistics.class) {
+        metaCache.setValue("statistics", statistics);
+      }
+    }
+  }
+
   private Cache newBaseCacheInstance(Class<? extends Cache> cacheClass, String id) {
     Constructor<? extends Cache> cacheConstructor = getBaseCacheConstructor(cacheClass);
     try {
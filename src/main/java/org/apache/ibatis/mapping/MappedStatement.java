@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,11 +20,13 @@ import java.util.Collections;
 import java.util.List;
 
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.executor.keygen.Jdbc3KeyGenerator;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.keygen.NoKeyGenerator;
 import org.apache.ibatis.logging.Log;
 import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.PropertyPath;
 import org.apache.ibatis.scripting.LanguageDriver;
 import org.apache.ibatis.session.Configuration;
 
@@ -43,6 +45,7 @@ public final class MappedStatement {
   private ResultSetType resultSetType;
   private SqlSource sqlSource;
   private Cache cache;
+  private CacheStatistics cacheStatistics;
   private ParameterMap parameterMap;
   private List<ResultMap> resultMaps;
   private boolean flushCacheRequired;
@@ -51,12 +54,17 @@ public final class MappedStatement {
   private SqlCommandType sqlCommandType;
   private KeyGenerator keyGenerator;
   private String[] keyProperties;
+  private PropertyPath[] keyPropertyPaths;
   private String[] keyColumns;
   private boolean hasNestedResultMaps;
   private String databaseId;
   private Log statementLog;
   private LanguageDriver lang;
   private String[] resultSets;
+  // 分库键在参数对象中的属性路径
+  private String shardKey;
+  // 跨库查询时合并结果的排序，如"createdAt desc, id"
+  private String shardOrderBy;
 
   MappedStatement() {
     // constructor disabled
@@ -154,6 +162,7 @@ public final class MappedStatement {
 
     public Builder keyProperty(String keyProperty) {
       mappedStatement.keyProperties = delimitedStringToArray(keyProperty);
+      mappedStatement.keyPropertyPaths = PropertyPath.compile(mappedStatement.keyProperties);
       return this;
     }
 
@@ -183,6 +192,16 @@ public final class MappedStatement {
       mappedStatement.resultSets = delimitedStringToArray(resultSet);
       return this;
     }
+
+    public Builder shardKey(String shardKey) {
+      mappedStatement.shardKey = shardKey;
+      return this;
+    }
+
+    public Builder shardOrderBy(String shardOrderBy) {
+      mappedStatement.shardOrderBy = shardOrderBy;
+      return this;
+    }
     
     public MappedStatement build() {
       assert mappedStatement.configuration != null;
@@ -190,6 +209,9 @@ public final class MappedStatement {
       assert mappedStatement.sqlSource != null;
       assert mappedStatement.lang != null;
       mappedStatement.resultMaps = Collections.unmodifiableList(mappedStatement.resultMaps);
+      if (mappedStatement.cache != null) {
+        mappedStatement.cacheStatistics = mappedStatement.configuration.getCacheStatistics(mappedStatement.cache.getId());
+      }
       return mappedStatement;
     }
   }
@@ -250,6 +272,10 @@ public final class MappedStatement {
     return cache;
   }
 
+  public CacheStatistics getCacheStatistics() {
+    return cacheStatistics;
+  }
+
   public boolean isFlushCacheRequired() {
     return flushCacheRequired;
   }
@@ -270,6 +296,10 @@ public final class MappedStatement {
     return keyProperties;
   }
 
+  public PropertyPath[] getKeyPropertyPaths() {
+    return keyPropertyPaths;
+  }
+
   public String[] getKeyColumns() {
     return keyColumns;
   }
@@ -292,6 +322,14 @@ public final class MappedStatement {
     return resultSets;
   }
 
+  public String getShardKey() {
+    return shardKey;
+  }
+
+  public String getShardOrderBy() {
+    return shardOrderBy;
+  }
+
   /**
    * 获取MappedStatement的BoundSql对象
    */
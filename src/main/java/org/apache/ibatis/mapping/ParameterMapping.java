@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,6 +17,7 @@ package org.apache.ibatis.mapping;
 
 import java.sql.ResultSet;
 
+import org.apache.ibatis.reflection.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -30,6 +31,8 @@ public class ParameterMapping {
   private Configuration configuration;
 
   private String property;
+  // 动态SQL每次执行都会创建ParameterMapping，且附加参数用不到，所以第一次使用时才编译
+  private PropertyPath propertyPath;
   private ParameterMode mode;
   private Class<?> javaType = Object.class;
   private JdbcType jdbcType;
@@ -135,6 +138,13 @@ public class ParameterMapping {
     return property;
   }
 
+  public PropertyPath getPropertyPath() {
+    if (propertyPath == null) {
+      propertyPath = PropertyPath.compile(property);
+    }
+    return propertyPath;
+  }
+
   /**
    * Used for handling output of callable statements
    * @return
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2016 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.Collections;
 import java.util.List;
 import java.util.Set;
 
+import org.apache.ibatis.reflection.PropertyPath;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.type.JdbcType;
 import org.apache.ibatis.type.TypeHandler;
@@ -34,6 +35,7 @@ public class ResultMapping {
   private Configuration configuration;
   // 存储id和result标签的property属性值和idArg和arg的name属性值
   private String property;
+  private PropertyPath propertyPath;
   private String column;
   private Class<?> javaType;
   private JdbcType jdbcType;
@@ -142,6 +144,9 @@ public class ResultMapping {
       resultMapping.composites = Collections.unmodifiableList(resultMapping.composites);
       resolveTypeHandler();
       validate();
+      if (resultMapping.property != null) {
+        resultMapping.propertyPath = PropertyPath.compile(resultMapping.property);
+      }
       return resultMapping;
     }
 
@@ -191,6 +196,10 @@ public class ResultMapping {
     return property;
   }
 
+  public PropertyPath getPropertyPath() {
+    return propertyPath;
+  }
+
   public String getColumn() {
     return column;
   }
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,6 +18,10 @@ package org.apache.ibatis.plugin;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import org.apache.ibatis.mapping.MappedStatement;
 
 /**
  * @author Clinton Begin
@@ -25,6 +29,8 @@ import java.util.List;
 public class InterceptorChain {
 
   private final List<Interceptor> interceptors = new ArrayList<Interceptor>();
+  // 每个语句的@Statements只判断一次
+  private final ConcurrentMap<MappedStatement, Interceptor[]> statementInterceptors = new ConcurrentHashMap<MappedStatement, Interceptor[]>();
 
   public Object pluginAll(Object target) {
     for (Interceptor interceptor : interceptors) {
@@ -33,12 +39,62 @@ public class InterceptorChain {
     return target;
   }
 
+  /*
+   * Applies only the interceptors whose @Statements match the statement, and returns the target itself when none does
+   */
+  public Object pluginAll(Object target, MappedStatement mappedStatement) {
+    if (interceptors.isEmpty()) {
+      return target;
+    }
+    for (Interceptor interceptor : getInterceptors(mappedStatement)) {
+      target = interceptor.plugin(target);
+    }
+    return target;
+  }
+
   public void addInterceptor(Interceptor interceptor) {
     interceptors.add(interceptor);
+    statementInterceptors.clear();
   }
   
   public List<Interceptor> getInterceptors() {
     return Collections.unmodifiableList(interceptors);
   }
 
+  private Interceptor[] getInterceptors(MappedStatement mappedStatement) {
+    Interceptor[] matching = statementInterceptors.get(mappedStatement);
+    if (matching == null) {
+      List<Interceptor> list = new ArrayList<Interceptor>();
+      for (Interceptor interceptor : interceptors) {
+        if (matches(interceptor.getClass().getAnnotation(Statements.class), mappedStatement)) {
+          list.add(interceptor);
+        }
+      }
+      matching = list.toArray(new Interceptor[list.size()]);
+      statementInterceptors.put(mappedStatement, matching);
+    }
+    return matching;
+  }
+
+  private static boolean matches(Statements statements, MappedStatement mappedStatement) {
+    if (statements == null) {
+      return true;
+    }
+    String id = mappedStatement.getId();
+    int lastPeriod = id.lastIndexOf('.');
+    String namespace = lastPeriod < 0 ? "" : id.substring(0, lastPeriod);
+    boolean selected = statements.ids().length == 0 && statements.namespaces().length == 0
+        || contains(statements.ids(), id) || contains(statements.namespaces(), namespace);
+    return selected && (statements.commandTypes().length == 0 || contains(statements.commandTypes(), mappedStatement.getSqlCommandType()));
+  }
+
+  private static boolean contains(Object[] values, Object value) {
+    for (Object v : values) {
+      if (v.equals(value)) {
+        return true;
+      }
+    }
+    return false;
+  }
+
 }
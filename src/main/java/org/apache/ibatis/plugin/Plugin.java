@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,50 +15,81 @@
  */
 package org.apache.ibatis.plugin;
 
+import java.lang.ref.Reference;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
 import java.lang.reflect.Proxy;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.WeakHashMap;
 
 import org.apache.ibatis.reflection.ExceptionUtil;
 
 /**
+ * Wrapping a target already wrapped by a plugin does not nest another proxy: the new proxy dispatches each call
+ * through all the interceptors of the chain, from the last one to the first one, skipping the ones that do not
+ * intercept the method. An interceptor sees the target it would have seen with nested proxies, and proceeds to
+ * the interceptors before it.
+ *
  * @author Clinton Begin
  */
 public class Plugin implements InvocationHandler {
 
+  // 每个拦截器类的签名只解析一次，弱引用拦截器类以便卸载其类加载器
+  private static final Map<Class<?>, Signatures> SIGNATURES = new WeakHashMap<Class<?>, Signatures>();
+
+  // 被拦截的原始对象
   private final Object target;
-  private final Interceptor interceptor;
-  private final Map<Class<?>, Set<Method>> signatureMap;
+  // 按加入的顺序，只使用前count个
+  private final Interceptor[] interceptors;
+  private final Signatures[] signatures;
+  // 各层代理的构造方法，用于创建拦截器看到的目标
+  private final Constructor<?>[] proxyConstructors;
+  private final int count;
+  private Object[] targets;
 
-  private Plugin(Object target, Interceptor interceptor, Map<Class<?>, Set<Method>> signatureMap) {
+  private Plugin(Object target, Interceptor[] interceptors, Signatures[] signatures, Constructor<?>[] proxyConstructors, int count) {
     this.target = target;
-    this.interceptor = interceptor;
-    this.signatureMap = signatureMap;
+    this.interceptors = interceptors;
+    this.signatures = signatures;
+    this.proxyConstructors = proxyConstructors;
+    this.count = count;
   }
 
   public static Object wrap(Object target, Interceptor interceptor) {
-    Map<Class<?>, Set<Method>> signatureMap = getSignatureMap(interceptor);
-    Class<?> type = target.getClass();
-    Class<?>[] interfaces = getAllInterfaces(type, signatureMap);
-    if (interfaces.length > 0) {
-      return Proxy.newProxyInstance(
-          type.getClassLoader(),
-          interfaces,
-          new Plugin(target, interceptor, signatureMap));
-    }
-    return target;
+    Signatures interceptorSignatures = getSignatures(interceptor);
+    Constructor<?> proxyConstructor = interceptorSignatures.getProxyConstructor(target.getClass());
+    if (proxyConstructor == null) {
+      return target;
+    }
+    Plugin wrapped = getPlugin(target);
+    Plugin plugin;
+    if (wrapped == null) {
+      plugin = new Plugin(target, new Interceptor[] { interceptor }, new Signatures[] { interceptorSignatures },
+          new Constructor<?>[] { proxyConstructor }, 1);
+    } else {
+      plugin = wrapped.append(interceptor, interceptorSignatures, proxyConstructor);
+    }
+    return newProxy(proxyConstructor, plugin);
   }
 
   @Override
   public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+    return invoke(count - 1, method, args);
+  }
+
+  private Object invoke(int level, Method method, Object[] args) throws Throwable {
     try {
-      Set<Method> methods = signatureMap.get(method.getDeclaringClass());
-      if (methods != null && methods.contains(method)) {
-        return interceptor.intercept(new Invocation(target, method, args));
+      for (int i = level; i >= 0; i--) {
+        if (signatures[i].intercepts(method)) {
+          return interceptors[i].intercept(new ChainInvocation(this, i, method, args));
+        }
       }
       return method.invoke(target, args);
     } catch (Exception e) {
@@ -66,6 +97,65 @@ public class Plugin implements InvocationHandler {
     }
   }
 
+  private Plugin append(Interceptor interceptor, Signatures interceptorSignatures, Constructor<?> proxyConstructor) {
+    Interceptor[] newInterceptors = new Interceptor[count + 1];
+    Signatures[] newSignatures = new Signatures[count + 1];
+    Constructor<?>[] newProxyConstructors = new Constructor<?>[count + 1];
+    System.arraycopy(interceptors, 0, newInterceptors, 0, count);
+    System.arraycopy(signatures, 0, newSignatures, 0, count);
+    System.arraycopy(proxyConstructors, 0, newProxyConstructors, 0, count);
+    newInterceptors[count] = interceptor;
+    newSignatures[count] = interceptorSignatures;
+    newProxyConstructors[count] = proxyConstructor;
+    return new Plugin(target, newInterceptors, newSignatures, newProxyConstructors, count + 1);
+  }
+
+  /*
+   * The target seen by the interceptor at the given level: the original target, or the proxy of the interceptors
+   * before it
+   */
+  private synchronized Object getTarget(int level) {
+    if (level == 0) {
+      return target;
+    }
+    if (targets == null) {
+      targets = new Object[count];
+    }
+    if (targets[level] == null) {
+      targets[level] = newProxy(proxyConstructors[level - 1], new Plugin(target, interceptors, signatures, proxyConstructors, level));
+    }
+    return targets[level];
+  }
+
+  private static Plugin getPlugin(Object target) {
+    if (Proxy.isProxyClass(target.getClass())) {
+      InvocationHandler handler = Proxy.getInvocationHandler(target);
+      if (handler instanceof Plugin) {
+        return (Plugin) handler;
+      }
+    }
+    return null;
+  }
+
+  private static Object newProxy(Constructor<?> proxyConstructor, Plugin plugin) {
+    try {
+      return proxyConstructor.newInstance(plugin);
+    } catch (Exception e) {
+      throw new PluginException("Could not create proxy for " + plugin.target.getClass() + ". Cause: " + e, e);
+    }
+  }
+
+  private static Signatures getSignatures(Interceptor interceptor) {
+    synchronized (SIGNATURES) {
+      Signatures signatures = SIGNATURES.get(interceptor.getClass());
+      if (signatures == null) {
+        signatures = new Signatures(getSignatureMap(interceptor));
+        SIGNATURES.put(interceptor.getClass(), signatures);
+      }
+      return signatures;
+    }
+  }
+
   private static Map<Class<?>, Set<Method>> getSignatureMap(Interceptor interceptor) {
     Intercepts interceptsAnnotation = interceptor.getClass().getAnnotation(Intercepts.class);
     // issue #251
@@ -103,4 +193,87 @@ public class Plugin implements InvocationHandler {
     return interfaces.toArray(new Class<?>[interfaces.size()]);
   }
 
+  /**
+   * The methods intercepted by an interceptor class, and the proxy classes created for it by target type.
+   */
+  private static final class Signatures {
+    private final Map<Class<?>, Set<Method>> signatureMap;
+    // 目标类型没有被拦截的接口时为NO_PROXY，否则为代理类的弱引用，代理类由目标类型的类加载器持有
+    private final Map<Class<?>, Object> proxyClasses = new WeakHashMap<Class<?>, Object>();
+
+    private static final Object NO_PROXY = new Object();
+
+    Signatures(Map<Class<?>, Set<Method>> signatureMap) {
+      this.signatureMap = signatureMap;
+    }
+
+    boolean intercepts(Method method) {
+      Set<Method> methods = signatureMap.get(method.getDeclaringClass());
+      return methods != null && methods.contains(method);
+    }
+
+    @SuppressWarnings("unchecked")
+    Constructor<?> getProxyConstructor(Class<?> type) {
+      Class<?> proxyClass;
+      synchronized (proxyClasses) {
+        Object cached = proxyClasses.get(type);
+        if (cached == NO_PROXY) {
+          return null;
+        }
+        proxyClass = cached == null ? null : ((Reference<Class<?>>) cached).get();
+        if (proxyClass == null) {
+          Class<?>[] interfaces = getAllInterfaces(type, signatureMap);
+          if (interfaces.length == 0) {
+            proxyClasses.put(type, NO_PROXY);
+            return null;
+          }
+          proxyClass = Proxy.getProxyClass(type.getClassLoader(), interfaces);
+          proxyClasses.put(type, new WeakReference<Class<?>>(proxyClass));
+        }
+      }
+      return getConstructor(proxyClass);
+    }
+
+    private static Constructor<?> getConstructor(Class<?> proxyClass) {
+      try {
+        Constructor<?> constructor = proxyClass.getConstructor(InvocationHandler.class);
+        if (!Modifier.isPublic(proxyClass.getModifiers())) {
+          constructor.setAccessible(true);
+        }
+        return constructor;
+      } catch (NoSuchMethodException e) {
+        throw new PluginException("Could not find the constructor of proxy class " + proxyClass + ". Cause: " + e, e);
+      }
+    }
+  }
+
+  /**
+   * An invocation whose target is the proxy of the interceptors before the current one, and which proceeds to them
+   * without going through that proxy.
+   */
+  private static final class ChainInvocation extends Invocation {
+    private final Plugin plugin;
+    private final int level;
+
+    ChainInvocation(Plugin plugin, int level, Method method, Object[] args) {
+      super(null, method, args);
+      this.plugin = plugin;
+      this.level = level;
+    }
+
+    @Override
+    public Object getTarget() {
+      return plugin.getTarget(level);
+    }
+
+    @Override
+    public Object proceed() throws InvocationTargetException, IllegalAccessException {
+      try {
+        return plugin.invoke(level - 1, getMethod(), getArgs());
+      } catch (Throwable t) {
+        throw new InvocationTargetException(t);
+      }
+    }
+  }
+
 }
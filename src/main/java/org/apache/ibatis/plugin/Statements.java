@@ -0,0 +1,42 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.plugin;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+import org.apache.ibatis.mapping.SqlCommandType;
+
+/**
+ * Restricts an interceptor to the ParameterHandler, ResultSetHandler and StatementHandler of some statements.
+ *
+ * A statement matches when its id is listed in <code>ids</code> or its namespace in <code>namespaces</code>, or
+ * both are empty, and its command type is listed in <code>commandTypes</code>, or it is empty. Executors do not
+ * belong to a statement and are always wrapped.
+ */
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target(ElementType.TYPE)
+public @interface Statements {
+  String[] ids() default {};
+
+  String[] namespaces() default {};
+
+  SqlCommandType[] commandTypes() default {};
+}
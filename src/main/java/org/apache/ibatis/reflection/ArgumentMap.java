@@ -0,0 +1,221 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.io.ObjectStreamException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+import org.apache.ibatis.lang.UsesJava8;
+
+/**
+ * A map of the arguments of a call, keyed by parameter name.
+ *
+ * It is created over the argument array and a name to index table shared by all the calls of a method, so that
+ * reading it with {@link #get(Object)} and {@link #containsKey(Object)} costs neither a hash table of its own nor
+ * an entry per name. The first other access copies the arguments into the underlying HashMap, after which it is
+ * an ordinary HashMap.
+ *
+ * @see ParamNameResolver#getNamedParams(Object[])
+ */
+public abstract class ArgumentMap<V> extends HashMap<String, V> {
+
+  private static final long serialVersionUID = 5340254813209537745L;
+
+  // 参数名到参数数组下标的映射，复制到HashMap后置为null
+  private transient Map<String, Integer> indexes;
+  private transient Object[] args;
+
+  protected ArgumentMap() {
+    super();
+  }
+
+  protected ArgumentMap(Map<String, Integer> indexes, Object[] args) {
+    super();
+    this.indexes = indexes;
+    this.args = args;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public V get(Object key) {
+    if (indexes != null) {
+      Integer index = indexes.get(key);
+      return index == null ? null : (V) args[index];
+    }
+    return super.get(key);
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return indexes != null ? indexes.containsKey(key) : super.containsKey(key);
+  }
+
+  @Override
+  public int size() {
+    return indexes != null ? indexes.size() : super.size();
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return size() == 0;
+  }
+
+  @Override
+  public boolean containsValue(Object value) {
+    materialize();
+    return super.containsValue(value);
+  }
+
+  @Override
+  public V put(String key, V value) {
+    materialize();
+    return super.put(key, value);
+  }
+
+  @Override
+  public void putAll(Map<? extends String, ? extends V> m) {
+    materialize();
+    super.putAll(m);
+  }
+
+  @Override
+  public V remove(Object key) {
+    materialize();
+    return super.remove(key);
+  }
+
+  @Override
+  public void clear() {
+    materialize();
+    super.clear();
+  }
+
+  @Override
+  public Set<String> keySet() {
+    materialize();
+    return super.keySet();
+  }
+
+  @Override
+  public Collection<V> values() {
+    materialize();
+    return super.values();
+  }
+
+  @Override
+  public Set<Map.Entry<String, V>> entrySet() {
+    materialize();
+    return super.entrySet();
+  }
+
+  @Override
+  public Object clone() {
+    materialize();
+    return super.clone();
+  }
+
+  // 以下为Java 8中HashMap直接访问内部table的方法
+
+  public V getOrDefault(Object key, V defaultValue) {
+    V value = get(key);
+    return value != null || containsKey(key) ? value : defaultValue;
+  }
+
+  @UsesJava8
+  public V putIfAbsent(String key, V value) {
+    materialize();
+    return super.putIfAbsent(key, value);
+  }
+
+  @UsesJava8
+  public boolean remove(Object key, Object value) {
+    materialize();
+    return super.remove(key, value);
+  }
+
+  @UsesJava8
+  public boolean replace(String key, V oldValue, V newValue) {
+    materialize();
+    return super.replace(key, oldValue, newValue);
+  }
+
+  @UsesJava8
+  public V replace(String key, V value) {
+    materialize();
+    return super.replace(key, value);
+  }
+
+  @UsesJava8
+  public V computeIfAbsent(String key, Function<? super String, ? extends V> mappingFunction) {
+    materialize();
+    return super.computeIfAbsent(key, mappingFunction);
+  }
+
+  @UsesJava8
+  public V computeIfPresent(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+    materialize();
+    return super.computeIfPresent(key, remappingFunction);
+  }
+
+  @UsesJava8
+  public V compute(String key, BiFunction<? super String, ? super V, ? extends V> remappingFunction) {
+    materialize();
+    return super.compute(key, remappingFunction);
+  }
+
+  @UsesJava8
+  public V merge(String key, V value, BiFunction<? super V, ? super V, ? extends V> remappingFunction) {
+    materialize();
+    return super.merge(key, value, remappingFunction);
+  }
+
+  @UsesJava8
+  public void forEach(BiConsumer<? super String, ? super V> action) {
+    materialize();
+    super.forEach(action);
+  }
+
+  @UsesJava8
+  public void replaceAll(BiFunction<? super String, ? super V, ? extends V> function) {
+    materialize();
+    super.replaceAll(function);
+  }
+
+  protected Object writeReplace() throws ObjectStreamException {
+    materialize();
+    return this;
+  }
+
+  @SuppressWarnings("unchecked")
+  private void materialize() {
+    if (indexes != null) {
+      Map<String, Integer> table = indexes;
+      Object[] values = args;
+      indexes = null;
+      args = null;
+      for (Map.Entry<String, Integer> entry : table.entrySet()) {
+        super.put(entry.getKey(), (V) values[entry.getValue()]);
+      }
+    }
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -55,13 +55,21 @@ public class DefaultReflectorFactory implements ReflectorFactory {
       Reflector cached = reflectorMap.get(type);
       if (cached == null) {
         // 重点，针对class构造一个反射器，并放入缓存
-        cached = new Reflector(type);
+        cached = newReflector(type);
         reflectorMap.put(type, cached);
       }
       return cached;
     } else {
-      return new Reflector(type);
+      return newReflector(type);
     }
   }
 
+  /**
+   * 构建时生成的索引中有该类时直接使用，否则扫描该类
+   */
+  private Reflector newReflector(Class<?> type) {
+    Reflector reflector = ReflectorIndex.findReflector(type);
+    return reflector != null ? reflector : new Reflector(type);
+  }
+
 }
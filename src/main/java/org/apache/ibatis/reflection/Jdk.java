@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -52,6 +52,42 @@ public class Jdk {
     dateAndTimeApiExists = available;
   }
 
+  /**
+   * <code>true</code> if <code>java.lang.invoke.LambdaMetafactory</code> is available.
+   */
+  public static final boolean lambdaMetafactoryExists;
+
+  static {
+    boolean available = false;
+    try {
+      Resources.classForName("java.lang.invoke.LambdaMetafactory");
+      available = true;
+    } catch (ClassNotFoundException e) {
+      // ignore
+    }
+    lambdaMetafactoryExists = available;
+  }
+
+  /**
+   * <code>true</code> if <code>java.lang.invoke.MethodHandles.privateLookupIn</code> is available (Java 9+).
+   */
+  public static final boolean privateLookupInExists;
+
+  static {
+    boolean available = false;
+    try {
+      Class<?> methodHandles = Resources.classForName("java.lang.invoke.MethodHandles");
+      Class<?> lookup = Resources.classForName("java.lang.invoke.MethodHandles$Lookup");
+      methodHandles.getMethod("privateLookupIn", Class.class, lookup);
+      available = true;
+    } catch (ClassNotFoundException e) {
+      // ignore
+    } catch (NoSuchMethodException e) {
+      // ignore
+    }
+    privateLookupInExists = available;
+  }
+
   private Jdk() {
     super();
   }
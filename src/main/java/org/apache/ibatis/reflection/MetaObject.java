@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.util.List;
 import java.util.Map;
 
 import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.invoker.Invoker;
 import org.apache.ibatis.reflection.property.PropertyTokenizer;
 import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.apache.ibatis.reflection.wrapper.CollectionWrapper;
@@ -32,6 +33,8 @@ import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
  */
 public class MetaObject {
 
+  private static final Object[] NO_ARGUMENTS = new Object[0];
+
   private final Object originalObject;
   private final ObjectWrapper objectWrapper;
   private final ObjectFactory objectFactory;
@@ -39,6 +42,12 @@ public class MetaObject {
   private final ReflectorFactory reflectorFactory;
 
   private MetaObject(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory) {
+    this(object, objectFactory, objectWrapperFactory, reflectorFactory, null);
+  }
+
+  // previous为上一个对象的MetaObject，同一个类的对象共用它的MetaClass，可以为null
+  private MetaObject(Object object, ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory,
+      MetaObject previous) {
     this.originalObject = object;
     this.objectFactory = objectFactory;
     this.objectWrapperFactory = objectWrapperFactory;
@@ -52,6 +61,9 @@ public class MetaObject {
       this.objectWrapper = new MapWrapper(this, (Map) object);
     } else if (object instanceof Collection) {
       this.objectWrapper = new CollectionWrapper(this, (Collection) object);
+    } else if (previous != null && previous.objectWrapper.getClass() == BeanWrapper.class
+        && previous.originalObject.getClass() == object.getClass()) {
+      this.objectWrapper = new BeanWrapper(this, object, ((BeanWrapper) previous.objectWrapper).getMetaClass());
     } else {
       this.objectWrapper = new BeanWrapper(this, object);
     }
@@ -65,6 +77,14 @@ public class MetaObject {
     }
   }
 
+  /*
+   * Same as forObject with the factories of the previous MetaObject, sharing its MetaClass if the object is a bean
+   * of the same class, see MetaObjectFactory
+   */
+  static MetaObject forObject(Object object, MetaObject previous) {
+    return new MetaObject(object, previous.objectFactory, previous.objectWrapperFactory, previous.reflectorFactory, previous);
+  }
+
   public ObjectFactory getObjectFactory() {
     return objectFactory;
   }
@@ -141,6 +161,98 @@ public class MetaObject {
     }
   }
 
+  /**
+   * Same as {@link #getValue(String)} for a compiled expression.
+   */
+  public Object getValue(PropertyPath path) {
+    Object object = originalObject;
+    int last = path.length() - 1;
+    for (int level = 0; level < last; level++) {
+      object = getProperty(object, level, path);
+      if (object == null) {
+        return null;
+      }
+    }
+    return getProperty(object, last, path);
+  }
+
+  /**
+   * Same as {@link #setValue(String, Object)} for a compiled expression.
+   */
+  public void setValue(PropertyPath path, Object value) {
+    Object object = originalObject;
+    int last = path.length() - 1;
+    for (int level = 0; level < last; level++) {
+      Object child = getProperty(object, level, path);
+      if (child == null) {
+        if (value == null) {
+          // don't instantiate child path if value is null
+          return;
+        }
+        child = wrapperFor(object, level).instantiatePropertyValue(path.name(level), path.token(level), objectFactory)
+            .getOriginalObject();
+      }
+      object = child;
+    }
+    setProperty(object, last, path, value);
+  }
+
+  /*
+   * 普通JavaBean的非下标属性直接调用缓存的Invoker，其余交给ObjectWrapper
+   */
+  private Object getProperty(Object object, int level, PropertyPath path) {
+    PropertyTokenizer prop = path.segment(level);
+    if (prop.getIndex() != null || !isBean(object, level)) {
+      return wrapperFor(object, level).get(prop);
+    }
+    try {
+      Invoker method = path.getGetInvoker(level, object.getClass(), reflectorFactory);
+      try {
+        return method.invoke(object, NO_ARGUMENTS);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (RuntimeException e) {
+      throw e;
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not get property '" + prop.getName() + "' from " + object.getClass() + ".  Cause: " + t.toString(), t);
+    }
+  }
+
+  private void setProperty(Object object, int level, PropertyPath path, Object value) {
+    PropertyTokenizer prop = path.segment(level);
+    if (prop.getIndex() != null || !isBean(object, level)) {
+      wrapperFor(object, level).set(prop, value);
+      return;
+    }
+    try {
+      Invoker method = path.getSetInvoker(level, object.getClass(), reflectorFactory);
+      Object[] params = {value};
+      try {
+        method.invoke(object, params);
+      } catch (Throwable t) {
+        throw ExceptionUtil.unwrapThrowable(t);
+      }
+    } catch (Throwable t) {
+      throw new ReflectionException("Could not set property '" + prop.getName() + "' of '" + object.getClass() + "' with value '" + value + "' Cause: " + t.toString(), t);
+    }
+  }
+
+  /*
+   * 与构造方法选择ObjectWrapper的判断一致
+   */
+  private boolean isBean(Object object, int level) {
+    if (level == 0) {
+      return objectWrapper.getClass() == BeanWrapper.class;
+    }
+    return !(object instanceof ObjectWrapper) && !objectWrapperFactory.hasWrapperFor(object)
+        && !(object instanceof Map) && !(object instanceof Collection);
+  }
+
+  private ObjectWrapper wrapperFor(Object object, int level) {
+    return level == 0 ? objectWrapper : forObject(object, objectFactory, objectWrapperFactory, reflectorFactory).getObjectWrapper();
+  }
+
   public MetaObject metaObjectForProperty(String name) {
     Object value = getValue(name);
     return MetaObject.forObject(value, objectFactory, objectWrapperFactory, reflectorFactory);
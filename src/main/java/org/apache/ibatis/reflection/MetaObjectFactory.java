@@ -0,0 +1,54 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import org.apache.ibatis.reflection.factory.ObjectFactory;
+import org.apache.ibatis.reflection.wrapper.ObjectWrapperFactory;
+
+/**
+ * Creates the MetaObjects of the objects of a loop, such as the rows of a result set.
+ *
+ * A new MetaObject and wrapper are still created for each object, but an object of the class of the previous one
+ * shares its MetaClass instead of looking up the class again. The MetaObjects are independent of each other and may
+ * be kept. Not thread safe.
+ */
+public class MetaObjectFactory {
+
+  private final ObjectFactory objectFactory;
+  private final ObjectWrapperFactory objectWrapperFactory;
+  private final ReflectorFactory reflectorFactory;
+  // 上一个对象的MetaObject
+  private MetaObject metaObject;
+
+  public MetaObjectFactory(ObjectFactory objectFactory, ObjectWrapperFactory objectWrapperFactory, ReflectorFactory reflectorFactory) {
+    this.objectFactory = objectFactory;
+    this.objectWrapperFactory = objectWrapperFactory;
+    this.reflectorFactory = reflectorFactory;
+  }
+
+  public MetaObject forObject(Object object) {
+    if (object == null) {
+      return SystemMetaObject.NULL_META_OBJECT;
+    }
+    if (metaObject == null) {
+      metaObject = MetaObject.forObject(object, objectFactory, objectWrapperFactory, reflectorFactory);
+    } else {
+      metaObject = MetaObject.forObject(object, metaObject);
+    }
+    return metaObject;
+  }
+
+}
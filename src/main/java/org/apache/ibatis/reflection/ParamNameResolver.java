@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -19,6 +19,7 @@ package org.apache.ibatis.reflection;
 import java.lang.annotation.Annotation;
 import java.lang.reflect.Method;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.Map;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -54,6 +55,9 @@ public class ParamNameResolver {
 
   private boolean hasParamAnnotation;
 
+  // 参数名（包括param1、param2...）到参数数组下标的映射，所有调用共用
+  private final Map<String, Integer> argumentIndexes;
+
   public ParamNameResolver(Configuration config, Method method) {
     // 方法的参数类型列表
     final Class<?>[] paramTypes = method.getParameterTypes();
@@ -106,6 +110,26 @@ public class ParamNameResolver {
       map.put(paramIndex, name);
     }
     names = Collections.unmodifiableSortedMap(map);
+    argumentIndexes = Collections.unmodifiableMap(resolveArgumentIndexes(names));
+  }
+
+  /**
+   * 按getNamedParams原先的放入顺序计算每个名字对应的参数下标，后放入的名字覆盖先放入的
+   */
+  private static Map<String, Integer> resolveArgumentIndexes(SortedMap<Integer, String> names) {
+    final Map<String, Integer> indexes = new HashMap<String, Integer>();
+    int i = 0;
+    for (Map.Entry<Integer, String> entry : names.entrySet()) {
+      indexes.put(entry.getValue(), entry.getKey());
+      // add generic param names (param1, param2, ...)
+      final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
+      // ensure not to overwrite parameter named with @Param
+      if (!names.containsValue(genericParamName)) {
+        indexes.put(genericParamName, entry.getKey());
+      }
+      i++;
+    }
+    return indexes;
   }
 
   /**
@@ -134,7 +158,7 @@ public class ParamNameResolver {
    * A single non-special parameter is returned without a name.<br />
    * Multiple parameters are named using the naming rule.<br />
    * In addition to the default names, this method also adds the generic names (param1, param2,
-   * ...).
+   * ...). The returned map reads the given array, which must not be modified afterwards.
    * </p>
    */
   public Object getNamedParams(Object[] args) {
@@ -155,20 +179,8 @@ public class ParamNameResolver {
        */
       return args[names.firstKey()];
     } else {
-      final Map<String, Object> param = new ParamMap<Object>();
-      int i = 0;
-      for (Map.Entry<Integer, String> entry : names.entrySet()) {
-        // 添加<参数名，参数值> 键值对到param中
-        param.put(entry.getValue(), args[entry.getKey()]);
-        // add generic param names (param1, param2, ...)
-        final String genericParamName = GENERIC_NAME_PREFIX + String.valueOf(i + 1);
-        // ensure not to overwrite parameter named with @Param
-        // 监测names中是否包含genericParamName，除非用户显示@Param("param1")这样子定义
-        if (!names.containsValue(genericParamName)) {
-          param.put(genericParamName, args[entry.getKey()]);
-        }
-        i++;
-      }
+      // 不复制参数，只记录参数数组和共用的名字下标表
+      final Map<String, Object> param = new ParamMap<Object>(argumentIndexes, args);
       return param;
     }
   }
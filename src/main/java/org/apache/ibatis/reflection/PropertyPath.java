@@ -0,0 +1,133 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.property.PropertyTokenizer;
+
+/**
+ * A property expression like <code>order.customer.address[0].zip</code> tokenized once.
+ *
+ * {@link MetaObject#getValue(PropertyPath)} and {@link MetaObject#setValue(PropertyPath, Object)} walk it without
+ * parsing the expression again nor creating a MetaObject for each bean along the path. Each segment also remembers the
+ * getter and setter of the last class it was read from or written to.
+ */
+public final class PropertyPath {
+
+  private final String expression;
+  // 第i级剩余的表达式及其分词器，与MetaObject递归时每一级看到的相同
+  private final String[] names;
+  private final PropertyTokenizer[] tokens;
+  // 第i级自身（不含子级）的分词器
+  private final PropertyTokenizer[] segments;
+  // 每一级最近使用的类及其getter、setter
+  private final Accessor[] getters;
+  private final Accessor[] setters;
+
+  private PropertyPath(String expression) {
+    List<String> nameList = new ArrayList<String>();
+    List<PropertyTokenizer> tokenList = new ArrayList<PropertyTokenizer>();
+    String name = expression;
+    while (name != null) {
+      PropertyTokenizer token = new PropertyTokenizer(name);
+      nameList.add(name);
+      tokenList.add(token);
+      name = token.getChildren();
+    }
+    this.expression = expression;
+    this.names = nameList.toArray(new String[nameList.size()]);
+    this.tokens = tokenList.toArray(new PropertyTokenizer[tokenList.size()]);
+    this.segments = new PropertyTokenizer[tokens.length];
+    for (int i = 0; i < tokens.length; i++) {
+      segments[i] = tokens[i].hasNext() ? new PropertyTokenizer(tokens[i].getIndexedName()) : tokens[i];
+    }
+    this.getters = new Accessor[tokens.length];
+    this.setters = new Accessor[tokens.length];
+  }
+
+  public static PropertyPath compile(String expression) {
+    return new PropertyPath(expression);
+  }
+
+  public static PropertyPath[] compile(String[] expressions) {
+    if (expressions == null) {
+      return null;
+    }
+    PropertyPath[] paths = new PropertyPath[expressions.length];
+    for (int i = 0; i < expressions.length; i++) {
+      paths[i] = new PropertyPath(expressions[i]);
+    }
+    return paths;
+  }
+
+  public String getExpression() {
+    return expression;
+  }
+
+  int length() {
+    return tokens.length;
+  }
+
+  String name(int level) {
+    return names[level];
+  }
+
+  PropertyTokenizer token(int level) {
+    return tokens[level];
+  }
+
+  PropertyTokenizer segment(int level) {
+    return segments[level];
+  }
+
+  Invoker getGetInvoker(int level, Class<?> type, ReflectorFactory reflectorFactory) {
+    Accessor accessor = getters[level];
+    if (accessor == null || accessor.type != type) {
+      accessor = new Accessor(type, reflectorFactory.findForClass(type).getGetInvoker(segments[level].getName()));
+      getters[level] = accessor;
+    }
+    return accessor.invoker;
+  }
+
+  Invoker getSetInvoker(int level, Class<?> type, ReflectorFactory reflectorFactory) {
+    Accessor accessor = setters[level];
+    if (accessor == null || accessor.type != type) {
+      accessor = new Accessor(type, reflectorFactory.findForClass(type).getSetInvoker(segments[level].getName()));
+      setters[level] = accessor;
+    }
+    return accessor.invoker;
+  }
+
+  @Override
+  public String toString() {
+    return expression;
+  }
+
+  // 不可变，多线程下最坏只是重复查找
+  private static final class Accessor {
+    private final Class<?> type;
+    private final Invoker invoker;
+
+    Accessor(Class<?> type, Invoker invoker) {
+      this.type = type;
+      this.invoker = invoker;
+    }
+  }
+
+}
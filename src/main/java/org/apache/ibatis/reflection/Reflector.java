@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,10 +15,12 @@
  */
 package org.apache.ibatis.reflection;
 
+import java.lang.reflect.AccessibleObject;
 import java.lang.reflect.Array;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.GenericArrayType;
+import java.lang.reflect.Member;
 import java.lang.reflect.Method;
 import java.lang.reflect.Modifier;
 import java.lang.reflect.ParameterizedType;
@@ -34,6 +36,7 @@ import java.util.Map.Entry;
 
 import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
 import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaInvoker;
 import org.apache.ibatis.reflection.invoker.MethodInvoker;
 import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
 import org.apache.ibatis.reflection.property.PropertyNamer;
@@ -87,6 +90,45 @@ public class Reflector {
     // 提供了set方法的属性名集合
     writeablePropertyNames = setMethods.keySet().toArray(new String[setMethods.keySet().size()]);
     // 所有属性名大小写map集合<全大写属性名，原属性名>
+    addCaseInsensitiveNames();
+  }
+
+  /**
+   * 使用构建时生成的索引中已解析好的getter、setter（Method或Field）及其类型，不再扫描方法和解析泛型
+   * @see ReflectorIndex
+   */
+  Reflector(Class<?> clazz, Map<String, Member> getters, Map<String, Class<?>> getterTypes,
+      Map<String, Member> setters, Map<String, Class<?>> setterTypes) {
+    type = clazz;
+    addDefaultConstructor(clazz);
+    for (Entry<String, Member> entry : getters.entrySet()) {
+      Member member = entry.getValue();
+      if (member instanceof Method) {
+        makeAccessible((Method) member);
+        getMethods.put(entry.getKey(), newMethodInvoker((Method) member));
+      } else {
+        makeAccessible((Field) member);
+        getMethods.put(entry.getKey(), new GetFieldInvoker((Field) member));
+      }
+    }
+    for (Entry<String, Member> entry : setters.entrySet()) {
+      Member member = entry.getValue();
+      if (member instanceof Method) {
+        makeAccessible((Method) member);
+        setMethods.put(entry.getKey(), newMethodInvoker((Method) member));
+      } else {
+        makeAccessible((Field) member);
+        setMethods.put(entry.getKey(), new SetFieldInvoker((Field) member));
+      }
+    }
+    getTypes.putAll(getterTypes);
+    setTypes.putAll(setterTypes);
+    readablePropertyNames = getMethods.keySet().toArray(new String[getMethods.keySet().size()]);
+    writeablePropertyNames = setMethods.keySet().toArray(new String[setMethods.keySet().size()]);
+    addCaseInsensitiveNames();
+  }
+
+  private void addCaseInsensitiveNames() {
     for (String propName : readablePropertyNames) {
       caseInsensitivePropertyMap.put(propName.toUpperCase(Locale.ENGLISH), propName);
     }
@@ -95,6 +137,16 @@ public class Reflector {
     }
   }
 
+  private static void makeAccessible(AccessibleObject member) {
+    if (canAccessPrivateMethods()) {
+      try {
+        member.setAccessible(true);
+      } catch (Exception e) {
+        // Ignored. This is only a final precaution, nothing we can do.
+      }
+    }
+  }
+
   /**
    * 设置无参构造对象
    * @param clazz
@@ -206,7 +258,7 @@ public class Reflector {
   private void addGetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
       // 属性名和get方法的映射
-      getMethods.put(name, new MethodInvoker(method));
+      getMethods.put(name, newMethodInvoker(method));
       // 属性名和返回值类型的映射
       Type returnType = TypeParameterResolver.resolveReturnType(method, type);
       getTypes.put(name, typeToClass(returnType));
@@ -311,12 +363,25 @@ public class Reflector {
    */
   private void addSetMethod(String name, Method method) {
     if (isValidPropertyName(name)) {
-      setMethods.put(name, new MethodInvoker(method));
+      setMethods.put(name, newMethodInvoker(method));
       Type[] paramTypes = TypeParameterResolver.resolveParamTypes(method, type);
       setTypes.put(name, typeToClass(paramTypes[0]));
     }
   }
 
+  /**
+   * JVM支持时使用LambdaMetafactory生成的访问器，否则或生成失败时使用反射
+   */
+  private static Invoker newMethodInvoker(Method method) {
+    if (Jdk.lambdaMetafactoryExists) {
+      Invoker invoker = LambdaInvoker.forMethod(method);
+      if (invoker != null) {
+        return invoker;
+      }
+    }
+    return new MethodInvoker(method);
+  }
+
   /**
    * Type是Java编程语言中所有类型的公共高级接口
    * TODO 留个todo项，以后研究
@@ -593,6 +658,17 @@ public class Reflector {
     return getMethods.keySet().contains(propertyName);
   }
 
+  /*
+   * The getter or setter methods and fields by property name, for ReflectorIndex
+   */
+  Map<String, Invoker> getGetInvokers() {
+    return getMethods;
+  }
+
+  Map<String, Invoker> getSetInvokers() {
+    return setMethods;
+  }
+
   public String findPropertyName(String name) {
     return caseInsensitivePropertyMap.get(name.toUpperCase(Locale.ENGLISH));
   }
@@ -0,0 +1,418 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.net.JarURLConnection;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.URLConnection;
+import java.security.CodeSource;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+import java.util.jar.JarEntry;
+import java.util.zip.CRC32;
+
+import org.apache.ibatis.logging.Log;
+import org.apache.ibatis.logging.LogFactory;
+import org.apache.ibatis.reflection.invoker.GetFieldInvoker;
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaInvoker;
+import org.apache.ibatis.reflection.invoker.MethodInvoker;
+import org.apache.ibatis.reflection.invoker.SetFieldInvoker;
+
+/**
+ * An index of the getters and setters of classes computed at build time, read by {@link DefaultReflectorFactory}
+ * instead of scanning the methods and resolving the generic types of each class at startup.
+ *
+ * The index is the resource <code>META-INF/mybatis/reflector.index</code> of the class loader of the classes, usually
+ * written by <code>org.apache.ibatis.builder.ReflectorIndexGenerator</code> into the classes directory. Each class
+ * takes one <code>class</code> line, followed by one line per class file of the class and its supertypes, holding
+ * its size, CRC and modification time, then by one line per property:
+ *
+ * <pre>
+ * class com.example.User
+ * file com.example.User 1337 5f1c09e2 1700000000000
+ * file com.example.Person 2046 9a3e1f07 1700000000000
+ * get name method com.example.Person getName java.lang.String
+ * set name method com.example.Person setName java.lang.String java.lang.String
+ * set id field com.example.Entity id java.lang.Long
+ * </pre>
+ *
+ * A setter method line holds its raw parameter type before the resolved property type. A class whose class files
+ * changed since the index was written, for example because a property was added, is scanned as usual.
+ */
+public class ReflectorIndex {
+
+  public static final String RESOURCE = "META-INF/mybatis/reflector.index";
+
+  private static final Log log = LogFactory.getLog(ReflectorIndex.class);
+
+  private static final Map<String, Class<?>> primitives = new HashMap<String, Class<?>>();
+
+  static {
+    Class<?>[] types = { boolean.class, byte.class, char.class, short.class, int.class, long.class, float.class,
+        double.class, void.class };
+    for (Class<?> type : types) {
+      primitives.put(type.getName(), type);
+    }
+  }
+
+  // 每个类加载器的索引只读取一次，值为类名与其各行
+  private static final Map<ClassLoader, Map<String, List<String[]>>> indexes = new WeakHashMap<ClassLoader, Map<String, List<String[]>>>();
+
+  private ReflectorIndex() {
+    super();
+  }
+
+  /**
+   * @return the reflector of the indexed class, or <code>null</code> if the class is not indexed or its entry is stale
+   */
+  public static Reflector findReflector(Class<?> type) {
+    ClassLoader classLoader = type.getClassLoader();
+    if (classLoader == null) {
+      return null;
+    }
+    List<String[]> lines = indexOf(classLoader).get(type.getName());
+    return lines == null ? null : reflectorOf(type, lines);
+  }
+
+  static Reflector reflectorOf(Class<?> type, List<String[]> lines) {
+    ClassLoader classLoader = type.getClassLoader();
+    try {
+      Map<String, Member> getters = new HashMap<String, Member>();
+      Map<String, Class<?>> getterTypes = new HashMap<String, Class<?>>();
+      Map<String, Member> setters = new HashMap<String, Member>();
+      Map<String, Class<?>> setterTypes = new HashMap<String, Class<?>>();
+      // 成员所在的类几乎都是type的父类型，按名称查找而不必加载
+      Set<Class<?>> supertypes = supertypes(type);
+      Map<String, Class<?>> supertypesByName = new HashMap<String, Class<?>>();
+      for (Class<?> supertype : supertypes) {
+        supertypesByName.put(supertype.getName(), supertype);
+      }
+      List<Class<?>> classFiles = classFilesOf(supertypes);
+      int checked = 0;
+      // 每个类只取一次成员
+      Map<Class<?>, Method[]> methods = new HashMap<Class<?>, Method[]>();
+      Map<Class<?>, Field[]> fields = new HashMap<Class<?>, Field[]>();
+      for (String[] line : lines) {
+        if ("file".equals(line[0])) {
+          if (checked == classFiles.size() || !classFiles.get(checked).getName().equals(line[1])) {
+            throw new ReflectionException("The supertypes of the class changed since it was indexed.");
+          }
+          checkClassFile(classFiles.get(checked++), line);
+          continue;
+        }
+        boolean getter = "get".equals(line[0]);
+        String property = line[1];
+        Class<?> declaringClass = supertypesByName.get(line[3]);
+        if (declaringClass == null) {
+          declaringClass = classForName(line[3], classLoader);
+        }
+        Member member;
+        Class<?> memberType;
+        if ("field".equals(line[2])) {
+          Field field = findField(declaringClass, fields, line[4]);
+          member = field;
+          memberType = field.getType();
+        } else if (getter) {
+          Method method = findMethod(declaringClass, methods, line[4], null);
+          member = method;
+          memberType = method.getReturnType();
+        } else {
+          Method method = findMethod(declaringClass, methods, line[4], line[5]);
+          member = method;
+          memberType = method.getParameterTypes()[0];
+        }
+        // 只有解析了泛型的属性类型与成员的类型不同
+        String propertyTypeName = line[line.length - 1];
+        Class<?> propertyType = memberType.getName().equals(propertyTypeName) ? memberType
+            : classForName(propertyTypeName, classLoader);
+        (getter ? getters : setters).put(property, member);
+        (getter ? getterTypes : setterTypes).put(property, propertyType);
+      }
+      if (checked != classFiles.size()) {
+        throw new ReflectionException("The index does not hold all the class files of the class.");
+      }
+      return new Reflector(type, getters, getterTypes, setters, setterTypes);
+    } catch (Exception e) {
+      if (log.isDebugEnabled()) {
+        log.debug("Ignoring the stale reflector index of " + type + ". Cause: " + e);
+      }
+      return null;
+    }
+  }
+
+  /**
+   * Writes the entries of the given classes, scanning them even if they are already indexed.
+   */
+  public static void write(Writer writer, Collection<Class<?>> types) {
+    PrintWriter out = new PrintWriter(writer);
+    for (Class<?> type : types) {
+      Reflector reflector = new Reflector(type);
+      out.println("class " + type.getName());
+      for (Class<?> current : classFilesOf(supertypes(type))) {
+        try {
+          long[] classFile = classFileOf(current);
+          out.println("file " + current.getName() + " " + classFile[0] + " " + Long.toHexString(classFile[1]) + " "
+              + classFile[2]);
+        } catch (IOException e) {
+          // 没有file行的类读取时视为过期
+          log.debug("Could not read the class file of " + current + ". Cause: " + e);
+        }
+      }
+      // 按属性名排序，使生成的文件稳定
+      for (Map.Entry<String, Invoker> entry : new TreeMap<String, Invoker>(reflector.getGetInvokers()).entrySet()) {
+        out.println("get " + entry.getKey() + " " + describe(entry.getValue(), false) + " "
+            + reflector.getGetterType(entry.getKey()).getName());
+      }
+      for (Map.Entry<String, Invoker> entry : new TreeMap<String, Invoker>(reflector.getSetInvokers()).entrySet()) {
+        out.println("set " + entry.getKey() + " " + describe(entry.getValue(), true) + " "
+            + reflector.getSetterType(entry.getKey()).getName());
+      }
+    }
+    out.flush();
+  }
+
+  private static String describe(Invoker invoker, boolean setter) {
+    Method method = null;
+    Field field = null;
+    if (invoker instanceof MethodInvoker) {
+      method = ((MethodInvoker) invoker).getMethod();
+    } else if (Jdk.lambdaMetafactoryExists && invoker instanceof LambdaInvoker) {
+      method = ((LambdaInvoker) invoker).getMethod();
+    } else if (invoker instanceof GetFieldInvoker) {
+      field = ((GetFieldInvoker) invoker).getField();
+    } else if (invoker instanceof SetFieldInvoker) {
+      field = ((SetFieldInvoker) invoker).getField();
+    } else {
+      throw new ReflectionException("Cannot index the invoker " + invoker);
+    }
+    if (field != null) {
+      return "field " + field.getDeclaringClass().getName() + " " + field.getName();
+    }
+    String description = "method " + method.getDeclaringClass().getName() + " " + method.getName();
+    return setter ? description + " " + method.getParameterTypes()[0].getName() : description;
+  }
+
+  private static Field findField(Class<?> declaringClass, Map<Class<?>, Field[]> fields, String name)
+      throws NoSuchFieldException {
+    Field[] declared = fields.get(declaringClass);
+    if (declared == null) {
+      declared = declaringClass.getDeclaredFields();
+      fields.put(declaringClass, declared);
+    }
+    for (Field field : declared) {
+      if (field.getName().equals(name)) {
+        return field;
+      }
+    }
+    throw new NoSuchFieldException(declaringClass.getName() + "." + name);
+  }
+
+  /*
+   * The getter without parameters, or the setter with the given parameter type. Like getDeclaredMethod, a bridge method
+   * is only returned when there is no other method.
+   */
+  private static Method findMethod(Class<?> declaringClass, Map<Class<?>, Method[]> methods, String name,
+      String parameterType) throws NoSuchMethodException {
+    Method[] declared = methods.get(declaringClass);
+    if (declared == null) {
+      declared = declaringClass.getDeclaredMethods();
+      methods.put(declaringClass, declared);
+    }
+    Method bridge = null;
+    for (Method method : declared) {
+      if (method.getName().equals(name) && hasParameter(method, parameterType)) {
+        if (!method.isBridge()) {
+          return method;
+        }
+        bridge = method;
+      }
+    }
+    if (bridge == null) {
+      throw new NoSuchMethodException(declaringClass.getName() + "." + name);
+    }
+    return bridge;
+  }
+
+  private static boolean hasParameter(Method method, String parameterType) {
+    Class<?>[] parameterTypes = method.getParameterTypes();
+    return parameterType == null ? parameterTypes.length == 0
+        : parameterTypes.length == 1 && parameterTypes[0].getName().equals(parameterType);
+  }
+
+  /*
+   * Checks that the class file is the one that was indexed. A class file in a directory whose size and modification
+   * time did not change is not read, a class file in a jar is checked against the CRC of the jar directory.
+   */
+  private static void checkClassFile(Class<?> type, String[] line) throws IOException, URISyntaxException {
+    long size = Long.parseLong(line[2]);
+    long crc = Long.parseLong(line[3], 16);
+    long lastModified = Long.parseLong(line[4]);
+    String resource = type.getName().replace('.', '/') + ".class";
+    CodeSource codeSource = type.getProtectionDomain().getCodeSource();
+    URL location = codeSource == null ? null : codeSource.getLocation();
+    boolean unchanged;
+    if (location != null && "file".equals(location.getProtocol()) && location.getPath().endsWith("/")) {
+      File file = new File(new File(location.toURI()), resource);
+      unchanged = file.length() == size
+          && (file.lastModified() == lastModified || read(new FileInputStream(file))[1] == crc);
+    } else if (location != null && "file".equals(location.getProtocol())) {
+      // 使用URLConnection缓存的JarFile，不关闭
+      JarURLConnection connection = (JarURLConnection) new URL("jar:" + location + "!/").openConnection();
+      JarEntry entry = connection.getJarFile().getJarEntry(resource);
+      unchanged = entry != null && entry.getSize() == size && entry.getCrc() == crc;
+    } else {
+      long[] classFile = classFileOf(type);
+      unchanged = classFile[0] == size && classFile[1] == crc;
+    }
+    if (!unchanged) {
+      throw new ReflectionException("The class file of " + type + " changed since it was indexed.");
+    }
+  }
+
+  /*
+   * The size, CRC and modification time of the class file
+   */
+  private static long[] classFileOf(Class<?> type) throws IOException {
+    URL url = type.getClassLoader().getResource(type.getName().replace('.', '/') + ".class");
+    if (url == null) {
+      throw new IOException("Could not find the class file of " + type);
+    }
+    URLConnection connection = url.openConnection();
+    if (connection instanceof JarURLConnection) {
+      JarEntry entry = ((JarURLConnection) connection).getJarEntry();
+      return new long[] { entry.getSize(), entry.getCrc(), entry.getTime() };
+    }
+    long lastModified = connection.getLastModified();
+    long[] content = read(connection.getInputStream());
+    return new long[] { content[0], content[1], lastModified };
+  }
+
+  /*
+   * The size and CRC of the content of the stream, which is closed
+   */
+  private static long[] read(InputStream in) throws IOException {
+    long size = 0;
+    CRC32 crc = new CRC32();
+    try {
+      byte[] buffer = new byte[8192];
+      int n;
+      while ((n = in.read(buffer)) > 0) {
+        crc.update(buffer, 0, n);
+        size += n;
+      }
+    } finally {
+      in.close();
+    }
+    return new long[] { size, crc.getValue() };
+  }
+
+  /*
+   * The class, its superclasses and their interfaces whose class files are checked, the classes of the JDK excepted
+   */
+  private static List<Class<?>> classFilesOf(Set<Class<?>> supertypes) {
+    List<Class<?>> classes = new ArrayList<Class<?>>();
+    for (Class<?> current : supertypes) {
+      String name = current.getName();
+      if (current.getClassLoader() != null && !name.startsWith("java.") && !name.startsWith("javax.")) {
+        classes.add(current);
+      }
+    }
+    return classes;
+  }
+
+  private static Set<Class<?>> supertypes(Class<?> type) {
+    Set<Class<?>> supertypes = new LinkedHashSet<Class<?>>();
+    for (Class<?> current = type; current != null; current = current.getSuperclass()) {
+      addWithInterfaces(current, supertypes);
+    }
+    return supertypes;
+  }
+
+  private static void addWithInterfaces(Class<?> type, Set<Class<?>> types) {
+    if (types.add(type)) {
+      for (Class<?> anInterface : type.getInterfaces()) {
+        addWithInterfaces(anInterface, types);
+      }
+    }
+  }
+
+  private static synchronized Map<String, List<String[]>> indexOf(ClassLoader classLoader) {
+    Map<String, List<String[]>> index = indexes.get(classLoader);
+    if (index == null) {
+      index = new HashMap<String, List<String[]>>();
+      try {
+        Enumeration<URL> urls = classLoader.getResources(RESOURCE);
+        while (urls.hasMoreElements()) {
+          BufferedReader reader = new BufferedReader(new InputStreamReader(urls.nextElement().openStream(), "UTF-8"));
+          try {
+            read(reader, index);
+          } finally {
+            reader.close();
+          }
+        }
+      } catch (IOException e) {
+        log.debug("Could not read the reflector index. Cause: " + e);
+      }
+      indexes.put(classLoader, index);
+    }
+    return index;
+  }
+
+  static void read(BufferedReader reader, Map<String, List<String[]>> index) throws IOException {
+    List<String[]> lines = null;
+    String line;
+    while ((line = reader.readLine()) != null) {
+      line = line.trim();
+      if (line.length() == 0 || line.startsWith("#")) {
+        continue;
+      }
+      String[] tokens = line.split(" ");
+      if ("class".equals(tokens[0])) {
+        lines = new ArrayList<String[]>();
+        index.put(tokens[1], lines);
+      } else if (lines != null) {
+        lines.add(tokens);
+      }
+    }
+  }
+
+  private static Class<?> classForName(String name, ClassLoader classLoader) throws ClassNotFoundException {
+    Class<?> type = primitives.get(name);
+    return type != null ? type : Class.forName(name, false, classLoader);
+  }
+
+}
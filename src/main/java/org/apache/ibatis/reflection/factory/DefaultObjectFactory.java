@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -27,6 +27,8 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import org.apache.ibatis.reflection.ReflectionException;
 
@@ -37,6 +39,9 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
 
   private static final long serialVersionUID = -8855120656740914948L;
 
+  // 已解析的构造方法，反序列化后为null，使用时重新创建
+  private transient volatile ConcurrentMap<ConstructorKey, Constructor<?>> constructors;
+
   @Override
   public <T> T create(Class<T> type) {
     return create(type, null, null);
@@ -57,18 +62,10 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
 
   private  <T> T instantiateClass(Class<T> type, List<Class<?>> constructorArgTypes, List<Object> constructorArgs) {
     try {
-      Constructor<T> constructor;
       if (constructorArgTypes == null || constructorArgs == null) {
-        constructor = type.getDeclaredConstructor();
-        if (!constructor.isAccessible()) {
-          constructor.setAccessible(true);
-        }
-        return constructor.newInstance();
-      }
-      constructor = type.getDeclaredConstructor(constructorArgTypes.toArray(new Class[constructorArgTypes.size()]));
-      if (!constructor.isAccessible()) {
-        constructor.setAccessible(true);
+        return resolveConstructor(type, null).newInstance();
       }
+      Constructor<T> constructor = resolveConstructor(type, constructorArgTypes);
       return constructor.newInstance(constructorArgs.toArray(new Object[constructorArgs.size()]));
     } catch (Exception e) {
       StringBuilder argTypes = new StringBuilder();
@@ -91,6 +88,33 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
     }
   }
 
+  /*
+   * getDeclaredConstructor会复制所有构造方法，所以每个类型与参数类型只查找一次
+   */
+  @SuppressWarnings("unchecked")
+  private <T> Constructor<T> resolveConstructor(Class<T> type, List<Class<?>> constructorArgTypes) throws NoSuchMethodException {
+    ConcurrentMap<ConstructorKey, Constructor<?>> cache = constructors;
+    if (cache == null) {
+      cache = new ConcurrentHashMap<ConstructorKey, Constructor<?>>();
+      constructors = cache;
+    }
+    Constructor<T> constructor = (Constructor<T>) cache.get(new ConstructorKey(type, constructorArgTypes));
+    if (constructor == null) {
+      if (constructorArgTypes == null) {
+        constructor = type.getDeclaredConstructor();
+      } else {
+        constructor = type.getDeclaredConstructor(constructorArgTypes.toArray(new Class[constructorArgTypes.size()]));
+      }
+      if (!constructor.isAccessible()) {
+        constructor.setAccessible(true);
+      }
+      // 调用方会复用参数类型列表，所以保存副本
+      List<Class<?>> argTypes = constructorArgTypes == null ? null : new ArrayList<Class<?>>(constructorArgTypes);
+      cache.put(new ConstructorKey(type, argTypes), constructor);
+    }
+    return constructor;
+  }
+
   protected Class<?> resolveInterface(Class<?> type) {
     Class<?> classToCreate;
     if (type == List.class || type == Collection.class || type == Iterable.class) {
@@ -112,4 +136,28 @@ public class DefaultObjectFactory implements ObjectFactory, Serializable {
     return Collection.class.isAssignableFrom(type);
   }
 
+  private static final class ConstructorKey {
+    private final Class<?> type;
+    private final List<Class<?>> argTypes;
+
+    ConstructorKey(Class<?> type, List<Class<?>> argTypes) {
+      this.type = type;
+      this.argTypes = argTypes;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      if (!(o instanceof ConstructorKey)) {
+        return false;
+      }
+      ConstructorKey that = (ConstructorKey) o;
+      return type == that.type && (argTypes == null ? that.argTypes == null : argTypes.equals(that.argTypes));
+    }
+
+    @Override
+    public int hashCode() {
+      return 31 * type.hashCode() + (argTypes == null ? 0 : argTypes.hashCode());
+    }
+  }
+
 }
@@ -0,0 +1,224 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection.invoker;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import org.apache.ibatis.lang.UsesJava8;
+
+/**
+ * An invoker of a getter or setter through a class generated by <code>LambdaMetafactory</code>.
+ *
+ * Unlike {@link MethodInvoker} it does not box the arguments into an array nor check the access on each call, and the
+ * JIT can inline the accessor into the caller. The accessor is generated on the first call, since most properties of
+ * a class are never accessed; if it cannot be generated, the method is invoked through reflection. Calls whose target
+ * or arguments do not fit the method exactly also go through <code>Method.invoke</code>, so that they convert or fail
+ * just like it. Exceptions thrown by the accessor are wrapped into an {@link InvocationTargetException} just like
+ * <code>Method.invoke</code> does.
+ */
+@UsesJava8
+public abstract class LambdaInvoker implements Invoker {
+
+  private static final int ALL_MODES = MethodHandles.Lookup.PRIVATE | MethodHandles.Lookup.PROTECTED
+      | MethodHandles.Lookup.PACKAGE | MethodHandles.Lookup.PUBLIC;
+  private static final MethodType GETTER_TYPE = MethodType.methodType(Object.class, Object.class);
+  private static final MethodType SETTER_TYPE = MethodType.methodType(void.class, Object.class, Object.class);
+  // 访问器无法生成时的标记，之后都使用反射
+  private static final Object REFLECTIVE = new Object();
+
+  // Java 9以上为MethodHandles.privateLookupIn，Java 8为Lookup的私有构造方法，都不可用时为null
+  private static final Method privateLookupIn;
+  private static final Constructor<MethodHandles.Lookup> lookupConstructor;
+
+  static {
+    Method method = null;
+    Constructor<MethodHandles.Lookup> constructor = null;
+    try {
+      method = MethodHandles.class.getMethod("privateLookupIn", Class.class, MethodHandles.Lookup.class);
+    } catch (NoSuchMethodException e) {
+      try {
+        constructor = MethodHandles.Lookup.class.getDeclaredConstructor(Class.class, int.class);
+        constructor.setAccessible(true);
+      } catch (Exception e2) {
+        constructor = null;
+      }
+    }
+    privateLookupIn = method;
+    lookupConstructor = constructor;
+  }
+
+  private final Method method;
+  private final Class<?> type;
+  // 第一次调用时生成的Function或BiConsumer，或REFLECTIVE
+  private volatile Object accessor;
+
+  LambdaInvoker(Method method, Class<?> type) {
+    this.method = method;
+    this.type = type;
+  }
+
+  /**
+   * Creates the invoker of a getter without parameters or a setter with one parameter. The accessor itself is
+   * generated on the first call.
+   *
+   * @return the invoker, or <code>null</code> if the method is not an accessible getter or setter
+   */
+  public static Invoker forMethod(Method method) {
+    Class<?>[] paramTypes = method.getParameterTypes();
+    if (Modifier.isStatic(method.getModifiers()) || paramTypes.length > 1 || !isAccessible(method)) {
+      return null;
+    }
+    return paramTypes.length == 0 ? new Getter(method) : new Setter(method);
+  }
+
+  public Method getMethod() {
+    return method;
+  }
+
+  @Override
+  public Class<?> getType() {
+    return type;
+  }
+
+  @Override
+  public Object invoke(Object target, Object[] args) throws IllegalAccessException, InvocationTargetException {
+    Object accessor = this.accessor;
+    if (accessor == null) {
+      // 并发时可能生成多次，结果相同，无需加锁
+      accessor = createAccessor();
+      this.accessor = accessor;
+    }
+    if (accessor == REFLECTIVE || !fits(target, args)) {
+      return method.invoke(target, args);
+    }
+    try {
+      return call(accessor, target, args);
+    } catch (Throwable t) {
+      throw new InvocationTargetException(t);
+    }
+  }
+
+  /*
+   * Tells whether the accessor can take the target and arguments without a conversion Method.invoke would make or
+   * a check it would fail
+   */
+  boolean fits(Object target, Object[] args) {
+    return method.getDeclaringClass().isInstance(target);
+  }
+
+  abstract Object createAccessor(MethodHandles.Lookup lookup, MethodHandle handle) throws Throwable;
+
+  abstract Object call(Object accessor, Object target, Object[] args);
+
+  private Object createAccessor() {
+    try {
+      MethodHandles.Lookup lookup = privateLookup(method.getDeclaringClass());
+      if (lookup != null) {
+        return createAccessor(lookup, lookup.unreflect(method));
+      }
+    } catch (Throwable t) {
+      // 例如模块不开放或类加载器不可见，回退到反射
+    }
+    return REFLECTIVE;
+  }
+
+  /*
+   * Method.invoke would fail with an IllegalAccessException, so must the accessor
+   */
+  private static boolean isAccessible(Method method) {
+    return method.isAccessible()
+        || (Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(method.getDeclaringClass().getModifiers()));
+  }
+
+  private static MethodHandles.Lookup privateLookup(Class<?> declaringClass) throws Exception {
+    if (privateLookupIn != null) {
+      return (MethodHandles.Lookup) privateLookupIn.invoke(null, declaringClass, MethodHandles.lookup());
+    } else if (lookupConstructor != null) {
+      return lookupConstructor.newInstance(declaringClass, ALL_MODES);
+    }
+    return null;
+  }
+
+  @UsesJava8
+  private static final class Getter extends LambdaInvoker {
+
+    Getter(Method method) {
+      super(method, method.getReturnType());
+    }
+
+    @Override
+    boolean fits(Object target, Object[] args) {
+      return (args == null || args.length == 0) && super.fits(target, args);
+    }
+
+    @Override
+    Object createAccessor(MethodHandles.Lookup lookup, MethodHandle handle) throws Throwable {
+      CallSite site = LambdaMetafactory.metafactory(lookup, "apply", MethodType.methodType(Function.class),
+          GETTER_TYPE, handle, handle.type().wrap());
+      return site.getTarget().invokeWithArguments();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object call(Object accessor, Object target, Object[] args) {
+      return ((Function<Object, Object>) accessor).apply(target);
+    }
+  }
+
+  @UsesJava8
+  private static final class Setter extends LambdaInvoker {
+    // 基本类型参数对应的包装类型
+    private final Class<?> boxedType;
+
+    Setter(Method method) {
+      super(method, method.getParameterTypes()[0]);
+      this.boxedType = MethodType.methodType(getType()).wrap().returnType();
+    }
+
+    @Override
+    boolean fits(Object target, Object[] args) {
+      // null不能传给基本类型，其他类型的值可能需要拓宽转换，都交给Method.invoke处理
+      return args != null && args.length == 1
+          && (args[0] == null ? !getType().isPrimitive() : boxedType.isInstance(args[0]))
+          && super.fits(target, args);
+    }
+
+    @Override
+    Object createAccessor(MethodHandles.Lookup lookup, MethodHandle handle) throws Throwable {
+      CallSite site = LambdaMetafactory.metafactory(lookup, "accept", MethodType.methodType(BiConsumer.class),
+          SETTER_TYPE, handle, handle.type().wrap().changeReturnType(void.class));
+      return site.getTarget().invokeWithArguments();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    Object call(Object accessor, Object target, Object[] args) {
+      ((BiConsumer<Object, Object>) accessor).accept(target, args[0]);
+      return null;
+    }
+  }
+
+}
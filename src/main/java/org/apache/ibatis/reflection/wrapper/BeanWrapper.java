@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -40,6 +40,19 @@ public class BeanWrapper extends BaseWrapper {
     this.metaClass = MetaClass.forClass(object.getClass(), metaObject.getReflectorFactory());
   }
 
+  /**
+   * Wraps another instance of the class of the given MetaClass without looking it up again.
+   */
+  public BeanWrapper(MetaObject metaObject, Object object, MetaClass metaClass) {
+    super(metaObject);
+    this.object = object;
+    this.metaClass = metaClass;
+  }
+
+  public MetaClass getMetaClass() {
+    return metaClass;
+  }
+
   @Override
   public Object get(PropertyTokenizer prop) {
     if (prop.getIndex() != null) {
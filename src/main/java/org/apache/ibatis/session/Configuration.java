@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,7 @@
  */
 package org.apache.ibatis.session;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
@@ -24,6 +25,12 @@ import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.apache.ibatis.binding.MapperRegistry;
 import org.apache.ibatis.builder.CacheRefResolver;
@@ -31,19 +38,24 @@ import org.apache.ibatis.builder.ResultMapResolver;
 import org.apache.ibatis.builder.annotation.MethodResolver;
 import org.apache.ibatis.builder.xml.XMLStatementBuilder;
 import org.apache.ibatis.cache.Cache;
+import org.apache.ibatis.cache.CacheSnapshot;
+import org.apache.ibatis.cache.CacheStatistics;
 import org.apache.ibatis.cache.decorators.FifoCache;
 import org.apache.ibatis.cache.decorators.LruCache;
 import org.apache.ibatis.cache.decorators.SoftCache;
 import org.apache.ibatis.cache.decorators.WeakCache;
 import org.apache.ibatis.cache.impl.PerpetualCache;
 import org.apache.ibatis.datasource.jndi.JndiDataSourceFactory;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSourceFactory;
 import org.apache.ibatis.datasource.pooled.PooledDataSourceFactory;
+import org.apache.ibatis.datasource.routing.RoutingDataSourceFactory;
 import org.apache.ibatis.datasource.unpooled.UnpooledDataSourceFactory;
 import org.apache.ibatis.executor.BatchExecutor;
 import org.apache.ibatis.executor.CachingExecutor;
 import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.ReuseExecutor;
 import org.apache.ibatis.executor.SimpleExecutor;
+import org.apache.ibatis.executor.StatementCacheRefresher;
 import org.apache.ibatis.executor.keygen.KeyGenerator;
 import org.apache.ibatis.executor.loader.ProxyFactory;
 import org.apache.ibatis.executor.loader.cglib.CglibProxyFactory;
@@ -52,6 +64,9 @@ import org.apache.ibatis.executor.parameter.ParameterHandler;
 import org.apache.ibatis.executor.resultset.DefaultResultSetHandler;
 import org.apache.ibatis.executor.resultset.ResultSetHandler;
 import org.apache.ibatis.executor.statement.RoutingStatementHandler;
+import org.apache.ibatis.executor.sharding.DefaultShardResolver;
+import org.apache.ibatis.executor.sharding.ShardResolver;
+import org.apache.ibatis.executor.sharding.ShardingExecutor;
 import org.apache.ibatis.executor.statement.StatementHandler;
 import org.apache.ibatis.io.VFS;
 import org.apache.ibatis.logging.Log;
@@ -74,6 +89,7 @@ import org.apache.ibatis.plugin.Interceptor;
 import org.apache.ibatis.plugin.InterceptorChain;
 import org.apache.ibatis.reflection.DefaultReflectorFactory;
 import org.apache.ibatis.reflection.MetaObject;
+import org.apache.ibatis.reflection.MetaObjectFactory;
 import org.apache.ibatis.reflection.ReflectorFactory;
 import org.apache.ibatis.reflection.factory.DefaultObjectFactory;
 import org.apache.ibatis.reflection.factory.ObjectFactory;
@@ -98,6 +114,10 @@ import org.apache.ibatis.type.TypeHandlerRegistry;
 public class Configuration {
 
   protected Environment environment;
+  // <environments shards="...">列出的环境，下标即分片号
+  protected final List<Environment> shardEnvironments = new ArrayList<Environment>();
+  protected ShardResolver shardResolver = new DefaultShardResolver();
+  private ExecutorService shardExecutorService;
 
   // ========== settings配置start ==========
   protected boolean safeRowBoundsEnabled;
@@ -111,6 +131,11 @@ public class Configuration {
   protected boolean callSettersOnNulls;
   protected boolean useActualParamName = true;
   protected boolean returnInstanceForEmptyRow;
+  protected boolean jmxEnabled;
+  protected boolean mapperGenerationEnabled;
+  protected boolean compactMapRowsEnabled;
+  protected String cacheSnapshotFile;
+  protected long cacheSnapshotMaxAge;
   // ========== settings配置end ==========
 
 
@@ -118,6 +143,8 @@ public class Configuration {
   protected Class <? extends Log> logImpl;
   protected Class <? extends VFS> vfsImpl;
   protected LocalCacheScope localCacheScope = LocalCacheScope.SESSION;
+  protected int localCacheMaxEntries;
+  protected long localCacheMaxWeight;
   protected JdbcType jdbcTypeForNull = JdbcType.OTHER;
   protected Set<String> lazyLoadTriggerMethods = new HashSet<String>(Arrays.asList(new String[] { "equals", "clone", "hashCode", "toString" }));
   protected Integer defaultStatementTimeout;
@@ -156,9 +183,12 @@ public class Configuration {
   // 存储别名（JDK内置常用，mybatis内置常用，以及我们配置文件中定义的）的map集合
   protected final TypeAliasRegistry typeAliasRegistry = new TypeAliasRegistry();
   protected final LanguageDriverRegistry languageRegistry = new LanguageDriverRegistry();
+  protected final StatementCacheRefresher cacheRefresher = new StatementCacheRefresher(this);
+  protected final CacheSnapshot cacheSnapshot = new CacheSnapshot(this);
 
   protected final Map<String, MappedStatement> mappedStatements = new StrictMap<MappedStatement>("Mapped Statements collection");
   protected final Map<String, Cache> caches = new StrictMap<Cache>("Caches collection");
+  protected final ConcurrentMap<String, CacheStatistics> cacheStatistics = new ConcurrentHashMap<String, CacheStatistics>();
   protected final Map<String, ResultMap> resultMaps = new StrictMap<ResultMap>("Result Maps collection");
   protected final Map<String, ParameterMap> parameterMaps = new StrictMap<ParameterMap>("Parameter Maps collection");
   protected final Map<String, KeyGenerator> keyGenerators = new StrictMap<KeyGenerator>("Key Generators collection");
@@ -193,7 +223,9 @@ public class Configuration {
 
     typeAliasRegistry.registerAlias("JNDI", JndiDataSourceFactory.class);
     typeAliasRegistry.registerAlias("POOLED", PooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("CONCURRENT_POOLED", ConcurrentPooledDataSourceFactory.class);
     typeAliasRegistry.registerAlias("UNPOOLED", UnpooledDataSourceFactory.class);
+    typeAliasRegistry.registerAlias("ROUTING", RoutingDataSourceFactory.class);
 
     typeAliasRegistry.registerAlias("PERPETUAL", PerpetualCache.class);
     typeAliasRegistry.registerAlias("FIFO", FifoCache.class);
@@ -275,6 +307,52 @@ public class Configuration {
     this.returnInstanceForEmptyRow = returnEmptyInstance;
   }
 
+  public boolean isMapperGenerationEnabled() {
+    return mapperGenerationEnabled;
+  }
+
+  /**
+   * 开启后getMapper返回用Javassist生成的实现类的实例，而不是JDK动态代理
+   */
+  public void setMapperGenerationEnabled(boolean mapperGenerationEnabled) {
+    this.mapperGenerationEnabled = mapperGenerationEnabled;
+  }
+
+  public boolean isCompactMapRowsEnabled() {
+    return compactMapRowsEnabled;
+  }
+
+  /**
+   * 开启后resultType为Map的行用CompactRowMap保存，同一结果集的行共用列名表，不经过ObjectFactory
+   */
+  public void setCompactMapRowsEnabled(boolean compactMapRowsEnabled) {
+    this.compactMapRowsEnabled = compactMapRowsEnabled;
+  }
+
+  public boolean isJmxEnabled() {
+    return jmxEnabled;
+  }
+
+  public void setJmxEnabled(boolean jmxEnabled) {
+    this.jmxEnabled = jmxEnabled;
+  }
+
+  public String getCacheSnapshotFile() {
+    return cacheSnapshotFile;
+  }
+
+  public void setCacheSnapshotFile(String cacheSnapshotFile) {
+    this.cacheSnapshotFile = cacheSnapshotFile;
+  }
+
+  public long getCacheSnapshotMaxAge() {
+    return cacheSnapshotMaxAge;
+  }
+
+  public void setCacheSnapshotMaxAge(long cacheSnapshotMaxAge) {
+    this.cacheSnapshotMaxAge = cacheSnapshotMaxAge;
+  }
+
   public String getDatabaseId() {
     return databaseId;
   }
@@ -331,6 +409,52 @@ public class Configuration {
     this.environment = environment;
   }
 
+  public void addShardEnvironment(Environment environment) {
+    shardEnvironments.add(environment);
+  }
+
+  public List<Environment> getShardEnvironments() {
+    return shardEnvironments;
+  }
+
+  public boolean isSharded() {
+    return !shardEnvironments.isEmpty();
+  }
+
+  public ShardResolver getShardResolver() {
+    return shardResolver;
+  }
+
+  public void setShardResolver(ShardResolver shardResolver) {
+    this.shardResolver = shardResolver == null ? new DefaultShardResolver() : shardResolver;
+  }
+
+  /**
+   * 并发查询各分片的线程池，第一次使用时创建，线程都是守护线程
+   */
+  public synchronized ExecutorService getShardExecutorService() {
+    if (shardExecutorService == null) {
+      shardExecutorService = Executors.newCachedThreadPool(new ThreadFactory() {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+          Thread thread = new Thread(runnable, "mybatis-shard-" + count.incrementAndGet());
+          thread.setDaemon(true);
+          return thread;
+        }
+      });
+    }
+    return shardExecutorService;
+  }
+
+  public synchronized void shutdownShardExecutorService() {
+    if (shardExecutorService != null) {
+      shardExecutorService.shutdown();
+      shardExecutorService = null;
+    }
+  }
+
   public AutoMappingBehavior getAutoMappingBehavior() {
     return autoMappingBehavior;
   }
@@ -458,6 +582,28 @@ public class Configuration {
     this.localCacheScope = localCacheScope;
   }
 
+  public int getLocalCacheMaxEntries() {
+    return localCacheMaxEntries;
+  }
+
+  /**
+   * @param localCacheMaxEntries maximum number of results kept by the local cache of a session, 0 for no limit
+   */
+  public void setLocalCacheMaxEntries(int localCacheMaxEntries) {
+    this.localCacheMaxEntries = localCacheMaxEntries;
+  }
+
+  public long getLocalCacheMaxWeight() {
+    return localCacheMaxWeight;
+  }
+
+  /**
+   * @param localCacheMaxWeight maximum number of rows kept by the local cache of a session, 0 for no limit
+   */
+  public void setLocalCacheMaxWeight(long localCacheMaxWeight) {
+    this.localCacheMaxWeight = localCacheMaxWeight;
+  }
+
   public JdbcType getJdbcTypeForNull() {
     return jdbcTypeForNull;
   }
@@ -557,22 +703,26 @@ public class Configuration {
     return MetaObject.forObject(object, objectFactory, objectWrapperFactory, reflectorFactory);
   }
 
+  public MetaObjectFactory newMetaObjectFactory() {
+    return new MetaObjectFactory(objectFactory, objectWrapperFactory, reflectorFactory);
+  }
+
   public ParameterHandler newParameterHandler(MappedStatement mappedStatement, Object parameterObject, BoundSql boundSql) {
     ParameterHandler parameterHandler = mappedStatement.getLang().createParameterHandler(mappedStatement, parameterObject, boundSql);
-    parameterHandler = (ParameterHandler) interceptorChain.pluginAll(parameterHandler);
+    parameterHandler = (ParameterHandler) interceptorChain.pluginAll(parameterHandler, mappedStatement);
     return parameterHandler;
   }
 
   public ResultSetHandler newResultSetHandler(Executor executor, MappedStatement mappedStatement, RowBounds rowBounds, ParameterHandler parameterHandler,
       ResultHandler resultHandler, BoundSql boundSql) {
     ResultSetHandler resultSetHandler = new DefaultResultSetHandler(executor, mappedStatement, parameterHandler, resultHandler, boundSql, rowBounds);
-    resultSetHandler = (ResultSetHandler) interceptorChain.pluginAll(resultSetHandler);
+    resultSetHandler = (ResultSetHandler) interceptorChain.pluginAll(resultSetHandler, mappedStatement);
     return resultSetHandler;
   }
 
   public StatementHandler newStatementHandler(Executor executor, MappedStatement mappedStatement, Object parameterObject, RowBounds rowBounds, ResultHandler resultHandler, BoundSql boundSql) {
     StatementHandler statementHandler = new RoutingStatementHandler(executor, mappedStatement, parameterObject, rowBounds, resultHandler, boundSql);
-    statementHandler = (StatementHandler) interceptorChain.pluginAll(statementHandler);
+    statementHandler = (StatementHandler) interceptorChain.pluginAll(statementHandler, mappedStatement);
     return statementHandler;
   }
 
@@ -601,6 +751,19 @@ public class Configuration {
     return executor;
   }
 
+  /**
+   * 新建一个在所有分片上执行语句的Executor，和newExecutor一样用CachingExecutor和插件装饰
+   */
+  public Executor newShardingExecutor(ExecutorType executorType, TransactionIsolationLevel level, boolean autoCommit) {
+    executorType = executorType == null ? defaultExecutorType : executorType;
+    Executor executor = new ShardingExecutor(this, executorType, level, autoCommit);
+    if (cacheEnabled) {
+      executor = new CachingExecutor(executor);
+    }
+    executor = (Executor) interceptorChain.pluginAll(executor);
+    return executor;
+  }
+
   public void addKeyGenerator(String id, KeyGenerator keyGenerator) {
     keyGenerators.put(id, keyGenerator);
   }
@@ -633,6 +796,34 @@ public class Configuration {
     return caches.values();
   }
 
+  /**
+   * @param id the id of a second level cache
+   * @return the statistics of the cache, created on first access
+   */
+  public CacheStatistics getCacheStatistics(String id) {
+    CacheStatistics statistics = cacheStatistics.get(id);
+    if (statistics == null) {
+      statistics = new CacheStatistics(id);
+      CacheStatistics existing = cacheStatistics.putIfAbsent(id, statistics);
+      if (existing != null) {
+        statistics = existing;
+      }
+    }
+    return statistics;
+  }
+
+  public Collection<CacheStatistics> getCacheStatistics() {
+    return cacheStatistics.values();
+  }
+
+  public CacheSnapshot getCacheSnapshot() {
+    return cacheSnapshot;
+  }
+
+  public StatementCacheRefresher getCacheRefresher() {
+    return cacheRefresher;
+  }
+
   public Cache getCache(String id) {
     return caches.get(id);
   }
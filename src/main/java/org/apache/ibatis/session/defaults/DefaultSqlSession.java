@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import java.sql.Connection;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -34,6 +35,7 @@ import org.apache.ibatis.executor.Executor;
 import org.apache.ibatis.executor.result.DefaultMapResultHandler;
 import org.apache.ibatis.executor.result.DefaultResultContext;
 import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.reflection.ArgumentMap;
 import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.ResultHandler;
 import org.apache.ibatis.session.RowBounds;
@@ -49,6 +51,11 @@ import org.apache.ibatis.session.SqlSession;
  */
 public class DefaultSqlSession implements SqlSession {
 
+  // wrapCollection包装集合和数组参数时共用的名字下标表
+  private static final Map<String, Integer> COLLECTION_INDEXES = argumentIndexes("collection");
+  private static final Map<String, Integer> LIST_INDEXES = argumentIndexes("collection", "list");
+  private static final Map<String, Integer> ARRAY_INDEXES = argumentIndexes("array");
+
   private final Configuration configuration;
   private final Executor executor;
 
@@ -332,30 +339,39 @@ public class DefaultSqlSession implements SqlSession {
     cursorList.add(cursor);
   }
 
+  private static Map<String, Integer> argumentIndexes(String... names) {
+    Map<String, Integer> indexes = new HashMap<String, Integer>();
+    for (String name : names) {
+      indexes.put(name, 0);
+    }
+    return Collections.unmodifiableMap(indexes);
+  }
+
   private boolean isCommitOrRollbackRequired(boolean force) {
     return (!autoCommit && dirty) || force;
   }
 
   private Object wrapCollection(final Object object) {
     if (object instanceof Collection) {
-      StrictMap<Object> map = new StrictMap<Object>();
-      map.put("collection", object);
-      if (object instanceof List) {
-        map.put("list", object);
-      }
-      return map;
+      return new StrictMap<Object>(object instanceof List ? LIST_INDEXES : COLLECTION_INDEXES, new Object[] { object });
     } else if (object != null && object.getClass().isArray()) {
-      StrictMap<Object> map = new StrictMap<Object>();
-      map.put("array", object);
-      return map;
+      return new StrictMap<Object>(ARRAY_INDEXES, new Object[] { object });
     }
     return object;
   }
 
-  public static class StrictMap<V> extends HashMap<String, V> {
+  public static class StrictMap<V> extends ArgumentMap<V> {
 
     private static final long serialVersionUID = -5741767162221585340L;
 
+    public StrictMap() {
+      super();
+    }
+
+    public StrictMap(Map<String, Integer> indexes, Object[] args) {
+      super(indexes, args);
+    }
+
     @Override
     public V get(Object key) {
       if (!super.containsKey(key)) {
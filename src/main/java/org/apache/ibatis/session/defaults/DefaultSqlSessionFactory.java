@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,9 +15,13 @@
  */
 package org.apache.ibatis.session.defaults;
 
+import java.io.Closeable;
 import java.sql.Connection;
 import java.sql.SQLException;
 
+import org.apache.ibatis.cache.CacheStatisticsManager;
+import org.apache.ibatis.datasource.pooled.PoolMetricsManager;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.apache.ibatis.exceptions.ExceptionFactory;
 import org.apache.ibatis.executor.ErrorContext;
 import org.apache.ibatis.executor.Executor;
@@ -36,12 +40,67 @@ import org.apache.ibatis.transaction.managed.ManagedTransactionFactory;
  * 封装sqlSession, sqlSession是mybatis对jdbc一次连接会话的封装。
  * @author Clinton Begin
  */
-public class DefaultSqlSessionFactory implements SqlSessionFactory {
+public class DefaultSqlSessionFactory implements SqlSessionFactory, Closeable {
 
   private final Configuration configuration;
+  private final CacheStatisticsManager cacheStatisticsManager;
+  private final PoolMetricsManager poolMetricsManager;
 
   public DefaultSqlSessionFactory(Configuration configuration) {
     this.configuration = configuration;
+    this.cacheStatisticsManager = new CacheStatisticsManager(configuration);
+    // 开启jmxEnabled时注册二级缓存统计MBean
+    if (configuration.isJmxEnabled()) {
+      cacheStatisticsManager.register();
+    }
+    // 从快照文件预热二级缓存
+    if (configuration.getCacheSnapshotFile() != null) {
+      configuration.getCacheSnapshot().load();
+    }
+    // 连接池预热，在后台并行打开连接
+    Environment environment = configuration.getEnvironment();
+    if (environment != null && environment.getDataSource() instanceof PooledDataSource) {
+      PooledDataSource dataSource = (PooledDataSource) environment.getDataSource();
+      this.poolMetricsManager = new PoolMetricsManager(dataSource, environment.getId());
+      // 开启jmxEnabled时同时注册连接池统计MBean
+      if (configuration.isJmxEnabled()) {
+        poolMetricsManager.register();
+      }
+      dataSource.warmUp();
+    } else {
+      this.poolMetricsManager = null;
+    }
+  }
+
+  /**
+   * Releases the resources held for the configuration: saves the second level caches when the
+   * <code>cacheSnapshotFile</code> setting is set, unregisters the MBeans and stops refresh-ahead and shard query threads.
+   */
+  @Override
+  public void close() {
+    try {
+      if (configuration.getCacheSnapshotFile() != null) {
+        configuration.getCacheSnapshot().save();
+      }
+    } finally {
+      cacheStatisticsManager.unregister();
+      if (poolMetricsManager != null) {
+        poolMetricsManager.unregister();
+      }
+      configuration.getCacheRefresher().shutdown();
+      configuration.shutdownShardExecutorService();
+    }
+  }
+
+  public CacheStatisticsManager getCacheStatisticsManager() {
+    return cacheStatisticsManager;
+  }
+
+  /*
+   * @return the metrics of the pooled data source of the environment, or null if it is not pooled
+   */
+  public PoolMetricsManager getPoolMetricsManager() {
+    return poolMetricsManager;
   }
 
   @Override
@@ -99,6 +158,10 @@ public class DefaultSqlSessionFactory implements SqlSessionFactory {
   private SqlSession openSessionFromDataSource(ExecutorType execType, TransactionIsolationLevel level, boolean autoCommit) {
     Transaction tx = null;
     try {
+      if (configuration.isSharded()) {
+        // 每个分片的事务由ShardingExecutor在第一次使用时创建
+        return new DefaultSqlSession(configuration, configuration.newShardingExecutor(execType, level, autoCommit), autoCommit);
+      }
       final Environment environment = configuration.getEnvironment();
       final TransactionFactory transactionFactory = getTransactionFactoryFromEnvironment(environment);
       tx = transactionFactory.newTransaction(environment.getDataSource(), level, autoCommit);
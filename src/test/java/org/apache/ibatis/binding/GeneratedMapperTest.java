@@ -0,0 +1,155 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.binding;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.blog.Section;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+public class GeneratedMapperTest {
+  private static SqlSessionFactory sqlSessionFactory;
+
+  // 可序列化的SqlSession替身，只提供Configuration
+  private static class SerializableSession implements InvocationHandler, Serializable {
+    private static final long serialVersionUID = 1L;
+    private final transient Configuration configuration;
+
+    SerializableSession(Configuration configuration) {
+      this.configuration = configuration;
+    }
+
+    @Override
+    public Object invoke(Object proxy, Method method, Object[] args) {
+      return "getConfiguration".equals(method.getName()) ? configuration : null;
+    }
+  }
+
+  @BeforeClass
+  public static void setup() throws Exception {
+    DataSource dataSource = BaseDataTest.createBlogDataSource();
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DDL);
+    BaseDataTest.runScript(dataSource, BaseDataTest.BLOG_DATA);
+    Environment environment = new Environment("Production", new JdbcTransactionFactory(), dataSource);
+    Configuration configuration = new Configuration(environment);
+    configuration.setMapperGenerationEnabled(true);
+    configuration.setUseActualParamName(false);
+    configuration.getTypeAliasRegistry().registerAlias(Blog.class);
+    configuration.getTypeAliasRegistry().registerAlias(Post.class);
+    configuration.getTypeAliasRegistry().registerAlias(Author.class);
+    configuration.addMapper(BoundBlogMapper.class);
+    configuration.addMapper(BoundAuthorMapper.class);
+    sqlSessionFactory = new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  @Test
+  public void shouldReturnGeneratedImplementation() {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      BoundBlogMapper mapper = session.getMapper(BoundBlogMapper.class);
+      assertTrue(mapper instanceof GeneratedMapper);
+      assertFalse(Proxy.isProxyClass(mapper.getClass()));
+      assertSame(mapper.getClass(), session.getMapper(BoundBlogMapper.class).getClass());
+      Blog blog = mapper.selectBlog(1);
+      assertEquals(1, blog.getId());
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldPassPrimitiveArrayAndRowBoundsArguments() {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      BoundAuthorMapper mapper = session.getMapper(BoundAuthorMapper.class);
+      assertEquals(3, mapper.findPostsInArray(new Integer[] { 1, 3, 5 }).size());
+      List<Post> posts = mapper.findThreeSpecificPosts(1, new RowBounds(1, 1), 3, 5);
+      assertEquals(1, posts.size());
+      assertEquals(3, posts.get(0).getId());
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldUnboxPrimitiveResults() {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      BoundAuthorMapper mapper = session.getMapper(BoundAuthorMapper.class);
+      Author author = new Author(-1, "cbegin", "******", "cbegin@nowhere.com", "N/A", Section.NEWS);
+      int rows = mapper.insertAuthor(author);
+      assertEquals(1, rows);
+      session.rollback();
+    } finally {
+      session.close();
+    }
+  }
+
+  @Test
+  public void shouldSerializeAsDynamicProxy() throws Exception {
+    SqlSession session = (SqlSession) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { SqlSession.class },
+        new SerializableSession(sqlSessionFactory.getConfiguration()));
+    BoundBlogMapper mapper = new MapperProxyFactory<BoundBlogMapper>(BoundBlogMapper.class).newInstance(session);
+    assertTrue(mapper instanceof GeneratedMapper);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(mapper);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertTrue(copy instanceof BoundBlogMapper);
+    assertTrue(Proxy.getInvocationHandler(copy) instanceof MapperProxy);
+  }
+
+  @Test
+  public void shouldShareMethodCacheWithProxies() throws Exception {
+    SqlSession session = sqlSessionFactory.openSession();
+    try {
+      MapperProxyFactory<BoundBlogMapper> mapperProxyFactory = new MapperProxyFactory<BoundBlogMapper>(BoundBlogMapper.class);
+      BoundBlogMapper mapper = mapperProxyFactory.newInstance(session);
+      assertTrue(mapperProxyFactory.getMethodCache().isEmpty());
+      mapper.selectBlog(1);
+      assertEquals(1, mapperProxyFactory.getMethodCache().size());
+      assertTrue(mapperProxyFactory.getMethodCache().containsKey(BoundBlogMapper.class.getMethod("selectBlog", Integer.TYPE)));
+    } finally {
+      session.close();
+    }
+  }
+
+}
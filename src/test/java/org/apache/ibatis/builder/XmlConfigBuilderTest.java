@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -91,6 +91,11 @@ public class XmlConfigBuilderTest {
     assertThat(config.isMapUnderscoreToCamelCase()).isFalse();
     assertThat(config.isSafeRowBoundsEnabled()).isFalse();
     assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.SESSION);
+    assertThat(config.getLocalCacheMaxEntries()).isEqualTo(0);
+    assertThat(config.getLocalCacheMaxWeight()).isEqualTo(0L);
+    assertThat(config.isJmxEnabled()).isFalse();
+    assertThat(config.getCacheSnapshotFile()).isNull();
+    assertThat(config.getCacheSnapshotMaxAge()).isEqualTo(0L);
     assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.OTHER);
     assertThat(config.getLazyLoadTriggerMethods()).isEqualTo((Set<String>) new HashSet<String>(Arrays.asList("equals", "clone", "hashCode", "toString")));
     assertThat(config.isSafeResultHandlerEnabled()).isTrue();
@@ -184,6 +189,11 @@ public class XmlConfigBuilderTest {
       assertThat(config.isMapUnderscoreToCamelCase()).isTrue();
       assertThat(config.isSafeRowBoundsEnabled()).isTrue();
       assertThat(config.getLocalCacheScope()).isEqualTo(LocalCacheScope.STATEMENT);
+      assertThat(config.getLocalCacheMaxEntries()).isEqualTo(256);
+      assertThat(config.getLocalCacheMaxWeight()).isEqualTo(100000L);
+      assertThat(config.isJmxEnabled()).isTrue();
+      assertThat(config.getCacheSnapshotFile()).isEqualTo("target/cache.snapshot");
+      assertThat(config.getCacheSnapshotMaxAge()).isEqualTo(3600000L);
       assertThat(config.getJdbcTypeForNull()).isEqualTo(JdbcType.NULL);
       assertThat(config.getLazyLoadTriggerMethods()).isEqualTo((Set<String>) new HashSet<String>(Arrays.asList("equals", "clone", "hashCode", "toString", "xxx")));
       assertThat(config.isSafeResultHandlerEnabled()).isFalse();
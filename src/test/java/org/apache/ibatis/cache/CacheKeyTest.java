@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -90,6 +90,38 @@ public class CacheKeyTest {
     assertTrue(key1.equals(key2));
   }
 
+  @Test
+  public void shouldGrowBeyondExpectedUpdateCount() {
+    CacheKey key1 = new CacheKey(1);
+    CacheKey key2 = new CacheKey(new Object[] { 1, "hello", null });
+    key1.update(1);
+    key1.update("hello");
+    key1.update(null);
+    assertEquals(3, key1.getUpdateCount());
+    assertEquals("hello", key1.getUpdate(1));
+    assertEquals(key1, key2);
+    assertEquals(key1.hashCode(), key2.hashCode());
+  }
+
+  @Test
+  public void shouldNotShareValuesWithClone() throws Exception {
+    CacheKey key = new CacheKey(new Object[] { 1, "hello" });
+    CacheKey clone = key.clone();
+    assertEquals(key, clone);
+    clone.update("world");
+    assertEquals(2, key.getUpdateCount());
+    assertEquals(3, clone.getUpdateCount());
+    assertFalse(key.equals(clone));
+  }
+
+  @Test
+  public void shouldTestCacheKeysNotEqualDueToSwappedValues() {
+    CacheKey key1 = new CacheKey(new Object[] { "a", "b", "a" });
+    CacheKey key2 = new CacheKey(new Object[] { "b", "a", "a" });
+    assertFalse(key1.equals(key2));
+    assertFalse(key1.toString().equals(key2.toString()));
+  }
+
   @Test (expected = NotSerializableException.class)
   public void serializationExceptionTest() throws Exception {
     CacheKey cacheKey = new CacheKey();
@@ -101,7 +133,13 @@ public class CacheKeyTest {
   public void serializationTest() throws Exception {
     CacheKey cacheKey = new CacheKey();
     cacheKey.update("serializable");
-    Assert.assertEquals(cacheKey, serialize(cacheKey));
+    cacheKey.update(null);
+    cacheKey.update(new byte[] { 1 });
+    CacheKey deserialized = serialize(cacheKey);
+    Assert.assertEquals(cacheKey, deserialized);
+    Assert.assertEquals(cacheKey.hashCode(), deserialized.hashCode());
+    deserialized.update("more");
+    Assert.assertEquals(4, deserialized.getUpdateCount());
   }
 
   private static <T> T serialize(T object) throws Exception {
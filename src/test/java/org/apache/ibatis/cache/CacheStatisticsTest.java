@@ -0,0 +1,127 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import org.apache.ibatis.cache.decorators.FifoCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.decorators.LruCache;
+import org.apache.ibatis.cache.decorators.TransactionalCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.apache.ibatis.mapping.CacheBuilder;
+import org.junit.Test;
+
+public class CacheStatisticsTest {
+
+  @Test
+  public void shouldRecordHitsMissesAndPuts() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    LoggingCache cache = new LoggingCache(new PerpetualCache("default"));
+    cache.setStatistics(statistics);
+    cache.putObject(0, 0);
+    cache.getObject(0);
+    cache.getObject(0);
+    cache.getObject(1);
+    assertEquals(1, statistics.getPuts());
+    assertEquals(2, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(2d / 3d, statistics.getHitRatio(), 0.0001);
+  }
+
+  @Test
+  public void shouldRecordEvictions() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    LruCache lru = new LruCache(new PerpetualCache("default"));
+    lru.setSize(2);
+    lru.setStatistics(statistics);
+    FifoCache fifo = new FifoCache(new PerpetualCache("default"));
+    fifo.setSize(2);
+    fifo.setStatistics(statistics);
+    for (int i = 0; i < 5; i++) {
+      lru.putObject(i, i);
+      fifo.putObject(i, i);
+    }
+    assertEquals(6, statistics.getEvictions());
+  }
+
+  @Test
+  public void shouldRecordCommitsAndRollbacks() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    TransactionalCache cache = new TransactionalCache(new PerpetualCache("default"));
+    cache.setStatistics(statistics);
+    cache.putObject(0, 0);
+    cache.commit();
+    cache.putObject(1, 1);
+    cache.rollback();
+    assertEquals(1, statistics.getCommits());
+    assertEquals(1, statistics.getRollbacks());
+  }
+
+  @Test
+  public void shouldResetCounters() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    statistics.recordHit();
+    statistics.recordMiss();
+    statistics.recordLoad(5000000L);
+    assertEquals(1, statistics.getLoads());
+    assertEquals(5, statistics.getLoadTime());
+    statistics.reset();
+    assertEquals(0, statistics.getHits());
+    assertEquals(0, statistics.getMisses());
+    assertEquals(0, statistics.getLoads());
+    assertEquals(0, statistics.getLoadTime());
+  }
+
+  @Test
+  public void shouldWireStatisticsIntoBuiltCache() {
+    CacheStatistics statistics = new CacheStatistics("default");
+    Cache cache = new CacheBuilder("default").size(2).statistics(statistics).build();
+    assertEquals(0, cache.getSize());
+    for (int i = 0; i < 3; i++) {
+      cache.putObject(i, i);
+    }
+    assertNull(cache.getObject(0));
+    assertEquals(2, cache.getObject(2));
+    assertEquals(3, statistics.getPuts());
+    assertEquals(1, statistics.getEvictions());
+    assertEquals(1, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(2, statistics.getSize());
+  }
+
+  @Test
+  public void shouldCountFromManyThreads() throws Exception {
+    final CacheStatistics statistics = new CacheStatistics("default");
+    Thread[] threads = new Thread[8];
+    for (int i = 0; i < threads.length; i++) {
+      threads[i] = new Thread() {
+        @Override
+        public void run() {
+          for (int j = 0; j < 10000; j++) {
+            statistics.recordHit();
+          }
+        }
+      };
+      threads[i].start();
+    }
+    for (Thread thread : threads) {
+      thread.join();
+    }
+    assertEquals(80000, statistics.getHits());
+  }
+
+}
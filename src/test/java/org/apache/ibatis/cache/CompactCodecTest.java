@@ -0,0 +1,258 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.cache.codec.CompactCodec;
+import org.apache.ibatis.cache.codec.JavaSerializationCodec;
+import org.apache.ibatis.cache.decorators.SerializedCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class CompactCodecTest {
+
+  private final CompactCodec codec = new CompactCodec();
+
+  @Test
+  public void shouldCopyBeansPropertyByProperty() {
+    Author author = new Author();
+    author.setId(1);
+    author.setName("Clinton");
+    author.setRank(Rank.HIGH);
+    author.setSalary(new BigDecimal("1234.56"));
+    author.setBorn(new Date(1000L));
+    Timestamp updated = new Timestamp(2000L);
+    updated.setNanos(123456789);
+    author.setUpdated(updated);
+    author.setPhoto(new byte[] { 1, 2, 3 });
+    author.setTemporary("lost");
+    Map<String, Object> extra = new HashMap<String, Object>();
+    extra.put("active", Boolean.TRUE);
+    extra.put("score", 1.5d);
+    author.setExtra(extra);
+
+    Author copy = (Author) codec.decode(codec.encode(author));
+
+    assertNotSame(author, copy);
+    assertEquals(Integer.valueOf(1), copy.getId());
+    assertEquals("Clinton", copy.getName());
+    assertEquals(Rank.HIGH, copy.getRank());
+    assertEquals(new BigDecimal("1234.56"), copy.getSalary());
+    assertEquals(new Date(1000L), copy.getBorn());
+    assertEquals(updated, copy.getUpdated());
+    assertArrayEquals(new byte[] { 1, 2, 3 }, copy.getPhoto());
+    assertEquals(extra, copy.getExtra());
+    assertNull(copy.getTemporary());
+  }
+
+  @Test
+  public void shouldPreserveSharedAndCircularReferences() {
+    Author author = new Author();
+    author.setName("Clinton");
+    Post first = new Post();
+    first.setAuthor(author);
+    Post second = new Post();
+    second.setAuthor(author);
+    List<Post> posts = new ArrayList<Post>();
+    posts.add(first);
+    posts.add(second);
+    author.setPosts(posts);
+
+    @SuppressWarnings("unchecked")
+    List<Post> copy = (List<Post>) codec.decode(codec.encode(posts));
+
+    assertEquals(2, copy.size());
+    assertSame(copy.get(0).getAuthor(), copy.get(1).getAuthor());
+    assertSame(copy, copy.get(0).getAuthor().getPosts());
+    assertEquals("Clinton", copy.get(0).getAuthor().getName());
+  }
+
+  @Test
+  public void shouldFallbackToJavaSerialization() {
+    List<Object> values = new ArrayList<Object>();
+    values.add(new Author());
+    values.add(new Immutable("value"));
+
+    byte[] data = codec.encode(values);
+    @SuppressWarnings("unchecked")
+    List<Object> copy = (List<Object>) codec.decode(data);
+
+    assertEquals("value", ((Immutable) copy.get(1)).getValue());
+    assertTrue(data.length > new JavaSerializationCodec().encode(values).length);
+  }
+
+  @Test
+  public void shouldSelectCodecByName() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"));
+    cache.setCodec("compact");
+    assertTrue(cache.getCodec() instanceof CompactCodec);
+    cache.setCodec(JavaSerializationCodec.class.getName());
+    assertTrue(cache.getCodec() instanceof JavaSerializationCodec);
+  }
+
+  @Test
+  public void shouldReturnCopiesFromSerializedCache() {
+    SerializedCache cache = new SerializedCache(new PerpetualCache("default"), codec);
+    Author author = new Author();
+    author.setName("Clinton");
+    cache.putObject(1, author);
+    Author cached = (Author) cache.getObject(1);
+    assertNotSame(author, cached);
+    assertEquals("Clinton", cached.getName());
+    cache.putObject(2, null);
+    assertNull(cache.getObject(2));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectUnknownCodec() {
+    new SerializedCache(new PerpetualCache("default")).setCodec("unknown");
+  }
+
+  public enum Rank {
+    LOW, HIGH
+  }
+
+  public static class Author implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Integer id;
+    private String name;
+    private Rank rank;
+    private BigDecimal salary;
+    private Date born;
+    private Timestamp updated;
+    private byte[] photo;
+    private Map<String, Object> extra;
+    private List<Post> posts;
+    private transient String temporary;
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public Rank getRank() {
+      return rank;
+    }
+
+    public void setRank(Rank rank) {
+      this.rank = rank;
+    }
+
+    public BigDecimal getSalary() {
+      return salary;
+    }
+
+    public void setSalary(BigDecimal salary) {
+      this.salary = salary;
+    }
+
+    public Date getBorn() {
+      return born;
+    }
+
+    public void setBorn(Date born) {
+      this.born = born;
+    }
+
+    public Timestamp getUpdated() {
+      return updated;
+    }
+
+    public void setUpdated(Timestamp updated) {
+      this.updated = updated;
+    }
+
+    public byte[] getPhoto() {
+      return photo;
+    }
+
+    public void setPhoto(byte[] photo) {
+      this.photo = photo;
+    }
+
+    public Map<String, Object> getExtra() {
+      return extra;
+    }
+
+    public void setExtra(Map<String, Object> extra) {
+      this.extra = extra;
+    }
+
+    public List<Post> getPosts() {
+      return posts;
+    }
+
+    public void setPosts(List<Post> posts) {
+      this.posts = posts;
+    }
+
+    public String getTemporary() {
+      return temporary;
+    }
+
+    public void setTemporary(String temporary) {
+      this.temporary = temporary;
+    }
+  }
+
+  public static class Post implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private Author author;
+
+    public Author getAuthor() {
+      return author;
+    }
+
+    public void setAuthor(Author author) {
+      this.author = author;
+    }
+  }
+
+  public static class Immutable implements Serializable {
+    private static final long serialVersionUID = 1L;
+    private final String value;
+
+    public Immutable(String value) {
+      this.value = value;
+    }
+
+    public String getValue() {
+      return value;
+    }
+  }
+
+}
@@ -0,0 +1,187 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.ibatis.cache.decorators.ExpiringCache;
+import org.apache.ibatis.cache.decorators.LoggingCache;
+import org.apache.ibatis.cache.impl.PerpetualCache;
+import org.junit.Test;
+
+public class ExpiringCacheTest {
+
+  @Test
+  public void shouldExpireEachEntryOnItsOwn() {
+    ManualClockCache expiringCache = new ManualClockCache();
+    expiringCache.setTimeToLive(1000);
+    expiringCache.setTickDuration(50);
+    expiringCache.setWheelSize(8);
+    Cache cache = new LoggingCache(expiringCache);
+    cache.putObject(0, 0);
+    expiringCache.now += 600;
+    cache.putObject(1, 1);
+    expiringCache.now += 600;
+    assertNull(cache.getObject(0));
+    assertEquals(1, cache.getObject(1));
+    assertEquals(1, cache.getSize());
+    expiringCache.now += 600;
+    assertEquals(0, cache.getSize());
+  }
+
+  @Test
+  public void shouldReplaceExpirationOnPut() {
+    ManualClockCache cache = new ManualClockCache();
+    cache.setTimeToLive(500);
+    cache.setTickDuration(10);
+    cache.putObject(0, 0);
+    cache.now += 300;
+    cache.putObject(0, 1);
+    cache.now += 300;
+    assertEquals(1, cache.getObject(0));
+  }
+
+  @Test
+  public void shouldRemoveItemOnDemand() {
+    ExpiringCache cache = new ExpiringCache(new PerpetualCache("DefaultCache"));
+    cache.putObject(0, 0);
+    assertNotNull(cache.getObject(0));
+    cache.removeObject(0);
+    assertNull(cache.getObject(0));
+  }
+
+  @Test
+  public void shouldRequestRefreshAheadOnceAndServeStaleValue() {
+    RecordingRefresher refresher = new RecordingRefresher();
+    ManualClockCache cache = refreshingCache(refresher);
+    assertEquals("DefaultCache", refresher.registered);
+    cache.putObject(0, "a");
+    assertEquals("a", cache.getObject(0));
+    assertTrue(refresher.refreshed.isEmpty());
+    cache.now += 600;
+    assertEquals("a", cache.getObject(0));
+    assertEquals("a", cache.getObject(0));
+    assertEquals(1, refresher.refreshed.size());
+    refresher.put(cache, 0, 0, "b");
+    cache.now += 600;
+    assertEquals("b", cache.getObject(0));
+    assertEquals(2, refresher.refreshed.size());
+  }
+
+  @Test
+  public void shouldDiscardRefreshStartedBeforeClear() {
+    RecordingRefresher refresher = new RecordingRefresher();
+    ManualClockCache cache = refreshingCache(refresher);
+    cache.putObject(0, "a");
+    cache.now += 600;
+    cache.getObject(0);
+    assertEquals(1, refresher.refreshed.size());
+    cache.clear();
+    // a session loads the entry again before the reload is done
+    cache.putObject(0, "fresh");
+    refresher.put(cache, 0, 0, "stale");
+    assertEquals("fresh", cache.getObject(0));
+  }
+
+  @Test
+  public void shouldDiscardRefreshOvertakenByPut() {
+    RecordingRefresher refresher = new RecordingRefresher();
+    ManualClockCache cache = refreshingCache(refresher);
+    cache.putObject(0, "a");
+    cache.now += 600;
+    cache.getObject(0);
+    cache.putObject(0, "b");
+    refresher.put(cache, 0, 0, "stale");
+    assertEquals("b", cache.getObject(0));
+  }
+
+  @Test
+  public void shouldRefreshAgainAfterFailedRefresh() {
+    RecordingRefresher refresher = new RecordingRefresher();
+    ManualClockCache cache = refreshingCache(refresher);
+    cache.putObject(0, "a");
+    cache.now += 600;
+    cache.getObject(0);
+    // the reload fails and never puts, the entry expires
+    cache.now += 600;
+    assertNull(cache.getObject(0));
+    cache.putObject(0, "b");
+    cache.now += 600;
+    cache.getObject(0);
+    assertEquals(2, refresher.refreshed.size());
+    refresher.put(cache, 0, 1, "c");
+    assertEquals("c", cache.getObject(0));
+  }
+
+  @Test(expected = CacheException.class)
+  public void shouldRejectInvalidRefreshAhead() {
+    new ExpiringCache(new PerpetualCache("DefaultCache")).setRefreshAhead(1.5);
+  }
+
+  private static ManualClockCache refreshingCache(RecordingRefresher refresher) {
+    ManualClockCache cache = new ManualClockCache();
+    cache.setTimeToLive(1000);
+    cache.setTickDuration(10);
+    cache.setRefreshAhead(0.5);
+    cache.setRefresher(refresher);
+    return cache;
+  }
+
+  private static class ManualClockCache extends ExpiringCache {
+    private long now = 1000000;
+
+    ManualClockCache() {
+      super(new PerpetualCache("DefaultCache"));
+    }
+
+    @Override
+    protected long currentTimeMillis() {
+      return now;
+    }
+  }
+
+  private static class RecordingRefresher implements CacheRefresher {
+    private String registered;
+    private final List<Object> refreshed = new ArrayList<Object>();
+    private final List<RefreshToken> tokens = new ArrayList<RefreshToken>();
+
+    @Override
+    public void register(String cacheId) {
+      registered = cacheId;
+    }
+
+    @Override
+    public boolean refresh(String cacheId, Object key, RefreshToken token) {
+      refreshed.add(key);
+      tokens.add(token);
+      return true;
+    }
+
+    void put(Cache cache, Object key, int refresh, Object value) {
+      RefreshToken token = tokens.get(refresh);
+      token.begin();
+      try {
+        cache.putObject(key, value);
+      } finally {
+        token.end();
+      }
+    }
+  }
+
+}
@@ -0,0 +1,85 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.cache;
+
+import static org.junit.Assert.*;
+
+import java.util.Arrays;
+
+import org.apache.ibatis.cache.impl.LocalCache;
+import org.junit.Test;
+
+public class LocalCacheTest {
+
+  @Test
+  public void shouldNotEvictUntilTrimmed() {
+    LocalCache cache = new LocalCache("LocalCache", 2, 0);
+    for (int i = 0; i < 5; i++) {
+      cache.putObject(i, i);
+    }
+    assertEquals(5, cache.getSize());
+    assertEquals(Arrays.<Object>asList(0, 1, 2), cache.trim());
+    assertEquals(2, cache.getSize());
+    assertNull(cache.getObject(0));
+    assertEquals(4, cache.getObject(4));
+    assertEquals(3, cache.getEvictions());
+  }
+
+  @Test
+  public void shouldEvictLeastRecentlyUsedEntries() {
+    LocalCache cache = new LocalCache("LocalCache", 2, 0);
+    cache.putObject(0, 0);
+    cache.putObject(1, 1);
+    cache.getObject(0);
+    cache.putObject(2, 2);
+    cache.trim();
+    assertEquals(0, cache.getObject(0));
+    assertNull(cache.getObject(1));
+    assertEquals(2, cache.getObject(2));
+  }
+
+  @Test
+  public void shouldEvictByWeight() {
+    LocalCache cache = new LocalCache("LocalCache", 0, 5);
+    cache.putObject(0, Arrays.asList(1, 2, 3));
+    cache.putObject(1, Arrays.asList(1, 2));
+    assertEquals(5, cache.getWeight());
+    cache.trim();
+    assertEquals(2, cache.getSize());
+    cache.putObject(2, "value");
+    cache.trim();
+    assertNull(cache.getObject(0));
+    assertEquals(3, cache.getWeight());
+    cache.removeObject(1);
+    assertEquals(1, cache.getWeight());
+    cache.clear();
+    assertEquals(0, cache.getWeight());
+  }
+
+  @Test
+  public void shouldCountHitsAndMisses() {
+    LocalCache cache = new LocalCache("LocalCache");
+    cache.putObject(0, 0);
+    cache.getObject(0);
+    cache.getObject(1);
+    cache.trim();
+    assertEquals(1, cache.getHits());
+    assertEquals(1, cache.getMisses());
+    assertEquals(1, cache.getPuts());
+    assertEquals(0, cache.getEvictions());
+  }
+
+}
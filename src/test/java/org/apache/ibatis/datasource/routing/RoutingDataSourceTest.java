@@ -0,0 +1,274 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.datasource.routing;
+
+import static org.junit.Assert.*;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Properties;
+import java.util.Set;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class RoutingDataSourceTest {
+
+  public interface NodeMapper {
+    @Select("select name from node")
+    String getName();
+
+    @Insert("insert into node (name) values (#{name})")
+    int insert(String name);
+
+    @Select("select count(*) from node")
+    int count();
+
+    @Select("select name from node for update")
+    String lockName();
+  }
+
+  private PooledDataSource primary;
+  private PooledDataSource replica1;
+  private PooledDataSource replica2;
+  private RoutingDataSource dataSource;
+
+  @Before
+  public void setUp() throws Exception {
+    primary = createNode("primary");
+    replica1 = createNode("replica1");
+    replica2 = createNode("replica2");
+    dataSource = new RoutingDataSource(primary, Arrays.asList(replica1, replica2));
+  }
+
+  @After
+  public void tearDown() {
+    dataSource.forceCloseAll();
+  }
+
+  @Test
+  public void shouldSendSelectsToReplicasInTurn() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(dataSource);
+    Set<String> names = new HashSet<String>();
+    for (int i = 0; i < 4; i++) {
+      SqlSession sqlSession = sqlSessionFactory.openSession(true);
+      try {
+        names.add(sqlSession.getMapper(NodeMapper.class).getName());
+      } finally {
+        sqlSession.close();
+      }
+    }
+    assertEquals(new HashSet<String>(Arrays.asList("replica1", "replica2")), names);
+  }
+
+  @Test
+  public void shouldReadFromPrimaryAfterWriting() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(dataSource);
+    SqlSession sqlSession = sqlSessionFactory.openSession(true);
+    try {
+      NodeMapper mapper = sqlSession.getMapper(NodeMapper.class);
+      assertTrue(mapper.getName().startsWith("replica"));
+      mapper.insert("written");
+      assertEquals(2, mapper.count());
+    } finally {
+      sqlSession.close();
+    }
+    assertEquals(2, countRows(primary));
+  }
+
+  @Test
+  public void shouldKeepSelectsOfReadWriteTransactionOnPrimary() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory(dataSource);
+    SqlSession sqlSession = sqlSessionFactory.openSession(false);
+    try {
+      NodeMapper mapper = sqlSession.getMapper(NodeMapper.class);
+      // 第一次写入之前的加锁查询也必须在主库的事务里
+      assertEquals("primary", mapper.lockName());
+      assertEquals("primary", mapper.getName());
+      mapper.insert("written");
+      assertEquals(2, mapper.count());
+      sqlSession.rollback();
+      assertEquals(1, mapper.count());
+    } finally {
+      sqlSession.close();
+    }
+    assertEquals(1, countRows(primary));
+  }
+
+  @Test
+  public void shouldRouteByReadOnlyStateWithoutStatementType() throws Exception {
+    Connection connection = dataSource.getConnection();
+    try {
+      assertEquals("primary", queryName(connection));
+    } finally {
+      connection.close();
+    }
+    connection = dataSource.getConnection();
+    try {
+      connection.setReadOnly(true);
+      assertTrue(queryName(connection).startsWith("replica"));
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldPreferLeastActiveReplica() throws Exception {
+    dataSource.setBalancer(new LeastActiveBalancer());
+    Connection busy = replica1.getConnection();
+    try {
+      for (int i = 0; i < 3; i++) {
+        Connection connection = dataSource.getConnection();
+        try {
+          connection.setReadOnly(true);
+          assertEquals("replica2", queryName(connection));
+        } finally {
+          connection.close();
+        }
+      }
+    } finally {
+      busy.close();
+    }
+  }
+
+  @Test
+  public void shouldEjectFailingReplica() throws Exception {
+    UnpooledDataSource broken = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:nodriver:broken", "sa", "");
+    dataSource = new RoutingDataSource(primary, Arrays.<DataSource> asList(broken, replica2));
+    for (int i = 0; i < 3; i++) {
+      Connection connection = dataSource.getConnection();
+      try {
+        connection.setReadOnly(true);
+        assertEquals("replica2", queryName(connection));
+      } finally {
+        connection.close();
+      }
+    }
+    assertTrue(dataSource.isEjected(broken));
+    assertFalse(dataSource.isEjected(replica2));
+
+    dataSource = new RoutingDataSource(primary, Arrays.<DataSource> asList(broken));
+    Connection connection = dataSource.getConnection();
+    try {
+      connection.setReadOnly(true);
+      // 没有可用的副本时读主库
+      assertEquals("primary", queryName(connection));
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Test
+  public void shouldCreateNodesFromPrefixedProperties() {
+    Properties properties = new Properties();
+    properties.setProperty("driver", "org.hsqldb.jdbcDriver");
+    properties.setProperty("username", "sa");
+    properties.setProperty("poolMaximumActiveConnections", "3");
+    properties.setProperty("primary.url", "jdbc:hsqldb:mem:routing_primary");
+    properties.setProperty("primary.poolMaximumActiveConnections", "7");
+    properties.setProperty("replicas", "replica1, replica2");
+    properties.setProperty("replica1.url", "jdbc:hsqldb:mem:routing_replica1");
+    properties.setProperty("replica2.url", "jdbc:hsqldb:mem:routing_replica2");
+    properties.setProperty("balancer", "LEAST_ACTIVE");
+    properties.setProperty("replicaEjectionTime", "1000");
+    RoutingDataSourceFactory factory = new RoutingDataSourceFactory();
+    factory.setProperties(properties);
+    RoutingDataSource routing = (RoutingDataSource) factory.getDataSource();
+    assertEquals(7, ((PooledDataSource) routing.getPrimary()).getPoolMaximumActiveConnections());
+    assertEquals(2, routing.getReplicas().size());
+    PooledDataSource replica = (PooledDataSource) routing.getReplicas().get(1);
+    assertEquals("jdbc:hsqldb:mem:routing_replica2", replica.getUrl());
+    assertEquals(3, replica.getPoolMaximumActiveConnections());
+    assertTrue(routing.getBalancer() instanceof LeastActiveBalancer);
+    assertEquals(1000, routing.getReplicaEjectionTime());
+
+    SqlSession sqlSession = createSqlSessionFactory(routing).openSession(true);
+    try {
+      assertTrue(sqlSession.getMapper(NodeMapper.class).getName().startsWith("replica"));
+    } finally {
+      sqlSession.close();
+      routing.forceCloseAll();
+    }
+  }
+
+  private static PooledDataSource createNode(String name) throws SQLException {
+    PooledDataSource node = new PooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:routing_" + name, "sa", "");
+    Connection connection = node.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      statement.execute("drop table node if exists");
+      statement.execute("create table node (name varchar(20))");
+      statement.execute("insert into node (name) values ('" + name + "')");
+      statement.close();
+    } finally {
+      connection.close();
+    }
+    return node;
+  }
+
+  private static SqlSessionFactory createSqlSessionFactory(DataSource dataSource) {
+    Configuration configuration = new Configuration(new Environment("routing", new JdbcTransactionFactory(), dataSource));
+    configuration.addMapper(NodeMapper.class);
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  private static String queryName(Connection connection) throws SQLException {
+    Statement statement = connection.createStatement();
+    try {
+      ResultSet rs = statement.executeQuery("select name from node");
+      rs.next();
+      return rs.getString(1);
+    } finally {
+      statement.close();
+    }
+  }
+
+  private static int countRows(DataSource dataSource) {
+    try {
+      Connection connection = dataSource.getConnection();
+      try {
+        Statement statement = connection.createStatement();
+        ResultSet rs = statement.executeQuery("select count(*) from node");
+        rs.next();
+        int count = rs.getInt(1);
+        statement.close();
+        return count;
+      } finally {
+        connection.close();
+      }
+    } catch (SQLException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+}
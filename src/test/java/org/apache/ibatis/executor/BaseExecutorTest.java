@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -416,6 +416,58 @@ public class BaseExecutorTest extends BaseDataTest {
     }
   }
 
+  @Test
+  public void shouldFetchComplexBlogsWithBoundedLocalCache() throws Exception {
+    config.setLocalCacheMaxEntries(1);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectBlog = ExecutorTestHelper.prepareComplexSelectBlogMappedStatement(config);
+      MappedStatement selectPosts = ExecutorTestHelper.prepareSelectPostsForBlogMappedStatement(config);
+      config.addMappedStatement(selectBlog);
+      config.addMappedStatement(selectPosts);
+      for (int i = 0; i < 2; i++) {
+        List<Blog> blogs = executor.query(selectBlog, 1, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+        executor.flushStatements();
+        assertEquals(1, blogs.size());
+        assertEquals(2, blogs.get(0).getPosts().size());
+        assertEquals(1, blogs.get(0).getPosts().get(1).getBlog().getPosts().get(1).getBlog().getId());
+      }
+      executor.rollback(true);
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
+  @Test
+  public void shouldEvictOutParamsTogetherWithBoundedLocalCache() throws Exception {
+    config.setLocalCacheMaxEntries(2);
+    Executor executor = createExecutor(new JdbcTransaction(ds, null, false));
+    try {
+      MappedStatement selectStatement = ExecutorTestHelper.prepareSelectAuthorViaOutParams(config);
+      Author sally = new Author(102, null, null, null, null, null);
+      executor.query(selectStatement, sally, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      executor.query(selectStatement, new Author(101, null, null, null, null, null), RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      // 只改变localCache中的顺序
+      assertTrue(executor.isCached(selectStatement, executor.createCacheKey(selectStatement, sally, RowBounds.DEFAULT, selectStatement.getBoundSql(sally))));
+      executor.query(selectStatement, new Author(101, null, null, null, null, null), new RowBounds(0, 1), Executor.NO_RESULT_HANDLER);
+      Author author = new Author(102, null, null, null, null, null);
+      executor.query(selectStatement, author, RowBounds.DEFAULT, Executor.NO_RESULT_HANDLER);
+      assertEquals("sally", author.getUsername());
+      assertEquals("sally@ibatis.apache.org", author.getEmail());
+    } catch (ExecutorException e) {
+      if (executor instanceof CachingExecutor) {
+        // TODO see issue #464. Fail is OK.
+        assertTrue(e.getMessage().contains("OUT params is not supported"));
+      } else {
+        throw e;
+      }
+    } finally {
+      executor.rollback(true);
+      executor.close(false);
+    }
+  }
+
   @Test
   public void shouldMapConstructorResults() throws Exception {
     
@@ -0,0 +1,151 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.resultset;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.ConcurrentModificationException;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+public class CompactRowMapTest {
+
+  private final CompactRowMap.Columns columns = new CompactRowMap.Columns(Arrays.asList("ID", "NAME", "ID"));
+
+  @Test
+  public void shouldBehaveAsHashMap() {
+    CompactRowMap row = new CompactRowMap(columns);
+    Map<String, Object> expected = new HashMap<String, Object>();
+    assertTrue(row.isEmpty());
+    row.put("NAME", null);
+    expected.put("NAME", null);
+    assertTrue(row.containsKey("NAME"));
+    assertFalse(row.containsKey("ID"));
+    assertFalse(row.containsKey("name"));
+    row.put("ID", 1);
+    row.put("ID", 2);
+    row.put("other.name", "x");
+    expected.put("ID", 2);
+    expected.put("other.name", "x");
+    assertEquals(expected, row);
+    assertEquals(row, expected);
+    assertEquals(expected.hashCode(), row.hashCode());
+    assertEquals(3, row.size());
+    assertEquals(2, row.remove("ID"));
+    assertNull(row.remove("ID"));
+    assertEquals(2, row.size());
+  }
+
+  @Test
+  public void shouldIterateColumnsInOrderAndWriteThrough() {
+    CompactRowMap row = new CompactRowMap(columns);
+    row.put("extra", 3);
+    row.put("NAME", "a");
+    row.put("ID", 1);
+    Iterator<Map.Entry<String, Object>> it = row.entrySet().iterator();
+    Map.Entry<String, Object> entry = it.next();
+    assertEquals("ID", entry.getKey());
+    entry.setValue(5);
+    assertEquals("NAME", it.next().getKey());
+    it.remove();
+    assertEquals("extra", it.next().getKey());
+    assertFalse(it.hasNext());
+    assertEquals(5, row.get("ID"));
+    assertFalse(row.containsKey("NAME"));
+    assertEquals(2, row.size());
+  }
+
+  @Test
+  public void shouldRemoveThroughEntryIterator() {
+    CompactRowMap row = new CompactRowMap(columns);
+    row.put("ID", 1);
+    row.put("NAME", "a");
+    row.put("extra", 3);
+    Iterator<Map.Entry<String, Object>> it = row.entrySet().iterator();
+    it.next();
+    assertEquals("NAME", it.next().getKey());
+    // hasNext开始遍历其他键后，删除的仍是上一个返回的列
+    assertTrue(it.hasNext());
+    it.remove();
+    assertFalse(row.containsKey("NAME"));
+    assertTrue(row.containsKey("extra"));
+    try {
+      it.remove();
+      fail();
+    } catch (IllegalStateException e) {
+      // expected
+    }
+    assertEquals("extra", it.next().getKey());
+    it.remove();
+    assertFalse(it.hasNext());
+    assertEquals(1, row.size());
+    assertEquals(1, row.get("ID"));
+  }
+
+  @Test
+  public void shouldFailFastOnModificationDuringIteration() {
+    CompactRowMap row = new CompactRowMap(columns);
+    row.put("ID", 1);
+    row.put("NAME", "a");
+    Iterator<Map.Entry<String, Object>> it = row.entrySet().iterator();
+    it.next();
+    row.put("ID", 2);
+    it.next();
+    row.put("extra", 3);
+    try {
+      it.next();
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // expected
+    }
+    it = row.entrySet().iterator();
+    it.next();
+    row.remove("NAME");
+    try {
+      it.remove();
+      fail();
+    } catch (ConcurrentModificationException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void shouldSerializeAsHashMap() throws Exception {
+    CompactRowMap row = new CompactRowMap(columns);
+    row.put("ID", 1);
+    row.put("NAME", null);
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(row);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertEquals(HashMap.class, copy.getClass());
+    assertEquals(row, copy);
+  }
+
+}
@@ -0,0 +1,332 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.executor.sharding;
+
+import static org.junit.Assert.*;
+
+import java.io.StringReader;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.sql.DataSource;
+
+import org.apache.ibatis.annotations.Delete;
+import org.apache.ibatis.annotations.Insert;
+import org.apache.ibatis.annotations.Select;
+import org.apache.ibatis.annotations.Shard;
+import org.apache.ibatis.annotations.Update;
+import org.apache.ibatis.datasource.unpooled.UnpooledDataSource;
+import org.apache.ibatis.exceptions.PersistenceException;
+import org.apache.ibatis.mapping.Environment;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.apache.ibatis.session.SqlSession;
+import org.apache.ibatis.session.SqlSessionFactory;
+import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.transaction.jdbc.JdbcTransactionFactory;
+import org.junit.Before;
+import org.junit.Test;
+
+public class ShardingExecutorTest {
+
+  public static class Item {
+    private Integer id;
+    private String name;
+
+    public Item() {
+    }
+
+    public Item(Integer id, String name) {
+      this.id = id;
+      this.name = name;
+    }
+
+    public Integer getId() {
+      return id;
+    }
+
+    public void setId(Integer id) {
+      this.id = id;
+    }
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+  }
+
+  public interface ItemMapper {
+    @Shard(key = "id")
+    @Insert("insert into item (id, name) values (#{id}, #{name})")
+    int insert(Item item);
+
+    @Insert("insert into item (id, name) values (#{id}, #{name})")
+    int insertWithoutKey(Item item);
+
+    @Shard(key = "id")
+    @Select("select id, name from item where id = #{id}")
+    Item getItem(int id);
+
+    @Shard(orderBy = "id desc")
+    @Select("select id, name from item order by id desc")
+    List<Item> getItemsById();
+
+    @Shard(orderBy = "id")
+    @Select("select id, name from item order by id")
+    List<Item> getItemsPage(RowBounds rowBounds);
+
+    @Select("select id, name from item")
+    List<Item> getItems();
+
+    @Delete("delete from item where name = #{name}")
+    int deleteByName(String name);
+
+    @Shard(key = "id")
+    @Update("update item set name = #{name} where id = #{id}")
+    int rename(Item item);
+
+    @Shard(key = "itemId")
+    @Delete("delete from item where id = #{id}")
+    int deleteMistyped(Item item);
+  }
+
+  private DataSource[] dataSources;
+
+  @Before
+  public void setUp() throws Exception {
+    dataSources = new DataSource[3];
+    for (int i = 0; i < dataSources.length; i++) {
+      dataSources[i] = new UnpooledDataSource("org.hsqldb.jdbcDriver", "jdbc:hsqldb:mem:shard" + i, "sa", "");
+      execute(dataSources[i], "drop table item if exists");
+      execute(dataSources[i], "create table item (id int, name varchar(20))");
+    }
+  }
+
+  @Test
+  public void shouldRouteInsertsAndSelectsByShardKey() throws Exception {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory();
+    insertItems(sqlSessionFactory, 6);
+    for (int i = 0; i < dataSources.length; i++) {
+      assertEquals(2, count(dataSources[i]));
+    }
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      Item item = sqlSession.getMapper(ItemMapper.class).getItem(4);
+      assertEquals("item4", item.getName());
+    } finally {
+      sqlSession.close();
+    }
+    assertEquals(1, countId(dataSources[1], 4));
+  }
+
+  @Test
+  public void shouldMergeSelectsFromAllShardsInOrder() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory();
+    insertItems(sqlSessionFactory, 7);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      assertEquals(7, mapper.getItems().size());
+      assertEquals(ids(7, 6, 5, 4, 3, 2, 1), idsOf(mapper.getItemsById()));
+      assertEquals(ids(3, 4, 5), idsOf(mapper.getItemsPage(new RowBounds(2, 3))));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldBroadcastUpdatesWithoutShardKey() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory();
+    insertItems(sqlSessionFactory, 3);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      mapper.insert(new Item(4, "item1"));
+      assertEquals(2, mapper.deleteByName("item1"));
+      sqlSession.rollback();
+      assertEquals(3, mapper.getItems().size());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRejectInsertsWithoutShardKey() {
+    SqlSession sqlSession = createSqlSessionFactory().openSession();
+    try {
+      sqlSession.getMapper(ItemMapper.class).insertWithoutKey(new Item(1, "item1"));
+      fail();
+    } catch (PersistenceException e) {
+      assertTrue(e.getMessage().contains("shard key"));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldRejectUpdatesWithoutValueForDeclaredShardKey() {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory();
+    insertItems(sqlSessionFactory, 3);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      try {
+        mapper.rename(new Item(null, "renamed"));
+        fail();
+      } catch (PersistenceException e) {
+        assertTrue(e.getMessage().contains("no value for its shard key 'id'"));
+      }
+      try {
+        mapper.deleteMistyped(new Item(1, "item1"));
+        fail();
+      } catch (PersistenceException e) {
+        assertTrue(e.getMessage().contains("shard key 'itemId'"));
+      }
+      assertEquals(1, mapper.rename(new Item(2, "renamed")));
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldFailSelectOnAllShardsAfterTheOthersFinished() throws Exception {
+    SqlSessionFactory sqlSessionFactory = createSqlSessionFactory();
+    insertItems(sqlSessionFactory, 6);
+    execute(dataSources[0], "drop table item");
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      try {
+        mapper.getItems();
+        fail();
+      } catch (PersistenceException e) {
+        assertTrue(e.getCause() instanceof SQLException);
+      }
+      // 其它分片的执行器已经空闲，可以继续使用
+      assertEquals("item4", mapper.getItem(4).getName());
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  @Test
+  public void shouldReadShardEnvironmentsFromXml() throws Exception {
+    String xml = "<?xml version=\"1.0\" encoding=\"UTF-8\" ?>\n"
+        + "<!DOCTYPE configuration PUBLIC \"-//mybatis.org//DTD Config 3.0//EN\" \"http://mybatis.org/dtd/mybatis-3-config.dtd\">\n"
+        + "<configuration>\n"
+        + "  <environments default=\"shard0\" shards=\"shard0, shard1\">\n"
+        + environmentXml("shard0") + environmentXml("shard1") + environmentXml("other")
+        + "  </environments>\n"
+        + "</configuration>\n";
+    SqlSessionFactory sqlSessionFactory = new SqlSessionFactoryBuilder().build(new StringReader(xml));
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    assertTrue(configuration.isSharded());
+    assertEquals(2, configuration.getShardEnvironments().size());
+    assertEquals("shard0", configuration.getShardEnvironments().get(0).getId());
+    assertEquals("shard1", configuration.getShardEnvironments().get(1).getId());
+    assertEquals("shard0", configuration.getEnvironment().getId());
+  }
+
+  private static String environmentXml(String id) {
+    return "    <environment id=\"" + id + "\">\n"
+        + "      <transactionManager type=\"JDBC\"/>\n"
+        + "      <dataSource type=\"UNPOOLED\">\n"
+        + "        <property name=\"driver\" value=\"org.hsqldb.jdbcDriver\"/>\n"
+        + "        <property name=\"url\" value=\"jdbc:hsqldb:mem:" + id + "\"/>\n"
+        + "        <property name=\"username\" value=\"sa\"/>\n"
+        + "      </dataSource>\n"
+        + "    </environment>\n";
+  }
+
+  private SqlSessionFactory createSqlSessionFactory() {
+    Configuration configuration = new Configuration();
+    for (int i = 0; i < dataSources.length; i++) {
+      Environment environment = new Environment("shard" + i, new JdbcTransactionFactory(), dataSources[i]);
+      if (i == 0) {
+        configuration.setEnvironment(environment);
+      }
+      configuration.addShardEnvironment(environment);
+    }
+    configuration.addMapper(ItemMapper.class);
+    return new SqlSessionFactoryBuilder().build(configuration);
+  }
+
+  private static void insertItems(SqlSessionFactory sqlSessionFactory, int count) {
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      ItemMapper mapper = sqlSession.getMapper(ItemMapper.class);
+      for (int id = 1; id <= count; id++) {
+        mapper.insert(new Item(id, "item" + id));
+      }
+      sqlSession.commit();
+    } finally {
+      sqlSession.close();
+    }
+  }
+
+  private static List<Integer> ids(Integer... ids) {
+    List<Integer> list = new ArrayList<Integer>();
+    for (Integer id : ids) {
+      list.add(id);
+    }
+    return list;
+  }
+
+  private static List<Integer> idsOf(List<Item> items) {
+    List<Integer> list = new ArrayList<Integer>();
+    for (Item item : items) {
+      list.add(item.getId());
+    }
+    return list;
+  }
+
+  private static int count(DataSource dataSource) throws SQLException {
+    return queryInt(dataSource, "select count(*) from item");
+  }
+
+  private static int countId(DataSource dataSource, int id) throws SQLException {
+    return queryInt(dataSource, "select count(*) from item where id = " + id);
+  }
+
+  private static int queryInt(DataSource dataSource, String sql) throws SQLException {
+    Connection connection = dataSource.getConnection();
+    try {
+      Statement statement = connection.createStatement();
+      ResultSet rs = statement.executeQuery(sql);
+      rs.next();
+      return rs.getInt(1);
+    } finally {
+      connection.close();
+    }
+  }
+
+  private static void execute(DataSource dataSource, String sql) throws SQLException {
+    Connection connection = dataSource.getConnection();
+    try {
+      connection.createStatement().execute(sql);
+    } finally {
+      connection.close();
+    }
+  }
+
+}
@@ -0,0 +1,273 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.jdbc;
+
+import static org.junit.Assert.*;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.pooled.ConcurrentPooledDataSource;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.io.Resources;
+import org.junit.Test;
+
+public class ConcurrentPooledDataSourceTest extends BaseDataTest {
+
+  @Test
+  public void shouldProperlyMaintainPoolOf3ActiveAnd2IdleConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setDefaultAutoCommit(false);
+      ds.setDriverProperties(new Properties() {
+        {
+          setProperty("username", "sa");
+          setProperty("password", "");
+        }
+      });
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolMaximumIdleConnections(2);
+      ds.setPoolMaximumCheckoutTime(10000);
+      ds.setPoolPingConnectionsNotUsedFor(1);
+      ds.setPoolPingEnabled(true);
+      ds.setPoolPingQuery("SELECT * FROM PRODUCT");
+      ds.setPoolTimeToWait(10000);
+      List<Connection> connections = new ArrayList<Connection>();
+      for (int i = 0; i < 3; i++) {
+        connections.add(ds.getConnection());
+      }
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      for (Connection c : connections) {
+        c.close();
+      }
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      assertEquals(4, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      assertEquals(0, ds.getPoolState().getHadToWaitCount());
+      assertEquals(0, ds.getPoolState().getClaimedOverdueConnectionCount());
+      assertNotNull(ds.getPoolState().toString());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldInvalidateConnectionOnceClosed() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      Connection c = ds.getConnection();
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      c.toString();
+      try {
+        c.createStatement();
+        fail("Closed connection should be invalid");
+      } catch (SQLException e) {
+        // expected
+      }
+      Connection reused = ds.getConnection();
+      assertSame(realConnection, PooledDataSource.unwrapConnection(reused));
+      reused.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldClaimOverdueConnection() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumCheckoutTime(50);
+      Connection leaked = ds.getConnection();
+      Thread.sleep(100);
+      Connection c = ds.getConnection();
+      assertSame(PooledDataSource.unwrapConnection(leaked), PooledDataSource.unwrapConnection(c));
+      assertEquals(1, ds.getPoolState().getClaimedOverdueConnectionCount());
+      leaked.close();
+      assertEquals(1, ds.getPoolState().getBadConnectionCount());
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldKeepMinimumIdleConnectionsAndEvictIdleOnes() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolHousekeepingInterval(20);
+      ds.setPoolMinimumIdleConnections(3);
+      ds.getConnection().close();
+      PooledDataSourceTest.waitForIdleConnections(ds, 3);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolMaximumIdleTime(10);
+      PooledDataSourceTest.waitForIdleConnections(ds, 1);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldWarmUpInitialConnections() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(5);
+      ds.setPoolInitialConnections(8);
+      ds.warmUp();
+      assertTrue(ds.awaitWarmUp(10, TimeUnit.SECONDS));
+      assertEquals(5, ds.getPoolState().getIdleConnectionCount());
+      Connection c = ds.getConnection();
+      assertEquals(1, ds.getPoolState().getActiveConnectionCount());
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldFailWhenDeadlineIsNotMet() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      ds.setPoolMaximumWaitTime(50);
+      Connection c = ds.getConnection();
+      try {
+        ds.getConnection();
+        fail("Should have failed after the deadline");
+      } catch (SQLException e) {
+        assertTrue(e.getMessage().contains("deadline"));
+      }
+      assertEquals(1, ds.getPoolState().getDeadlineExceededCount());
+      c.close();
+      ds.getConnection().close();
+      assertEquals(3, ds.getPoolState().getWaitTimeHistogram().getCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReportConnectionsHeldLongerThanLeakThreshold() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    try {
+      ds.setPoolLeakDetectionThreshold(20);
+      Connection c = ds.getConnection();
+      ds.getConnection().close();
+      Thread.sleep(40);
+      assertEquals(1, ds.getPoolState().getLeakSuspects().size());
+      assertNotNull(ds.getPoolState().getLeakSuspects().get(0).getStackTrace());
+      c.close();
+      assertTrue(ds.getPoolState().getLeakSuspects().isEmpty());
+      assertEquals(2, ds.getPoolState().getCheckoutTimeHistogram().getCount());
+      assertEquals(2, ds.getPoolState().getRequestTimeHistogram().getCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNeverHandOutAConnectionTwice() throws Exception {
+    final ConcurrentPooledDataSource ds = createDataSource();
+    ds.setPoolMaximumActiveConnections(3);
+    ds.setPoolMaximumIdleConnections(3);
+    final ConcurrentHashMap<Connection, Thread> inUse = new ConcurrentHashMap<Connection, Thread>();
+    ExecutorService executor = Executors.newFixedThreadPool(8);
+    try {
+      List<Future<Void>> futures = new ArrayList<Future<Void>>();
+      for (int i = 0; i < 8; i++) {
+        futures.add(executor.submit(new Callable<Void>() {
+          @Override
+          public Void call() throws Exception {
+            for (int j = 0; j < 200; j++) {
+              Connection c = ds.getConnection();
+              Connection realConnection = PooledDataSource.unwrapConnection(c);
+              assertNull(inUse.putIfAbsent(realConnection, Thread.currentThread()));
+              Thread.yield();
+              inUse.remove(realConnection);
+              c.close();
+            }
+            return null;
+          }
+        }));
+      }
+      for (Future<Void> future : futures) {
+        future.get();
+      }
+      assertEquals(1600, ds.getPoolState().getRequestCount());
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+      assertTrue(ds.getPoolState().getIdleConnectionCount() <= 3);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+      ds.forceCloseAll();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      executor.shutdownNow();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCountIdleConnectionsAsTheyComeAndGo() throws Exception {
+    ConcurrentPooledDataSource ds = createDataSource();
+    ds.setPoolMaximumActiveConnections(3);
+    ds.setPoolMaximumIdleConnections(2);
+    try {
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      Connection c3 = ds.getConnection();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+      c1.close();
+      c2.close();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      // 空闲连接已满，第三个连接被关闭
+      c3.close();
+      assertEquals(2, ds.getPoolState().getIdleConnectionCount());
+      ds.getConnection();
+      assertEquals(1, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+    assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+  }
+
+  private static ConcurrentPooledDataSource createDataSource() throws IOException {
+    Properties props = Resources.getResourceAsProperties(JPETSTORE_PROPERTIES);
+    ConcurrentPooledDataSource ds = new ConcurrentPooledDataSource();
+    ds.setDriver(props.getProperty("driver"));
+    ds.setUrl(props.getProperty("url"));
+    ds.setUsername(props.getProperty("username"));
+    ds.setPassword(props.getProperty("password"));
+    return ds;
+  }
+}
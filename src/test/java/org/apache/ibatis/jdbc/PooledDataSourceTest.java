@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,16 +17,26 @@ package org.apache.ibatis.jdbc;
 
 import static org.junit.Assert.*;
 
+import java.lang.management.ManagementFactory;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.TimeUnit;
 
+import javax.management.MBeanServer;
+import javax.management.openmbean.CompositeData;
+
 import org.apache.ibatis.BaseDataTest;
+import org.apache.ibatis.datasource.DataSourceException;
+import org.apache.ibatis.datasource.pooled.ConnectionLeak;
+import org.apache.ibatis.datasource.pooled.ConnectionRequest;
+import org.apache.ibatis.datasource.pooled.PoolMetricsManager;
 import org.apache.ibatis.datasource.pooled.PooledDataSource;
 import org.hsqldb.jdbc.JDBCConnection;
 import org.junit.Ignore;
@@ -91,6 +101,444 @@ public class PooledDataSourceTest extends BaseDataTest {
     c.close();
   }
 
+  @Test
+  public void shouldDeferAutoCommitUntilConnectionIsUsed() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c = ds.getConnection();
+      // 取出真实连接后连接会被视为已使用，归还时回滚后才恢复
+      Connection realConnection = PooledDataSource.unwrapConnection(c);
+      c.close();
+      c = ds.getConnection();
+      assertTrue(realConnection.getAutoCommit());
+      c.setAutoCommit(false);
+      assertFalse(c.getAutoCommit());
+      assertTrue(realConnection.getAutoCommit());
+      c.setAutoCommit(true);
+      c.close();
+      assertTrue(realConnection.getAutoCommit());
+
+      c = ds.getConnection();
+      c.setAutoCommit(false);
+      PreparedStatement ps = c.prepareStatement("SELECT 1 FROM INFORMATION_SCHEMA.SYSTEM_USERS");
+      ps.close();
+      assertFalse(realConnection.getAutoCommit());
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRollBackOnlyUsedConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c = ds.getConnection();
+      c.setAutoCommit(false);
+      PreparedStatement ps = c.prepareStatement("INSERT INTO CATEGORY (CATID, NAME, DESCN) VALUES ('DIRTY', 'Dirty', null)");
+      ps.executeUpdate();
+      ps.close();
+      c.close();
+
+      c = ds.getConnection();
+      ps = c.prepareStatement("SELECT COUNT(*) FROM CATEGORY WHERE CATID = 'DIRTY'");
+      ResultSet rs = ps.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(0, rs.getInt(1));
+      rs.close();
+      ps.close();
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRollBackConnectionsUsedThroughTheRealConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      runScript(ds, JPETSTORE_DDL);
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c = ds.getConnection();
+      c.setAutoCommit(false);
+      insertCategory(PooledDataSource.unwrapConnection(c), "UNWRAPPED");
+      c.close();
+      c = ds.getConnection();
+      c.setAutoCommit(false);
+      insertCategory(c.unwrap(Connection.class), "UNWRAP");
+      c.close();
+
+      c = ds.getConnection();
+      PreparedStatement ps = c.prepareStatement("SELECT COUNT(*) FROM CATEGORY WHERE CATID IN ('UNWRAPPED', 'UNWRAP')");
+      ResultSet rs = ps.executeQuery();
+      assertTrue(rs.next());
+      assertEquals(0, rs.getInt(1));
+      rs.close();
+      ps.close();
+      c.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  private static void insertCategory(Connection c, String id) throws SQLException {
+    PreparedStatement ps = c.prepareStatement("INSERT INTO CATEGORY (CATID, NAME, DESCN) VALUES (?, 'Dirty', null)");
+    ps.setString(1, id);
+    ps.executeUpdate();
+    ps.close();
+  }
+
+  @Test
+  public void shouldKeepMinimumIdleConnectionsAndEvictIdleOnes() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolHousekeepingInterval(20);
+      ds.setPoolMinimumIdleConnections(3);
+      ds.getConnection().close();
+      waitForIdleConnections(ds, 3);
+      assertEquals(0, ds.getPoolState().getActiveConnectionCount());
+
+      ds.setPoolMinimumIdleConnections(1);
+      ds.setPoolMaximumIdleTime(10);
+      waitForIdleConnections(ds, 1);
+      assertEquals(0, ds.getPoolState().getBadConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldCloseConnectionsPastMaximumLifetime() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumConnectionLifetime(10);
+      Connection c = ds.getConnection();
+      Thread.sleep(20);
+      c.close();
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldWarmUpInitialConnections() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(5);
+      ds.setPoolInitialConnections(8);
+      ds.setPoolWarmUpThreads(3);
+      assertTrue(ds.isWarmedUp());
+      ds.warmUp();
+      assertTrue(ds.awaitWarmUp(10, TimeUnit.SECONDS));
+      assertTrue(ds.isWarmedUp());
+      assertEquals(5, ds.getPoolState().getIdleConnectionCount());
+      ds.warmUp();
+      assertTrue(ds.isWarmedUp());
+      assertEquals(5, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReportFailedWarmUp() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setUrl("jdbc:unknown:db");
+      ds.setPoolInitialConnections(2);
+      ds.warmUp();
+      assertFalse(ds.awaitWarmUp(10, TimeUnit.SECONDS));
+      assertEquals(0, ds.getPoolState().getIdleConnectionCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldFailWhenDeadlineIsNotMet() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      Connection c = ds.getConnection();
+      long deadline = System.currentTimeMillis() + 50;
+      ConnectionRequest.instance().deadline(deadline);
+      long start = System.currentTimeMillis();
+      try {
+        ds.getConnection();
+        fail("Should have failed after the deadline");
+      } catch (SQLException e) {
+        assertTrue(e.getMessage().contains("deadline"));
+        // 不会在截止时间之前失败
+        assertTrue(System.currentTimeMillis() >= deadline);
+      } finally {
+        ConnectionRequest.instance().reset();
+      }
+      long waited = System.currentTimeMillis() - start;
+      assertEquals(1, ds.getPoolState().getDeadlineExceededCount());
+      // 等待时间从进入队列开始计算，不超过getConnection的耗时
+      long maxWait = ds.getPoolState().getWaitTimeHistogram().getMax();
+      assertTrue(maxWait > 0 && maxWait <= waited);
+      c.close();
+      // 失败的线程已离开等待队列
+      ds.getConnection().close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldServeWaitersByPriorityThenArrival() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(1);
+      final List<String> order = Collections.synchronizedList(new ArrayList<String>());
+      Connection c = ds.getConnection();
+      List<Thread> threads = new ArrayList<Thread>();
+      String[] names = { "low", "normal-1", "high", "normal-2" };
+      final ConnectionRequest.Priority[] priorities = { ConnectionRequest.Priority.LOW, ConnectionRequest.Priority.NORMAL,
+          ConnectionRequest.Priority.HIGH, ConnectionRequest.Priority.NORMAL };
+      for (int i = 0; i < names.length; i++) {
+        final String name = names[i];
+        final ConnectionRequest.Priority priority = priorities[i];
+        Thread thread = new Thread(new Runnable() {
+          @Override
+          public void run() {
+            ConnectionRequest.instance().priority(priority);
+            try {
+              Connection conn = ds.getConnection();
+              order.add(name);
+              conn.close();
+            } catch (SQLException e) {
+              order.add(e.getMessage());
+            } finally {
+              ConnectionRequest.instance().reset();
+            }
+          }
+        });
+        thread.start();
+        threads.add(thread);
+        for (int j = 0; j < 100 && ds.getPoolState().getHadToWaitCount() <= i; j++) {
+          Thread.sleep(10);
+        }
+      }
+      c.close();
+      for (Thread thread : threads) {
+        thread.join(5000);
+      }
+      assertEquals(Arrays.asList("high", "normal-1", "normal-2", "low"), order);
+      assertEquals(1, ds.getPoolState().getWaitTimeHistogram(ConnectionRequest.Priority.HIGH).getCount());
+      assertEquals(3, ds.getPoolState().getWaitTimeHistogram(ConnectionRequest.Priority.NORMAL).getCount());
+      assertEquals(5, ds.getPoolState().getWaitTimeHistogram().getCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotLetFullPartitionHoldBackOtherTenants() throws Exception {
+    final PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPoolPartitionMaximumActiveConnections(1);
+      ConnectionRequest.instance().tenant("noisy");
+      Connection noisy = ds.getConnection();
+      final List<String> result = Collections.synchronizedList(new ArrayList<String>());
+      Thread thread = new Thread(new Runnable() {
+        @Override
+        public void run() {
+          ConnectionRequest.instance().tenant("noisy");
+          try {
+            ds.getConnection().close();
+            result.add("noisy");
+          } catch (SQLException e) {
+            result.add(e.getMessage());
+          } finally {
+            ConnectionRequest.instance().reset();
+          }
+        }
+      });
+      thread.start();
+      for (int i = 0; i < 100 && ds.getPoolState().getHadToWaitCount() == 0; i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(1, ds.getPartition("noisy").getLimitedCount());
+      // 队首的线程因分区已满在等待，其他租户不必排在它后面
+      ConnectionRequest.instance().tenant("quiet").timeout(1000);
+      Connection quiet = ds.getConnection();
+      assertEquals(1, ds.getPartition("quiet").getActiveConnectionCount());
+      assertTrue(result.isEmpty());
+      noisy.close();
+      thread.join(5000);
+      assertEquals(Arrays.asList("noisy"), result);
+      quiet.close();
+      // 没有配置过的分区空闲后被移除
+      assertNull(ds.getPartition("noisy"));
+      assertNull(ds.getPartition("quiet"));
+      assertTrue(ds.getPartitions().isEmpty());
+    } finally {
+      ConnectionRequest.instance().reset();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldKeepReservedConnectionsForTheirTenant() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPartitionLimits("quiet", 1, 0);
+      ConnectionRequest.instance().tenant("noisy");
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      ConnectionRequest.instance().timeout(50);
+      try {
+        ds.getConnection();
+        fail("Should not have taken the connection reserved for another tenant");
+      } catch (SQLException e) {
+        assertTrue(e.getMessage().contains("deadline"));
+      }
+      ConnectionRequest.instance().reset();
+      ConnectionRequest.instance().tenant("quiet").timeout(50);
+      Connection c3 = ds.getConnection();
+      assertEquals(3, ds.getPoolState().getActiveConnectionCount());
+      c3.close();
+      c2.close();
+      c1.close();
+      assertNull(ds.getPartition("noisy"));
+      assertEquals(0, ds.getPartition("quiet").getActiveConnectionCount());
+    } finally {
+      ConnectionRequest.instance().reset();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldRejectReservationsThatLeaveNoConnection() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(3);
+      ds.setPartitionLimits("a", 1, 0);
+      try {
+        ds.setPartitionLimits("b", 2, 0);
+        fail("Should have rejected reserving every connection");
+      } catch (DataSourceException e) {
+        assertTrue(e.getMessage().contains("reserve 3 connections"));
+      }
+      assertNull(ds.getPartition("b"));
+      // 修改已有分区时不重复计算它原来的保留数
+      ds.setPartitionLimits("a", 2, 0);
+      try {
+        ds.setPoolMaximumActiveConnections(2);
+        fail("Should have rejected a maximum the reservations use up");
+      } catch (DataSourceException e) {
+        assertEquals(3, ds.getPoolMaximumActiveConnections());
+      }
+      ds.setPoolMaximumActiveConnections(3);
+      Connection untenanted = ds.getConnection();
+      untenanted.close();
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldNotKeepPartitionsOfIdleTenants() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolMaximumActiveConnections(2);
+      ds.setPoolPartitionMaximumActiveConnections(1);
+      for (int i = 0; i < 100; i++) {
+        ConnectionRequest.instance().tenant("tenant" + i);
+        ds.getConnection().close();
+      }
+      assertTrue(ds.getPartitions().isEmpty());
+      ConnectionRequest.instance().tenant("busy");
+      Connection busy = ds.getConnection();
+      ConnectionRequest.instance().timeout(20);
+      try {
+        ds.getConnection();
+        fail("Should have hit the partition maximum");
+      } catch (SQLException e) {
+        assertTrue(e.getMessage().contains("deadline"));
+      }
+      // 等待失败后分区仍有连接，不能被移除
+      assertEquals(1, ds.getPartition("busy").getActiveConnectionCount());
+      busy.close();
+      assertNull(ds.getPartition("busy"));
+    } finally {
+      ConnectionRequest.instance().reset();
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldReportConnectionsHeldLongerThanLeakThreshold() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    try {
+      ds.setPoolLeakDetectionThreshold(20);
+      ds.setPoolLeakDetectionSamplePercentage(50);
+      ds.setPoolHousekeepingInterval(10);
+      Connection c1 = ds.getConnection();
+      Connection c2 = ds.getConnection();
+      assertTrue(ds.getPoolState().getLeakSuspects().isEmpty());
+      for (int i = 0; i < 100 && ds.getPoolState().getLeakSuspectCount() < 2; i++) {
+        Thread.sleep(10);
+      }
+      assertEquals(2, ds.getPoolState().getLeakSuspectCount());
+      List<ConnectionLeak> leaks = ds.getPoolState().getLeakSuspects();
+      assertEquals(2, leaks.size());
+      int traced = 0;
+      for (ConnectionLeak leak : leaks) {
+        assertTrue(leak.getCheckoutTime() > 20);
+        if (leak.getStackTrace() != null) {
+          traced++;
+          assertTrue(leak.toString().contains("shouldReportConnectionsHeldLongerThanLeakThreshold"));
+        }
+      }
+      assertEquals(1, traced);
+      c1.close();
+      c2.close();
+      assertTrue(ds.getPoolState().getLeakSuspects().isEmpty());
+      // 每次借出只报告一次
+      assertEquals(2, ds.getPoolState().getLeakSuspectCount());
+    } finally {
+      ds.forceCloseAll();
+    }
+  }
+
+  @Test
+  public void shouldExposePoolMetricsThroughJmx() throws Exception {
+    PooledDataSource ds = createPooledDataSource(JPETSTORE_PROPERTIES);
+    PoolMetricsManager metrics = new PoolMetricsManager(ds, "test");
+    metrics.register();
+    try {
+      MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+      Connection c = ds.getConnection();
+      assertEquals(1, server.getAttribute(metrics.getObjectName(), "ActiveConnectionCount"));
+      c.close();
+      assertEquals(0, server.getAttribute(metrics.getObjectName(), "ActiveConnectionCount"));
+      assertEquals(1, server.getAttribute(metrics.getObjectName(), "IdleConnectionCount"));
+      CompositeData checkoutTime = (CompositeData) server.getAttribute(metrics.getObjectName(), "CheckoutTimeHistogram");
+      assertEquals(1L, checkoutTime.get("count"));
+      CompositeData requestTime = (CompositeData) server.getAttribute(metrics.getObjectName(), "RequestTimeHistogram");
+      assertEquals(1L, requestTime.get("count"));
+    } finally {
+      metrics.unregister();
+      ds.forceCloseAll();
+    }
+  }
+
+  static void waitForIdleConnections(PooledDataSource ds, int expected) throws InterruptedException {
+    for (int i = 0; i < 100 && ds.getPoolState().getIdleConnectionCount() != expected; i++) {
+      Thread.sleep(20);
+    }
+    assertEquals(expected, ds.getPoolState().getIdleConnectionCount());
+  }
+
   @Ignore("See the comments")
   @Test
   public void shouldReconnectWhenServerKilledLeakedConnection() throws Exception {
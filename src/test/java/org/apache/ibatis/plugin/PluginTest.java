@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -17,8 +17,16 @@ package org.apache.ibatis.plugin;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import org.apache.ibatis.builder.StaticSqlSource;
+import org.apache.ibatis.mapping.MappedStatement;
+import org.apache.ibatis.mapping.SqlCommandType;
+import org.apache.ibatis.reflection.SystemMetaObject;
+import org.apache.ibatis.session.Configuration;
 import org.junit.Test;
 
+import java.lang.reflect.Proxy;
 import java.util.HashMap;
 import java.util.Map;
 import java.util.Properties;
@@ -39,6 +47,86 @@ public class PluginTest {
     assertFalse("Always".equals(map.toString()));
   }
 
+  @Test
+  public void shouldWrapChainInOneProxy() {
+    Map<String, String> target = new HashMap<String, String>();
+    target.put("key", "value");
+    Map map = (Map) new AlwaysMapPlugin().plugin(target);
+    map = (Map) new SuffixMapPlugin().plugin(map);
+    map = (Map) new SuffixMapPlugin().plugin(map);
+    assertEquals("Always!!", map.get("Anything"));
+    assertEquals(1, map.size());
+    assertSame(target, SystemMetaObject.forObject(Proxy.getInvocationHandler(map)).getValue("target"));
+  }
+
+  @Test
+  public void shouldSeeTargetOfNestedProxies() {
+    Map map = (Map) new AlwaysMapPlugin().plugin(new HashMap());
+    map = (Map) new TargetMapPlugin().plugin(map);
+    assertEquals("Always", map.get("Anything"));
+  }
+
+  @Test
+  public void shouldOnlyApplyInterceptorsOfMatchingStatements() {
+    Configuration config = new Configuration();
+    InterceptorChain chain = new InterceptorChain();
+    chain.addInterceptor(new UpdateMapPlugin());
+    Map map = new HashMap();
+    assertSame(map, chain.pluginAll(map, statement(config, "ns.select", SqlCommandType.SELECT)));
+    assertSame(map, chain.pluginAll(map, statement(config, "other.update", SqlCommandType.UPDATE)));
+    Map wrapped = (Map) chain.pluginAll(map, statement(config, "ns.update", SqlCommandType.UPDATE));
+    assertNotSame(map, wrapped);
+    assertEquals("Always", wrapped.get("Anything"));
+    chain.addInterceptor(new SuffixMapPlugin());
+    assertEquals("null!", ((Map) chain.pluginAll(map, statement(config, "ns.select", SqlCommandType.SELECT))).get("Anything"));
+  }
+
+  private MappedStatement statement(Configuration config, String id, SqlCommandType sqlCommandType) {
+    return new MappedStatement.Builder(config, id, new StaticSqlSource(config, "some statement"), sqlCommandType).build();
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  @Statements(namespaces = "ns", commandTypes = SqlCommandType.UPDATE)
+  public static class UpdateMapPlugin extends AlwaysMapPlugin {
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class SuffixMapPlugin implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return invocation.proceed() + "!";
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
+  @Intercepts({
+      @Signature(type = Map.class, method = "get", args = {Object.class})})
+  public static class TargetMapPlugin implements Interceptor {
+    @Override
+    public Object intercept(Invocation invocation) throws Throwable {
+      return ((Map) invocation.getTarget()).get(invocation.getArgs()[0]);
+    }
+
+    @Override
+    public Object plugin(Object target) {
+      return Plugin.wrap(target, this);
+    }
+
+    @Override
+    public void setProperties(Properties properties) {
+    }
+  }
+
   @Intercepts({
       @Signature(type = Map.class, method = "get", args = {Object.class})})
   public static class AlwaysMapPlugin implements Interceptor {
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2015 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -32,6 +32,7 @@ import org.apache.ibatis.domain.blog.Section;
 import org.apache.ibatis.domain.misc.CustomBeanWrapper;
 import org.apache.ibatis.domain.misc.CustomBeanWrapperFactory;
 import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.reflection.wrapper.BeanWrapper;
 import org.junit.Test;
 
 public class MetaObjectTest {
@@ -170,6 +171,68 @@ public class MetaObjectTest {
     assertNull(richWithNull.getValue("richType.richProperty"));
   }
 
+  @Test
+  public void shouldGetAndSetThroughCompiledPaths() {
+    MetaObject meta = SystemMetaObject.forObject(new RichType());
+    PropertyPath property = PropertyPath.compile("richType.richType.richProperty");
+    PropertyPath field = PropertyPath.compile("richType.richField");
+    PropertyPath mapPair = PropertyPath.compile("richType.richMap.key");
+    PropertyPath listItem = PropertyPath.compile("richType.richList[0]");
+    assertNull(meta.getValue(property));
+    meta.setValue(property, null);
+    assertNull(meta.getValue("richType"));
+    meta.setValue(property, "foo");
+    meta.setValue(field, "bar");
+    meta.setValue(mapPair, "baz");
+    meta.setValue(listItem, "qux");
+    assertEquals("foo", meta.getValue("richType.richType.richProperty"));
+    assertEquals("bar", meta.getValue("richType.richField"));
+    assertEquals("baz", meta.getValue("richType.richMap.key"));
+    assertEquals("qux", meta.getValue("richType.richList[0]"));
+    assertEquals("foo", meta.getValue(property));
+    assertEquals("bar", meta.getValue(field));
+    assertEquals("baz", meta.getValue(mapPair));
+    assertEquals("qux", meta.getValue(listItem));
+  }
+
+  @Test
+  public void shouldReuseCompiledPathsAcrossRootClasses() {
+    PropertyPath path = PropertyPath.compile("author.username");
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("author", new Author(1, "cbegin", null, null, null, null));
+    Map<String, Object> nested = new HashMap<String, Object>();
+    nested.put("username", "jdoe");
+    Map<String, Object> other = new HashMap<String, Object>();
+    other.put("author", nested);
+    assertEquals("cbegin", SystemMetaObject.forObject(map).getValue(path));
+    assertEquals("jdoe", SystemMetaObject.forObject(other).getValue(path));
+    assertEquals("cbegin", SystemMetaObject.forObject(map).getValue(path));
+  }
+
+  @Test
+  public void shouldShareMetaClassOfObjectsOfTheSameClass() {
+    MetaObjectFactory factory = new MetaObjectFactory(SystemMetaObject.DEFAULT_OBJECT_FACTORY,
+        SystemMetaObject.DEFAULT_OBJECT_WRAPPER_FACTORY, new DefaultReflectorFactory());
+    Author first = new Author(1, "cbegin", null, null, null, null);
+    Author second = new Author(2, "jdoe", null, null, null, null);
+    MetaObject meta = factory.forObject(first);
+    assertEquals("cbegin", meta.getValue("username"));
+    MetaObject next = factory.forObject(second);
+    assertTrue(meta != next);
+    assertTrue(second == next.getOriginalObject());
+    assertTrue(((BeanWrapper) meta.getObjectWrapper()).getMetaClass() == ((BeanWrapper) next.getObjectWrapper()).getMetaClass());
+    next.setValue("username", "jane");
+    assertEquals("jane", second.getUsername());
+    assertEquals("cbegin", first.getUsername());
+    assertEquals("cbegin", meta.getValue("username"));
+
+    Map<String, Object> map = new HashMap<String, Object>();
+    map.put("username", "map");
+    assertEquals("map", factory.forObject(map).getValue("username"));
+    assertEquals("cbegin", factory.forObject(first).getValue("username"));
+    assertTrue(factory.forObject(null) == SystemMetaObject.NULL_META_OBJECT);
+  }
+
   @Test
   public void shouldVerifyHasReadablePropertiesReturnedByGetReadablePropertyNames() {
     MetaObject object = SystemMetaObject.forObject(new Author());
@@ -0,0 +1,93 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.apache.ibatis.annotations.Param;
+import org.apache.ibatis.binding.BindingException;
+import org.apache.ibatis.binding.MapperMethod.ParamMap;
+import org.apache.ibatis.session.Configuration;
+import org.apache.ibatis.session.RowBounds;
+import org.junit.Test;
+
+public class ParamNameResolverTest {
+
+  interface Mapper {
+    void select(@Param("id") int id, RowBounds rowBounds, @Param("name") String name);
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Map<String, Object> namedParams(Object... args) throws Exception {
+    ParamNameResolver resolver = new ParamNameResolver(new Configuration(),
+        Mapper.class.getMethod("select", int.class, RowBounds.class, String.class));
+    return (Map<String, Object>) resolver.getNamedParams(args);
+  }
+
+  @Test
+  public void shouldReadArgumentsByNameAndGenericName() throws Exception {
+    Map<String, Object> params = namedParams(1, RowBounds.DEFAULT, "jim");
+    assertTrue(params instanceof ParamMap);
+    assertEquals(1, params.get("id"));
+    assertEquals("jim", params.get("name"));
+    assertEquals(1, params.get("param1"));
+    assertEquals("jim", params.get("param2"));
+    assertTrue(params.containsKey("param2"));
+    assertFalse(params.containsKey("param3"));
+    assertEquals(4, params.size());
+  }
+
+  @Test(expected = BindingException.class)
+  public void shouldFailOnUnknownName() throws Exception {
+    namedParams(1, RowBounds.DEFAULT, "jim").get("unknown");
+  }
+
+  @Test
+  public void shouldBehaveAsHashMapOnceModified() throws Exception {
+    Map<String, Object> params = namedParams(1, RowBounds.DEFAULT, "jim");
+    params.put("extra", "value");
+    params.put("id", 2);
+    Map<String, Object> expected = new HashMap<String, Object>();
+    expected.put("id", 2);
+    expected.put("name", "jim");
+    expected.put("param1", 1);
+    expected.put("param2", "jim");
+    expected.put("extra", "value");
+    assertEquals(expected, params);
+    assertEquals(5, params.size());
+  }
+
+  @Test
+  public void shouldSerializeTheArguments() throws Exception {
+    Map<String, Object> params = namedParams(1, RowBounds.DEFAULT, "jim");
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(params);
+    out.close();
+    Object copy = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())).readObject();
+    assertTrue(copy instanceof ParamMap);
+    assertEquals(params, copy);
+    assertEquals("jim", ((Map<?, ?>) copy).get("name"));
+  }
+
+}
@@ -0,0 +1,203 @@
+/**
+ *    Copyright 2009-2026 the original author or authors.
+ *
+ *    Licensed under the Apache License, Version 2.0 (the "License");
+ *    you may not use this file except in compliance with the License.
+ *    You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *    Unless required by applicable law or agreed to in writing, software
+ *    distributed under the License is distributed on an "AS IS" BASIS,
+ *    WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *    See the License for the specific language governing permissions and
+ *    limitations under the License.
+ */
+package org.apache.ibatis.reflection;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.ibatis.builder.ReflectorIndexGenerator;
+import org.apache.ibatis.datasource.pooled.PooledDataSource;
+import org.apache.ibatis.domain.blog.Author;
+import org.apache.ibatis.domain.blog.Blog;
+import org.apache.ibatis.domain.blog.Comment;
+import org.apache.ibatis.domain.blog.Post;
+import org.apache.ibatis.domain.misc.RichType;
+import org.apache.ibatis.session.Configuration;
+import org.junit.Test;
+
+public class ReflectorIndexTest {
+
+  static abstract class Entity<T> {
+    private T id;
+
+    public T getId() {
+      return id;
+    }
+
+    public void setId(T id) {
+      this.id = id;
+    }
+  }
+
+  static class Account extends Entity<Long> {
+    private String name;
+    private boolean active;
+    protected int version;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+  }
+
+  // Account加了一个属性之后的样子
+  static class ChangedAccount extends Entity<Long> {
+    private String name;
+    private boolean active;
+    protected int version;
+    private String email;
+
+    public String getName() {
+      return name;
+    }
+
+    public void setName(String name) {
+      this.name = name;
+    }
+
+    public boolean isActive() {
+      return active;
+    }
+
+    public String getEmail() {
+      return email;
+    }
+  }
+
+  @Test
+  public void shouldBuildTheSameReflectorFromTheIndex() throws Exception {
+    Reflector reflector = reflectorOf(Account.class, index(Account.class));
+    Reflector scanned = new Reflector(Account.class);
+    assertEquals(sorted(scanned.getGetablePropertyNames()), sorted(reflector.getGetablePropertyNames()));
+    assertEquals(sorted(scanned.getSetablePropertyNames()), sorted(reflector.getSetablePropertyNames()));
+    for (String name : scanned.getGetablePropertyNames()) {
+      assertEquals(scanned.getGetterType(name), reflector.getGetterType(name));
+    }
+    for (String name : scanned.getSetablePropertyNames()) {
+      assertEquals(scanned.getSetterType(name), reflector.getSetterType(name));
+    }
+    assertEquals(Long.class, reflector.getSetterType("id"));
+    assertEquals("version", reflector.findPropertyName("VERSION"));
+    assertTrue(reflector.hasDefaultConstructor());
+
+    Account account = new Account();
+    reflector.getSetInvoker("id").invoke(account, new Object[] { 1L });
+    reflector.getSetInvoker("name").invoke(account, new Object[] { "acme" });
+    reflector.getSetInvoker("active").invoke(account, new Object[] { true });
+    reflector.getSetInvoker("version").invoke(account, new Object[] { 2 });
+    assertEquals(1L, reflector.getGetInvoker("id").invoke(account, new Object[0]));
+    assertEquals("acme", reflector.getGetInvoker("name").invoke(account, new Object[0]));
+    assertEquals(true, reflector.getGetInvoker("active").invoke(account, new Object[0]));
+    assertEquals(2, reflector.getGetInvoker("version").invoke(account, new Object[0]));
+  }
+
+  @Test
+  public void shouldIgnoreStaleEntries() throws Exception {
+    String index = index(Account.class).replace("getName", "getFullName");
+    assertNull(reflectorOf(Account.class, index));
+  }
+
+  @Test
+  public void shouldIgnoreEntriesOfChangedClasses() throws Exception {
+    // 索引中的成员都还存在，只有类文件能发现新增的属性
+    String index = index(Account.class).replace(Account.class.getName(), ChangedAccount.class.getName());
+    assertNull(reflectorOf(ChangedAccount.class, index));
+    String accountIndex = index(Account.class);
+    assertNull(reflectorOf(Account.class, accountIndex.replaceAll("file .*\\R", "")));
+    assertNull(reflectorOf(Account.class, accountIndex.replaceAll("file \\S+\\$Entity .*\\R", "")));
+    // 大小相同、修改时间不同的类文件比较CRC
+    assertNull(reflectorOf(Account.class, accountIndex.replaceFirst("(file \\S+\\$Account \\d+) \\S+ \\d+", "$1 0 0")));
+    assertNotNull(reflectorOf(Account.class, accountIndex));
+  }
+
+  @Test
+  public void shouldLoadIndexedReflectorsFasterThanScanning() throws Exception {
+    Class<?>[] types = { Author.class, Blog.class, Post.class, Comment.class, RichType.class, Configuration.class,
+        PooledDataSource.class };
+    Map<String, List<String[]>> entries = new HashMap<String, List<String[]>>();
+    StringWriter writer = new StringWriter();
+    ReflectorIndex.write(writer, Arrays.<Class<?>>asList(types));
+    ReflectorIndex.read(new BufferedReader(new StringReader(writer.toString())), entries);
+    long indexed = Long.MAX_VALUE;
+    long scanned = Long.MAX_VALUE;
+    // 取多轮中最快的一轮，减少JIT和GC的干扰
+    for (int round = 0; round < 10; round++) {
+      long start = System.nanoTime();
+      for (int i = 0; i < 20; i++) {
+        for (Class<?> type : types) {
+          assertNotNull(ReflectorIndex.reflectorOf(type, entries.get(type.getName())));
+        }
+      }
+      indexed = Math.min(indexed, System.nanoTime() - start);
+      start = System.nanoTime();
+      for (int i = 0; i < 20; i++) {
+        for (Class<?> type : types) {
+          assertNotNull(new Reflector(type));
+        }
+      }
+      scanned = Math.min(scanned, System.nanoTime() - start);
+    }
+    assertTrue("indexed " + indexed + " ns, scanned " + scanned + " ns", indexed < scanned);
+  }
+
+  @Test
+  public void shouldIndexBeanPropertiesOfTheGivenTypes() {
+    ReflectorIndexGenerator generator = new ReflectorIndexGenerator();
+    generator.addType(Post.class);
+    assertTrue(generator.getTypes().contains(Post.class));
+    assertTrue(generator.getTypes().contains(Author.class));
+    for (Class<?> type : generator.getTypes()) {
+      assertFalse(type.getName().startsWith("java."));
+    }
+  }
+
+  private static String index(Class<?> type) {
+    StringWriter writer = new StringWriter();
+    ReflectorIndex.write(writer, Arrays.<Class<?>>asList(type));
+    return writer.toString();
+  }
+
+  private static Reflector reflectorOf(Class<?> type, String index) throws Exception {
+    Map<String, List<String[]>> entries = new HashMap<String, List<String[]>>();
+    ReflectorIndex.read(new BufferedReader(new StringReader(index)), entries);
+    return ReflectorIndex.reflectorOf(type, entries.get(type.getName()));
+  }
+
+  private static List<String> sorted(String[] names) {
+    String[] copy = names.clone();
+    Arrays.sort(copy);
+    return Arrays.asList(copy);
+  }
+
+}
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -18,8 +18,12 @@ package org.apache.ibatis.reflection;
 import static org.junit.Assert.*;
 
 import java.io.Serializable;
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationTargetException;
 import java.util.List;
 
+import org.apache.ibatis.reflection.invoker.Invoker;
+import org.apache.ibatis.reflection.invoker.LambdaInvoker;
 import org.junit.Assert;
 import org.junit.Test;
 import static com.googlecode.catchexception.apis.BDDCatchException.*;
@@ -210,4 +214,80 @@ public class ReflectorTest {
     Reflector reflector = reflectorFactory.findForClass(Bean.class);
     assertTrue((Boolean)reflector.getGetInvoker("bool").invoke(new Bean(), new Byte[0]));
   }
+
+  static class Counter {
+    private int count;
+    private long total;
+    public int getCount() {
+      return count;
+    }
+    public void setCount(int count) {
+      this.count = count;
+    }
+    public long getTotal() {
+      return total;
+    }
+    public void setTotal(long total) {
+      this.total = total;
+    }
+    public String getBroken() {
+      throw new IllegalStateException("broken");
+    }
+  }
+
+  @Test
+  public void shouldInvokeAccessorsThroughLambdas() throws Exception {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Counter.class);
+    Invoker getter = reflector.getGetInvoker("count");
+    Invoker setter = reflector.getSetInvoker("count");
+    assertTrue(getter instanceof LambdaInvoker);
+    assertTrue(setter instanceof LambdaInvoker);
+    assertEquals(int.class, getter.getType());
+    assertEquals(int.class, setter.getType());
+    Counter counter = new Counter();
+    setter.invoke(counter, new Object[] { 3 });
+    assertEquals(3, getter.invoke(counter, new Object[0]));
+  }
+
+  @Test
+  public void shouldGenerateLambdaAccessorsOnFirstCall() throws Exception {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Counter.class);
+    Invoker getter = reflector.getGetInvoker("count");
+    Field accessor = LambdaInvoker.class.getDeclaredField("accessor");
+    accessor.setAccessible(true);
+    assertNull(accessor.get(getter));
+    getter.invoke(new Counter(), new Object[0]);
+    assertNotNull(accessor.get(getter));
+    assertNull(accessor.get(reflector.getSetInvoker("count")));
+  }
+
+  @Test
+  public void shouldRejectMismatchedArgumentsOfLambdaAccessorsLikeReflection() throws Exception {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Counter.class);
+    Invoker setter = reflector.getSetInvoker("count");
+    Counter counter = new Counter();
+    setter.invoke(counter, new Object[] { 1 });
+    when(setter).invoke(counter, new Object[] { null });
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(setter).invoke(counter, new Object[] { "2" });
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    when(setter).invoke("not a counter", new Object[] { 2 });
+    then(caughtException()).isInstanceOf(IllegalArgumentException.class);
+    assertEquals(1, counter.getCount());
+    // 和Method.invoke一样拓宽基本类型
+    reflector.getSetInvoker("total").invoke(counter, new Object[] { 3 });
+    assertEquals(3L, counter.getTotal());
+  }
+
+  @Test
+  public void shouldWrapExceptionsOfLambdaAccessors() throws Exception {
+    ReflectorFactory reflectorFactory = new DefaultReflectorFactory();
+    Reflector reflector = reflectorFactory.findForClass(Counter.class);
+    when(reflector.getGetInvoker("broken")).invoke(new Counter(), new Object[0]);
+    then(caughtException()).isInstanceOf(InvocationTargetException.class)
+      .hasCauseInstanceOf(IllegalStateException.class);
+  }
 }
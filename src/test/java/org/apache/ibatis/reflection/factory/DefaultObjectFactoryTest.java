@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2018 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,6 +15,10 @@
  */
 package org.apache.ibatis.reflection.factory;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -48,6 +52,37 @@ public class DefaultObjectFactoryTest {
     Assert.assertEquals("myString didn't match expected", "foo", testClass.myString);
   }
 
+  @Test
+  public void createClassWithReusedArgumentTypes() throws Exception {
+    DefaultObjectFactory defaultObjectFactory = new DefaultObjectFactory();
+    List<Class<?>> argTypes = new ArrayList<Class<?>>(Arrays.<Class<?>>asList(String.class, Integer.class));
+    TestClass testClass = defaultObjectFactory.create(TestClass.class, argTypes, Arrays.<Object>asList("foo", 0));
+    Assert.assertEquals("foo", testClass.myString);
+
+    argTypes.clear();
+    argTypes.add(String.class);
+    try {
+      defaultObjectFactory.create(TestClass.class, argTypes, Collections.<Object>singletonList("foo"));
+      Assert.fail("Should have thrown ReflectionException");
+    } catch (ReflectionException e) {
+      Assert.assertTrue(e.getMessage().contains("(String)"));
+    }
+
+    DefaultObjectFactory deserialized = (DefaultObjectFactory) new ObjectInputStream(new ByteArrayInputStream(
+        serialize(defaultObjectFactory))).readObject();
+    testClass = deserialized.create(TestClass.class, Arrays.<Class<?>>asList(String.class, Integer.class),
+        Arrays.<Object>asList("bar", 1));
+    Assert.assertEquals("bar", testClass.myString);
+  }
+
+  private static byte[] serialize(Object object) throws Exception {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    ObjectOutputStream out = new ObjectOutputStream(bytes);
+    out.writeObject(object);
+    out.close();
+    return bytes.toByteArray();
+  }
+
   @Test
   public void createClassThrowsProperErrorMsg() {
     DefaultObjectFactory defaultObjectFactory = new DefaultObjectFactory();
@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -15,10 +15,16 @@
  */
 package org.apache.ibatis.submitted.cache;
 
+import java.io.File;
 import java.io.Reader;
+import java.lang.management.ManagementFactory;
 import java.lang.reflect.Field;
 import java.sql.Connection;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.CompositeData;
+
 import org.apache.ibatis.annotations.CacheNamespace;
 import org.apache.ibatis.annotations.Property;
 import org.apache.ibatis.cache.Cache;
@@ -27,9 +33,11 @@ import org.apache.ibatis.annotations.CacheNamespaceRef;
 import org.apache.ibatis.builder.BuilderException;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.jdbc.ScriptRunner;
+import org.apache.ibatis.session.Configuration;
 import org.apache.ibatis.session.SqlSession;
 import org.apache.ibatis.session.SqlSessionFactory;
 import org.apache.ibatis.session.SqlSessionFactoryBuilder;
+import org.apache.ibatis.session.defaults.DefaultSqlSessionFactory;
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
@@ -369,6 +377,142 @@ public class CacheTest {
       .hasMessage("Should be specified either value() or name() attribute in the @CacheNamespaceRef");
   }
 
+  @Test
+  public void shouldRefreshEntryAheadOfExpiration() throws Exception {
+    sqlSessionFactory.getConfiguration().addMapper(RefreshAheadPersonMapper.class);
+    SqlSession sqlSession1 = sqlSessionFactory.openSession(true);
+    try {
+      Assert.assertEquals(2, sqlSession1.getMapper(RefreshAheadPersonMapper.class).findAll().size());
+      Person p = new Person(3, "hello", "world");
+      sqlSession1.getMapper(PersonMapper.class).create(p);
+    } finally {
+      sqlSession1.close();
+    }
+    Thread.sleep(400);
+    SqlSession sqlSession2 = sqlSessionFactory.openSession(true);
+    try {
+      RefreshAheadPersonMapper mapper = sqlSession2.getMapper(RefreshAheadPersonMapper.class);
+      // served from the cache while the entry is reloaded in the background
+      Assert.assertEquals(2, mapper.findAll().size());
+      int size = 2;
+      for (int i = 0; i < 40 && size == 2; i++) {
+        Thread.sleep(50);
+        sqlSession2.clearCache();
+        size = mapper.findAll().size();
+      }
+      Assert.assertEquals(3, size);
+    } finally {
+      sqlSession2.close();
+    }
+  }
+
+  @Test
+  public void shouldRefreshEntryWithTheParameterValuesItWasLoadedWith() throws Exception {
+    sqlSessionFactory.getConfiguration().addMapper(RefreshAheadPersonMapper.class);
+    Person from = new Person(1, null, null);
+    SqlSession sqlSession1 = sqlSessionFactory.openSession(true);
+    try {
+      Assert.assertEquals(2, sqlSession1.getMapper(RefreshAheadPersonMapper.class).findFrom(from).size());
+      // the caller reuses its parameter object
+      from.setId(2);
+      sqlSession1.getMapper(PersonMapper.class).create(new Person(3, "hello", "world"));
+    } finally {
+      sqlSession1.close();
+    }
+    Thread.sleep(400);
+    SqlSession sqlSession2 = sqlSessionFactory.openSession(true);
+    try {
+      RefreshAheadPersonMapper mapper = sqlSession2.getMapper(RefreshAheadPersonMapper.class);
+      Assert.assertEquals(2, mapper.findFrom(new Person(1, null, null)).size());
+      int size = 2;
+      for (int i = 0; i < 40 && size == 2; i++) {
+        Thread.sleep(50);
+        sqlSession2.clearCache();
+        size = mapper.findFrom(new Person(1, null, null)).size();
+      }
+      Assert.assertEquals(3, size);
+    } finally {
+      sqlSession2.close();
+    }
+  }
+
+  @Test
+  public void shouldExposeCacheStatisticsThroughJmx() throws Exception {
+    Configuration configuration = sqlSessionFactory.getConfiguration();
+    String cacheId = PersonMapper.class.getName();
+    configuration.getCacheStatistics(cacheId).reset();
+    configuration.setJmxEnabled(true);
+    DefaultSqlSessionFactory factory = new DefaultSqlSessionFactory(configuration);
+    ObjectName name = factory.getCacheStatisticsManager().getObjectName();
+    MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+    try {
+      for (int i = 0; i < 2; i++) {
+        SqlSession sqlSession = factory.openSession();
+        try {
+          Assert.assertEquals(2, sqlSession.getMapper(PersonMapper.class).findAll().size());
+        } finally {
+          sqlSession.close();
+        }
+      }
+      CompositeData statistics = (CompositeData) server.invoke(name, "getStatistics",
+          new Object[] { cacheId }, new String[] { String.class.getName() });
+      Assert.assertEquals(1L, statistics.get("hits"));
+      Assert.assertEquals(1L, statistics.get("misses"));
+      Assert.assertEquals(1L, statistics.get("loads"));
+      Assert.assertEquals(2L, statistics.get("commits"));
+      Assert.assertEquals(1, statistics.get("size"));
+
+      server.invoke(name, "clear", new Object[] { cacheId }, new String[] { String.class.getName() });
+      Assert.assertEquals(0, configuration.getCache(cacheId).getSize());
+    } finally {
+      factory.getCacheStatisticsManager().unregister();
+      configuration.setJmxEnabled(false);
+    }
+    Assert.assertFalse(server.isRegistered(name));
+  }
+
+  @Test
+  public void shouldRestoreCachesFromSnapshot() throws Exception {
+    String cacheId = PersonMapper.class.getName();
+    File file = File.createTempFile("cache", ".snapshot");
+    file.delete();
+    try {
+      SqlSession sqlSession = sqlSessionFactory.openSession();
+      try {
+        Assert.assertEquals(2, sqlSession.getMapper(PersonMapper.class).findAll().size());
+      } finally {
+        sqlSession.close();
+      }
+      Configuration configuration = sqlSessionFactory.getConfiguration();
+      configuration.setCacheSnapshotFile(file.getPath());
+      new DefaultSqlSessionFactory(configuration).close();
+      Assert.assertTrue(file.isFile());
+
+      Configuration restored = newConfiguration();
+      restored.setCacheSnapshotFile(file.getPath());
+      new DefaultSqlSessionFactory(restored);
+      Assert.assertEquals(1, restored.getCache(cacheId).getSize());
+
+      Configuration expired = newConfiguration();
+      expired.setCacheSnapshotFile(file.getPath());
+      expired.setCacheSnapshotMaxAge(1);
+      Thread.sleep(10);
+      new DefaultSqlSessionFactory(expired);
+      Assert.assertEquals(0, expired.getCache(cacheId).getSize());
+    } finally {
+      file.delete();
+    }
+  }
+
+  private Configuration newConfiguration() throws Exception {
+    Reader reader = Resources.getResourceAsReader("org/apache/ibatis/submitted/cache/mybatis-config.xml");
+    try {
+      return new SqlSessionFactoryBuilder().build(reader).getConfiguration();
+    } finally {
+      reader.close();
+    }
+  }
+
   private CustomCache unwrap(Cache cache){
     Field field;
     try {
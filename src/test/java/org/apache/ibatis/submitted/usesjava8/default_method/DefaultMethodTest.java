@@ -1,5 +1,5 @@
 /**
- *    Copyright 2009-2017 the original author or authors.
+ *    Copyright 2009-2026 the original author or authors.
  *
  *    Licensed under the Apache License, Version 2.0 (the "License");
  *    you may not use this file except in compliance with the License.
@@ -20,6 +20,7 @@ import static org.junit.Assert.*;
 import java.io.Reader;
 import java.sql.Connection;
 
+import org.apache.ibatis.binding.GeneratedMapper;
 import org.apache.ibatis.io.Resources;
 import org.apache.ibatis.jdbc.ScriptRunner;
 import org.apache.ibatis.session.SqlSession;
@@ -89,4 +90,21 @@ public class DefaultMethodTest {
       sqlSession.close();
     }
   }
+
+  @Test
+  public void shouldInheritDefaultMethodsInGeneratedMappers() {
+    sqlSessionFactory.getConfiguration().setMapperGenerationEnabled(true);
+    SqlSession sqlSession = sqlSessionFactory.openSession();
+    try {
+      SubMapper mapper = sqlSession.getMapper(SubMapper.class);
+      assertTrue(mapper instanceof GeneratedMapper);
+      assertEquals("User1", mapper.defaultGetUser("User1", 1).getName());
+      PackageMapper packageMapper = sqlSession.getMapper(PackageMapper.class);
+      assertTrue(packageMapper instanceof GeneratedMapper);
+      assertEquals("User1", packageMapper.defaultGetUser(1).getName());
+    } finally {
+      sqlSession.close();
+      sqlSessionFactory.getConfiguration().setMapperGenerationEnabled(false);
+    }
+  }
 }